@@ -25,6 +25,10 @@ import java.nio.ByteBuffer;
 /**
  * A buffer used to store an encoding PDU. It's auto-extended, and
  * filled by the end.
+ * <br>
+ * When created with an {@link Asn1BufferPool}, the backing arrays are taken from
+ * the pool, and given back to it when the buffer is extended or cleared, so that
+ * a buffer reused to encode many PDUs does not allocate in the steady state.
  *
  * @author <a href="mailto:dev@directory.apache.org">Apache Directory Project</a>
  */
@@ -38,6 +42,9 @@ public class Asn1Buffer
 
     /** A buffer to store the encoded PDU */
     private byte[] buffer;
+
+    /** The pool the backing arrays are taken from, if any */
+    private final Asn1BufferPool pool;
     
     
     /**
@@ -45,10 +52,36 @@ public class Asn1Buffer
      */
     public Asn1Buffer()
     {
+        pool = null;
         buffer = new byte[DEFAULT_SIZE];
     }
 
 
+    /**
+     * Creates a new Asn1Buffer instance with a specific initial size. A subclass
+     * managing its own storage will use a 0 size.
+     *
+     * @param initialSize The initial size of the backing array
+     */
+    protected Asn1Buffer( int initialSize )
+    {
+        pool = null;
+        buffer = new byte[initialSize];
+    }
+
+
+    /**
+     * Creates a new pooled Asn1Buffer instance
+     *
+     * @param pool The pool the backing arrays will be taken from and given back to
+     */
+    public Asn1Buffer( Asn1BufferPool pool )
+    {
+        this.pool = pool;
+        buffer = pool.acquire( DEFAULT_SIZE );
+    }
+
+
     /**
      * @return The current position in the buffer
      */
@@ -113,6 +146,17 @@ public class Asn1Buffer
      */
     private void extend( int size )
     {
+        if ( pool != null )
+        {
+            // Get a bigger array from the pool, and give back the current one
+            byte[] newBuffer = pool.acquire( buffer.length + size );
+            System.arraycopy( buffer, buffer.length - pos, newBuffer, newBuffer.length - pos, pos );
+            pool.release( buffer );
+            buffer = newBuffer;
+
+            return;
+        }
+
         // The buffer needs to be reallocated, it's too small
         int newSize = ( ( size + buffer.length ) / DEFAULT_SIZE ) * DEFAULT_SIZE;
 
@@ -142,6 +186,33 @@ public class Asn1Buffer
     }
 
 
+    /**
+     * Get a read-only view of the stored encoded PDU. No copy is done, so the
+     * returned ByteBuffer is only valid until the next modification of this buffer
+     * (a put or a clear).
+     *
+     * @return A read-only ByteBuffer wrapping the stored encoded PDU
+     */
+    public ByteBuffer getReadOnlyBytes()
+    {
+        return ByteBuffer.wrap( buffer, buffer.length - pos, pos ).slice().asReadOnlyBuffer();
+    }
+
+
+    /**
+     * Copy the stored encoded PDU into a destination buffer, starting at its current
+     * position. The destination can be a direct ByteBuffer, in which case the PDU
+     * can be written to a channel without any further copy.
+     *
+     * @param destination The ByteBuffer to write the encoded PDU into
+     * @throws java.nio.BufferOverflowException If there is not enough room in the destination
+     */
+    public void writeTo( ByteBuffer destination )
+    {
+        destination.put( buffer, buffer.length - pos, pos );
+    }
+
+
     /**
      * @return The buffer size (ie the maximum number of bytes that can be
      * added to this bffder before it gets extended).
@@ -154,13 +225,21 @@ public class Asn1Buffer
 
     /**
      * Clear the position, emptying the buffer. If it has grown, reallocate it
-     * to its initial size.
+     * to its initial size. A pooled buffer gives its grown array back to the pool.
      */
     public void clear()
     {
         if ( buffer.length > DEFAULT_SIZE )
         {
-            buffer = new byte[DEFAULT_SIZE];
+            if ( pool != null )
+            {
+                pool.release( buffer );
+                buffer = pool.acquire( DEFAULT_SIZE );
+            }
+            else
+            {
+                buffer = new byte[DEFAULT_SIZE];
+            }
         }
 
         pos = 0;
@@ -20,13 +20,24 @@
 
 package org.apache.directory.api.asn1.util;
 
+
+import java.nio.ByteBuffer;
+
+import org.apache.directory.api.i18n.I18n;
+
+
 /**
  * A buffer used to store an encoding PDU. It's auto-extended, and
  * filled by the end.
+ * <br>
+ * Unlike the {@link Asn1Buffer}, the PDU is stored in a chain of fixed size
+ * segments : extending the buffer adds a new segment in front of the chain, and
+ * never copies the already encoded bytes. The encoded PDU can be exposed as an array
+ * of ByteBuffers, one per segment, to be written with a gathering write.
  *
  * @author <a href="mailto:dev@directory.apache.org">Apache Directory Project</a>
  */
-public class Asn1Buffer2
+public class Asn1Buffer2 extends Asn1Buffer
 {
     /** The buffer default size */
     private static final int DEFAULT_SIZE = 1024;
@@ -35,19 +46,38 @@ public class Asn1Buffer2
     private int pos = 0;
 
     /** The current size */
-    private int size = DEFAULT_SIZE;
+    private int size;
+
+    /** The segments size */
+    private final int segmentSize;
+
+    /** The pool the segments are taken from, if any */
+    private final Asn1BufferPool pool;
+
+    /** The number of segments in the chain */
+    private int nbSegments;
 
     /** The internal buffer storage */
-    private final class InternalBuffer
+    private static final class InternalBuffer
     {
         /** A buffer to store the encoded PDU */
-        private byte[] buffer = new byte[DEFAULT_SIZE];
+        private final byte[] buffer;
+
+        /** The position of the first stored byte in this segment */
+        private int start;
 
         /** The next buffer, if any */
         private InternalBuffer next;
+
+
+        private InternalBuffer( byte[] buffer )
+        {
+            this.buffer = buffer;
+            start = buffer.length;
+        }
     }
 
-    /** The current internal buffer */
+    /** The current internal buffer, containing the beginning of the PDU */
     private InternalBuffer currentBuffer;
 
 
@@ -56,33 +86,126 @@ public class Asn1Buffer2
      */
     public Asn1Buffer2()
     {
-        currentBuffer = new InternalBuffer();
+        this( DEFAULT_SIZE, null );
+    }
+
+
+    /**
+     * Create a new instance of Asn1Buffer2, using segments of a specific size
+     *
+     * @param segmentSize The size of each segment
+     */
+    public Asn1Buffer2( int segmentSize )
+    {
+        this( segmentSize, null );
+    }
+
+
+    /**
+     * Create a new instance of Asn1Buffer2 which segments are taken from a pool. The
+     * segment size is the pool size class holding the requested size.
+     *
+     * @param segmentSize The minimal size of each segment
+     * @param pool The pool the segments are taken from and given back to, or null
+     */
+    public Asn1Buffer2( int segmentSize, Asn1BufferPool pool )
+    {
+        super( 0 );
+
+        if ( segmentSize <= 0 )
+        {
+            throw new IllegalArgumentException( I18n.err( I18n.ERR_00004_INVALID_SEGMENT_SIZE, segmentSize ) );
+        }
+
+        this.pool = pool;
+        currentBuffer = newSegment( segmentSize );
+        this.segmentSize = currentBuffer.buffer.length;
+        size = this.segmentSize;
+        nbSegments = 1;
+    }
+
+
+    /**
+     * Create a new segment
+     */
+    private InternalBuffer newSegment( int length )
+    {
+        if ( pool != null )
+        {
+            return new InternalBuffer( pool.acquire( length ) );
+        }
+        else
+        {
+            return new InternalBuffer( new byte[length] );
+        }
     }
 
 
     /**
      * @return The current position in the buffer
      */
+    @Override
     public int getPos()
     {
         return pos;
     }
 
 
+    /**
+     * Move the current position backward, discarding the last written bytes. The
+     * position can't be moved forward.
+     *
+     * @param pos The position to move the buffer to
+     */
+    @Override
+    public void setPos( int pos )
+    {
+        if ( ( pos < 0 ) || ( pos > this.pos ) )
+        {
+            throw new IllegalArgumentException( I18n.err( I18n.ERR_00005_INVALID_BUFFER_POSITION, pos, this.pos ) );
+        }
+
+        int toDiscard = this.pos - pos;
+
+        while ( toDiscard > 0 )
+        {
+            int inSegment = currentBuffer.buffer.length - currentBuffer.start;
+
+            if ( ( toDiscard >= inSegment ) && ( currentBuffer.next != null ) )
+            {
+                toDiscard -= inSegment;
+                releaseSegment( currentBuffer );
+                currentBuffer = currentBuffer.next;
+                nbSegments--;
+                size -= segmentSize;
+            }
+            else
+            {
+                currentBuffer.start += toDiscard;
+                toDiscard = 0;
+            }
+        }
+
+        this.pos = pos;
+    }
+
+
     /**
      * Store a byte at the current position in the buffer
      *
      * @param b The byte to store
      */
+    @Override
     public void put( byte b )
     {
-        if ( pos == size )
+        if ( currentBuffer.start == 0 )
         {
-            // The buffer needs to be reallocated, its too small
+            // The buffer needs to be extended, its too small
             extend();
         }
 
-        currentBuffer.buffer[size - pos - 1] = b;
+        currentBuffer.start--;
+        currentBuffer.buffer[currentBuffer.start] = b;
         pos++;
     }
 
@@ -92,94 +215,136 @@ public class Asn1Buffer2
      *
      * @param bytes The bytes to store
      */
+    @Override
     public void put( byte[] bytes )
     {
         int dataLength = bytes.length;
 
-        while ( true )
+        while ( dataLength > 0 )
         {
-            int room = size - pos;
-
-            if ( dataLength > room )
+            if ( currentBuffer.start == 0 )
             {
-                // First fulfill the current buffer
-                System.arraycopy(
-                    bytes,
-                    dataLength - room,
-                    currentBuffer,
-                    0,
-                    room );
-
-                dataLength -= room;
-                pos += room;
-
                 extend();
             }
-            else
-            {
-                // Last bytes are copied in the current buffer
-                System.arraycopy(
-                    bytes,
-                    0,
-                    currentBuffer,
-                    room - dataLength,
-                    dataLength );
 
-                pos += dataLength;
+            // Copy the last bytes first, as we are filling the buffer by the end
+            int length = Math.min( currentBuffer.start, dataLength );
+            currentBuffer.start -= length;
+            dataLength -= length;
 
-                break;
-            }
+            System.arraycopy( bytes, dataLength, currentBuffer.buffer, currentBuffer.start, length );
+
+            pos += length;
         }
     }
 
 
     /**
-     * Extend the buffer
+     * Extend the buffer, adding a new segment in front of the chain
      */
     private void extend()
     {
-        InternalBuffer newCurrentBuffer = new InternalBuffer();
+        InternalBuffer newCurrentBuffer = newSegment( segmentSize );
 
         newCurrentBuffer.next = currentBuffer;
         currentBuffer = newCurrentBuffer;
-        size += DEFAULT_SIZE;
+        size += segmentSize;
+        nbSegments++;
     }
 
 
     /**
      * @return The stored encoded PDU.
      */
-    public byte[] getBytes()
+    @Override
+    public ByteBuffer getBytes()
     {
-        byte[] result = new byte[pos];
+        ByteBuffer result = ByteBuffer.allocate( pos );
+
+        writeTo( result );
+        result.flip();
+
+        return result;
+    }
 
+
+    /**
+     * Get a read-only view of the stored encoded PDU. If the PDU is stored in more
+     * than one segment, it has to be copied.
+     *
+     * @return A read-only ByteBuffer containing the stored encoded PDU
+     */
+    @Override
+    public ByteBuffer getReadOnlyBytes()
+    {
+        if ( currentBuffer.next == null )
+        {
+            return ByteBuffer.wrap( currentBuffer.buffer, currentBuffer.start, pos ).slice().asReadOnlyBuffer();
+        }
+
+        return getBytes().asReadOnlyBuffer();
+    }
+
+
+    /**
+     * Get the stored encoded PDU as an array of ByteBuffers, one per segment, in
+     * the order they have to be written. The segments are not copied, so the
+     * ByteBuffers are only valid until the next modification of this buffer. They
+     * can be written in one single call to a {@link java.nio.channels.GatheringByteChannel}.
+     *
+     * @return The segments containing the stored encoded PDU
+     */
+    public ByteBuffer[] getByteBuffers()
+    {
+        ByteBuffer[] result = new ByteBuffer[nbSegments];
         InternalBuffer bufferPtr = currentBuffer;
-        int currentPos = 0;
-        int dataPos = size - pos;
-        int dataLength = DEFAULT_SIZE - dataPos;
+        int i = 0;
 
-        while ( bufferPtr.next != null )
+        while ( bufferPtr != null )
         {
-            System.arraycopy(
-                bufferPtr,
-                dataPos,
-                result,
-                currentPos,
-                dataLength );
-
-            currentPos += dataLength;
-            dataPos = 0;
-            dataLength = DEFAULT_SIZE;
+            result[i++] = ByteBuffer.wrap( bufferPtr.buffer, bufferPtr.start,
+                bufferPtr.buffer.length - bufferPtr.start ).slice();
+            bufferPtr = bufferPtr.next;
         }
 
         return result;
     }
 
 
+    /**
+     * Copy the stored encoded PDU into a destination buffer, starting at its current
+     * position.
+     *
+     * @param destination The ByteBuffer to write the encoded PDU into
+     * @throws java.nio.BufferOverflowException If there is not enough room in the destination
+     */
+    @Override
+    public void writeTo( ByteBuffer destination )
+    {
+        InternalBuffer bufferPtr = currentBuffer;
+
+        while ( bufferPtr != null )
+        {
+            destination.put( bufferPtr.buffer, bufferPtr.start, bufferPtr.buffer.length - bufferPtr.start );
+            bufferPtr = bufferPtr.next;
+        }
+    }
+
+
+    /**
+     * @return The number of segments used to store the encoded PDU
+     */
+    public int getSegmentCount()
+    {
+        return nbSegments;
+    }
+
+
     /**
      * @return The buffer size (ie the maximum number of bytes that can be
      * added to this buffer before it gets extended).
      */
+    @Override
     public int getSize()
     {
         return size;
@@ -187,19 +352,35 @@ public class Asn1Buffer2
 
 
     /**
-     * Clear the position, emptying the buffer. If it has grown, reallocate it
-     * to its initial size.
+     * Give back a segment to the pool, if any
      */
-    public void clear()
+    private void releaseSegment( InternalBuffer segment )
     {
-        pos = 0;
-        size = DEFAULT_SIZE;
+        if ( pool != null )
+        {
+            pool.release( segment.buffer );
+        }
+    }
+
 
-        // Un-reference the extended buffer. They will be garbage collected.
+    /**
+     * Clear the position, emptying the buffer. The extended segments are dropped, or
+     * given back to the pool.
+     */
+    @Override
+    public void clear()
+    {
+        // Un-reference the extended buffer. They will be garbage collected, or recycled.
         while ( currentBuffer.next != null )
         {
+            releaseSegment( currentBuffer );
             currentBuffer = currentBuffer.next;
         }
+
+        currentBuffer.start = currentBuffer.buffer.length;
+        pos = 0;
+        size = segmentSize;
+        nbSegments = 1;
     }
 
 
@@ -210,13 +391,15 @@ public class Asn1Buffer2
     public String toString()
     {
         StringBuilder sb = new StringBuilder();
-        sb.append( "[" ).append( size ).append( ", " ).append( pos ).append( "] )" );
+        sb.append( "[" ).append( size ).append( ", " ).append( pos ).append( "]" );
 
         InternalBuffer bufferPtr = currentBuffer;
 
-        while ( bufferPtr.next != null )
+        while ( bufferPtr != null )
         {
-            sb.append( "\n    " ).append( Asn1StringUtils.dumpBytes( bufferPtr.buffer ) );
+            sb.append( "\n    '" ).append( Asn1StringUtils.dumpBytes( bufferPtr.buffer, bufferPtr.start,
+                bufferPtr.buffer.length - bufferPtr.start ) ).append( '\'' );
+            bufferPtr = bufferPtr.next;
         }
 
         return sb.toString();
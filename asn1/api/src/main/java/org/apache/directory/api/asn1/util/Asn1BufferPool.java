@@ -0,0 +1,224 @@
+/*
+ *   Licensed to the Apache Software Foundation (ASF) under one
+ *   or more contributor license agreements.  See the NOTICE file
+ *   distributed with this work for additional information
+ *   regarding copyright ownership.  The ASF licenses this file
+ *   to you under the Apache License, Version 2.0 (the
+ *   "License"); you may not use this file except in compliance
+ *   with the License.  You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing,
+ *   software distributed under the License is distributed on an
+ *   "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *   KIND, either express or implied.  See the License for the
+ *   specific language governing permissions and limitations
+ *   under the License.
+ *
+ */
+
+package org.apache.directory.api.asn1.util;
+
+
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+
+/**
+ * A bounded pool of byte arrays used as backing storage by pooled {@link Asn1Buffer}
+ * instances. Arrays are grouped in size classes (powers of 2, starting at 1024 bytes),
+ * each class holding at most a fixed number of arrays. Arrays bigger than the largest
+ * size class are never pooled, they are simply left to the garbage collector.
+ * <br>
+ * This class is thread safe, and does not use any lock.
+ *
+ * @author <a href="mailto:dev@directory.apache.org">Apache Directory Project</a>
+ */
+public class Asn1BufferPool
+{
+    /** The smallest size class */
+    public static final int MIN_SIZE = 1024;
+
+    /** The default biggest size class : 1 MB */
+    public static final int DEFAULT_MAX_POOLED_SIZE = 1024 * 1024;
+
+    /** The default number of arrays kept per size class */
+    public static final int DEFAULT_MAX_PER_SIZE_CLASS = 16;
+
+    /** A shared pool instance, using the default limits */
+    private static final Asn1BufferPool DEFAULT_POOL = new Asn1BufferPool();
+
+    /** The biggest size class */
+    private final int maxPooledSize;
+
+    /** The pooled arrays, one slot array per size class */
+    private final AtomicReferenceArray<byte[]>[] sizeClasses;
+
+
+    /**
+     * Creates a new Asn1BufferPool instance, using the default limits
+     */
+    public Asn1BufferPool()
+    {
+        this( DEFAULT_MAX_POOLED_SIZE, DEFAULT_MAX_PER_SIZE_CLASS );
+    }
+
+
+    /**
+     * Creates a new Asn1BufferPool instance
+     *
+     * @param maxPooledSize The biggest array size that will be pooled. It will be rounded
+     * up to the next power of 2
+     * @param maxPerSizeClass The maximum number of arrays kept in each size class
+     */
+    @SuppressWarnings("unchecked")
+    public Asn1BufferPool( int maxPooledSize, int maxPerSizeClass )
+    {
+        int nbClasses = sizeClassIndex( Math.max( maxPooledSize, MIN_SIZE ) ) + 1;
+
+        this.maxPooledSize = MIN_SIZE << ( nbClasses - 1 );
+        sizeClasses = ( AtomicReferenceArray<byte[]>[] ) new AtomicReferenceArray<?>[nbClasses];
+
+        for ( int i = 0; i < nbClasses; i++ )
+        {
+            sizeClasses[i] = new AtomicReferenceArray<>( Math.max( maxPerSizeClass, 0 ) );
+        }
+    }
+
+
+    /**
+     * @return The shared Asn1BufferPool instance
+     */
+    public static Asn1BufferPool getDefault()
+    {
+        return DEFAULT_POOL;
+    }
+
+
+    /**
+     * Compute the index of the smallest size class that can contain a given number of bytes
+     *
+     * @param size The number of bytes
+     * @return The size class index
+     */
+    private static int sizeClassIndex( int size )
+    {
+        if ( size <= MIN_SIZE )
+        {
+            return 0;
+        }
+
+        return 32 - Integer.numberOfLeadingZeros( ( size - 1 ) / MIN_SIZE );
+    }
+
+
+    /**
+     * Get an array that can contain at least the requested number of bytes. The
+     * array is taken from the pool if one is available, otherwise it's allocated.
+     * The content of a recycled array is not cleared.
+     *
+     * @param size The minimal array size
+     * @return A byte array which length is at least the requested size
+     */
+    public byte[] acquire( int size )
+    {
+        if ( size > maxPooledSize )
+        {
+            // Too big to be pooled, round it to the next kilobyte
+            return new byte[( ( size + MIN_SIZE - 1 ) / MIN_SIZE ) * MIN_SIZE];
+        }
+
+        int index = sizeClassIndex( size );
+        AtomicReferenceArray<byte[]> slots = sizeClasses[index];
+
+        for ( int i = 0; i < slots.length(); i++ )
+        {
+            if ( slots.get( i ) != null )
+            {
+                byte[] array = slots.getAndSet( i, null );
+
+                if ( array != null )
+                {
+                    return array;
+                }
+            }
+        }
+
+        return new byte[MIN_SIZE << index];
+    }
+
+
+    /**
+     * Give back an array to the pool. It will be kept if its length is exactly one of
+     * the pool size classes and if this size class is not full, otherwise it's dropped.
+     *
+     * @param array The array to release
+     */
+    public void release( byte[] array )
+    {
+        if ( ( array == null ) || ( array.length > maxPooledSize ) || ( array.length < MIN_SIZE ) )
+        {
+            return;
+        }
+
+        int index = sizeClassIndex( array.length );
+
+        if ( ( MIN_SIZE << index ) != array.length )
+        {
+            // Not a size class array
+            return;
+        }
+
+        AtomicReferenceArray<byte[]> slots = sizeClasses[index];
+
+        for ( int i = 0; i < slots.length(); i++ )
+        {
+            if ( ( slots.get( i ) == null ) && slots.compareAndSet( i, null, array ) )
+            {
+                return;
+            }
+        }
+    }
+
+
+    /**
+     * @return The biggest array size that can be pooled
+     */
+    public int getMaxPooledSize()
+    {
+        return maxPooledSize;
+    }
+
+
+    /**
+     * @return The number of arrays currently available in the pool
+     */
+    public int getPooledCount()
+    {
+        int count = 0;
+
+        for ( AtomicReferenceArray<byte[]> slots : sizeClasses )
+        {
+            for ( int i = 0; i < slots.length(); i++ )
+            {
+                if ( slots.get( i ) != null )
+                {
+                    count++;
+                }
+            }
+        }
+
+        return count;
+    }
+
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public String toString()
+    {
+        return "Asn1BufferPool[" + sizeClasses.length + " size classes, max " + maxPooledSize + ", pooled "
+            + getPooledCount() + "]";
+    }
+}
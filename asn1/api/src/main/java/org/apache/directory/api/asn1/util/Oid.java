@@ -76,10 +76,13 @@ import org.apache.directory.api.i18n.I18n;
 public final class Oid
 {
     /** A byte[] representation of an OID */
-    private byte[] oidBytes;
+    private final byte[] oidBytes;
     
     /** The OID as a String */
-    private String oidString;
+    private final String oidString;
+
+    /** The OID hash code, computed once */
+    private final int hash;
     
     private static final BigInteger JOINT_ISO_ITU_T = BigInteger.valueOf( 80 );
     
@@ -163,6 +166,7 @@ public final class Oid
         this.oidString = oidString;
         this.oidBytes = new byte[oidBytes.length];
         System.arraycopy( oidBytes, 0, this.oidBytes, 0, oidBytes.length );
+        hash = oidString.hashCode();
     }
 
 
@@ -172,11 +176,59 @@ public final class Oid
     @Override
     public boolean equals( Object other )
     {
+        if ( this == other )
+        {
+            // Interned OIDs are compared by reference
+            return true;
+        }
+
         return ( other instanceof Oid )
+            && ( hash == ( ( Oid ) other ).hash )
             && oidString.equals( ( ( Oid ) other ).oidString );
     }
 
 
+    /**
+     * Tells if this OID encoded form is equal to some BER bytes.
+     *
+     * @param bytes The BER encoded OID to compare with
+     * @return <code>true</code> if the bytes are the encoded form of this OID
+     */
+    boolean equalsBytes( byte[] bytes )
+    {
+        return Arrays.equals( oidBytes, bytes );
+    }
+
+
+    /**
+     * Tells if this OID string form is equal to the ASCII characters stored in a
+     * ByteBuffer, between its position and its limit. The buffer is not modified.
+     *
+     * @param buffer The ByteBuffer containing the ASCII characters
+     * @return <code>true</code> if the characters are the string form of this OID
+     */
+    boolean equalsAscii( ByteBuffer buffer )
+    {
+        int length = oidString.length();
+        int start = buffer.position();
+
+        if ( buffer.limit() - start != length )
+        {
+            return false;
+        }
+
+        for ( int i = 0; i < length; i++ )
+        {
+            if ( oidString.charAt( i ) != buffer.get( start + i ) )
+            {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+
     /**
      * Decodes an OID from a <code>byte[]</code>.
      * 
@@ -1240,6 +1292,11 @@ public final class Oid
                         arcNbChars = 2;
                         bufPos = 0;
                     }
+                    else
+                    {
+                        // the next arc will be store at position 1 in the buffer
+                        bufPos = 1;
+                    }
                     
                     break;
 
@@ -1323,6 +1380,14 @@ public final class Oid
         // (M) --[]--> (End)
         switch ( state )
         {
+            case STATE_H :
+                // (H) --[]--> (End)
+                // The second arc is a single digit, collapsed with the first one
+                byte[] bytes = new byte[1];
+                bytes[0] = ( byte ) ( 80 + buffer[0] );
+
+                return new Oid( oidString, bytes );
+
             case STATE_C :
                 // (C) --[]--> (End)
                 // fallthrough
@@ -1335,13 +1400,9 @@ public final class Oid
                 // (E) --[]--> (End)
                 // fallthrough
 
-            case STATE_H :
-                // (H) --[]--> (End)
-                // fallthrough
-                
             case STATE_I :
                 // (I) --[]--> (End)
-                byte[] bytes = new byte[1];
+                bytes = new byte[1];
                 bytes[0] = ( byte ) ( buffer[0] | buffer[1] );
 
                 return new Oid( oidString, bytes );
@@ -1374,6 +1435,35 @@ public final class Oid
     }
 
     
+    /**
+     * Returns the canonical Oid instance for an OID string, taken from the shared
+     * {@link OidCache}. Interned Oids can be compared by reference, as long as they
+     * haven't been evicted from the cache.
+     *
+     * @param oidString The string representation of the OID
+     * @return The interned Oid
+     * @throws DecoderException When the OID is not valid
+     */
+    public static Oid intern( String oidString ) throws DecoderException
+    {
+        return OidCache.getDefault().fromString( oidString );
+    }
+
+
+    /**
+     * Returns the canonical Oid instance for a BER encoded OID, taken from the shared
+     * {@link OidCache}.
+     *
+     * @param oidBytes The encoded <code>byte[]</code>
+     * @return The interned Oid
+     * @throws DecoderException When the OID is not valid
+     */
+    public static Oid intern( byte[] oidBytes ) throws DecoderException
+    {
+        return OidCache.getDefault().fromBytes( oidBytes );
+    }
+
+
     /**
      * Returns the length of the encoded <code>byte[]</code> representation.
      * 
@@ -1391,16 +1481,15 @@ public final class Oid
     @Override
     public int hashCode()
     {
-        return oidString.hashCode();
+        return hash;
     }
 
 
     /**
      * Returns true if <code>oidString</code> is a valid string representation
-     * of an OID.  This method simply calls {@link #fromString(String)} and 
-     * returns true if no exception was thrown.  As such, it should not be used 
-     * in an attempt to check if a string is a valid OID before calling 
-     * {@link #fromString(String)}.
+     * of an OID.  This method looks for the OID in the shared {@link OidCache},
+     * and parses it if it's not there, keeping the result in the cache. As such,
+     * checking an OID the application uses over and over is cheap.
      * 
      * @param oidString The string to test
      * @return True, if <code>oidString</code> is valid
@@ -1409,7 +1498,7 @@ public final class Oid
     {
         try
         {
-            Oid.fromString( oidString );
+            OidCache.getDefault().fromString( oidString );
 
             return true;
         }
@@ -0,0 +1,256 @@
+/*
+ *   Licensed to the Apache Software Foundation (ASF) under one
+ *   or more contributor license agreements.  See the NOTICE file
+ *   distributed with this work for additional information
+ *   regarding copyright ownership.  The ASF licenses this file
+ *   to you under the Apache License, Version 2.0 (the
+ *   "License"); you may not use this file except in compliance
+ *   with the License.  You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing,
+ *   software distributed under the License is distributed on an
+ *   "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *   KIND, either express or implied.  See the License for the
+ *   specific language governing permissions and limitations
+ *   under the License.
+ *
+ */
+
+package org.apache.directory.api.asn1.util;
+
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import org.apache.directory.api.asn1.DecoderException;
+
+
+/**
+ * A bounded cache of canonical {@link Oid} instances. An OID can be looked up
+ * using its dotted string, its BER encoded bytes, or the ASCII bytes of its dotted
+ * string, as it's transmitted in a LDAPOID. When the OID is found, the cached
+ * instance is returned and nothing is parsed nor allocated.
+ * <br>
+ * The cache is made of two direct mapped tables, one indexed by the string hash
+ * and one indexed by the bytes hash. A new OID simply replaces the one stored in
+ * its slot, so the cache never holds more than its size, and two OIDs with
+ * colliding hashes just evict each other.
+ * <br>
+ * This class is thread safe, and does not use any lock : as Oids are immutable,
+ * a thread may at worst see an older instance, or parse an OID another thread is
+ * also caching.
+ *
+ * @author <a href="mailto:dev@directory.apache.org">Apache Directory Project</a>
+ */
+public class OidCache
+{
+    /** The default number of slots in each table */
+    public static final int DEFAULT_SIZE = 1024;
+
+    /** A shared cache instance, using the default size */
+    private static final OidCache DEFAULT_CACHE = new OidCache();
+
+    /** The Oids, indexed by their string hash */
+    private final AtomicReferenceArray<Oid> byString;
+
+    /** The Oids, indexed by their encoded bytes hash */
+    private final AtomicReferenceArray<Oid> byBytes;
+
+    /** The mask used to compute a slot from a hash */
+    private final int mask;
+
+
+    /**
+     * Creates a new OidCache instance, using the default size
+     */
+    public OidCache()
+    {
+        this( DEFAULT_SIZE );
+    }
+
+
+    /**
+     * Creates a new OidCache instance
+     *
+     * @param size The number of slots in each table. It will be rounded up to the
+     * next power of 2
+     */
+    public OidCache( int size )
+    {
+        int nbSlots = Integer.highestOneBit( Math.max( size, 1 ) );
+
+        if ( nbSlots < size )
+        {
+            nbSlots <<= 1;
+        }
+
+        mask = nbSlots - 1;
+        byString = new AtomicReferenceArray<>( nbSlots );
+        byBytes = new AtomicReferenceArray<>( nbSlots );
+    }
+
+
+    /**
+     * @return The shared OidCache instance
+     */
+    public static OidCache getDefault()
+    {
+        return DEFAULT_CACHE;
+    }
+
+
+    /**
+     * Spread the hash bits, so that hashes that only differ in their high bits
+     * don't always use the same slot.
+     *
+     * @param hash The hash to spread
+     * @return The slot for this hash
+     */
+    private int slot( int hash )
+    {
+        return ( hash ^ ( hash >>> 16 ) ) & mask;
+    }
+
+
+    /**
+     * Store an Oid in both tables
+     *
+     * @param oid The Oid to store
+     */
+    private void put( Oid oid )
+    {
+        byString.set( slot( oid.hashCode() ), oid );
+        byBytes.set( slot( Arrays.hashCode( oid.toBytes() ) ), oid );
+    }
+
+
+    /**
+     * Get the canonical Oid for an OID string. It's parsed and cached if it's not
+     * already present.
+     *
+     * @param oidString The string representation of the OID
+     * @return The cached Oid
+     * @throws DecoderException When the OID is not valid
+     */
+    public Oid fromString( String oidString ) throws DecoderException
+    {
+        if ( oidString == null )
+        {
+            // Let the Oid produce the error
+            return Oid.fromString( null );
+        }
+
+        Oid oid = byString.get( slot( oidString.hashCode() ) );
+
+        if ( ( oid != null ) && oid.toString().equals( oidString ) )
+        {
+            return oid;
+        }
+
+        oid = Oid.fromString( oidString );
+        put( oid );
+
+        return oid;
+    }
+
+
+    /**
+     * Get the canonical Oid for a BER encoded OID. It's decoded and cached if it's
+     * not already present.
+     *
+     * @param oidBytes The encoded <code>byte[]</code>
+     * @return The cached Oid
+     * @throws DecoderException When the OID is not valid
+     */
+    public Oid fromBytes( byte[] oidBytes ) throws DecoderException
+    {
+        if ( oidBytes == null )
+        {
+            return Oid.fromBytes( null );
+        }
+
+        Oid oid = byBytes.get( slot( Arrays.hashCode( oidBytes ) ) );
+
+        if ( ( oid != null ) && oid.equalsBytes( oidBytes ) )
+        {
+            return oid;
+        }
+
+        oid = Oid.fromBytes( oidBytes );
+        put( oid );
+
+        return oid;
+    }
+
+
+    /**
+     * Get the canonical Oid for an OID string stored as ASCII bytes in a ByteBuffer,
+     * between its position and its limit, like a LDAPOID. It's parsed and cached if
+     * it's not already present. The buffer is not modified.
+     *
+     * @param buffer The ByteBuffer containing the OID string
+     * @return The cached Oid
+     * @throws DecoderException When the OID is not valid
+     */
+    public Oid fromAscii( ByteBuffer buffer ) throws DecoderException
+    {
+        // Compute the hash the equivalent String would have
+        int hash = 0;
+
+        for ( int i = buffer.position(); i < buffer.limit(); i++ )
+        {
+            hash = 31 * hash + ( buffer.get( i ) & 0x00FF );
+        }
+
+        Oid oid = byString.get( slot( hash ) );
+
+        if ( ( oid != null ) && oid.equalsAscii( buffer ) )
+        {
+            return oid;
+        }
+
+        byte[] bytes = new byte[buffer.remaining()];
+        buffer.duplicate().get( bytes );
+
+        oid = Oid.fromString( new String( bytes, StandardCharsets.US_ASCII ) );
+        put( oid );
+
+        return oid;
+    }
+
+
+    /**
+     * Remove all the Oids from the cache
+     */
+    public void clear()
+    {
+        for ( int i = 0; i <= mask; i++ )
+        {
+            byString.set( i, null );
+            byBytes.set( i, null );
+        }
+    }
+
+
+    /**
+     * @return The number of slots in each table
+     */
+    public int getSize()
+    {
+        return mask + 1;
+    }
+
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public String toString()
+    {
+        return "OidCache[" + ( mask + 1 ) + " slots]";
+    }
+}
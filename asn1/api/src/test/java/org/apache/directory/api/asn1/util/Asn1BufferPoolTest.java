@@ -0,0 +1,87 @@
+/*
+ *   Licensed to the Apache Software Foundation (ASF) under one
+ *   or more contributor license agreements.  See the NOTICE file
+ *   distributed with this work for additional information
+ *   regarding copyright ownership.  The ASF licenses this file
+ *   to you under the Apache License, Version 2.0 (the
+ *   "License"); you may not use this file except in compliance
+ *   with the License.  You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing,
+ *   software distributed under the License is distributed on an
+ *   "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *   KIND, either express or implied.  See the License for the
+ *   specific language governing permissions and limitations
+ *   under the License.
+ *
+ */
+package org.apache.directory.api.asn1.util;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Test for the Asn1BufferPool class
+ *
+ * @author <a href="mailto:dev@directory.apache.org">Apache Directory Project</a>
+ */
+public class Asn1BufferPoolTest
+{
+    @Test
+    public void testSizeClasses()
+    {
+        Asn1BufferPool pool = new Asn1BufferPool();
+
+        assertEquals( 1024, pool.acquire( 1 ).length );
+        assertEquals( 1024, pool.acquire( 1024 ).length );
+        assertEquals( 2048, pool.acquire( 1025 ).length );
+        assertEquals( 4096, pool.acquire( 2049 ).length );
+        assertEquals( 1024 * 1024, pool.acquire( 1024 * 1024 ).length );
+
+        // Not pooled, rounded to the next kilobyte
+        assertEquals( 1024 * 1024 + 1024, pool.acquire( 1024 * 1024 + 1 ).length );
+    }
+
+
+    @Test
+    public void testAcquireRelease()
+    {
+        Asn1BufferPool pool = new Asn1BufferPool();
+
+        byte[] array = pool.acquire( 3000 );
+        pool.release( array );
+        assertEquals( 1, pool.getPooledCount() );
+
+        assertSame( array, pool.acquire( 2500 ) );
+        assertEquals( 0, pool.getPooledCount() );
+
+        // A different size class does not get it
+        pool.release( array );
+        assertNotSame( array, pool.acquire( 100 ) );
+    }
+
+
+    @Test
+    public void testBounds()
+    {
+        Asn1BufferPool pool = new Asn1BufferPool( 4096, 2 );
+
+        assertEquals( 4096, pool.getMaxPooledSize() );
+
+        pool.release( new byte[1024] );
+        pool.release( new byte[1024] );
+        pool.release( new byte[1024] );
+        assertEquals( 2, pool.getPooledCount() );
+
+        // Arrays that are not size class arrays, or too big, are dropped
+        pool.release( new byte[1500] );
+        pool.release( new byte[8192] );
+        pool.release( new byte[10] );
+        assertEquals( 2, pool.getPooledCount() );
+    }
+}
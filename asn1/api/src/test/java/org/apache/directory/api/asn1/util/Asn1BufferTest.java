@@ -20,6 +20,7 @@
 package org.apache.directory.api.asn1.util;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
 import java.nio.ByteBuffer;
 
@@ -94,6 +95,77 @@ public class Asn1BufferTest
         }
     }
 
+    @Test
+    public void testPooledBufferReuse()
+    {
+        Asn1BufferPool pool = new Asn1BufferPool();
+        Asn1Buffer buffer = new Asn1Buffer( pool );
+
+        for ( int i = 0; i < 5000; i++ )
+        {
+            buffer.put( ( byte ) i );
+        }
+
+        assertEquals( 5000, buffer.getPos() );
+        assertEquals( 8192, buffer.getSize() );
+        ByteBuffer result = buffer.getBytes();
+
+        for ( int i = 0; i < 5000; i++ )
+        {
+            assertEquals( ( byte ) ( 4999 - i ), result.get( i ) );
+        }
+
+        // The grown array must be back in the pool
+        buffer.clear();
+        assertEquals( 1024, buffer.getSize() );
+        int pooled = pool.getPooledCount();
+        assertTrue( pooled > 0 );
+
+        // And reused by the next extension, which gives back the default array
+        buffer.put( new byte[5000] );
+        assertEquals( 8192, buffer.getSize() );
+        assertEquals( pooled, pool.getPooledCount() );
+    }
+
+
+    @Test
+    public void testReadOnlyBytes()
+    {
+        Asn1Buffer buffer = new Asn1Buffer();
+
+        buffer.put( new byte[] { 0x01, 0x02 } );
+        buffer.put( ( byte ) 0x00 );
+
+        ByteBuffer view = buffer.getReadOnlyBytes();
+
+        assertTrue( view.isReadOnly() );
+        assertEquals( 0, view.position() );
+        assertEquals( 3, view.remaining() );
+        assertEquals( 0x00, view.get( 0 ) );
+        assertEquals( 0x01, view.get( 1 ) );
+        assertEquals( 0x02, view.get( 2 ) );
+    }
+
+
+    @Test
+    public void testWriteToDirectBuffer()
+    {
+        Asn1Buffer buffer = new Asn1Buffer( new Asn1BufferPool() );
+
+        for ( int i = 0; i < 1500; i++ )
+        {
+            buffer.put( ( byte ) i );
+        }
+
+        ByteBuffer direct = ByteBuffer.allocateDirect( buffer.getPos() );
+        buffer.writeTo( direct );
+        direct.flip();
+
+        assertEquals( 1500, direct.remaining() );
+        assertEquals( buffer.getBytes(), direct );
+    }
+
+
     @Test
     @Disabled
     public void testBytesPerf()
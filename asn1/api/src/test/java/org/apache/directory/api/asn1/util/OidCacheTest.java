@@ -0,0 +1,139 @@
+/*
+ *   Licensed to the Apache Software Foundation (ASF) under one
+ *   or more contributor license agreements.  See the NOTICE file
+ *   distributed with this work for additional information
+ *   regarding copyright ownership.  The ASF licenses this file
+ *   to you under the Apache License, Version 2.0 (the
+ *   "License"); you may not use this file except in compliance
+ *   with the License.  You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing,
+ *   software distributed under the License is distributed on an
+ *   "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *   KIND, either express or implied.  See the License for the
+ *   specific language governing permissions and limitations
+ *   under the License.
+ *
+ */
+package org.apache.directory.api.asn1.util;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+import org.apache.directory.api.asn1.DecoderException;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Test for the OidCache class
+ *
+ * @author <a href="mailto:dev@directory.apache.org">Apache Directory Project</a>
+ */
+public class OidCacheTest
+{
+    @Test
+    public void testFromString() throws DecoderException
+    {
+        OidCache cache = new OidCache();
+
+        Oid oid = cache.fromString( "1.2.840.113556.1.4.319" );
+
+        assertSame( oid, cache.fromString( "1.2.840.113556.1.4.319" ) );
+        assertEquals( Oid.fromString( "1.2.840.113556.1.4.319" ), oid );
+        assertSame( oid, cache.fromBytes( oid.toBytes() ) );
+    }
+
+
+    @Test
+    public void testFromBytes() throws DecoderException
+    {
+        OidCache cache = new OidCache();
+        byte[] bytes = Oid.fromString( "2.5.4.3" ).toBytes();
+
+        Oid oid = cache.fromBytes( bytes );
+
+        assertEquals( "2.5.4.3", oid.toString() );
+        assertSame( oid, cache.fromBytes( bytes ) );
+        assertSame( oid, cache.fromString( "2.5.4.3" ) );
+    }
+
+
+    @Test
+    public void testFromAscii() throws DecoderException
+    {
+        OidCache cache = new OidCache();
+        Oid oid = cache.fromString( "1.3.6.1.4.1.4203.1.11.1" );
+
+        // The OID is in the middle of a bigger buffer
+        ByteBuffer buffer = ByteBuffer.wrap( "xx1.3.6.1.4.1.4203.1.11.1yy".getBytes( StandardCharsets.US_ASCII ) );
+        buffer.position( 2 );
+        buffer.limit( buffer.limit() - 2 );
+
+        assertSame( oid, cache.fromAscii( buffer ) );
+
+        // The buffer is not modified
+        assertEquals( 2, buffer.position() );
+
+        // Unknown OIDs are parsed and cached
+        Oid other = cache.fromAscii( ByteBuffer.wrap( "1.2.3".getBytes( StandardCharsets.US_ASCII ) ) );
+        assertEquals( "1.2.3", other.toString() );
+        assertSame( other, cache.fromString( "1.2.3" ) );
+    }
+
+
+    @Test
+    public void testInvalidOids()
+    {
+        OidCache cache = new OidCache();
+
+        assertThrows( DecoderException.class, () -> cache.fromString( null ) );
+        assertThrows( DecoderException.class, () -> cache.fromString( "" ) );
+        assertThrows( DecoderException.class, () -> cache.fromString( "1.2.a" ) );
+        assertThrows( DecoderException.class, () -> cache.fromBytes( null ) );
+        assertThrows( DecoderException.class,
+            () -> cache.fromAscii( ByteBuffer.wrap( "3.1".getBytes( StandardCharsets.US_ASCII ) ) ) );
+
+        assertFalse( Oid.isOid( null ) );
+        assertFalse( Oid.isOid( "1.02" ) );
+        assertTrue( Oid.isOid( "1.2" ) );
+    }
+
+
+    @Test
+    public void testEviction() throws DecoderException
+    {
+        // A single slot : every OID evicts the previous one
+        OidCache cache = new OidCache( 1 );
+        assertEquals( 1, cache.getSize() );
+
+        Oid oid1 = cache.fromString( "1.2.3" );
+        cache.fromString( "1.2.4" );
+        Oid oid2 = cache.fromString( "1.2.3" );
+
+        assertNotSame( oid1, oid2 );
+        assertEquals( oid1, oid2 );
+        assertEquals( oid1.hashCode(), oid2.hashCode() );
+
+        cache.clear();
+        assertNotSame( oid2, cache.fromString( "1.2.3" ) );
+        assertEquals( 1024, new OidCache( 1000 ).getSize() );
+    }
+
+
+    @Test
+    public void testIntern() throws DecoderException
+    {
+        Oid oid = Oid.intern( "1.2.840.113556.1.4.473" );
+
+        assertSame( oid, Oid.intern( "1.2.840.113556.1.4.473" ) );
+        assertSame( oid, Oid.intern( oid.toBytes() ) );
+    }
+}
@@ -915,4 +915,18 @@ public class OidTest
         assertFalse( oid1.equals( oid3 ) );
         assertFalse( oid2.equals( oid3 ) );
     }
+
+
+    /**
+     * Test that joint-iso-itu-t OIDs with a single digit second arc are
+     * correctly encoded
+     * @throws DecoderException  If the test failed
+     */
+    @Test
+    public void testNewOidJointIsoItuTSingleDigit() throws DecoderException
+    {
+        assertTrue( Arrays.equals( new byte[] { 0x55 }, Oid.fromString( "2.5" ).toBytes() ) );
+        assertTrue( Arrays.equals( new byte[] { 0x55, 0x04, 0x03 }, Oid.fromString( "2.5.4.3" ).toBytes() ) );
+        assertEquals( "2.5.4.3", Oid.fromBytes( Oid.fromString( "2.5.4.3" ).toBytes() ).toString() );
+    }
 }
@@ -38,6 +38,9 @@ import org.apache.directory.api.asn1.ber.tlv.TLVStateEnum;
  */
 public abstract class AbstractContainer implements Asn1Container
 {
+    /** The initial number of recycled TLVs */
+    private static final int DEFAULT_TLV_FRAMES = 16;
+
     /** All the possible grammars */
     private Grammar<? extends Asn1Container> grammar;
 
@@ -72,6 +75,15 @@ public abstract class AbstractContainer implements Asn1Container
      * for constructed types */
     private boolean gathering = false;
 
+    /** A flag telling the decoder to skip the next Value */
+    private boolean skipping = false;
+
+    /** A flag telling if the decoder can store the Values as slices of the stream */
+    private boolean valueSliceAllowed = false;
+
+    /** The recycled TLVs, indexed by their nesting depth. Null if the TLVs are not recycled */
+    private TLV[] tlvFrames;
+
 
     /**
      * Creates a new instance of AbstractContainer with a starting state.
@@ -224,6 +236,8 @@ public abstract class AbstractContainer implements Asn1Container
         parentTLV = null;
         transition = ( ( States ) transition ).getStartState();
         state = TLVStateEnum.TAG_STATE_START;
+        gathering = false;
+        skipping = false;
     }
 
 
@@ -237,6 +251,43 @@ public abstract class AbstractContainer implements Asn1Container
     }
 
 
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public TLV getNewTlv()
+    {
+        int depth = ( parentTLV == null ) ? 0 : parentTLV.getDepth() + 1;
+
+        if ( tlvFrames == null )
+        {
+            return new TLV( id++, depth );
+        }
+
+        if ( depth >= tlvFrames.length )
+        {
+            TLV[] newFrames = new TLV[Math.max( tlvFrames.length * 2, depth + 1 )];
+            System.arraycopy( tlvFrames, 0, newFrames, 0, tlvFrames.length );
+            tlvFrames = newFrames;
+        }
+
+        TLV frame = tlvFrames[depth];
+
+        if ( frame == null )
+        {
+            frame = new TLV( id++, depth );
+            tlvFrames[depth] = frame;
+        }
+        else
+        {
+            // The previous TLV at this depth, and all its children, have been fully decoded
+            frame.recycle( id++, depth );
+        }
+
+        return frame;
+    }
+
+
     /**
      * {@inheritDoc}
      */
@@ -371,4 +422,70 @@ public abstract class AbstractContainer implements Asn1Container
         this.gathering = gathering;
     }
 
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean isSkipping()
+    {
+        return skipping;
+    }
+
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void setSkipping( boolean skipping )
+    {
+        this.skipping = skipping;
+    }
+
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean isValueSliceAllowed()
+    {
+        return valueSliceAllowed;
+    }
+
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void setValueSliceAllowed( boolean valueSliceAllowed )
+    {
+        this.valueSliceAllowed = valueSliceAllowed;
+    }
+
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean isTlvRecycling()
+    {
+        return tlvFrames != null;
+    }
+
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void setTlvRecycling( boolean tlvRecycling )
+    {
+        if ( !tlvRecycling )
+        {
+            tlvFrames = null;
+        }
+        else if ( tlvFrames == null )
+        {
+            tlvFrames = new TLV[DEFAULT_TLV_FRAMES];
+        }
+    }
 }
@@ -153,6 +153,16 @@ public interface Asn1Container
     int getNewTlvId();
 
 
+    /**
+     * Get a TLV to store the next decoded Tag, Length and Value, with a new id. Its parent
+     * is the current parent TLV. If TLV recycling is enabled, the TLV previously used at
+     * the same nesting depth is reset and returned, otherwise a new TLV is created.
+     *
+     * @return A TLV ready to be decoded
+     */
+    TLV getNewTlv();
+
+
     /**
      * Gets the current TLV id
      * @return a unique value representing the current TLV id
@@ -223,4 +233,58 @@ public interface Asn1Container
      * into the container. If not set, the default value is 'false'
      */
     void setGathering( boolean isGathering );
+
+
+    /**
+     * @return true if the decoder must skip the Value of the next TLV
+     */
+    boolean isSkipping();
+
+
+    /**
+     * Ask the decoder to skip the Value of the next TLV, constructed or not : its bytes
+     * are read from the stream, but they are neither stored nor decoded. The grammar
+     * action of this TLV is still executed, it is responsible for resetting the flag.
+     * If not set, the default value is 'false'
+     *
+     * @param skipping true to ask the Asn1Decoder to skip the next Value
+     */
+    void setSkipping( boolean skipping );
+
+
+    /**
+     * @return true if the decoder is allowed to store the primitive Values as slices of
+     * the decoded stream instead of copying them
+     */
+    boolean isValueSliceAllowed();
+
+
+    /**
+     * Allow the decoder to store the primitive Values which are fully present in the
+     * decoded stream as slices of this stream, instead of copying them. Those slices
+     * are only valid while the grammar action of their TLV is executed : the actions
+     * that need the Value afterward must copy it, calling {@link org.apache.directory.api.asn1.ber.tlv.BerValue#getData()}.
+     * If not set, the default value is 'false'
+     *
+     * @param valueSliceAllowed true to let the Asn1Decoder avoid copying the Values
+     */
+    void setValueSliceAllowed( boolean valueSliceAllowed );
+
+
+    /**
+     * @return true if the container recycles its TLVs from one PDU to the other
+     */
+    boolean isTlvRecycling();
+
+
+    /**
+     * Let the container recycle its TLVs, instead of creating a new one for each decoded
+     * Tag. The TLVs are kept in an array indexed by their nesting depth, and reused for
+     * all the PDUs decoded with this container : the TLVs must then not be referenced by
+     * the grammar actions once they have been executed.
+     * If not set, the default value is 'false'
+     *
+     * @param tlvRecycling true to recycle the TLVs
+     */
+    void setTlvRecycling( boolean tlvRecycling );
 }
@@ -87,7 +87,7 @@ public final class Asn1Decoder implements TLVBerDecoderMBean
         {
             byte octet = stream.get();
 
-            TLV tlv = new TLV( container.getNewTlvId() );
+            TLV tlv = container.getNewTlv();
             tlv.setTag( octet );
 
             // Store the current TLV in the container.
@@ -167,9 +167,9 @@ public final class Asn1Decoder implements TLVBerDecoderMBean
 
         BerValue value = current.getValue();
 
-        if ( ( value != null ) && ( value.getData() != null ) )
+        if ( ( value != null ) && ( value.getDataLength() >= 0 ) )
         {
-            return current.getExpectedLength() == value.getData().length;
+            return current.getExpectedLength() == value.getDataLength();
         }
         else
         {
@@ -355,6 +355,10 @@ public final class Asn1Decoder implements TLVBerDecoderMBean
         }
 
         int length = tlv.getLength();
+
+        // A constructed TLV which value is gathered or skipped is handled as a primitive
+        // one : its content is read as a whole, and will not be decoded as a set of TLVs
+        boolean constructed = tlv.isConstructed() && !container.isGathering() && !container.isSkipping();
         
         // Check we arent above the MAX PDU
         if ( length > container.getMaxPDUSize() )
@@ -417,7 +421,7 @@ public final class Asn1Decoder implements TLVBerDecoderMBean
                 // one.
                 // In this case, we have to switch from this parent TLV
                 // to the parent's parent TLV.
-                if ( tlv.isConstructed() )
+                if ( constructed )
                 {
                     // here, we also have another special case : a
                     // zero length TLV. We must then unstack all
@@ -482,7 +486,7 @@ public final class Asn1Decoder implements TLVBerDecoderMBean
                 parentTLV.setExpectedLength( expectedLength - currentLength );
                 tlv.setExpectedLength( length );
 
-                if ( tlv.isConstructed() )
+                if ( constructed )
                 {
                     // We have a constructed tag, so we must switch the
                     // parentTLV
@@ -514,7 +518,8 @@ public final class Asn1Decoder implements TLVBerDecoderMBean
     /**
      * Treat the Value part. We will distinguish two cases : - if the Tag is a
      * Primitive one, we will get the value. - if the Tag is a Constructed one,
-     * nothing will be done.
+     * nothing will be done. If the container asks for the Value to be skipped,
+     * its bytes are consumed without being stored.
      * 
      * @param stream The ByteBuffer containing the PDU to decode
      * @param container The container that stores the current state,
@@ -526,7 +531,28 @@ public final class Asn1Decoder implements TLVBerDecoderMBean
     {
         TLV currentTlv = container.getCurrentTLV();
 
-        if ( TLV.isConstructed( currentTlv.getTag() ) && !container.isGathering() )
+        if ( container.isSkipping() )
+        {
+            // Don't store the value, just move forward in the stream
+            int length = currentTlv.getLength();
+            int nbBytes = Math.min( length, stream.remaining() );
+
+            currentTlv.getValue().skipData( stream, nbBytes );
+
+            if ( nbBytes < length )
+            {
+                container.setState( TLVStateEnum.VALUE_STATE_PENDING );
+
+                return END;
+            }
+            else
+            {
+                container.setState( TLVStateEnum.TLV_STATE_DONE );
+
+                return MORE;
+            }
+        }
+        else if ( TLV.isConstructed( currentTlv.getTag() ) && !container.isGathering() )
         {
             container.setState( TLVStateEnum.TLV_STATE_DONE );
 
@@ -545,6 +571,18 @@ public final class Asn1Decoder implements TLVBerDecoderMBean
 
                 return END;
             }
+            else if ( container.isValueSliceAllowed() )
+            {
+                // The whole value is present in the stream : don't copy it,
+                // the action will read it from the stream
+                ByteBuffer slice = stream.slice();
+                slice.limit( length );
+                currentTlv.getValue().setSlice( slice );
+                stream.position( stream.position() + length );
+                container.setState( TLVStateEnum.TLV_STATE_DONE );
+
+                return MORE;
+            }
             else
             {
                 currentTlv.getValue().init( length );
@@ -577,17 +615,31 @@ public final class Asn1Decoder implements TLVBerDecoderMBean
 
         if ( ( currentLength + nbBytes ) < length )
         {
-            currentTlv.getValue().addData( stream );
+            if ( container.isSkipping() )
+            {
+                currentTlv.getValue().skipData( stream, nbBytes );
+            }
+            else
+            {
+                currentTlv.getValue().addData( stream );
+            }
+
             container.setState( TLVStateEnum.VALUE_STATE_PENDING );
 
             return END;
         }
         else
         {
-            int remaining = length - currentLength;
-            byte[] data = new byte[remaining];
-            stream.get( data, 0, remaining );
-            currentTlv.getValue().addData( data );
+            if ( container.isSkipping() )
+            {
+                currentTlv.getValue().skipData( stream, length - currentLength );
+            }
+            else
+            {
+                // Read the missing bytes directly into the value
+                currentTlv.getValue().addData( stream, length - currentLength );
+            }
+
             container.setState( TLVStateEnum.TLV_STATE_DONE );
 
             return MORE;
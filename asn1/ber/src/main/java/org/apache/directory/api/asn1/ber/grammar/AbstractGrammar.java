@@ -32,6 +32,18 @@ import org.slf4j.LoggerFactory;
 /**
  * The abstract Grammar which is the Mother of all the grammars. It contains
  * the transitions table.
+ * <br>
+ * The transitions table is compiled the first time the grammar is used : all the
+ * (state, tag) pairs are stored in one single dense int array, pointing to
+ * flat arrays containing the actions, the next states and the follow up flags.
+ * The decoder dispatches through those arrays, without having to dereference
+ * the transition objects.
+ * <br>
+ * The table is compiled again when a transition is found in the transitions table
+ * for a (state, tag) pair which has none in the compiled table, or when the
+ * transitions table is replaced, so the transitions registered after the
+ * compilation are used. A transition replaced in place must be followed by a
+ * call to {@link #compile()}.
  *
  * @param <C> The container type
  * 
@@ -42,6 +54,9 @@ public abstract class AbstractGrammar<C extends Asn1Container> implements Gramma
     /** The logger */
     private static final Logger LOG = LoggerFactory.getLogger( AbstractGrammar.class );
 
+    /** The number of tags per state in the compiled table */
+    private static final int NB_TAGS = 256;
+
     /**
      * Table of transitions. It's a two dimension array, the first dimension
      * indices the states, the second dimension indices the Tag value, so it is
@@ -52,6 +67,113 @@ public abstract class AbstractGrammar<C extends Asn1Container> implements Gramma
     /** The grammar name */
     private String name;
 
+    /** The compiled transitions table, built the first time the grammar is used */
+    private CompiledTransitions<C> compiledTransitions;
+
+
+    /**
+     * The compiled form of a transitions table. All the fields are final, so that
+     * an instance can be shared between threads without synchronization.
+     *
+     * @param <C> The container type
+     */
+    private static final class CompiledTransitions<C extends Asn1Container>
+    {
+        /** The transitions table this table has been compiled from */
+        private final GrammarTransition<C>[][] source;
+
+        /**
+         * The transition index for each (state, tag) pair, stored at
+         * <code>state * 256 + tag</code>. 0 means there is no transition.
+         */
+        private final int[] indexes;
+
+        /** The transitions, by index. Only used for logging, errors and the follow up check */
+        private final GrammarTransition<C>[] transitions;
+
+        /** The transitions actions, by index. Null if the transition has no action */
+        private final Action<C>[] actions;
+
+        /** The transitions target states, by index */
+        private final Enum<?>[] nextStates;
+
+
+        @SuppressWarnings("unchecked")
+        private CompiledTransitions( GrammarTransition<C>[][] table )
+        {
+            source = table;
+            int nbStates = ( table == null ) ? 0 : table.length;
+            indexes = new int[nbStates * NB_TAGS];
+
+            // First count the transitions, to size the flat arrays. The index 0 is reserved
+            int nbTransitions = 1;
+
+            for ( int state = 0; state < nbStates; state++ )
+            {
+                if ( table[state] != null )
+                {
+                    for ( GrammarTransition<C> transition : table[state] )
+                    {
+                        if ( transition != null )
+                        {
+                            nbTransitions++;
+                        }
+                    }
+                }
+            }
+
+            transitions = ( GrammarTransition<C>[] ) new GrammarTransition<?>[nbTransitions];
+            actions = ( Action<C>[] ) new Action<?>[nbTransitions];
+            nextStates = new Enum<?>[nbTransitions];
+
+            int index = 1;
+
+            for ( int state = 0; state < nbStates; state++ )
+            {
+                if ( table[state] == null )
+                {
+                    continue;
+                }
+
+                int tags = Math.min( table[state].length, NB_TAGS );
+
+                for ( int tag = 0; tag < tags; tag++ )
+                {
+                    GrammarTransition<C> transition = table[state][tag];
+
+                    if ( transition != null )
+                    {
+                        indexes[state * NB_TAGS + tag] = index;
+                        transitions[index] = transition;
+                        actions[index] = transition.getAction();
+                        nextStates[index] = transition.getCurrentState();
+                        index++;
+                    }
+                }
+            }
+        }
+
+
+        /**
+         * Get the transition index for a state and a tag
+         *
+         * @param state The state ordinal
+         * @param tag The tag
+         * @return The transition index, or 0 if there is no transition
+         */
+        private int getIndex( int state, byte tag )
+        {
+            int position = ( state * NB_TAGS ) + ( tag & 0x00FF );
+
+            if ( position >= indexes.length )
+            {
+                return 0;
+            }
+
+            return indexes[position];
+        }
+    }
+
 
     /** Default constructor */
     public AbstractGrammar()
@@ -92,6 +214,40 @@ public abstract class AbstractGrammar<C extends Asn1Container> implements Gramma
     }
 
 
+    /**
+     * Compile the transitions table. This is done automatically the first time the
+     * grammar is used, but it can be called when the grammar is created to avoid
+     * doing it while decoding the first PDU. The transitions added afterward are
+     * compiled automatically, but it must be called again if a transition is
+     * replaced in the transitions table.
+     */
+    public void compile()
+    {
+        compiledTransitions = new CompiledTransitions<>( transitions );
+    }
+
+
+    /**
+     * Tells if the transitions table has a transition for a state and a tag, checking
+     * the bounds of the table, as some grammars don't have a row for all their states
+     *
+     * @param state The state ordinal
+     * @param tag The tag
+     * @return <tt>true</tt> if there is a transition
+     */
+    private boolean hasTransition( int state, byte tag )
+    {
+        if ( ( transitions == null ) || ( state >= transitions.length ) || ( transitions[state] == null ) )
+        {
+            return false;
+        }
+
+        int position = tag & 0x00FF;
+
+        return ( position < transitions[state].length ) && ( transitions[state][position] != null );
+    }
+
+
     /**
      * {@inheritDoc}
      */
@@ -106,22 +262,35 @@ public abstract class AbstractGrammar<C extends Asn1Container> implements Gramma
             return;
         }
 
-        byte tagByte = container.getCurrentTLV().getTag();
+        CompiledTransitions<C> compiled = compiledTransitions;
 
-        // We will loop until no more actions are to be executed
-        @SuppressWarnings("unchecked")
-        GrammarTransition<C> transition = ( ( AbstractGrammar<C> ) container.getGrammar() ).getTransition(
-            currentState,
-            tagByte );
+        if ( ( compiled == null ) || ( compiled.source != transitions ) )
+        {
+            // Concurrent compilations produce identical tables, no need to synchronize
+            compiled = new CompiledTransitions<>( transitions );
+            compiledTransitions = compiled;
+        }
+
+        TLV tlv = container.getCurrentTLV();
+        byte tagByte = tlv.getTag();
+        int index = compiled.getIndex( currentState.ordinal(), tagByte );
+
+        if ( ( index == 0 ) && hasTransition( currentState.ordinal(), tagByte ) )
+        {
+            // The transition has been added after the compilation
+            compiled = new CompiledTransitions<>( transitions );
+            compiledTransitions = compiled;
+            index = compiled.getIndex( currentState.ordinal(), tagByte );
+        }
         
         if ( LOG.isDebugEnabled() )
         { 
             LOG.debug( "-------------------------------------" );
-            LOG.debug( transition.toString() );
+            LOG.debug( String.valueOf( compiled.transitions[index] ) );
             LOG.debug( "C: " ); 
-            LOG.debug( container.getCurrentTLV().toString() );
+            LOG.debug( tlv.toString() );
             
-            TLV parent = container.getCurrentTLV().getParent();
+            TLV parent = tlv.getParent();
             
             while ( parent != null )
             {
@@ -131,9 +300,9 @@ public abstract class AbstractGrammar<C extends Asn1Container> implements Gramma
             }
         }
 
-        TLV parent = container.getCurrentTLV().getParent();
+        TLV parent = tlv.getParent();
         
-        if ( transition == null )
+        if ( index == 0 )
         {
             String errorMessage = I18n.err( I18n.ERR_01200_BAD_TRANSITION_FROM_STATE, currentState,
                 Asn1StringUtils.dumpByte( tagByte ) );
@@ -145,26 +314,22 @@ public abstract class AbstractGrammar<C extends Asn1Container> implements Gramma
             throw new DecoderException( errorMessage );
         }
 
-        if ( LOG.isDebugEnabled() )
-        {
-            LOG.debug( transition.toString() );
-        }
+        Action<C> action = compiled.actions[index];
 
-        if ( transition.hasAction() )
+        if ( action != null )
         {
-            Action<C> action = transition.getAction();
             action.action( container );
         }
 
-        if ( ( parent != null ) && ( parent.getExpectedLength() == 0 ) && transition.hasFollowUp() )
+        if ( ( parent != null ) && ( parent.getExpectedLength() == 0 ) && compiled.transitions[index].hasFollowUp() )
         {
-            String errorMessage = I18n.err( I18n.ERR_01201_MANDATORY_TRANSITION_EXPECTED, transition );
+            String errorMessage = I18n.err( I18n.ERR_01201_MANDATORY_TRANSITION_EXPECTED, compiled.transitions[index] );
 
             LOG.error( errorMessage );
             
             throw new DecoderException( errorMessage );
         }
         
-        container.setTransition( transition.getCurrentState() );
+        container.setTransition( compiled.nextStates[index] );
     }
 }
@@ -45,6 +45,9 @@ public class BerValue
     /** The current position of the last byte in the data buffer */
     private int currentPos;
 
+    /** A view on the decoded stream, used instead of the data buffer when the value has not been copied */
+    private ByteBuffer slice;
+
     /** The encoded byte for a TRUE value */
     public static final byte TRUE_VALUE = ( byte ) 0xFF;
 
@@ -62,44 +65,35 @@ public class BerValue
     /** Integer limits for encoding : 0x7F */
     private static final int ONE_BYTE_MAX = ( 1 << 7 ) - 1;
 
-    /** Integer limits for encoding : -0x7F */
-    private static final int ONE_BYTE_MIN = -( 1 << 7 );
-
     /** Integer limits for encoding : 0x7FFF */
     private static final int TWO_BYTE_MAX = ( 1 << 15 ) - 1;
 
-    /** Integer limits for encoding : -0x7FFF */
-    private static final int TWO_BYTE_MIN = -( 1 << 15 );
-
     /** Integer limits for encoding : 0x7FFFFF */
     private static final int THREE_BYTE_MAX = ( 1 << 23 ) - 1;
 
-    /** Integer limits for encoding : -0x7FFFFF */
-    private static final int THREE_BYTE_MIN = -( 1 << 23 );
-
     /** Integer limits for encoding : 0x7FFFFFFF */
     private static final long FOUR_BYTE_MAX = ( 1L << 31 ) - 1L;
 
-    /** Integer limits for encoding : -0x7FFFFFFF */
-    private static final long FOUR_BYTE_MIN = -( 1L << 31 );
-
     /** Integer limits for encoding : 0x7FFFFFFFFF */
     private static final long FIVE_BYTE_MAX = ( 1L << 39 ) - 1L;
 
-    /** Integer limits for encoding : -0x7FFFFFFFFF */
-    private static final long FIVE_BYTE_MIN = -( 1L << 39 );
-
     /** Integer limits for encoding : 0x7FFFFFFFFFFF */
     private static final long SIX_BYTE_MAX = ( 1L << 47 ) - 1L;
 
-    /** Integer limits for encoding : -0x7FFFFFFFFFFF */
-    private static final long SIX_BYTE_MIN = -( 1L << 47 );
-
     /** Integer limits for encoding : 0x7FFFFFFFFFFF */
     private static final long SEVEN_BYTE_MAX = ( 1L << 55 ) - 1L;
 
-    /** Integer limits for encoding : -0x7FFFFFFFFFFF */
-    private static final long SEVEN_BYTE_MIN = -( 1L << 55 );
+    /** The number of bytes needed to encode an integer, indexed by its number of significant bits */
+    private static final byte[] NB_BYTES = new byte[65];
+
+    static
+    {
+        for ( int nbBits = 0; nbBits < NB_BYTES.length; nbBits++ )
+        {
+            // One more bit is needed for the sign
+            NB_BYTES[nbBits] = ( byte ) ( ( nbBits >> 3 ) + 1 );
+        }
+    }
 
 
     /**
@@ -134,6 +128,7 @@ public class BerValue
     public void init( int size )
     {
         data = new byte[size];
+        slice = null;
         currentPos = 0;
     }
 
@@ -144,21 +139,124 @@ public class BerValue
     public void reset()
     {
         data = null;
+        slice = null;
         currentPos = 0;
     }
 
 
     /**
-     * Get the Values'data
+     * Get the Values'data. If the Value is a slice of the decoded stream, the
+     * bytes are copied into a new byte[] the first time this method is called.
      *
      * @return Returns the data.
      */
     public byte[] getData()
     {
+        if ( slice != null )
+        {
+            data = new byte[slice.remaining()];
+            slice.duplicate().get( data );
+            slice = null;
+        }
+
         return data;
     }
 
 
+    /**
+     * Make the Value a view on the decoded stream, instead of a copy. The slice
+     * must not be modified by the caller. It is only valid as long as the underlying
+     * stream is not reused, which means it must be consumed by the grammar action
+     * executed for this TLV.
+     *
+     * @param slice The ByteBuffer containing exactly the Value bytes
+     */
+    public void setSlice( ByteBuffer slice )
+    {
+        this.slice = slice;
+        data = null;
+        currentPos = slice.remaining();
+    }
+
+
+    /**
+     * @return <code>true</code> if the Value is a view on the decoded stream that has not
+     * been copied yet
+     */
+    public boolean isSlice()
+    {
+        return slice != null;
+    }
+
+
+    /**
+     * Get the Value's data as a ByteBuffer, without copying it. The returned buffer
+     * position and limit can be freely modified by the caller, but not its content.
+     *
+     * @return A ByteBuffer containing the Value's data, or null if there is no data
+     */
+    public ByteBuffer getDataBuffer()
+    {
+        if ( slice != null )
+        {
+            return slice.duplicate();
+        }
+        else if ( data != null )
+        {
+            return ByteBuffer.wrap( data );
+        }
+        else
+        {
+            return null;
+        }
+    }
+
+
+    /**
+     * @return The Value's data length, the number of skipped bytes if the Value has
+     * been skipped, or -1 if there is no data
+     */
+    public int getDataLength()
+    {
+        if ( slice != null )
+        {
+            return slice.remaining();
+        }
+        else if ( data != null )
+        {
+            return data.length;
+        }
+        else if ( currentPos > 0 )
+        {
+            return currentPos;
+        }
+        else
+        {
+            return -1;
+        }
+    }
+
+
+    /**
+     * Get one of the Value's data bytes, without copying the data if the Value
+     * is a slice of the decoded stream.
+     *
+     * @param index The position of the byte in the Value's data, starting at 0
+     * @return The byte at the given position
+     */
+    public byte getDataByte( int index )
+    {
+        if ( slice != null )
+        {
+            return slice.get( slice.position() + index );
+        }
+        else
+        {
+            return data[index];
+        }
+    }
+
+
     /**
      * Set a block of bytes in the Value
      *
@@ -179,12 +277,39 @@ public class BerValue
      */
     public void addData( ByteBuffer buffer )
     {
-        int length = buffer.remaining();
+        addData( buffer, buffer.remaining() );
+    }
+
+
+    /**
+     * Append some bytes read from a ByteBuffer to the data buffer.
+     *
+     * @param buffer The buffer containing the data to append
+     * @param length The number of bytes to read from the buffer
+     */
+    public void addData( ByteBuffer buffer, int length )
+    {
         buffer.get( data, currentPos, length );
         currentPos += length;
     }
 
 
+    /**
+     * Skip some bytes of the Value : they are read from the buffer, but not stored.
+     * A skipped Value has no data, and its data length is the number of skipped bytes.
+     *
+     * @param buffer The buffer containing the bytes to skip
+     * @param length The number of bytes to skip
+     */
+    public void skipData( ByteBuffer buffer, int length )
+    {
+        data = null;
+        slice = null;
+        buffer.position( buffer.position() + length );
+        currentPos += length;
+    }
+
+
     /**
      * Set a block of bytes in the Value
      *
@@ -228,22 +353,8 @@ public class BerValue
      */
     public static int getNbBytes( int value )
     {
-        if ( ( value >= ONE_BYTE_MIN ) && ( value <= ONE_BYTE_MAX ) )
-        {
-            return 1;
-        }
-        else if ( ( value >= TWO_BYTE_MIN ) && ( value <= TWO_BYTE_MAX ) )
-        {
-            return 2;
-        }
-        else if ( ( value >= THREE_BYTE_MIN ) && ( value <= THREE_BYTE_MAX ) )
-        {
-            return 3;
-        }
-        else
-        {
-            return 4;
-        }
+        // A negative value needs as many bytes as its complement
+        return NB_BYTES[32 - Integer.numberOfLeadingZeros( value ^ ( value >> 31 ) )];
     }
 
 
@@ -257,38 +368,8 @@ public class BerValue
      */
     public static int getNbBytes( long value )
     {
-        if ( ( value >= ONE_BYTE_MIN ) && ( value <= ONE_BYTE_MAX ) )
-        {
-            return 1;
-        }
-        else if ( ( value >= TWO_BYTE_MIN ) && ( value <= TWO_BYTE_MAX ) )
-        {
-            return 2;
-        }
-        else if ( ( value >= THREE_BYTE_MIN ) && ( value <= THREE_BYTE_MAX ) )
-        {
-            return 3;
-        }
-        else if ( ( value >= FOUR_BYTE_MIN ) && ( value <= FOUR_BYTE_MAX ) )
-        {
-            return 4;
-        }
-        else if ( ( value >= FIVE_BYTE_MIN ) && ( value <= FIVE_BYTE_MAX ) )
-        {
-            return 5;
-        }
-        else if ( ( value >= SIX_BYTE_MIN ) && ( value <= SIX_BYTE_MAX ) )
-        {
-            return 6;
-        }
-        else if ( ( value >= SEVEN_BYTE_MIN ) && ( value <= SEVEN_BYTE_MAX ) )
-        {
-            return 7;
-        }
-        else
-        {
-            return 8;
-        }
+        // A negative value needs as many bytes as its complement
+        return NB_BYTES[64 - Long.numberOfLeadingZeros( value ^ ( value >> 63 ) )];
     }
 
 
@@ -624,6 +705,64 @@ public class BerValue
     }
 
 
+    /**
+     * Store the nbBytes lower bytes of an integer value in an Asn1Buffer, without
+     * allocating any byte[]. As the buffer is filled by the end, the least significant
+     * byte is stored first.
+     *
+     * @param buffer The PDU in which the value will be put
+     * @param value The value to store
+     * @param nbBytes The number of bytes to store, as computed by getNbBytes
+     */
+    private static void putBytes( Asn1Buffer buffer, long value, int nbBytes )
+    {
+        for ( int i = 0; i < nbBytes; i++ )
+        {
+            buffer.put( ( byte ) ( value >> ( i << 3 ) ) );
+        }
+    }
+
+
+    /**
+     * Store a TLV length in an Asn1Buffer, without allocating any byte[]. Short
+     * lengths are stored in one byte, long lengths are stored in their minimal
+     * form, preceded by the 0x8n number of bytes.
+     *
+     * @param buffer The PDU in which the length will be put
+     * @param length The length to store
+     */
+    private static void putLength( Asn1Buffer buffer, int length )
+    {
+        if ( ( length >= 0 ) && ( length < 128 ) )
+        {
+            buffer.put( ( byte ) length );
+        }
+        else
+        {
+            int nbBytes = TLV.getNbBytes( length ) - 1;
+            putBytes( buffer, length, nbBytes );
+            buffer.put( ( byte ) ( 0x80 | nbBytes ) );
+        }
+    }
+
+
+    /**
+     * Store the nbBytes lower bytes of an integer value in a ByteBuffer, without
+     * allocating any byte[]. The most significant byte is stored first.
+     *
+     * @param buffer The PDU in which the value will be put
+     * @param value The value to store
+     * @param nbBytes The number of bytes to store, as computed by getNbBytes
+     */
+    private static void putBytes( ByteBuffer buffer, long value, int nbBytes )
+    {
+        for ( int i = nbBytes - 1; i >= 0; i-- )
+        {
+            buffer.put( ( byte ) ( value >> ( i << 3 ) ) );
+        }
+    }
+
+
     /**
      * Encode a boolean value
      *
@@ -675,8 +814,9 @@ public class BerValue
      */
     public static void encodeInteger( Asn1Buffer buffer, int value )
     {
-        buffer.put( getBytes( value ) );
-        buffer.put( ( byte ) getNbBytes( value ) );
+        int nbBytes = getNbBytes( value );
+        putBytes( buffer, value, nbBytes );
+        buffer.put( ( byte ) nbBytes );
         buffer.put( UniversalTag.INTEGER.getValue() );
     }
 
@@ -690,8 +830,9 @@ public class BerValue
      */
     public static void encodeInteger( Asn1Buffer buffer, byte tag, int value )
     {
-        buffer.put( getBytes( value ) );
-        buffer.put( ( byte ) getNbBytes( value ) );
+        int nbBytes = getNbBytes( value );
+        putBytes( buffer, value, nbBytes );
+        buffer.put( ( byte ) nbBytes );
         buffer.put( tag );
     }
 
@@ -704,8 +845,9 @@ public class BerValue
      */
     public static void encodeInteger( Asn1Buffer buffer, long value )
     {
-        buffer.put( getBytes( value ) );
-        buffer.put( ( byte ) getNbBytes( value ) );
+        int nbBytes = getNbBytes( value );
+        putBytes( buffer, value, nbBytes );
+        buffer.put( ( byte ) nbBytes );
         buffer.put( UniversalTag.INTEGER.getValue() );
     }
 
@@ -719,8 +861,9 @@ public class BerValue
      */
     public static void encodeInteger( Asn1Buffer buffer, byte tag, long value )
     {
-        buffer.put( getBytes( value ) );
-        buffer.put( ( byte ) getNbBytes( value ) );
+        int nbBytes = getNbBytes( value );
+        putBytes( buffer, value, nbBytes );
+        buffer.put( ( byte ) nbBytes );
         buffer.put( tag );
     }
 
@@ -740,7 +883,7 @@ public class BerValue
         else
         {
             buffer.put( data );
-            buffer.put( TLV.getBytes( data.length ) );
+            putLength( buffer, data.length );
         }
 
         buffer.put( UniversalTag.OCTET_STRING.getValue() );
@@ -763,7 +906,7 @@ public class BerValue
         {
             byte[] bytes = Strings.getBytesUtf8Ascii( value );
             buffer.put( bytes );
-            buffer.put( TLV.getBytes( bytes.length ) );
+            putLength( buffer, bytes.length );
         }
 
         buffer.put( UniversalTag.OCTET_STRING.getValue() );
@@ -786,7 +929,7 @@ public class BerValue
         else
         {
             buffer.put( data );
-            buffer.put( TLV.getBytes( data.length ) );
+            putLength( buffer, data.length );
         }
 
         buffer.put( tag );
@@ -810,7 +953,7 @@ public class BerValue
         {
             byte[] bytes = Strings.getBytesUtf8Ascii( value );
             buffer.put( bytes );
-            buffer.put( TLV.getBytes( bytes.length ) );
+            putLength( buffer, bytes.length );
         }
 
         buffer.put( tag );
@@ -824,7 +967,7 @@ public class BerValue
      */
     public static void encodeSequence( Asn1Buffer buffer )
     {
-        buffer.put( TLV.getBytes( buffer.getPos() ) );
+        putLength( buffer, buffer.getPos() );
         buffer.put( UniversalTag.SEQUENCE.getValue() );
     }
 
@@ -837,7 +980,7 @@ public class BerValue
      */
     public static void encodeSequence( Asn1Buffer buffer, int start )
     {
-        buffer.put( TLV.getBytes( buffer.getPos() - start ) );
+        putLength( buffer, buffer.getPos() - start );
         buffer.put( UniversalTag.SEQUENCE.getValue() );
     }
 
@@ -850,7 +993,7 @@ public class BerValue
      */
     public static void encodeSequence( Asn1Buffer buffer, byte tag )
     {
-        buffer.put( TLV.getBytes( buffer.getPos() ) );
+        putLength( buffer, buffer.getPos() );
         buffer.put( tag );
     }
 
@@ -864,7 +1007,7 @@ public class BerValue
      */
     public static void encodeSequence( Asn1Buffer buffer, byte tag, int start )
     {
-        buffer.put( TLV.getBytes( buffer.getPos() - start ) );
+        putLength( buffer, buffer.getPos() - start );
         buffer.put( tag );
     }
 
@@ -876,7 +1019,7 @@ public class BerValue
      */
     public static void encodeSet( Asn1Buffer buffer )
     {
-        buffer.put( TLV.getBytes( buffer.getPos() ) );
+        putLength( buffer, buffer.getPos() );
         buffer.put( UniversalTag.SET.getValue() );
     }
 
@@ -889,7 +1032,7 @@ public class BerValue
      */
     public static void encodeSet( Asn1Buffer buffer, int start )
     {
-        buffer.put( TLV.getBytes( buffer.getPos() - start ) );
+        putLength( buffer, buffer.getPos() - start );
         buffer.put( UniversalTag.SET.getValue() );
     }
 
@@ -902,7 +1045,7 @@ public class BerValue
      */
     public static void encodeSet( Asn1Buffer buffer, byte tag )
     {
-        buffer.put( TLV.getBytes( buffer.getPos() ) );
+        putLength( buffer, buffer.getPos() );
         buffer.put( tag );
     }
 
@@ -916,7 +1059,7 @@ public class BerValue
      */
     public static void encodeSet( Asn1Buffer buffer, byte tag, int start )
     {
-        buffer.put( TLV.getBytes( buffer.getPos() - start ) );
+        putLength( buffer, buffer.getPos() - start );
         buffer.put( tag );
     }
 
@@ -1076,8 +1219,9 @@ public class BerValue
         try
         {
             buffer.put( UniversalTag.INTEGER.getValue() );
-            buffer.put( ( byte ) getNbBytes( value ) );
-            buffer.put( getBytes( value ) );
+            int nbBytes = getNbBytes( value );
+            buffer.put( ( byte ) nbBytes );
+            putBytes( buffer, value, nbBytes );
         }
         catch ( BufferOverflowException boe )
         {
@@ -1104,8 +1248,9 @@ public class BerValue
         try
         {
             buffer.put( UniversalTag.INTEGER.getValue() );
-            buffer.put( ( byte ) getNbBytes( value ) );
-            buffer.put( getBytes( value ) );
+            int nbBytes = getNbBytes( value );
+            buffer.put( ( byte ) nbBytes );
+            putBytes( buffer, value, nbBytes );
         }
         catch ( BufferOverflowException boe )
         {
@@ -1133,8 +1278,9 @@ public class BerValue
         try
         {
             buffer.put( tag );
-            buffer.put( ( byte ) getNbBytes( value ) );
-            buffer.put( getBytes( value ) );
+            int nbBytes = getNbBytes( value );
+            buffer.put( ( byte ) nbBytes );
+            putBytes( buffer, value, nbBytes );
         }
         catch ( BufferOverflowException boe )
         {
@@ -1151,8 +1297,9 @@ public class BerValue
      */
     public static void encodeEnumerated( Asn1Buffer buffer, int value )
     {
-        buffer.put( getBytes( value ) );
-        buffer.put( TLV.getBytes( getNbBytes( value ) ) );
+        int nbBytes = getNbBytes( value );
+        putBytes( buffer, value, nbBytes );
+        buffer.put( ( byte ) nbBytes );
         buffer.put( UniversalTag.ENUMERATED.getValue() );
     }
 
@@ -1166,8 +1313,9 @@ public class BerValue
      */
     public static void encodeEnumerated( Asn1Buffer buffer, byte tag, int value )
     {
-        buffer.put( getBytes( value ) );
-        buffer.put( TLV.getBytes( getNbBytes( value ) ) );
+        int nbBytes = getNbBytes( value );
+        putBytes( buffer, value, nbBytes );
+        buffer.put( ( byte ) nbBytes );
         buffer.put( tag );
     }
 
@@ -1190,8 +1338,9 @@ public class BerValue
         try
         {
             buffer.put( UniversalTag.ENUMERATED.getValue() );
-            buffer.put( TLV.getBytes( getNbBytes( value ) ) );
-            buffer.put( getBytes( value ) );
+            int nbBytes = getNbBytes( value );
+            buffer.put( ( byte ) nbBytes );
+            putBytes( buffer, value, nbBytes );
         }
         catch ( BufferOverflowException boe )
         {
@@ -1244,7 +1393,15 @@ public class BerValue
         StringBuilder sb = new StringBuilder();
         sb.append( "DATA" );
 
-        if ( data != null )
+        if ( slice != null )
+        {
+            byte[] bytes = new byte[slice.remaining()];
+            slice.duplicate().get( bytes );
+            sb.append( '[' );
+            sb.append( Asn1StringUtils.dumpBytes( bytes ) );
+            sb.append( ']' );
+        }
+        else if ( data != null )
         {
             sb.append( '[' );
             sb.append( Asn1StringUtils.dumpBytes( data ) );
@@ -21,7 +21,6 @@ package org.apache.directory.api.asn1.ber.tlv;
 
 
 import org.apache.directory.api.i18n.I18n;
-import org.apache.directory.api.util.Strings;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -50,19 +49,22 @@ public final class BooleanDecoder
      */
     public static boolean parse( BerValue value ) throws BooleanDecoderException
     {
-        byte[] bytes = value.getData();
+        // Read the byte in place, so that a Value which is a slice of the decoded stream is not copied
+        int length = value.getDataLength();
 
-        if ( Strings.isEmpty( bytes ) )
+        if ( length <= 0 )
         {
             throw new BooleanDecoderException( I18n.err( I18n.ERR_01302_0_BYTES_LONG_BOOLEAN ) );
         }
 
-        if ( bytes.length != 1 )
+        if ( length != 1 )
         {
             throw new BooleanDecoderException( I18n.err( I18n.ERR_01303_N_BYTES_LONG_BOOLEAN ) );
         }
 
-        if ( ( bytes[0] != 0 ) && ( bytes[0] != ( byte ) 0xFF ) )
+        byte b = value.getDataByte( 0 );
+
+        if ( ( b != 0 ) && ( b != ( byte ) 0xFF ) )
         {
             if ( LOG.isWarnEnabled() )
             {
@@ -70,6 +72,6 @@ public final class BooleanDecoder
             }
         }
 
-        return bytes[0] != 0;
+        return b != 0;
     }
 }
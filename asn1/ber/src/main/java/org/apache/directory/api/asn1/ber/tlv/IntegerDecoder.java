@@ -21,7 +21,6 @@ package org.apache.directory.api.asn1.ber.tlv;
 
 
 import org.apache.directory.api.i18n.I18n;
-import org.apache.directory.api.util.Strings;
 
 
 /**
@@ -31,11 +30,6 @@ import org.apache.directory.api.util.Strings;
  */
 public final class IntegerDecoder
 {
-    /** A mask used to get only the necessary bytes */
-    private static final int[] MASK = new int[]
-        { 0x000000FF, 0x0000FFFF, 0x00FFFFFF, 0xFFFFFFFF };
-
-
     private IntegerDecoder()
     {
     }
@@ -108,108 +102,56 @@ public final class IntegerDecoder
      */
     private static int parseInt( BerValue value ) throws IntegerDecoderException
     {
-        int result = 0;
+        // Read the bytes in place, so that a Value which is a slice of the decoded stream is not copied
+        int length = value.getDataLength();
 
-        byte[] bytes = value.getData();
-
-        if ( Strings.isEmpty( bytes ) )
+        if ( length <= 0 )
         {
             throw new IntegerDecoderException( I18n.err( I18n.ERR_01304_0_BYTES_LONG_INTEGER ) );
         }
 
-        boolean positive = true;
+        byte first = value.getDataByte( 0 );
+        int result;
 
-        switch ( bytes.length )
+        switch ( length )
         {
             case 5:
-                if ( bytes[0] == 0x00 )
-                {
-                    if ( ( bytes[1] & ( byte ) 0x80 ) != ( byte ) 0x80 )
-                    {
-                        throw new IntegerDecoderException( I18n.err( I18n.ERR_01304_0_BYTES_LONG_INTEGER ) );
-                    }
-
-                    result = bytes[1] & 0x00FF;
-                    result = ( result << 8 ) | ( bytes[2] & 0x00FF );
-                    result = ( result << 8 ) | ( bytes[3] & 0x00FF );
-                    result = ( result << 8 ) | ( bytes[4] & 0x00FF );
-                }
-                else
+                // Only an unsigned integer which high order bit is set can use 5 bytes
+                if ( ( first != 0x00 ) || ( ( value.getDataByte( 1 ) & 0x80 ) != 0x80 ) )
                 {
                     throw new IntegerDecoderException( I18n.err( I18n.ERR_01304_0_BYTES_LONG_INTEGER ) );
                 }
 
+                result = ( ( value.getDataByte( 1 ) & 0x00FF ) << 24 )
+                    | ( ( value.getDataByte( 2 ) & 0x00FF ) << 16 )
+                    | ( ( value.getDataByte( 3 ) & 0x00FF ) << 8 )
+                    | ( value.getDataByte( 4 ) & 0x00FF );
+
                 break;
 
             case 4:
-                if ( bytes[0] == 0x00 )
-                {
-                    result = bytes[1] & 0x00FF;
-                }
-                else
-                {
-                    result = bytes[0] & 0x00FF;
-
-                    if ( ( bytes[0] & ( byte ) 0x80 ) == ( byte ) 0x80 )
-                    {
-                        positive = false;
-                    }
-
-                    result = ( result << 8 ) | ( bytes[1] & 0x00FF );
-                }
-
-                result = ( result << 8 ) | ( bytes[2] & 0x00FF );
-                result = ( result << 8 ) | ( bytes[3] & 0x00FF );
+                // The first byte is sign extended
+                result = ( first << 24 )
+                    | ( ( value.getDataByte( 1 ) & 0x00FF ) << 16 )
+                    | ( ( value.getDataByte( 2 ) & 0x00FF ) << 8 )
+                    | ( value.getDataByte( 3 ) & 0x00FF );
 
                 break;
 
             case 3:
-                if ( bytes[0] == 0x00 )
-                {
-                    result = bytes[1] & 0x00FF;
-                }
-                else
-                {
-                    result = bytes[0] & 0x00FF;
-
-                    if ( ( bytes[0] & ( byte ) 0x80 ) == ( byte ) 0x80 )
-                    {
-                        positive = false;
-                    }
-
-                    result = ( result << 8 ) | ( bytes[1] & 0x00FF );
-                }
-
-                result = ( result << 8 ) | ( bytes[2] & 0x00FF );
+                result = ( first << 16 )
+                    | ( ( value.getDataByte( 1 ) & 0x00FF ) << 8 )
+                    | ( value.getDataByte( 2 ) & 0x00FF );
 
                 break;
 
             case 2:
-                if ( bytes[0] == 0x00 )
-                {
-                    result = bytes[1] & 0x00FF;
-                }
-                else
-                {
-                    result = bytes[0] & 0x00FF;
-
-                    if ( ( bytes[0] & ( byte ) 0x80 ) == ( byte ) 0x80 )
-                    {
-                        positive = false;
-                    }
-
-                    result = ( result << 8 ) | ( bytes[1] & 0x00FF );
-                }
+                result = ( first << 8 ) | ( value.getDataByte( 1 ) & 0x00FF );
 
                 break;
 
             case 1:
-                result = ( result << 8 ) | ( bytes[0] & 0x00FF );
-
-                if ( ( bytes[0] & ( byte ) 0x80 ) == ( byte ) 0x80 )
-                {
-                    positive = false;
-                }
+                result = first;
 
                 break;
 
@@ -217,11 +159,6 @@ public final class IntegerDecoder
                 throw new IntegerDecoderException( I18n.err( I18n.ERR_01305_ABOVE_4_BYTES_INTEGER ) );
         }
 
-        if ( !positive )
-        {
-            result = -( ( ( ~result ) + 1 ) & MASK[bytes.length - 1] );
-        }
-
         return result;
     }
 }
@@ -30,12 +30,6 @@ import org.apache.directory.api.i18n.I18n;
  */
 public final class LongDecoder
 {
-    /** A mask used to get only the necessary bytes */
-    private static final long[] MASK = new long[]
-        { 0x00000000000000FFL, 0x000000000000FFFFL, 0x0000000000FFFFFFL, 0x00000000FFFFFFFFL, 0x000000FFFFFFFFFFL,
-            0x0000FFFFFFFFFFFFL, 0x00FFFFFFFFFFFFFFL, 0xFFFFFFFFFFFFFFFFL };
-
-
     private LongDecoder()
     {
     }
@@ -89,30 +83,22 @@ public final class LongDecoder
      */
     public static long parseLong( BerValue value ) throws LongDecoderException
     {
-        long result = 0;
+        // Read the bytes in place, so that a Value which is a slice of the decoded stream is not copied
+        int length = value.getDataLength();
 
-        byte[] bytes = value.getData();
-
-        if ( ( bytes == null ) || ( bytes.length == 0 ) )
+        if ( ( length <= 0 ) || ( length > 8 ) )
         {
             throw new LongDecoderException( I18n.err( I18n.ERR_01307_0_BYTES_LONG_LONG ) );
         }
 
-        if ( bytes.length > 8 )
-        {
-            throw new LongDecoderException( I18n.err( I18n.ERR_01307_0_BYTES_LONG_LONG ) );
-        }
+        // The first byte is sign extended
+        long result = value.getDataByte( 0 );
 
-        for ( int i = 0; ( i < bytes.length ) && ( i < 9 ); i++ )
+        for ( int i = 1; i < length; i++ )
         {
-            result = ( result << 8 ) | ( bytes[i] & 0x00FF );
+            result = ( result << 8 ) | ( value.getDataByte( i ) & 0x00FF );
         }
 
-        if ( ( bytes[0] & 0x80 ) == 0x80 )
-        {
-            result = -( ( ( ~result ) + 1 ) & MASK[bytes.length - 1] );
-        }
-        
         return result;
     }
 }
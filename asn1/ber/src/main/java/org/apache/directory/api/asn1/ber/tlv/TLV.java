@@ -48,6 +48,9 @@ public class TLV
     /** An identity for the TLV. It store the TLV hashCode */
     private int id;
 
+    /** The TLV nesting depth in the PDU, the enclosing TLV being at depth 0 */
+    private int depth;
+
     /**
      * Reference the TLV which contains the current TLV, if any. As the
      * enclosing TLV of a PDU does not have parent, it can be null in this case.
@@ -102,12 +105,25 @@ public class TLV
      * @param id the TLV's id
      */
     public TLV( int id )
+    {
+        this( id, 0 );
+    }
+
+
+    /**
+     * Creates a new TLV object at a given nesting depth.
+     * 
+     * @param id the TLV's id
+     * @param depth the TLV's nesting depth in the PDU
+     */
+    public TLV( int id, int depth )
     {
         tag = 0;
         length = 0;
         lengthNbBytes = 0;
         value = new BerValue();
         this.id = id;
+        this.depth = depth;
 
         expectedLength = 0;
     }
@@ -169,12 +185,29 @@ public class TLV
         tag = 0;
         length = 0;
         lengthNbBytes = 0;
+        lengthBytesRead = 0;
         value.reset();
+        parent = null;
 
         expectedLength = 0;
     }
 
 
+    /**
+     * Reset the TLV and give it a new identity, so that the same instance can be used
+     * for another TLV of the same depth.
+     * 
+     * @param id the TLV's new id
+     * @param depth the TLV's nesting depth in the PDU
+     */
+    public void recycle( int id, int depth )
+    {
+        reset();
+        this.id = id;
+        this.depth = depth;
+    }
+
+
     /**
      * @return Returns the tag.
      */
@@ -438,6 +471,15 @@ public class TLV
     }
 
 
+    /**
+     * @return The TLV's nesting depth in the PDU, the enclosing TLV being at depth 0
+     */
+    public int getDepth()
+    {
+        return depth;
+    }
+
+
     /**
      * Get a String representation of the TLV
      * 
@@ -0,0 +1,211 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *    https://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ *
+ */
+package org.apache.directory.api.asn1.ber.grammar;
+
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.nio.ByteBuffer;
+
+import org.apache.directory.api.asn1.DecoderException;
+import org.apache.directory.api.asn1.ber.AbstractContainer;
+import org.apache.directory.api.asn1.ber.Asn1Decoder;
+import org.apache.directory.api.asn1.ber.grammar.Grammar.FollowUp;
+import org.apache.directory.api.asn1.ber.tlv.IntegerDecoder;
+import org.apache.directory.api.asn1.ber.tlv.IntegerDecoderException;
+import org.apache.directory.api.asn1.ber.tlv.UniversalTag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.parallel.Execution;
+import org.junit.jupiter.api.parallel.ExecutionMode;
+
+
+/**
+ * Test the compiled transitions table of the AbstractGrammar
+ *
+ * @author <a href="mailto:dev@directory.apache.org">Apache Directory Project</a>
+ */
+@Execution(ExecutionMode.CONCURRENT)
+public class AbstractGrammarTest
+{
+    /** A SEQUENCE containing the INTEGER 5 */
+    private static final byte[] PDU = new byte[]
+        {
+            0x30, 0x03,
+              0x02, 0x01, 0x05
+        };
+
+    /**
+     * The states of a grammar decoding a SEQUENCE containing an INTEGER
+     */
+    private enum TestStates implements States
+    {
+        START_STATE,
+        SEQUENCE_STATE,
+        INTEGER_STATE,
+        END_STATE;
+
+
+        @Override
+        public boolean isEndState()
+        {
+            return this == END_STATE;
+        }
+
+
+        @Override
+        public Enum<?> getStartState()
+        {
+            return START_STATE;
+        }
+    }
+
+    /**
+     * A container storing the decoded INTEGER
+     */
+    private static class TestContainer extends AbstractContainer
+    {
+        private int value = -1;
+
+
+        private TestContainer( Grammar<TestContainer> grammar )
+        {
+            setGrammar( grammar );
+            setTransition( TestStates.START_STATE );
+        }
+    }
+
+    /**
+     * A grammar decoding a SEQUENCE containing an INTEGER. The INTEGER transition
+     * is only added on demand.
+     */
+    private static class TestGrammar extends AbstractGrammar<TestContainer>
+    {
+        @SuppressWarnings("unchecked")
+        private TestGrammar()
+        {
+            setName( TestGrammar.class.getName() );
+
+            super.transitions = new GrammarTransition[TestStates.END_STATE.ordinal()][256];
+
+            super.transitions[TestStates.START_STATE.ordinal()][UniversalTag.SEQUENCE.getValue()] =
+                new GrammarTransition<>(
+                    TestStates.START_STATE,
+                    TestStates.SEQUENCE_STATE,
+                    UniversalTag.SEQUENCE,
+                    FollowUp.MANDATORY );
+        }
+
+
+        /**
+         * Adds the SEQUENCE_STATE -> INTEGER_STATE transition
+         */
+        private void addIntegerTransition()
+        {
+            transitions[TestStates.SEQUENCE_STATE.ordinal()][UniversalTag.INTEGER.getValue()] =
+                new GrammarTransition<>(
+                    TestStates.SEQUENCE_STATE,
+                    TestStates.INTEGER_STATE,
+                    UniversalTag.INTEGER,
+                    container ->
+                    {
+                        try
+                        {
+                            container.value = IntegerDecoder.parse( container.getCurrentTLV().getValue() );
+                        }
+                        catch ( IntegerDecoderException ide )
+                        {
+                            throw new DecoderException( ide.getMessage(), ide );
+                        }
+
+                        container.setGrammarEndAllowed( true );
+                    },
+                    FollowUp.OPTIONAL );
+        }
+    }
+
+
+    private static TestContainer decode( TestGrammar grammar ) throws DecoderException
+    {
+        TestContainer container = new TestContainer( grammar );
+        Asn1Decoder.decode( ByteBuffer.wrap( PDU ), container );
+
+        return container;
+    }
+
+
+    @Test
+    public void testDecode() throws DecoderException
+    {
+        TestGrammar grammar = new TestGrammar();
+        grammar.addIntegerTransition();
+        grammar.compile();
+
+        assertEquals( 5, decode( grammar ).value );
+    }
+
+
+    @Test
+    public void testTransitionAddedAfterCompilation() throws DecoderException
+    {
+        TestGrammar grammar = new TestGrammar();
+        grammar.compile();
+
+        assertThrows( DecoderException.class, () -> decode( grammar ) );
+
+        // The transition is used without compiling the grammar again
+        grammar.addIntegerTransition();
+
+        assertEquals( 5, decode( grammar ).value );
+    }
+
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void testTransitionsTableReplaced() throws DecoderException
+    {
+        TestGrammar grammar = new TestGrammar();
+        grammar.addIntegerTransition();
+        assertEquals( 5, decode( grammar ).value );
+
+        // A new table without the INTEGER transition
+        GrammarTransition<TestContainer>[][] table = new GrammarTransition[TestStates.END_STATE.ordinal()][];
+        table[TestStates.START_STATE.ordinal()] = grammar.transitions[TestStates.START_STATE.ordinal()];
+        grammar.transitions = table;
+
+        assertThrows( DecoderException.class, () -> decode( grammar ) );
+    }
+
+
+    @Test
+    public void testFollowUpChangedAfterCompilation() throws DecoderException
+    {
+        TestGrammar grammar = new TestGrammar();
+        grammar.addIntegerTransition();
+        grammar.compile();
+        assertEquals( 5, decode( grammar ).value );
+
+        // The INTEGER is the last TLV of the SEQUENCE, it can't have a mandatory follow up
+        grammar.getTransition( TestStates.SEQUENCE_STATE, UniversalTag.INTEGER.getValue() )
+            .setFollowUp( FollowUp.MANDATORY );
+
+        assertThrows( DecoderException.class, () -> decode( grammar ) );
+    }
+}
@@ -21,6 +21,8 @@ package org.apache.directory.api.asn1.ber.tlv;
 
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.junit.jupiter.api.Assertions.fail;
 
@@ -29,6 +31,7 @@ import java.nio.ByteBuffer;
 import java.util.Arrays;
 
 import org.apache.directory.api.asn1.EncoderException;
+import org.apache.directory.api.asn1.util.Asn1Buffer;
 import org.apache.directory.api.asn1.util.Asn1StringUtils;
 import org.apache.directory.api.asn1.util.BitString;
 
@@ -770,6 +773,146 @@ public class ValueTest
         assertEquals( 0x01, vv[0] );
     }
 
+
+
+    @Test
+    public void testSliceValue()
+    {
+        ByteBuffer stream = ByteBuffer.wrap( new byte[]
+            { 0x04, 0x02, 0x01, ( byte ) 0xFF, 0x05 } );
+        stream.position( 2 );
+        ByteBuffer slice = stream.slice();
+        slice.limit( 2 );
+
+        BerValue v = new BerValue();
+        v.setSlice( slice );
+
+        assertTrue( v.isSlice() );
+        assertEquals( 2, v.getDataLength() );
+        assertEquals( 2, v.getCurrentLength() );
+
+        // The buffer is a view on the stream
+        ByteBuffer data = v.getDataBuffer();
+        assertEquals( 2, data.remaining() );
+        assertEquals( 0x01, data.get() );
+        assertEquals( ( byte ) 0xFF, data.get() );
+
+        // Reading the buffer does not consume the value
+        assertEquals( 2, v.getDataBuffer().remaining() );
+
+        // Getting the data copies it
+        byte[] vv = v.getData();
+        assertFalse( v.isSlice() );
+        assertTrue( Arrays.equals( new byte[] { 0x01, ( byte ) 0xFF }, vv ) );
+
+        stream.put( 2, ( byte ) 0x00 );
+        assertEquals( 0x01, v.getData()[0] );
+
+        v.reset();
+        assertEquals( -1, v.getDataLength() );
+        assertNull( v.getDataBuffer() );
+    }
+
+
+
+    @Test
+    public void testEncodeDecodeIntegerInPlace() throws Exception
+    {
+        int[] values = new int[]
+            { 0, 1, -1, 127, 128, -128, -129, 255, 256, 32767, 32768, -32768, -32769, 8388607, 8388608,
+                -8388608, -8388609, Integer.MAX_VALUE, Integer.MIN_VALUE };
+
+        for ( int value : values )
+        {
+            byte[] expected = BerValue.getBytes( value );
+
+            // Encoding into an Asn1Buffer
+            Asn1Buffer asn1Buffer = new Asn1Buffer();
+            BerValue.encodeInteger( asn1Buffer, value );
+            ByteBuffer encoded = asn1Buffer.getBytes();
+
+            assertEquals( 2 + expected.length, encoded.remaining() );
+            assertEquals( UniversalTag.INTEGER.getValue(), encoded.get( 0 ) );
+            assertEquals( expected.length, encoded.get( 1 ) );
+
+            // Encoding into a ByteBuffer
+            ByteBuffer buffer = ByteBuffer.allocate( 2 + expected.length );
+            BerValue.encode( buffer, value );
+            assertTrue( Arrays.equals( encoded.array(), buffer.array() ) );
+
+            // Decoding a slice does not copy it
+            encoded.position( 2 );
+            BerValue v = new BerValue();
+            v.setSlice( encoded.slice() );
+
+            assertEquals( value, IntegerDecoder.parse( v ) );
+            assertTrue( v.isSlice() );
+        }
+    }
+
+
+    @Test
+    public void testEncodeDecodeLongInPlace() throws Exception
+    {
+        long[] values = new long[]
+            { 0L, 1L, -1L, 128L, -129L, 2147483648L, -2147483649L, 549755813887L, 549755813888L, -549755813889L,
+                36028797018963967L, 36028797018963968L, Long.MAX_VALUE, Long.MIN_VALUE };
+
+        for ( long value : values )
+        {
+            byte[] expected = BerValue.getBytes( value );
+
+            Asn1Buffer asn1Buffer = new Asn1Buffer();
+            BerValue.encodeInteger( asn1Buffer, value );
+            ByteBuffer encoded = asn1Buffer.getBytes();
+
+            assertEquals( 2 + expected.length, encoded.remaining() );
+
+            ByteBuffer buffer = ByteBuffer.allocate( 2 + expected.length );
+            BerValue.encode( buffer, value );
+            assertTrue( Arrays.equals( encoded.array(), buffer.array() ) );
+
+            encoded.position( 2 );
+            BerValue v = new BerValue();
+            v.setSlice( encoded.slice() );
+
+            assertEquals( value, LongDecoder.parse( v ) );
+            assertTrue( v.isSlice() );
+        }
+    }
+
+
+    @Test
+    public void testEncodeLongLength() throws Exception
+    {
+        for ( int length : new int[] { 0, 1, 127, 128, 255, 256, 65535, 65536 } )
+        {
+            byte[] data = new byte[length];
+
+            Asn1Buffer asn1Buffer = new Asn1Buffer();
+            BerValue.encodeOctetString( asn1Buffer, data );
+
+            ByteBuffer buffer = ByteBuffer.allocate( 1 + TLV.getNbBytes( length ) + length );
+            BerValue.encode( buffer, data );
+
+            assertTrue( Arrays.equals( buffer.array(), asn1Buffer.getBytes().array() ) );
+        }
+    }
+
+
+    @Test
+    public void testDecodeBooleanInPlace() throws Exception
+    {
+        ByteBuffer stream = ByteBuffer.wrap( new byte[]
+            { 0x01, 0x01, ( byte ) 0xFF } );
+        stream.position( 2 );
+
+        BerValue v = new BerValue();
+        v.setSlice( stream.slice() );
+
+        assertTrue( BooleanDecoder.parse( v ) );
+        assertTrue( v.isSlice() );
+    }
     
     @Test
     public void testEncodeBitString()
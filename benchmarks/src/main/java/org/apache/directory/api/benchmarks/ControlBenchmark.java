@@ -0,0 +1,200 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *    https://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ *
+ */
+package org.apache.directory.api.benchmarks;
+
+
+import java.util.concurrent.TimeUnit;
+
+import org.apache.directory.api.asn1.DecoderException;
+import org.apache.directory.api.asn1.util.Asn1Buffer;
+import org.apache.directory.api.ldap.codec.api.ControlFactory;
+import org.apache.directory.api.ldap.codec.api.LdapApiService;
+import org.apache.directory.api.ldap.codec.osgi.DefaultLdapCodecService;
+import org.apache.directory.api.ldap.model.message.Control;
+import org.apache.directory.api.ldap.model.message.controls.ChangeType;
+import org.apache.directory.api.ldap.model.message.controls.EntryChangeImpl;
+import org.apache.directory.api.ldap.model.message.controls.PagedResultsImpl;
+import org.apache.directory.api.ldap.model.message.controls.PersistentSearchImpl;
+import org.apache.directory.api.ldap.model.message.controls.ProxiedAuthzImpl;
+import org.apache.directory.api.ldap.model.message.controls.SortKey;
+import org.apache.directory.api.ldap.model.message.controls.SortRequestImpl;
+import org.apache.directory.api.ldap.model.message.controls.SortResponseImpl;
+import org.apache.directory.api.ldap.model.message.controls.SortResultCode;
+import org.apache.directory.api.ldap.model.message.controls.SubentriesImpl;
+import org.apache.directory.api.ldap.model.name.Dn;
+import org.apache.directory.api.util.Strings;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+
+/**
+ * Measure the encoding and the decoding of the values of the controls provided by
+ * the codec.
+ *
+ * @author <a href="mailto:dev@directory.apache.org">Apache Directory Project</a>
+ */
+@BenchmarkMode( Mode.AverageTime )
+@OutputTimeUnit( TimeUnit.NANOSECONDS )
+@Warmup( iterations = 5, time = 1 )
+@Measurement( iterations = 5, time = 1 )
+@Fork( 1 )
+@State( Scope.Thread )
+public class ControlBenchmark
+{
+    /** The control type */
+    @Param( { "PagedResults", "SortRequest", "SortResponse", "PersistentSearch", "EntryChange", "Subentries",
+        "ProxiedAuthz" } )
+    private String controlType;
+
+    /** The factory used to encode and decode the control */
+    private ControlFactory<? extends Control> factory;
+
+    /** The control to encode */
+    private Control control;
+
+    /** The encoded control value */
+    private byte[] value;
+
+    /** The reused encoding buffer */
+    private Asn1Buffer asn1Buffer;
+
+
+    /**
+     * Create the sample control, and encode its value
+     *
+     * @throws Exception If the control can't be created
+     */
+    @Setup
+    public void setup() throws Exception
+    {
+        LdapApiService codec = new DefaultLdapCodecService();
+        boolean response = false;
+
+        switch ( controlType )
+        {
+            case "PagedResults":
+                PagedResultsImpl pagedResults = new PagedResultsImpl();
+                pagedResults.setSize( 100 );
+                pagedResults.setCookie( Strings.getBytesUtf8( "0123456789abcdef" ) );
+                control = pagedResults;
+                break;
+
+            case "SortRequest":
+                SortRequestImpl sortRequest = new SortRequestImpl();
+                sortRequest.addSortKey( new SortKey( "sn" ) );
+                sortRequest.addSortKey( new SortKey( "givenName", "2.5.13.3", true ) );
+                control = sortRequest;
+                break;
+
+            case "SortResponse":
+                SortResponseImpl sortResponse = new SortResponseImpl();
+                sortResponse.setSortResult( SortResultCode.SUCCESS );
+                sortResponse.setAttributeName( "sn" );
+                control = sortResponse;
+                response = true;
+                break;
+
+            case "PersistentSearch":
+                PersistentSearchImpl persistentSearch = new PersistentSearchImpl();
+                persistentSearch.setChangeTypes( 15 );
+                persistentSearch.setChangesOnly( true );
+                persistentSearch.setReturnECs( true );
+                control = persistentSearch;
+                break;
+
+            case "EntryChange":
+                EntryChangeImpl entryChange = new EntryChangeImpl();
+                entryChange.setChangeType( ChangeType.MODDN );
+                entryChange.setPreviousDn( new Dn( "cn=John Doe,ou=people,dc=example,dc=com" ) );
+                entryChange.setChangeNumber( 123456L );
+                control = entryChange;
+                response = true;
+                break;
+
+            case "Subentries":
+                SubentriesImpl subentries = new SubentriesImpl();
+                subentries.setVisibility( true );
+                control = subentries;
+                break;
+
+            case "ProxiedAuthz":
+                ProxiedAuthzImpl proxiedAuthz = new ProxiedAuthzImpl();
+                proxiedAuthz.setAuthzId( "dn:cn=John Doe,ou=people,dc=example,dc=com" );
+                control = proxiedAuthz;
+                break;
+
+            default:
+                throw new IllegalArgumentException( "Unknown control type " + controlType );
+        }
+
+        if ( response )
+        {
+            factory = codec.getResponseControlFactories().get( control.getOid() );
+        }
+        else
+        {
+            factory = codec.getRequestControlFactories().get( control.getOid() );
+        }
+
+        asn1Buffer = new Asn1Buffer();
+        factory.encodeValue( asn1Buffer, control );
+        value = asn1Buffer.getBytes().array();
+    }
+
+
+    /**
+     * Encode the control value into the reused Asn1Buffer
+     *
+     * @return The encoded value length
+     */
+    @Benchmark
+    public int encodeValue()
+    {
+        asn1Buffer.clear();
+        factory.encodeValue( asn1Buffer, control );
+
+        return asn1Buffer.getPos();
+    }
+
+
+    /**
+     * Decode the control value into a new control
+     *
+     * @return The decoded control
+     * @throws DecoderException If the value can't be decoded
+     */
+    @Benchmark
+    public Control decodeValue() throws DecoderException
+    {
+        Control decoded = factory.newControl();
+        factory.decodeValue( decoded, value );
+
+        return decoded;
+    }
+}
@@ -0,0 +1,101 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *    https://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ *
+ */
+package org.apache.directory.api.benchmarks;
+
+
+import java.text.ParseException;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.directory.api.ldap.model.filter.ExprNode;
+import org.apache.directory.api.ldap.model.filter.FilterParser;
+import org.apache.directory.api.ldap.model.schema.SchemaManager;
+import org.apache.directory.api.ldap.schema.manager.impl.DefaultSchemaManager;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+
+/**
+ * Measure the parsing of search filters, with and without a SchemaManager.
+ *
+ * @author <a href="mailto:dev@directory.apache.org">Apache Directory Project</a>
+ */
+@BenchmarkMode( Mode.AverageTime )
+@OutputTimeUnit( TimeUnit.NANOSECONDS )
+@Warmup( iterations = 5, time = 1 )
+@Measurement( iterations = 5, time = 1 )
+@Fork( 1 )
+@State( Scope.Thread )
+public class FilterParserBenchmark
+{
+    /** The filter to parse */
+    @Param( { "(objectClass=*)", "(cn=John*Doe)", "(&(objectClass=inetOrgPerson)(|(cn=John*)(mail=*@example.com)))",
+        "(&(objectClass=person)(!(sn=Doe))(|(uid=jdoe)(uid=jsmith)(uid=ajones))(createTimestamp>=20200101000000Z))" } )
+    private String filter;
+
+    /** The SchemaManager used to parse schema aware filters */
+    private SchemaManager schemaManager;
+
+
+    /**
+     * Load the schemas
+     *
+     * @throws Exception If the schemas can't be loaded
+     */
+    @Setup
+    public void setup() throws Exception
+    {
+        schemaManager = new DefaultSchemaManager();
+    }
+
+
+    /**
+     * Parse the filter without a SchemaManager
+     *
+     * @return The parsed filter
+     * @throws ParseException If the filter is invalid
+     */
+    @Benchmark
+    public ExprNode parse() throws ParseException
+    {
+        return FilterParser.parse( filter );
+    }
+
+
+    /**
+     * Parse the filter using the SchemaManager
+     *
+     * @return The parsed filter
+     * @throws ParseException If the filter is invalid
+     */
+    @Benchmark
+    public ExprNode parseSchemaAware() throws ParseException
+    {
+        return FilterParser.parse( schemaManager, filter );
+    }
+}
@@ -0,0 +1,113 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *    https://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ *
+ */
+package org.apache.directory.api.benchmarks;
+
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.directory.api.asn1.DecoderException;
+import org.apache.directory.api.asn1.ber.Asn1Decoder;
+import org.apache.directory.api.asn1.util.Asn1Buffer;
+import org.apache.directory.api.ldap.codec.api.LdapApiService;
+import org.apache.directory.api.ldap.codec.api.LdapEncoder;
+import org.apache.directory.api.ldap.codec.api.LdapMessageContainer;
+import org.apache.directory.api.ldap.codec.osgi.DefaultLdapCodecService;
+import org.apache.directory.api.ldap.model.message.Message;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+
+/**
+ * Measure the decoding of every LDAP message type, using {@link Asn1Decoder#decode}
+ * on a whole PDU. The container can be configured like the MINA decoder does it,
+ * with TLV recycling and value slices, or with the default settings.
+ *
+ * @author <a href="mailto:dev@directory.apache.org">Apache Directory Project</a>
+ */
+@BenchmarkMode( Mode.AverageTime )
+@OutputTimeUnit( TimeUnit.NANOSECONDS )
+@Warmup( iterations = 5, time = 1 )
+@Measurement( iterations = 5, time = 1 )
+@Fork( 1 )
+@State( Scope.Thread )
+public class LdapDecodeBenchmark
+{
+    /** The decoded message type */
+    @Param( { "AbandonRequest", "AddRequest", "AddResponse", "BindRequest", "BindResponse", "CompareRequest",
+        "CompareResponse", "DeleteRequest", "DeleteResponse", "ExtendedRequest", "ExtendedResponse",
+        "IntermediateResponse", "ModifyRequest", "ModifyResponse", "ModifyDnRequest", "ModifyDnResponse",
+        "SearchRequest", "SearchResultEntry", "SearchResultReference", "SearchResultDone", "UnbindRequest" } )
+    private String messageType;
+
+    /** Whether the container recycles its TLVs and slices the values, as the MINA decoder does */
+    @Param( { "true", "false" } )
+    private boolean recycling;
+
+    /** The encoded PDU */
+    private ByteBuffer pdu;
+
+    /** The decoder container, reused for every PDU */
+    private LdapMessageContainer<Message> container;
+
+
+    /**
+     * Encode the sample message, and create the container
+     *
+     * @throws Exception If the message can't be encoded
+     */
+    @Setup
+    public void setup() throws Exception
+    {
+        LdapApiService codec = new DefaultLdapCodecService();
+
+        pdu = LdapEncoder.encodeMessage( new Asn1Buffer(), codec, LdapMessages.create( messageType ) );
+        container = new LdapMessageContainer<>( codec );
+        container.setTlvRecycling( recycling );
+        container.setValueSliceAllowed( recycling );
+    }
+
+
+    /**
+     * Decode the PDU
+     *
+     * @return The decoded message
+     * @throws DecoderException If the PDU can't be decoded
+     */
+    @Benchmark
+    public Message decode() throws DecoderException
+    {
+        pdu.position( 0 );
+        Asn1Decoder.decode( pdu, container );
+        Message message = container.getMessage();
+        container.clean();
+
+        return message;
+    }
+}
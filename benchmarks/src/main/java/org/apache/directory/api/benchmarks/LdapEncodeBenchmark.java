@@ -0,0 +1,127 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *    https://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ *
+ */
+package org.apache.directory.api.benchmarks;
+
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.directory.api.asn1.EncoderException;
+import org.apache.directory.api.asn1.util.Asn1Buffer;
+import org.apache.directory.api.ldap.codec.api.LdapApiService;
+import org.apache.directory.api.ldap.codec.api.LdapEncoder;
+import org.apache.directory.api.ldap.codec.osgi.DefaultLdapCodecService;
+import org.apache.directory.api.ldap.model.message.Message;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+
+/**
+ * Measure the encoding of every LDAP message type, either into a reused
+ * {@link Asn1Buffer}, or into a reused direct ByteBuffer.
+ *
+ * @author <a href="mailto:dev@directory.apache.org">Apache Directory Project</a>
+ */
+@BenchmarkMode( Mode.AverageTime )
+@OutputTimeUnit( TimeUnit.NANOSECONDS )
+@Warmup( iterations = 5, time = 1 )
+@Measurement( iterations = 5, time = 1 )
+@Fork( 1 )
+@State( Scope.Thread )
+public class LdapEncodeBenchmark
+{
+    /** The encoded message type */
+    @Param( { "AbandonRequest", "AddRequest", "AddResponse", "BindRequest", "BindResponse", "CompareRequest",
+        "CompareResponse", "DeleteRequest", "DeleteResponse", "ExtendedRequest", "ExtendedResponse",
+        "IntermediateResponse", "ModifyRequest", "ModifyResponse", "ModifyDnRequest", "ModifyDnResponse",
+        "SearchRequest", "SearchResultEntry", "SearchResultReference", "SearchResultDone", "UnbindRequest" } )
+    private String messageType;
+
+    /** The codec service */
+    private LdapApiService codec;
+
+    /** The message to encode */
+    private Message message;
+
+    /** The reused encoding buffer */
+    private Asn1Buffer asn1Buffer;
+
+    /** The reused destination buffer */
+    private ByteBuffer destination;
+
+
+    /**
+     * Create the sample message and the buffers
+     *
+     * @throws Exception If the message can't be created
+     */
+    @Setup
+    public void setup() throws Exception
+    {
+        codec = new DefaultLdapCodecService();
+        message = LdapMessages.create( messageType );
+        asn1Buffer = new Asn1Buffer();
+        destination = ByteBuffer.allocateDirect( LdapEncoder.encodeMessage( asn1Buffer, codec, message ).remaining() );
+    }
+
+
+    /**
+     * Encode the message into the reused Asn1Buffer
+     *
+     * @return The encoded PDU
+     * @throws EncoderException If the message can't be encoded
+     */
+    @Benchmark
+    public ByteBuffer encodeMessage() throws EncoderException
+    {
+        asn1Buffer.clear();
+
+        return LdapEncoder.encodeMessage( asn1Buffer, codec, message );
+    }
+
+
+    /**
+     * Encode the message into the reused Asn1Buffer, and copy the PDU into the reused
+     * direct ByteBuffer
+     *
+     * @return The encoded PDU length
+     * @throws EncoderException If the message can't be encoded
+     */
+    @Benchmark
+    public int encodeMessageInto() throws EncoderException
+    {
+        asn1Buffer.clear();
+        destination.clear();
+
+        LdapEncoder.encodeMessageReverse( asn1Buffer, codec, message );
+        asn1Buffer.writeTo( destination );
+
+        return destination.position();
+    }
+}
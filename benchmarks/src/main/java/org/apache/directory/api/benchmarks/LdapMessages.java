@@ -0,0 +1,225 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *    https://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ *
+ */
+package org.apache.directory.api.benchmarks;
+
+
+import java.text.ParseException;
+
+import org.apache.directory.api.ldap.model.entry.DefaultEntry;
+import org.apache.directory.api.ldap.model.entry.Entry;
+import org.apache.directory.api.ldap.model.exception.LdapException;
+import org.apache.directory.api.ldap.model.filter.FilterParser;
+import org.apache.directory.api.ldap.model.message.AbandonRequestImpl;
+import org.apache.directory.api.ldap.model.message.AddRequestImpl;
+import org.apache.directory.api.ldap.model.message.AddResponseImpl;
+import org.apache.directory.api.ldap.model.message.AliasDerefMode;
+import org.apache.directory.api.ldap.model.message.BindRequestImpl;
+import org.apache.directory.api.ldap.model.message.BindResponseImpl;
+import org.apache.directory.api.ldap.model.message.CompareRequestImpl;
+import org.apache.directory.api.ldap.model.message.CompareResponseImpl;
+import org.apache.directory.api.ldap.model.message.DeleteRequestImpl;
+import org.apache.directory.api.ldap.model.message.DeleteResponseImpl;
+import org.apache.directory.api.ldap.model.message.IntermediateResponseImpl;
+import org.apache.directory.api.ldap.model.message.Message;
+import org.apache.directory.api.ldap.model.message.ModifyDnRequestImpl;
+import org.apache.directory.api.ldap.model.message.ModifyDnResponseImpl;
+import org.apache.directory.api.ldap.model.message.ModifyRequestImpl;
+import org.apache.directory.api.ldap.model.message.ModifyResponseImpl;
+import org.apache.directory.api.ldap.model.message.OpaqueExtendedRequest;
+import org.apache.directory.api.ldap.model.message.OpaqueExtendedResponse;
+import org.apache.directory.api.ldap.model.message.ReferralImpl;
+import org.apache.directory.api.ldap.model.message.ResultCodeEnum;
+import org.apache.directory.api.ldap.model.message.ResultResponse;
+import org.apache.directory.api.ldap.model.message.SearchRequestImpl;
+import org.apache.directory.api.ldap.model.message.SearchResultDoneImpl;
+import org.apache.directory.api.ldap.model.message.SearchResultEntryImpl;
+import org.apache.directory.api.ldap.model.message.SearchResultReferenceImpl;
+import org.apache.directory.api.ldap.model.message.SearchScope;
+import org.apache.directory.api.ldap.model.message.UnbindRequestImpl;
+import org.apache.directory.api.ldap.model.name.Dn;
+import org.apache.directory.api.ldap.model.name.Rdn;
+import org.apache.directory.api.util.Strings;
+
+
+/**
+ * Builds the sample LDAP messages used by the codec benchmarks. There is one
+ * message per LDAP operation, with realistic, but small, content.
+ *
+ * @author <a href="mailto:dev@directory.apache.org">Apache Directory Project</a>
+ */
+public final class LdapMessages
+{
+    /** The DN used in all the messages */
+    private static final String DN = "cn=John Doe,ou=people,dc=example,dc=com";
+
+
+    private LdapMessages()
+    {
+    }
+
+
+    /**
+     * Creates the sample message of a given type
+     *
+     * @param type The message type, the name of the message interface (BindRequest, SearchResultEntry...)
+     * @return The sample message
+     * @throws LdapException If the message can't be created
+     * @throws ParseException If the search filter can't be parsed
+     */
+    public static Message create( String type ) throws LdapException, ParseException
+    {
+        Dn dn = new Dn( DN );
+
+        switch ( type )
+        {
+            case "AbandonRequest":
+                return new AbandonRequestImpl( 2 ).setMessageId( 3 );
+
+            case "AddRequest":
+                return new AddRequestImpl().setEntry( createEntry( dn ) ).setMessageId( 3 );
+
+            case "AddResponse":
+                return withResult( new AddResponseImpl( 3 ) );
+
+            case "BindRequest":
+                return new BindRequestImpl().setDn( dn ).setCredentials( Strings.getBytesUtf8( "secret" ) )
+                    .setSimple( true ).setVersion3( true ).setMessageId( 1 );
+
+            case "BindResponse":
+                return withResult( new BindResponseImpl( 1 ) );
+
+            case "CompareRequest":
+                return new CompareRequestImpl().setName( dn ).setAttributeId( "mail" )
+                    .setAssertionValue( "john.doe@example.com" ).setMessageId( 3 );
+
+            case "CompareResponse":
+                return withResult( new CompareResponseImpl( 3 ) );
+
+            case "DeleteRequest":
+                return new DeleteRequestImpl().setName( dn ).setMessageId( 3 );
+
+            case "DeleteResponse":
+                return withResult( new DeleteResponseImpl( 3 ) );
+
+            case "ExtendedRequest":
+                return new OpaqueExtendedRequest( "1.3.6.1.4.1.4203.1.11.3" ).setMessageId( 3 );
+
+            case "ExtendedResponse":
+                OpaqueExtendedResponse extendedResponse = new OpaqueExtendedResponse( 3, "1.3.6.1.4.1.4203.1.11.3" );
+                extendedResponse.setResponseValue( Strings.getBytesUtf8( "dn:" + DN ) );
+
+                return withResult( extendedResponse );
+
+            case "IntermediateResponse":
+                IntermediateResponseImpl intermediateResponse = new IntermediateResponseImpl( 3,
+                    "1.3.6.1.4.1.4203.1.9.1.4" );
+                intermediateResponse.setResponseValue( new byte[]
+                    { 0x30, 0x00 } );
+
+                return intermediateResponse;
+
+            case "ModifyRequest":
+                return new ModifyRequestImpl().setName( dn ).replace( "mail", "john.doe@example.org" )
+                    .add( "description", "A modified entry" ).remove( "telephoneNumber" ).setMessageId( 3 );
+
+            case "ModifyResponse":
+                return withResult( new ModifyResponseImpl( 3 ) );
+
+            case "ModifyDnRequest":
+                return new ModifyDnRequestImpl().setName( dn ).setNewRdn( new Rdn( "cn=Jane Doe" ) )
+                    .setDeleteOldRdn( true ).setNewSuperior( new Dn( "ou=users,dc=example,dc=com" ) )
+                    .setMessageId( 3 );
+
+            case "ModifyDnResponse":
+                return withResult( new ModifyDnResponseImpl( 3 ) );
+
+            case "SearchRequest":
+                return new SearchRequestImpl().setBase( new Dn( "ou=people,dc=example,dc=com" ) )
+                    .setScope( SearchScope.SUBTREE ).setDerefAliases( AliasDerefMode.NEVER_DEREF_ALIASES )
+                    .setSizeLimit( 1000 ).setTimeLimit( 30 ).setTypesOnly( false )
+                    .setFilter( FilterParser.parse( "(&(objectClass=inetOrgPerson)(|(cn=John*)(mail=*@example.com)))" ) )
+                    .addAttributes( "cn", "sn", "mail", "telephoneNumber" ).setMessageId( 2 );
+
+            case "SearchResultEntry":
+                SearchResultEntryImpl searchResultEntry = new SearchResultEntryImpl( 2 );
+                searchResultEntry.setObjectName( dn );
+                searchResultEntry.setEntry( createEntry( dn ) );
+
+                return searchResultEntry;
+
+            case "SearchResultReference":
+                ReferralImpl referral = new ReferralImpl();
+                referral.addLdapUrl( "ldap://ldap.example.com/ou=people,dc=example,dc=com??sub" );
+
+                SearchResultReferenceImpl searchResultReference = new SearchResultReferenceImpl( 2 );
+                searchResultReference.setReferral( referral );
+
+                return searchResultReference;
+
+            case "SearchResultDone":
+                return withResult( new SearchResultDoneImpl( 2 ) );
+
+            case "UnbindRequest":
+                return new UnbindRequestImpl().setMessageId( 4 );
+
+            default:
+                throw new IllegalArgumentException( "Unknown message type " + type );
+        }
+    }
+
+
+    /**
+     * Creates the sample entry, used by the AddRequest and the SearchResultEntry
+     *
+     * @param dn The entry DN
+     * @return The entry
+     * @throws LdapException If the entry can't be created
+     */
+    public static Entry createEntry( Dn dn ) throws LdapException
+    {
+        return new DefaultEntry( dn,
+            "objectClass: top",
+            "objectClass: person",
+            "objectClass: organizationalPerson",
+            "objectClass: inetOrgPerson",
+            "cn: John Doe",
+            "sn: Doe",
+            "givenName: John",
+            "mail: john.doe@example.com",
+            "telephoneNumber: +1 555 0100",
+            "description: A sample entry, used to benchmark the LDAP codec" );
+    }
+
+
+    /**
+     * Set a successful LdapResult in a response
+     *
+     * @param response The response to update
+     * @return The updated response
+     */
+    private static Message withResult( ResultResponse response )
+    {
+        response.getLdapResult().setResultCode( ResultCodeEnum.SUCCESS );
+        response.getLdapResult().setMatchedDn( Dn.EMPTY_DN );
+        response.getLdapResult().setDiagnosticMessage( "" );
+
+        return response;
+    }
+}
@@ -0,0 +1,108 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *    https://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ *
+ */
+package org.apache.directory.api.benchmarks;
+
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.directory.api.ldap.model.exception.LdapException;
+import org.apache.directory.api.ldap.model.ldif.LdifEntry;
+import org.apache.directory.api.ldap.model.ldif.LdifReader;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+
+/**
+ * Measure the LDIF parsing throughput, on a generated LDIF containing a given
+ * number of entries.
+ *
+ * @author <a href="mailto:dev@directory.apache.org">Apache Directory Project</a>
+ */
+@BenchmarkMode( Mode.AverageTime )
+@OutputTimeUnit( TimeUnit.MICROSECONDS )
+@Warmup( iterations = 5, time = 1 )
+@Measurement( iterations = 5, time = 1 )
+@Fork( 1 )
+@State( Scope.Thread )
+public class LdifReaderBenchmark
+{
+    /** The number of entries in the LDIF */
+    @Param( { "1", "100", "1000" } )
+    private int nbEntries;
+
+    /** The LDIF to parse */
+    private String ldif;
+
+
+    /**
+     * Generate the LDIF
+     */
+    @Setup
+    public void setup()
+    {
+        StringBuilder sb = new StringBuilder();
+        sb.append( "version: 1\n\n" );
+
+        for ( int i = 0; i < nbEntries; i++ )
+        {
+            sb.append( "dn: uid=user" ).append( i ).append( ",ou=people,dc=example,dc=com\n" );
+            sb.append( "objectClass: top\n" );
+            sb.append( "objectClass: person\n" );
+            sb.append( "objectClass: organizationalPerson\n" );
+            sb.append( "objectClass: inetOrgPerson\n" );
+            sb.append( "uid: user" ).append( i ).append( '\n' );
+            sb.append( "cn: User " ).append( i ).append( '\n' );
+            sb.append( "sn: User\n" );
+            sb.append( "mail: user" ).append( i ).append( "@example.com\n" );
+            sb.append( "description:: QSBiYXNlNjQgZW5jb2RlZCBkZXNjcmlwdGlvbg==\n" );
+            sb.append( "userPassword: secret\n\n" );
+        }
+
+        ldif = sb.toString();
+    }
+
+
+    /**
+     * Parse the whole LDIF
+     *
+     * @return The parsed entries
+     * @throws LdapException If the LDIF is invalid
+     * @throws IOException If the reader can't be closed
+     */
+    @Benchmark
+    public List<LdifEntry> parseLdif() throws LdapException, IOException
+    {
+        try ( LdifReader reader = new LdifReader() )
+        {
+            return reader.parseLdif( ldif );
+        }
+    }
+}
@@ -0,0 +1,185 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *    https://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ *
+ */
+package org.apache.directory.api.benchmarks;
+
+
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.pool2.PooledObject;
+import org.apache.commons.pool2.PooledObjectFactory;
+import org.apache.commons.pool2.impl.DefaultPooledObject;
+import org.apache.commons.pool2.impl.GenericObjectPoolConfig;
+import org.apache.directory.api.ldap.model.exception.LdapException;
+import org.apache.directory.ldap.client.api.LdapConnection;
+import org.apache.directory.ldap.client.api.LdapConnectionPool;
+import org.apache.directory.ldap.client.api.LdapConnectionWrapper;
+import org.apache.directory.ldap.client.api.StripedLdapConnectionPool;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+
+/**
+ * Measure the cost of borrowing and releasing a connection when 64 threads share a pool,
+ * with the commons-pool based LdapConnectionPool and with the StripedLdapConnectionPool.
+ * The pooled connections are not connected, so only the pool contention is measured.
+ *
+ * @author <a href="mailto:dev@directory.apache.org">Apache Directory Project</a>
+ */
+@BenchmarkMode( Mode.Throughput )
+@OutputTimeUnit( TimeUnit.MICROSECONDS )
+@Warmup( iterations = 5, time = 1 )
+@Measurement( iterations = 5, time = 1 )
+@Fork( 1 )
+@Threads( 64 )
+@State( Scope.Benchmark )
+public class PoolContentionBenchmark
+{
+    /** The pool implementation */
+    @Param( { "generic", "striped", "striped-no-affinity" } )
+    private String poolType;
+
+    /** The maximum number of connections in the pool */
+    @Param( { "8", "64" } )
+    private int maxTotal;
+
+    /** The shared pool */
+    private LdapConnectionPool pool;
+
+
+    /**
+     * A connection which is never connected
+     */
+    private static final class IdleConnection extends LdapConnectionWrapper
+    {
+        private IdleConnection()
+        {
+            super( null );
+        }
+    }
+
+
+    /**
+     * A factory creating IdleConnections, which does nothing when they are borrowed or released
+     */
+    private static final class IdleConnectionFactory implements PooledObjectFactory<LdapConnection>
+    {
+        @Override
+        public PooledObject<LdapConnection> makeObject()
+        {
+            return new DefaultPooledObject<>( new IdleConnection() );
+        }
+
+
+        @Override
+        public void activateObject( PooledObject<LdapConnection> pooledObject )
+        {
+        }
+
+
+        @Override
+        public void passivateObject( PooledObject<LdapConnection> pooledObject )
+        {
+        }
+
+
+        @Override
+        public boolean validateObject( PooledObject<LdapConnection> pooledObject )
+        {
+            return true;
+        }
+
+
+        @Override
+        public void destroyObject( PooledObject<LdapConnection> pooledObject )
+        {
+        }
+    }
+
+
+    /**
+     * Create the pool
+     */
+    @Setup
+    public void setup()
+    {
+        GenericObjectPoolConfig<LdapConnection> poolConfig = new GenericObjectPoolConfig<>();
+        poolConfig.setMaxTotal( maxTotal );
+        poolConfig.setMaxIdle( maxTotal );
+        poolConfig.setJmxEnabled( false );
+
+        switch ( poolType )
+        {
+            case "generic":
+                pool = new LdapConnectionPool( new IdleConnectionFactory(), poolConfig );
+                break;
+
+            case "striped":
+                pool = new StripedLdapConnectionPool( new IdleConnectionFactory(), poolConfig );
+                break;
+
+            case "striped-no-affinity":
+                StripedLdapConnectionPool stripedPool = new StripedLdapConnectionPool( new IdleConnectionFactory(),
+                    poolConfig );
+                stripedPool.setThreadAffinity( false );
+                pool = stripedPool;
+                break;
+
+            default:
+                throw new IllegalArgumentException( "Unknown pool type " + poolType );
+        }
+    }
+
+
+    /**
+     * Close the pool
+     */
+    @TearDown
+    public void tearDown()
+    {
+        pool.close();
+    }
+
+
+    /**
+     * Borrow a connection and release it
+     *
+     * @return The borrowed connection
+     * @throws LdapException If the connection can't be borrowed or released
+     */
+    @Benchmark
+    public LdapConnection borrowAndRelease() throws LdapException
+    {
+        LdapConnection connection = pool.getConnection();
+        pool.releaseConnection( connection );
+
+        return connection;
+    }
+}
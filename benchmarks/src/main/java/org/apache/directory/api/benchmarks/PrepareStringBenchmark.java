@@ -0,0 +1,118 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *    https://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ *
+ */
+package org.apache.directory.api.benchmarks;
+
+
+import java.util.concurrent.TimeUnit;
+
+import org.apache.directory.api.ldap.model.schema.PrepareString;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+
+/**
+ * Measure the steps of the string preparation (RFC 4518) used by the
+ * normalizers.
+ *
+ * @author <a href="mailto:dev@directory.apache.org">Apache Directory Project</a>
+ */
+@BenchmarkMode( Mode.AverageTime )
+@OutputTimeUnit( TimeUnit.NANOSECONDS )
+@Warmup( iterations = 5, time = 1 )
+@Measurement( iterations = 5, time = 1 )
+@Fork( 1 )
+@State( Scope.Thread )
+public class PrepareStringBenchmark
+{
+    /** The value to prepare */
+    @Param( { "john doe", "  John   DOE  ", "Jörg Müller-Lüdenscheidt", "日本語 テキスト" } )
+    private String value;
+
+    /** The case folded value, as a char array */
+    private char[] mapped;
+
+
+    /**
+     * Prepare the intermediate values
+     */
+    @Setup
+    public void setup()
+    {
+        mapped = PrepareString.mapIgnoreCase( PrepareString.normalize( value ) ).toCharArray();
+    }
+
+
+    /**
+     * Unicode normalization (NFKC)
+     *
+     * @return The normalized value
+     */
+    @Benchmark
+    public String normalize()
+    {
+        return PrepareString.normalize( value );
+    }
+
+
+    /**
+     * Case folding mapping
+     *
+     * @return The mapped value
+     */
+    @Benchmark
+    public String mapIgnoreCase()
+    {
+        return PrepareString.mapIgnoreCase( value );
+    }
+
+
+    /**
+     * Insignificant spaces handling
+     *
+     * @return The prepared value
+     */
+    @Benchmark
+    public String insignificantSpaces()
+    {
+        return PrepareString.insignificantSpacesStringValue( mapped );
+    }
+
+
+    /**
+     * The full preparation, as done by the deepTrimToLower normalizer
+     *
+     * @return The prepared value
+     */
+    @Benchmark
+    public String prepareIgnoreCase()
+    {
+        return PrepareString.insignificantSpacesStringValue(
+            PrepareString.mapIgnoreCase( PrepareString.normalize( value ) ).toCharArray() );
+    }
+}
@@ -21,7 +21,9 @@ package org.apache.directory.api.dsmlv2;
 
 
 import java.io.IOException;
+import java.lang.reflect.Array;
 import java.util.HashMap;
+import java.util.Map;
 
 import org.apache.directory.api.i18n.I18n;
 import org.apache.directory.api.util.Strings;
@@ -32,6 +34,12 @@ import org.xmlpull.v1.XmlPullParserException;
 /**
  * The abstract Grammar which is the Mother of all the grammars. It contains
  * the transitions table.
+ * <br>
+ * The transitions table is compiled into maps keyed by the tag name, so that no Tag instance
+ * is created to find a transition. The table is compiled again when a transition is found in
+ * the transitions table for a state and a tag which have none in the compiled table, or when
+ * the transitions table is replaced, so the transitions registered after the compilation are
+ * used. A transition replaced in place must be followed by a call to {@link #compile()}.
  *
  * @author <a href="mailto:dev@directory.apache.org">Apache Directory Project</a>
  */
@@ -47,6 +55,79 @@ public abstract class AbstractGrammar implements Grammar
     /** The grammar name */
     protected String name;
 
+    /** The compiled transitions table, built the first time the grammar is used */
+    private CompiledTransitions compiledTransitions;
+
+
+    /**
+     * The transitions table compiled by tag type and tag name
+     */
+    private static final class CompiledTransitions
+    {
+        /** The transitions table this table has been compiled from */
+        private final HashMap<Tag, GrammarTransition>[] source;
+
+        /**
+         * The transitions. The first dimension indexes the tag type (START or END), the
+         * second one indexes the states, and each map is keyed by the lower cased tag name.
+         */
+        private final HashMap<String, GrammarTransition>[][] transitions;
+
+
+        @SuppressWarnings("unchecked")
+        private CompiledTransitions( HashMap<Tag, GrammarTransition>[] table )
+        {
+            source = table;
+            transitions = ( HashMap<String, GrammarTransition>[][] ) Array.newInstance( HashMap.class, 2,
+                table.length );
+
+            for ( int state = 0; state < table.length; state++ )
+            {
+                if ( table[state] == null )
+                {
+                    continue;
+                }
+
+                for ( Map.Entry<Tag, GrammarTransition> entry : table[state].entrySet() )
+                {
+                    int tagType = entry.getKey().getType();
+
+                    if ( ( tagType != Tag.START ) && ( tagType != Tag.END ) )
+                    {
+                        continue;
+                    }
+
+                    if ( transitions[tagType][state] == null )
+                    {
+                        transitions[tagType][state] = new HashMap<>();
+                    }
+
+                    transitions[tagType][state].put( entry.getKey().getName(), entry.getValue() );
+                }
+            }
+        }
+
+
+        /**
+         * Gets the compiled transition for a state, a tag name and a tag type
+         *
+         * @param state The state ordinal
+         * @param tagName The tag name, lower cased
+         * @param tagType The tag type
+         * @return The transition, or null if there is none
+         */
+        private GrammarTransition get( int state, String tagName, int tagType )
+        {
+            if ( ( tagType < 0 ) || ( tagType >= transitions.length ) || ( state >= transitions[tagType].length )
+                || ( transitions[tagType][state] == null ) )
+            {
+                return null;
+            }
+
+            return transitions[tagType][state].get( tagName );
+        }
+    }
+
 
     /**
      * Returns the grammar's name
@@ -85,6 +166,72 @@ public abstract class AbstractGrammar implements Grammar
     }
 
 
+    /**
+     * Gets the transition associated with the state, the tag name and the tag type,
+     * without having to create a Tag instance.
+     * 
+     * @param state The current state
+     * @param tagName The current tag name, lower cased
+     * @param tagType The current tag type, {@link Tag#START} or {@link Tag#END}
+     * @return A valid transition if any, or null.
+     */
+    public GrammarTransition getTransition( Enum<Dsmlv2StatesEnum> state, String tagName, int tagType )
+    {
+        CompiledTransitions compiled = compiledTransitions;
+
+        if ( ( compiled == null ) || ( compiled.source != transitions ) )
+        {
+            // Concurrent compilations produce identical tables, no need to synchronize
+            compiled = new CompiledTransitions( transitions );
+            compiledTransitions = compiled;
+        }
+
+        int ordinal = state.ordinal();
+        GrammarTransition transition = compiled.get( ordinal, tagName, tagType );
+
+        if ( ( transition == null ) && hasTransition( ordinal, tagName, tagType ) )
+        {
+            // The transition has been added after the compilation
+            compiled = new CompiledTransitions( transitions );
+            compiledTransitions = compiled;
+            transition = compiled.get( ordinal, tagName, tagType );
+        }
+
+        return transition;
+    }
+
+
+    /**
+     * Tells if the transitions table has a transition for a state and a tag. This is only
+     * checked when the compiled table has none, so a Tag instance is only created then.
+     *
+     * @param state The state ordinal
+     * @param tagName The tag name, lower cased
+     * @param tagType The tag type
+     * @return <tt>true</tt> if there is a transition
+     */
+    private boolean hasTransition( int state, String tagName, int tagType )
+    {
+        if ( ( state >= transitions.length ) || ( transitions[state] == null ) )
+        {
+            return false;
+        }
+
+        return transitions[state].containsKey( new Tag( tagName, tagType ) );
+    }
+
+
+    /**
+     * Compile the transitions table. This is done automatically the first time the
+     * grammar is used, and when transitions are added afterward, but it must be called
+     * again if a transition is replaced in the transitions table.
+     */
+    public void compile()
+    {
+        compiledTransitions = new CompiledTransitions( transitions );
+    }
+
+
     /**
      * Gets the states of the current grammar
      * 
@@ -150,7 +297,7 @@ public abstract class AbstractGrammar implements Grammar
 
         String tagName = Strings.toLowerCaseAscii( xpp.getName() );
 
-        GrammarTransition transition = getTransition( container.getState(), new Tag( tagName, tagType ) );
+        GrammarTransition transition = getTransition( container.getState(), tagName, tagType );
 
         if ( transition != null )
         {
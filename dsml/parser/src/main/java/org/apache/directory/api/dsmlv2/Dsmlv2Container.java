@@ -240,4 +240,18 @@ public class Dsmlv2Container implements Container
     {
         return grammar.getTransition( currentState, currentTag );
     }
+
+
+    /**
+     * Get the transition associated with the state, the tag name and the tag type
+     * 
+     * @param currentState the current state
+     * @param tagName the current tag name, lower cased
+     * @param tagType the current tag type
+     * @return a valid transition if any, or null.
+     */
+    public GrammarTransition getTransition( Enum<Dsmlv2StatesEnum> currentState, String tagName, int tagType )
+    {
+        return grammar.getTransition( currentState, tagName, tagType );
+    }
 }
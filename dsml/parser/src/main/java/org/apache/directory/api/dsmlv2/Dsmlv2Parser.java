@@ -236,7 +236,7 @@ public class Dsmlv2Parser
 
         String tagName = Strings.lowerCase( xpp.getName() );
 
-        GrammarTransition transition = container.getTransition( container.getState(), new Tag( tagName, tagType ) );
+        GrammarTransition transition = container.getTransition( container.getState(), tagName, tagType );
 
         if ( transition != null )
         {
@@ -189,7 +189,7 @@ public class Dsmlv2ResponseParser
 
         String tagName = Strings.lowerCase( xpp.getName() );
 
-        GrammarTransition transition = container.getTransition( container.getState(), new Tag( tagName, tagType ) );
+        GrammarTransition transition = container.getTransition( container.getState(), tagName, tagType );
 
         if ( transition != null )
         {
@@ -0,0 +1,132 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ * 
+ *    https://www.apache.org/licenses/LICENSE-2.0
+ * 
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ * 
+ */
+package org.apache.directory.api.dsmlv2;
+
+
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+import java.util.HashMap;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.parallel.Execution;
+import org.junit.jupiter.api.parallel.ExecutionMode;
+
+
+/**
+ * Test the compiled transitions table of the DSML AbstractGrammar
+ *
+ * @author <a href="mailto:dev@directory.apache.org">Apache Directory Project</a>
+ */
+@Execution(ExecutionMode.CONCURRENT)
+public class AbstractGrammarTest
+{
+    /**
+     * A grammar with a single transition, from the initial state on a batchRequest start tag
+     */
+    private static class TestGrammar extends AbstractGrammar
+    {
+        @SuppressWarnings("unchecked")
+        TestGrammar()
+        {
+            setName( TestGrammar.class.getName() );
+            transitions = ( HashMap<Tag, GrammarTransition>[] ) new HashMap<?, ?>[Dsmlv2StatesEnum.values().length];
+            transitions[Dsmlv2StatesEnum.INIT_GRAMMAR_STATE.ordinal()] = new HashMap<>();
+            addTransition( "batchrequest", Tag.START, Dsmlv2StatesEnum.INIT_GRAMMAR_STATE,
+                Dsmlv2StatesEnum.BATCHREQUEST_START_TAG );
+        }
+
+
+        GrammarTransition addTransition( String tagName, int tagType, Dsmlv2StatesEnum state,
+            Dsmlv2StatesEnum nextState )
+        {
+            GrammarTransition transition = new GrammarTransition( state, nextState, null );
+            transitions[state.ordinal()].put( new Tag( tagName, tagType ), transition );
+
+            return transition;
+        }
+    }
+
+
+    @Test
+    public void testGetTransition()
+    {
+        TestGrammar grammar = new TestGrammar();
+
+        GrammarTransition transition = grammar.getTransition( Dsmlv2StatesEnum.INIT_GRAMMAR_STATE, "batchrequest",
+            Tag.START );
+        assertSame( Dsmlv2StatesEnum.BATCHREQUEST_START_TAG, transition.getNextState() );
+        assertSame( transition,
+            grammar.getTransition( Dsmlv2StatesEnum.INIT_GRAMMAR_STATE, new Tag( "batchrequest", Tag.START ) ) );
+
+        assertNull( grammar.getTransition( Dsmlv2StatesEnum.INIT_GRAMMAR_STATE, "batchrequest", Tag.END ) );
+        assertNull( grammar.getTransition( Dsmlv2StatesEnum.INIT_GRAMMAR_STATE, "unknown", Tag.START ) );
+        assertNull( grammar.getTransition( Dsmlv2StatesEnum.BATCHREQUEST_START_TAG, "batchrequest", Tag.START ) );
+    }
+
+
+    @Test
+    public void testTransitionAddedAfterCompilation()
+    {
+        TestGrammar grammar = new TestGrammar();
+        grammar.compile();
+        assertNull( grammar.getTransition( Dsmlv2StatesEnum.INIT_GRAMMAR_STATE, "batchrequest", Tag.END ) );
+
+        GrammarTransition transition = grammar.addTransition( "batchrequest", Tag.END,
+            Dsmlv2StatesEnum.INIT_GRAMMAR_STATE, Dsmlv2StatesEnum.BATCHREQUEST_END_TAG );
+
+        assertSame( transition, grammar.getTransition( Dsmlv2StatesEnum.INIT_GRAMMAR_STATE, "batchrequest", Tag.END ) );
+    }
+
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void testTransitionsTableReplaced()
+    {
+        TestGrammar grammar = new TestGrammar();
+        grammar.compile();
+
+        GrammarTransition transition = new GrammarTransition( Dsmlv2StatesEnum.INIT_GRAMMAR_STATE,
+            Dsmlv2StatesEnum.BATCH_RESPONSE_LOOP, null );
+        grammar.transitions = ( HashMap<Tag, GrammarTransition>[] ) new HashMap<?, ?>[Dsmlv2StatesEnum.values().length];
+        grammar.transitions[Dsmlv2StatesEnum.INIT_GRAMMAR_STATE.ordinal()] = new HashMap<>();
+        grammar.transitions[Dsmlv2StatesEnum.INIT_GRAMMAR_STATE.ordinal()].put( new Tag( "batchresponse", Tag.START ),
+            transition );
+
+        assertNull( grammar.getTransition( Dsmlv2StatesEnum.INIT_GRAMMAR_STATE, "batchrequest", Tag.START ) );
+        assertSame( transition,
+            grammar.getTransition( Dsmlv2StatesEnum.INIT_GRAMMAR_STATE, "batchresponse", Tag.START ) );
+    }
+
+
+    @Test
+    public void testTransitionReplacedAfterCompilation()
+    {
+        TestGrammar grammar = new TestGrammar();
+        grammar.compile();
+
+        GrammarTransition transition = grammar.addTransition( "batchrequest", Tag.START,
+            Dsmlv2StatesEnum.INIT_GRAMMAR_STATE, Dsmlv2StatesEnum.BATCH_RESPONSE_LOOP );
+        grammar.compile();
+
+        assertSame( transition,
+            grammar.getTransition( Dsmlv2StatesEnum.INIT_GRAMMAR_STATE, "batchrequest", Tag.START ) );
+    }
+}
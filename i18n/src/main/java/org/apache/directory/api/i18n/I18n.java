@@ -40,6 +40,8 @@ public enum I18n
     ERR_00001_BIT_NUMBER_OUT_OF_BOUND( "ERR_00001_BIT_NUMBER_OUT_OF_BOUND" ),
     ERR_00002_CANNOT_FIND_BIT( "ERR_00002_CANNOT_FIND_BIT" ),
     ERR_00003_INVALID_OID( "ERR_00003_INVALID_OID" ),
+    ERR_00004_INVALID_SEGMENT_SIZE( "ERR_00004_INVALID_SEGMENT_SIZE" ),
+    ERR_00005_INVALID_BUFFER_POSITION( "ERR_00005_INVALID_BUFFER_POSITION" ),
 
     // api-asn1-ber                     1000 -  1999
     //     <>                           1000 -  1099
@@ -217,6 +219,21 @@ public enum I18n
     ERR_04178_CANT_LOAD_KEY_STORE( "ERR_04178_CANT_LOAD_KEY_STORE" ),
     ERR_04179_TRUST_STORE_CANT_BE_READ( "ERR_04179_TRUST_STORE_CANT_BE_READ" ),
     ERR_04180_FILE_DOES_NOT_EXIST_ON_CLASSPATH( "ERR_04180_FILE_DOES_NOT_EXIST_ON_CLASSPATH" ),
+    ERR_04181_ASYNC_CONNECT_NOT_SUPPORTED_BY_TRANSPORT( "ERR_04181_ASYNC_CONNECT_NOT_SUPPORTED_BY_TRANSPORT" ),
+    ERR_04182_INVALID_MAX_IN_FLIGHT( "ERR_04182_INVALID_MAX_IN_FLIGHT" ),
+    ERR_04183_SHARED_CONNECTION_STATE_CHANGE( "ERR_04183_SHARED_CONNECTION_STATE_CHANGE" ),
+    ERR_04184_CONNECTION_SHARING_DISABLED( "ERR_04184_CONNECTION_SHARING_DISABLED" ),
+    ERR_04185_INVALID_POOL_SIZE( "ERR_04185_INVALID_POOL_SIZE" ),
+    ERR_04186_POOL_EXHAUSTED( "ERR_04186_POOL_EXHAUSTED" ),
+    ERR_04187_POOL_CLOSED( "ERR_04187_POOL_CLOSED" ),
+    ERR_04188_NOT_A_POOLED_CONNECTION( "ERR_04188_NOT_A_POOLED_CONNECTION" ),
+    ERR_04189_INVALID_NEW_CONNECTION( "ERR_04189_INVALID_NEW_CONNECTION" ),
+    ERR_04190_INVALID_MAINTENANCE_DELAY( "ERR_04190_INVALID_MAINTENANCE_DELAY" ),
+    ERR_04191_EMPTY_SERVER_SET( "ERR_04191_EMPTY_SERVER_SET" ),
+    ERR_04192_NO_SERVER_AVAILABLE( "ERR_04192_NO_SERVER_AVAILABLE" ),
+    ERR_04193_SHARED_CONNECTION_CLOSED( "ERR_04193_SHARED_CONNECTION_CLOSED" ),
+    ERR_04194_POOL_CLOSED( "ERR_04194_POOL_CLOSED" ),
+    ERR_04195_FIXED_POOL_SIZE( "ERR_04195_FIXED_POOL_SIZE" ),
 
     //     template                     4200-4300
     // None
@@ -299,6 +316,10 @@ public enum I18n
     ERR_05204_LDAP_DECODER_FAILURE( "ERR_05204_LDAP_DECODER_FAILURE" ),
     ERR_05205_PDU_DOES_NOT_CONTAIN_ENOUGH_DATA( "ERR_05205_PDU_DOES_NOT_CONTAIN_ENOUGH_DATA" ),
     ERR_05206_INPUT_STREAM_TOO_SHORT_PDU( "ERR_05206_INPUT_STREAM_TOO_SHORT_PDU" ),
+    ERR_05207_INVALID_BATCH_CAPACITY( "ERR_05207_INVALID_BATCH_CAPACITY" ),
+    ERR_05208_BATCH_FULL( "ERR_05208_BATCH_FULL" ),
+    ERR_05209_INVALID_PARTIAL_ATTRIBUTE_LIST( "ERR_05209_INVALID_PARTIAL_ATTRIBUTE_LIST" ),
+    ERR_05210_CANNOT_DECODE_ATTRIBUTE( "ERR_05210_CANNOT_DECODE_ATTRIBUTE" ),
 
     //     controls                     5300-5399
     ERR_05300_CANT_DECODE_CHANGE_TYPE( "ERR_05300_CANT_DECODE_CHANGE_TYPE" ),
@@ -1173,6 +1194,14 @@ public enum I18n
     MSG_04176_TRUST_MANAGER_ON_CLASSPATH( "MSG_04176_TRUST_MANAGER_ON_CLASSPATH" ),
     MSG_04177_CONNECTION_TIMEOUT( "MSG_04177_CONNECTION_TIMEOUT" ),
     MSH_04178_CLOSE_LATCH_ABORTED( "MSH_04178_CLOSE_LATCH_ABORTED" ),
+    MSG_04179_BIND_IDENTITY_UNCHANGED( "MSG_04179_BIND_IDENTITY_UNCHANGED" ),
+    MSG_04180_REBIND_IDENTITY_CHANGED( "MSG_04180_REBIND_IDENTITY_CHANGED" ),
+    MSG_04181_CONNECTION_PROBE_FAILED( "MSG_04181_CONNECTION_PROBE_FAILED" ),
+    MSG_04182_SERVER_UNAVAILABLE( "MSG_04182_SERVER_UNAVAILABLE" ),
+    MSG_04183_SERVER_AVAILABLE( "MSG_04183_SERVER_AVAILABLE" ),
+    MSG_04184_SERVER_CIRCUIT_OPENED( "MSG_04184_SERVER_CIRCUIT_OPENED" ),
+    MSG_04185_SERVER_CIRCUIT_CLOSED( "MSG_04185_SERVER_CIRCUIT_CLOSED" ),
+    MSG_04186_SERVER_FAILOVER( "MSG_04186_SERVER_FAILOVER" ),
 
     // api-ldap-codec-core              5000-5999
     //     <>                               5000-5099
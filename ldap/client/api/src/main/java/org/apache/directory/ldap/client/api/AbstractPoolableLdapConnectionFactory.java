@@ -269,6 +269,15 @@ public abstract class AbstractPoolableLdapConnectionFactory implements PooledObj
     }
 
 
+    /**
+     * @return The validator used when validation occurs
+     */
+    public LdapConnectionValidator getValidator()
+    {
+        return validator;
+    }
+
+
     /**
      * {@inheritDoc}
      * 
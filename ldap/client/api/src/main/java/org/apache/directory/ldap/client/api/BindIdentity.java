@@ -0,0 +1,116 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *    https://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ *
+ */
+package org.apache.directory.ldap.client.api;
+
+
+import java.util.Objects;
+
+
+/**
+ * The identity a pooled connection has been bound with : the pool default identity, or
+ * a name and its credentials.
+ *
+ * @author <a href="mailto:dev@directory.apache.org">Apache Directory Project</a>
+ */
+final class BindIdentity
+{
+    /** The identity set by the connection factory */
+    static final BindIdentity DEFAULT = new BindIdentity( null, null );
+
+    /** The bind name */
+    private final String name;
+
+    /** The bind credentials */
+    private final String credentials;
+
+
+    /**
+     * Creates a new BindIdentity instance
+     *
+     * @param name The bind name
+     * @param credentials The bind credentials
+     */
+    BindIdentity( String name, String credentials )
+    {
+        this.name = name;
+        this.credentials = credentials;
+    }
+
+
+    /**
+     * @return The bind name
+     */
+    String getName()
+    {
+        return name;
+    }
+
+
+    /**
+     * @return The bind credentials
+     */
+    String getCredentials()
+    {
+        return credentials;
+    }
+
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int hashCode()
+    {
+        return Objects.hashCode( name );
+    }
+
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean equals( Object obj )
+    {
+        if ( this == obj )
+        {
+            return true;
+        }
+
+        // The default identity is only equal to itself
+        if ( !( obj instanceof BindIdentity ) || ( this == DEFAULT ) || ( obj == DEFAULT ) )
+        {
+            return false;
+        }
+
+        BindIdentity that = ( BindIdentity ) obj;
+
+        return Objects.equals( name, that.name ) && Objects.equals( credentials, that.credentials );
+    }
+
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public String toString()
+    {
+        return ( this == DEFAULT ) ? "default" : name;
+    }
+}
@@ -0,0 +1,304 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *    https://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ *
+ */
+package org.apache.directory.ldap.client.api;
+
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.commons.pool2.PooledObject;
+import org.apache.commons.pool2.impl.DefaultPooledObject;
+import org.apache.directory.api.i18n.I18n;
+import org.apache.directory.api.ldap.model.exception.LdapException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+
+/**
+ * A factory for creating LdapConnection objects managed by LdapConnectionPool, which
+ * remembers the identity each connection is bound with. A connection is bound again only
+ * when the identity asked by the borrower, with {@link LdapConnectionPool#getConnection()}
+ * for the pool default identity or {@link LdapConnectionPool#getConnection(String, String)},
+ * differs from the identity the connection is already bound with.
+ * <br>
+ * The binds are only done by the borrow methods, which know the requested identity : the
+ * activation of a connection only reconnects it if it has been dropped, and a connection
+ * which identity is unknown is considered as valid as long as it's connected. Hence, at
+ * most one bind is sent when a connection is borrowed.
+ * <br>
+ * As with the {@link ValidatingPoolableLdapConnectionFactory}, a connection on which a bind
+ * has been done by the borrower is bound again when it's borrowed the next time, and a
+ * connection on which a StartTLS has been done is unbound when it's returned to the pool.
+ *
+ * @author <a href="mailto:dev@directory.apache.org">Apache Directory Project</a>
+ */
+public class BindTrackingPoolableLdapConnectionFactory extends AbstractPoolableLdapConnectionFactory
+{
+    /** This class logger */
+    private static final Logger LOG = LoggerFactory.getLogger( BindTrackingPoolableLdapConnectionFactory.class );
+
+    /** The number of binds done when a connection was borrowed or returned */
+    private final AtomicLong bindCount = new AtomicLong();
+
+    /** The number of borrowed connections which were already bound with the requested identity */
+    private final AtomicLong avoidedBindCount = new AtomicLong();
+
+
+    /**
+     * Creates a new instance of BindTrackingPoolableLdapConnectionFactory.
+     *
+     * @param config the configuration for creating LdapConnections
+     */
+    public BindTrackingPoolableLdapConnectionFactory( LdapConnectionConfig config )
+    {
+        this( new DefaultLdapConnectionFactory( config ) );
+    }
+
+
+    /**
+     * Creates a new instance of BindTrackingPoolableLdapConnectionFactory.  The
+     * <code>connectionFactoryClass</code> must have a public constructor accepting
+     * an <code>LdapConnectionConfig</code> object or an 
+     * <code>IllegalArgumentException</code> will be thrown.
+     *
+     * @param config the configuration for creating LdapConnections
+     * @param connectionFactoryClass An implementation class of for the 
+     * LDAP connection factory.
+     * @throws IllegalArgumentException If the instantiation of an instance of 
+     * the <code>connectionFactoryClass</code> fails.
+     */
+    public BindTrackingPoolableLdapConnectionFactory( LdapConnectionConfig config,
+        Class<? extends LdapConnectionFactory> connectionFactoryClass )
+    {
+        this( newLdapConnectionFactory( config, connectionFactoryClass ) );
+    }
+
+
+    /**
+     * Creates a new instance of BindTrackingPoolableLdapConnectionFactory.
+     *
+     * @param connectionFactory the connection factory for creating LdapConnections
+     */
+    public BindTrackingPoolableLdapConnectionFactory( LdapConnectionFactory connectionFactory )
+    {
+        super( connectionFactory );
+    }
+
+
+    /**
+     * {@inheritDoc}
+     * 
+     * The connection is connected again if it has been dropped, its identity being then
+     * unknown. It will be bound by the borrow method, with the requested identity.
+     */
+    @Override
+    public void activateObject( PooledObject<LdapConnection> pooledObject ) throws LdapException
+    {
+        MonitoringLdapConnection connection = ( MonitoringLdapConnection ) pooledObject.getObject();
+
+        if ( LOG.isDebugEnabled() )
+        {
+            LOG.debug( I18n.msg( I18n.MSG_04146_ACTIVATING, connection ) );
+        }
+
+        if ( !connection.isConnected() )
+        {
+            if ( LOG.isDebugEnabled() )
+            {
+                LOG.debug( I18n.msg( I18n.MSG_04147_REBIND_CONNECTION_DROPPED, connection ) );
+            }
+
+            connection.setBoundIdentity( null );
+            connection.wrapped().connect();
+        }
+        else if ( !connection.isAuthenticated() )
+        {
+            connection.setBoundIdentity( null );
+        }
+
+        // clear the monitors
+        connection.resetMonitors();
+    }
+
+
+    /**
+     * {@inheritDoc}
+     * 
+     * A connection which identity is unknown is valid if it's connected : it will be
+     * bound by the borrow method.
+     */
+    @Override
+    public boolean validateObject( PooledObject<LdapConnection> pooledObject )
+    {
+        MonitoringLdapConnection connection = ( MonitoringLdapConnection ) pooledObject.getObject();
+
+        if ( connection.getBoundIdentity() == null )
+        {
+            return connection.isConnected();
+        }
+
+        return super.validateObject( pooledObject );
+    }
+
+
+    /**
+     * {@inheritDoc}
+     * 
+     * Specifically, we are creating a new connection based on the LdapConnection Factory
+     * we used to create this pool of connections. The default is to create bound connections.
+     * 
+     * @throws LdapException If unable to connect.
+     */
+    @Override
+    public PooledObject<LdapConnection> makeObject() throws LdapException
+    {
+        if ( LOG.isDebugEnabled() )
+        {
+            LOG.debug( I18n.msg( I18n.MSG_04150_CREATING_LDAP_CONNECTION ) );
+        }
+
+        MonitoringLdapConnection connection = new MonitoringLdapConnection( connectionFactory.newLdapConnection() );
+        connection.setBoundIdentity( BindIdentity.DEFAULT );
+
+        return new DefaultPooledObject<>( connection );
+    }
+
+
+    /**
+     * {@inheritDoc}
+     * 
+     * Here, passivating a connection means we forget its identity if the borrower has done
+     * a bind, and we unbind it if a StartTLS has been done. The connection will be bound
+     * again when borrowed.
+     * 
+     * @throws LdapException If unable to reconfigure and unbind.
+     */
+    @Override
+    public void passivateObject( PooledObject<LdapConnection> pooledObject ) throws LdapException
+    {
+        MonitoringLdapConnection connection = ( MonitoringLdapConnection ) pooledObject.getObject();
+
+        if ( LOG.isDebugEnabled() )
+        {
+            LOG.debug( I18n.msg( I18n.MSG_04151_PASSIVATING, connection ) );
+        }
+
+        if ( connection.bindCalled() )
+        {
+            connection.setBoundIdentity( null );
+        }
+
+        if ( connection.startTlsCalled() )
+        {
+            if ( LOG.isDebugEnabled() )
+            {
+                LOG.debug( I18n.msg( I18n.MSG_04173_UNBIND_START_TLS, connection ) );
+            }
+
+            // unbind to clear the tls
+            connection.setBoundIdentity( null );
+            connection.wrapped().unBind();
+        }
+
+        connection.resetMonitors();
+
+        // in case connection had configuration changed
+        connectionFactory.configureConnection( connection.wrapped() );
+    }
+
+
+    /**
+     * Binds a borrowed connection with the given identity, unless it's already bound with it.
+     *
+     * @param connection The borrowed connection
+     * @param name The name to bind with, or null for the pool default identity
+     * @param credentials The credentials to bind with
+     * @throws LdapException If the bind has failed
+     */
+    void bindConnection( LdapConnection connection, String name, String credentials ) throws LdapException
+    {
+        MonitoringLdapConnection monitoringConnection = ( MonitoringLdapConnection ) connection;
+        BindIdentity identity = ( name == null ) ? BindIdentity.DEFAULT : new BindIdentity( name, credentials );
+
+        if ( identity.equals( monitoringConnection.getBoundIdentity() ) )
+        {
+            if ( LOG.isDebugEnabled() )
+            {
+                LOG.debug( I18n.msg( I18n.MSG_04179_BIND_IDENTITY_UNCHANGED, connection ) );
+            }
+
+            avoidedBindCount.incrementAndGet();
+
+            return;
+        }
+
+        if ( LOG.isDebugEnabled() )
+        {
+            LOG.debug( I18n.msg( I18n.MSG_04180_REBIND_IDENTITY_CHANGED, connection ) );
+        }
+
+        bind( monitoringConnection, identity );
+    }
+
+
+    /**
+     * Binds a connection, bypassing the monitor so that the bind is not seen as done
+     * by the borrower.
+     *
+     * @param connection The connection
+     * @param identity The identity to bind with
+     * @throws LdapException If the bind has failed
+     */
+    private void bind( MonitoringLdapConnection connection, BindIdentity identity ) throws LdapException
+    {
+        // The identity is unknown until the bind has succeeded
+        connection.setBoundIdentity( null );
+        bindCount.incrementAndGet();
+
+        if ( identity == BindIdentity.DEFAULT )
+        {
+            connectionFactory.bindConnection( connection.wrapped() );
+        }
+        else
+        {
+            connection.wrapped().bind( identity.getName(), identity.getCredentials() );
+        }
+
+        connection.setBoundIdentity( identity );
+    }
+
+
+    /**
+     * @return The number of binds done when a connection was borrowed or returned
+     */
+    public long getBindCount()
+    {
+        return bindCount.get();
+    }
+
+
+    /**
+     * @return The number of borrowed connections which did not need a bind, because they
+     * were already bound with the requested identity
+     */
+    public long getAvoidedBindCount()
+    {
+        return avoidedBindCount.get();
+    }
+}
@@ -0,0 +1,281 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *    https://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ *
+ */
+package org.apache.directory.ldap.client.api;
+
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+import org.apache.directory.api.ldap.model.message.ResultCodeEnum;
+import org.apache.directory.api.ldap.model.message.ResultResponse;
+import org.apache.directory.api.ldap.model.message.ResultResponseRequest;
+import org.apache.directory.ldap.client.api.future.ResponseFuture;
+
+
+/**
+ * The result of a bulk operation : the number of sent and successful requests, and
+ * the outcome of the requests which have failed. The successful requests and their
+ * responses are not kept, so the memory used by a bulk operation only depends on the
+ * number of requests in flight and on the number of failures.
+ *
+ * @param <Q> The request type
+ * @param <R> The response type
+ * @author <a href="mailto:dev@directory.apache.org">Apache Directory Project</a>
+ */
+public class BulkResult<Q extends ResultResponseRequest, R extends ResultResponse>
+{
+    /** The outcome of the failed requests */
+    private final List<Item<Q, R>> failures = new ArrayList<>();
+
+    /** The number of sent requests */
+    private int size;
+
+    /** The number of successful requests */
+    private int successCount;
+
+    /** A flag set if all the requests have been sent */
+    private boolean complete = true;
+
+
+    /**
+     * Creates a new, empty, instance of BulkResult
+     */
+    BulkResult()
+    {
+    }
+
+
+    /**
+     * Adds a request to the result
+     *
+     * @param request The request
+     * @return The request item
+     */
+    Item<Q, R> add( Q request )
+    {
+        return new Item<>( request, size++ );
+    }
+
+
+    /**
+     * Sets the response of a request
+     *
+     * @param item The request item
+     * @param response The response received for the request
+     */
+    void setResponse( Item<Q, R> item, R response )
+    {
+        item.response = response;
+        item.future = null;
+
+        if ( item.isSuccess() )
+        {
+            successCount++;
+        }
+        else
+        {
+            failures.add( item );
+        }
+    }
+
+
+    /**
+     * Sets the error which has prevented a request to get a response
+     *
+     * @param item The request item
+     * @param cause The error
+     */
+    void setCause( Item<Q, R> item, Throwable cause )
+    {
+        item.cause = cause;
+        item.future = null;
+        failures.add( item );
+    }
+
+
+    /**
+     * Tells that the operation has been stopped before all the requests were sent
+     */
+    void setIncomplete()
+    {
+        complete = false;
+    }
+
+
+    /**
+     * @return The requests which have not been successful, in the order they have been sent
+     */
+    public List<Item<Q, R>> getFailures()
+    {
+        List<Item<Q, R>> sorted = new ArrayList<>( failures );
+        sorted.sort( Comparator.comparingInt( Item::getIndex ) );
+
+        return Collections.unmodifiableList( sorted );
+    }
+
+
+    /**
+     * @return The number of sent requests
+     */
+    public int size()
+    {
+        return size;
+    }
+
+
+    /**
+     * @return The number of successful requests
+     */
+    public int getSuccessCount()
+    {
+        return successCount;
+    }
+
+
+    /**
+     * Tells if all the requests have been sent. The operation is stopped if the
+     * connection can't be used anymore.
+     *
+     * @return <tt>true</tt> if all the requests have been sent
+     */
+    public boolean isComplete()
+    {
+        return complete;
+    }
+
+
+    /**
+     * Tells if all the requests have been sent, and have been successful
+     *
+     * @return <tt>true</tt> if all the requests have been successful
+     */
+    public boolean isSuccess()
+    {
+        return complete && ( successCount == size );
+    }
+
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public String toString()
+    {
+        return "BulkResult[" + size + " requests, " + successCount + " successful"
+            + ( complete ? "" : ", incomplete" ) + "]";
+    }
+
+
+    /**
+     * The outcome of a request : the response received from the server, or the
+     * error which has prevented the request to get a response.
+     *
+     * @param <Q> The request type
+     * @param <R> The response type
+     */
+    public static final class Item<Q extends ResultResponseRequest, R extends ResultResponse>
+    {
+        /** The request */
+        private final Q request;
+
+        /** The position of the request in the sent requests */
+        private final int index;
+
+        /** The response, if any */
+        private R response;
+
+        /** The error, if any */
+        private Throwable cause;
+
+        /** The future of the request, while it's in flight */
+        ResponseFuture<R> future;
+
+
+        private Item( Q request, int index )
+        {
+            this.request = request;
+            this.index = index;
+        }
+
+
+        /**
+         * @return The request
+         */
+        public Q getRequest()
+        {
+            return request;
+        }
+
+
+        /**
+         * @return The position of the request in the sent requests, starting at 0
+         */
+        public int getIndex()
+        {
+            return index;
+        }
+
+
+        /**
+         * @return The response received from the server, or null if the request has failed
+         */
+        public R getResponse()
+        {
+            return response;
+        }
+
+
+        /**
+         * @return The error which has prevented the request to get a response, if any
+         */
+        public Throwable getCause()
+        {
+            return cause;
+        }
+
+
+        /**
+         * @return <tt>true</tt> if the server has returned a SUCCESS result
+         */
+        public boolean isSuccess()
+        {
+            return ( response != null ) && ( response.getLdapResult().getResultCode() == ResultCodeEnum.SUCCESS );
+        }
+
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public String toString()
+        {
+            if ( response != null )
+            {
+                return "#" + index + " " + request.getType() + " : " + response.getLdapResult().getResultCode();
+            }
+            else
+            {
+                return "#" + index + " " + request.getType() + " : " + cause;
+            }
+        }
+    }
+}
@@ -25,12 +25,15 @@ import java.io.IOException;
 import org.apache.directory.api.ldap.model.entry.Entry;
 import org.apache.directory.api.ldap.model.exception.LdapException;
 import org.apache.directory.api.ldap.model.message.AddRequest;
+import org.apache.directory.api.ldap.model.message.AddResponse;
 import org.apache.directory.api.ldap.model.message.BindRequest;
 import org.apache.directory.api.ldap.model.message.CompareRequest;
 import org.apache.directory.api.ldap.model.message.DeleteRequest;
+import org.apache.directory.api.ldap.model.message.DeleteResponse;
 import org.apache.directory.api.ldap.model.message.ExtendedRequest;
 import org.apache.directory.api.ldap.model.message.ModifyDnRequest;
 import org.apache.directory.api.ldap.model.message.ModifyRequest;
+import org.apache.directory.api.ldap.model.message.ModifyResponse;
 import org.apache.directory.api.ldap.model.message.SearchRequest;
 import org.apache.directory.api.ldap.model.message.SearchScope;
 import org.apache.directory.api.ldap.model.name.Dn;
@@ -42,6 +45,8 @@ import org.apache.directory.ldap.client.api.future.ExtendedFuture;
 import org.apache.directory.ldap.client.api.future.ModifyDnFuture;
 import org.apache.directory.ldap.client.api.future.ModifyFuture;
 import org.apache.directory.ldap.client.api.future.SearchFuture;
+import org.apache.directory.ldap.client.api.future.SearchListener;
+import org.apache.directory.ldap.client.api.future.SearchSubscriber;
 import org.apache.mina.core.future.ConnectFuture;
 
 
@@ -204,6 +209,41 @@ public interface LdapAsyncConnection extends LdapConnection
     SearchFuture searchAsync( SearchRequest searchRequest ) throws LdapException;
 
 
+    /**
+     * Do an asynchronous search, giving each received entry, reference and intermediate
+     * response to a listener, as soon as it has been read. The SearchResultDone completes
+     * the future's {@link SearchFuture#toCompletionStage()} stage :
+     * <pre>
+     * connection.searchAsync( searchRequest, entry -&gt; process( entry ) )
+     *     .toCompletionStage()
+     *     .thenAccept( done -&gt; finish( done.getLdapResult() ) );
+     * </pre>
+     * The listener is called by the thread reading the responses, so it must not block.
+     * 
+     * @param searchRequest The search request to send to the server
+     * @param listener The listener the responses are given to
+     * @return the search operation's future
+     * @throws LdapException if some error occurred
+     */
+    SearchFuture searchAsync( SearchRequest searchRequest, SearchListener listener ) throws LdapException;
+
+
+    /**
+     * Do an asynchronous search, giving the responses to a subscriber as it requests them.
+     * The responses which have been read but not requested are buffered : when there are
+     * {@link LdapConnectionConfig#getSearchHighWatermark()} of them, the connection stops
+     * reading until the subscriber has consumed half of them. The memory used by the search
+     * is therefore bounded, whatever the number of entries it returns, but all the operations
+     * running on the connection are paused while the subscriber does not keep up.
+     * 
+     * @param searchRequest The search request to send to the server
+     * @param subscriber The subscriber the responses are given to
+     * @return the search operation's future
+     * @throws LdapException if the request can't be sent. The subscriber is not called in this case
+     */
+    SearchFuture searchAsync( SearchRequest searchRequest, SearchSubscriber subscriber ) throws LdapException;
+
+
     /**
      * Performs an asynchronous modify operation based on the modifications present in
      * the ModifyRequest.
@@ -255,10 +295,104 @@ public interface LdapAsyncConnection extends LdapConnection
     ExtendedFuture extendedAsync( ExtendedRequest extendedRequest ) throws LdapException;
 
 
+    /**
+     * Adds all the given entries, keeping at most {@link LdapConnectionConfig#getBulkMaxInFlight()}
+     * requests waiting for their response. The requests are read from the iterable as the responses
+     * are received, so it can be backed by a stream or by a LdifReader. The failed requests don't
+     * stop the operation, their result is returned in the bulk result. The successful requests
+     * are only counted, they are not retained once their response has been received.
+     *
+     * @param addRequests the AddRequests to send
+     * @return the number of successful requests, and the outcome of the failed ones
+     * @throws LdapException if the thread has been interrupted while waiting for a response
+     */
+    BulkResult<AddRequest, AddResponse> addAll( Iterable<AddRequest> addRequests ) throws LdapException;
+
+
+    /**
+     * Adds all the given entries, keeping at most <tt>maxInFlight</tt> requests waiting for
+     * their response.
+     *
+     * @param addRequests the AddRequests to send
+     * @param maxInFlight the number of requests sent without waiting for their response
+     * @return the number of successful requests, and the outcome of the failed ones
+     * @throws LdapException if the thread has been interrupted while waiting for a response
+     * @see #addAll(Iterable)
+     */
+    BulkResult<AddRequest, AddResponse> addAll( Iterable<AddRequest> addRequests, int maxInFlight )
+        throws LdapException;
+
+
+    /**
+     * Applies all the given modifications, keeping at most {@link LdapConnectionConfig#getBulkMaxInFlight()}
+     * requests waiting for their response.
+     *
+     * @param modifyRequests the ModifyRequests to send
+     * @return the number of successful requests, and the outcome of the failed ones
+     * @throws LdapException if the thread has been interrupted while waiting for a response
+     * @see #addAll(Iterable)
+     */
+    BulkResult<ModifyRequest, ModifyResponse> modifyAll( Iterable<ModifyRequest> modifyRequests )
+        throws LdapException;
+
+
+    /**
+     * Applies all the given modifications, keeping at most <tt>maxInFlight</tt> requests waiting
+     * for their response.
+     *
+     * @param modifyRequests the ModifyRequests to send
+     * @param maxInFlight the number of requests sent without waiting for their response
+     * @return the number of successful requests, and the outcome of the failed ones
+     * @throws LdapException if the thread has been interrupted while waiting for a response
+     * @see #addAll(Iterable)
+     */
+    BulkResult<ModifyRequest, ModifyResponse> modifyAll( Iterable<ModifyRequest> modifyRequests, int maxInFlight )
+        throws LdapException;
+
+
+    /**
+     * Deletes all the given entries, keeping at most {@link LdapConnectionConfig#getBulkMaxInFlight()}
+     * requests waiting for their response.
+     *
+     * @param deleteRequests the DeleteRequests to send
+     * @return the number of successful requests, and the outcome of the failed ones
+     * @throws LdapException if the thread has been interrupted while waiting for a response
+     * @see #addAll(Iterable)
+     */
+    BulkResult<DeleteRequest, DeleteResponse> deleteAll( Iterable<DeleteRequest> deleteRequests )
+        throws LdapException;
+
+
+    /**
+     * Deletes all the given entries, keeping at most <tt>maxInFlight</tt> requests waiting
+     * for their response.
+     *
+     * @param deleteRequests the DeleteRequests to send
+     * @param maxInFlight the number of requests sent without waiting for their response
+     * @return the number of successful requests, and the outcome of the failed ones
+     * @throws LdapException if the thread has been interrupted while waiting for a response
+     * @see #addAll(Iterable)
+     */
+    BulkResult<DeleteRequest, DeleteResponse> deleteAll( Iterable<DeleteRequest> deleteRequests, int maxInFlight )
+        throws LdapException;
+
+
     /**
      * Configuration of LdapNetworkConnection
      * 
      * @return the configuration of the LDAP connection
      */
     LdapConnectionConfig getConfig();
+
+
+    /**
+     * Writes the requests which have been coalesced, but not yet written, when the
+     * connection is pipelining its requests. Does nothing otherwise.
+     * 
+     * @see LdapConnectionConfig#setPipelining(boolean)
+     */
+    default void flush()
+    {
+        // Nothing to write by default
+    }
 }
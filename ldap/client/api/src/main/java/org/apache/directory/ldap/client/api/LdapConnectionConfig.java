@@ -31,9 +31,11 @@ import javax.net.ssl.TrustManager;
 import javax.net.ssl.TrustManagerFactory;
 
 import org.apache.directory.api.i18n.I18n;
+import org.apache.directory.api.ldap.codec.api.AttributeFilter;
 import org.apache.directory.api.ldap.codec.api.BinaryAttributeDetector;
 import org.apache.directory.api.ldap.codec.api.LdapApiService;
 import org.apache.directory.api.util.Network;
+import org.apache.directory.ldap.client.api.transport.LdapTransport;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -66,6 +68,21 @@ public class LdapConnectionConfig
     /** the default protocol used for creating SSL context */
     public static final String DEFAULT_SSL_PROTOCOL = "TLS";
 
+    /** The default delay before the pipelined requests are written : 1 millisecond */
+    public static final long DEFAULT_PIPELINING_FLUSH_DELAY = 1L;
+
+    /** The default size above which the pipelined requests are written : 16 KB */
+    public static final int DEFAULT_PIPELINING_FLUSH_THRESHOLD = 16 * 1024;
+
+    /** The default number of requests a bulk operation keeps in flight */
+    public static final int DEFAULT_BULK_MAX_IN_FLIGHT = 64;
+
+    /** The default number of search responses buffered for a subscriber before the reads are suspended */
+    public static final int DEFAULT_SEARCH_HIGH_WATERMARK = 1024;
+
+    /** The default number of requests expected to wait for their response on a connection */
+    public static final int DEFAULT_MAX_OUTSTANDING_REQUESTS = 1024;
+
     // --- private members ----
     /** A flag indicating if we are using SSL or not, default value is false */
     private boolean useSsl = false;
@@ -127,6 +144,39 @@ public class LdapConnectionConfig
     /** The Service to use internally when creating connections */
     private LdapApiService ldapApiService;
 
+    /** A flag indicating if the search result entries attributes are decoded lazily, default value is false */
+    private boolean lazyEntries = false;
+
+    /** The filter selecting the search result entries attributes to decode, default value is null */
+    private AttributeFilter attributeFilter;
+
+    /** The network transport, default value is null : the MINA based network layer is used */
+    private LdapTransport transport;
+
+    /** The I/O processors shared by the connections, default value is null : each connection has its own */
+    private LdapIoGroup ioGroup;
+
+    /** A flag indicating if the requests are coalesced before being written, default value is false */
+    private boolean pipelining = false;
+
+    /** The delay, in milliseconds, after which the pipelined requests are written */
+    private long pipeliningFlushDelay = DEFAULT_PIPELINING_FLUSH_DELAY;
+
+    /** The number of pending bytes above which the pipelined requests are written */
+    private int pipeliningFlushThreshold = DEFAULT_PIPELINING_FLUSH_THRESHOLD;
+
+    /** The number of requests a bulk operation keeps in flight */
+    private int bulkMaxInFlight = DEFAULT_BULK_MAX_IN_FLIGHT;
+
+    /** The maximum number of responses decoded for each received buffer, default value is 0 : no limit */
+    private int maxMessagesPerDecode = 0;
+
+    /** The number of search responses buffered for a subscriber before the reads are suspended */
+    private int searchHighWatermark = DEFAULT_SEARCH_HIGH_WATERMARK;
+
+    /** The number of requests expected to wait for their response on a connection */
+    private int maxOutstandingRequests = DEFAULT_MAX_OUTSTANDING_REQUESTS;
+
 
     /**
      * Creates a default LdapConnectionConfig instance
@@ -722,4 +772,254 @@ public class LdapConnectionConfig
     {
         this.ldapApiService = ldapApiService;
     }
+
+
+    /**
+     * Checks if the search result entries attributes are decoded lazily.
+     *
+     * @return true, if the attributes are decoded when they are accessed
+     */
+    public boolean isLazyEntries()
+    {
+        return lazyEntries;
+    }
+
+
+    /**
+     * Sets whether the search result entries attributes are decoded lazily. When set, the
+     * received entries keep their encoded attributes, and each attribute is decoded the
+     * first time it's read. It saves a lot of work when only a few of the returned
+     * attributes are used.
+     *
+     * @param lazyEntries true to decode the attributes when they are accessed
+     */
+    public void setLazyEntries( boolean lazyEntries )
+    {
+        this.lazyEntries = lazyEntries;
+    }
+
+
+    /**
+     * Gets the filter selecting the search result entries attributes to decode.
+     *
+     * @return the attribute filter, or null if all the attributes are decoded
+     */
+    public AttributeFilter getAttributeFilter()
+    {
+        return attributeFilter;
+    }
+
+
+    /**
+     * Sets the filter selecting the search result entries attributes to decode. The
+     * values of the other attributes are skipped without being decoded, and those
+     * attributes are not present in the received entries. It's useful when the server
+     * returns large attributes the application does not use.
+     *
+     * @param attributeFilter the attribute filter, or null to decode all the attributes
+     */
+    public void setAttributeFilter( AttributeFilter attributeFilter )
+    {
+        this.attributeFilter = attributeFilter;
+    }
+
+
+    /**
+     * Gets the network transport used by the connections.
+     *
+     * @return the transport, or null if the default MINA based network layer is used
+     */
+    public LdapTransport getTransport()
+    {
+        return transport;
+    }
+
+
+    /**
+     * Sets the network transport used by the connections, in place of the default MINA
+     * based network layer. The transport is not disposed when the connections are closed.
+     *
+     * @param transport the transport, or null to use the default MINA based network layer
+     */
+    public void setTransport( LdapTransport transport )
+    {
+        this.transport = transport;
+    }
+
+
+    /**
+     * Gets the group of I/O processors shared by the connections.
+     *
+     * @return the I/O group, or null if each connection uses its own I/O processor
+     */
+    public LdapIoGroup getIoGroup()
+    {
+        return ioGroup;
+    }
+
+
+    /**
+     * Sets the group of I/O processors shared by the connections created with this
+     * configuration. The group is not disposed when the connections are closed. It's
+     * not used when a transport has been set.
+     *
+     * @param ioGroup the I/O group, or null to let each connection use its own connector
+     */
+    public void setIoGroup( LdapIoGroup ioGroup )
+    {
+        this.ioGroup = ioGroup;
+    }
+
+
+    /**
+     * Tells if the requests are pipelined.
+     *
+     * @return <tt>true</tt> if the requests are coalesced before being written
+     */
+    public boolean isPipelining()
+    {
+        return pipelining;
+    }
+
+
+    /**
+     * Sets the pipelining mode. When enabled, the requests sent within the flush delay are
+     * coalesced and written at once, and the asynchronous operations don't wait for their
+     * request to be written before returning. The pending requests can be written immediately
+     * with {@link LdapAsyncConnection#flush()}, the synchronous operations do it before waiting
+     * for their response. It's not used when a transport has been set.
+     *
+     * @param pipelining <tt>true</tt> to coalesce the requests before writing them
+     */
+    public void setPipelining( boolean pipelining )
+    {
+        this.pipelining = pipelining;
+    }
+
+
+    /**
+     * @return the delay, in milliseconds, after which the pipelined requests are written
+     */
+    public long getPipeliningFlushDelay()
+    {
+        return pipeliningFlushDelay;
+    }
+
+
+    /**
+     * Sets the delay after which the pipelined requests are written. If 0, the requests are
+     * only written when the flush threshold is reached, or when the connection is flushed.
+     *
+     * @param pipeliningFlushDelay the delay, in milliseconds
+     */
+    public void setPipeliningFlushDelay( long pipeliningFlushDelay )
+    {
+        this.pipeliningFlushDelay = pipeliningFlushDelay;
+    }
+
+
+    /**
+     * @return the number of pending bytes above which the pipelined requests are written
+     */
+    public int getPipeliningFlushThreshold()
+    {
+        return pipeliningFlushThreshold;
+    }
+
+
+    /**
+     * Sets the number of pending bytes above which the pipelined requests are written.
+     *
+     * @param pipeliningFlushThreshold the threshold, in bytes
+     */
+    public void setPipeliningFlushThreshold( int pipeliningFlushThreshold )
+    {
+        this.pipeliningFlushThreshold = pipeliningFlushThreshold;
+    }
+
+
+    /**
+     * @return the number of requests a bulk operation keeps in flight
+     */
+    public int getBulkMaxInFlight()
+    {
+        return bulkMaxInFlight;
+    }
+
+
+    /**
+     * Sets the number of requests the bulk operations keep in flight, when no
+     * value is given to the operation.
+     *
+     * @param bulkMaxInFlight the number of requests sent without waiting for their response
+     */
+    public void setBulkMaxInFlight( int bulkMaxInFlight )
+    {
+        this.bulkMaxInFlight = bulkMaxInFlight;
+    }
+
+
+    /**
+     * @return the number of search responses buffered for a subscriber before the reads are suspended
+     */
+    public int getSearchHighWatermark()
+    {
+        return searchHighWatermark;
+    }
+
+
+    /**
+     * Sets the number of responses buffered for a search subscriber which does not keep up, before
+     * the connection stops reading. The reads are resumed once half of them have been consumed.
+     *
+     * @param searchHighWatermark the maximum number of buffered responses
+     */
+    public void setSearchHighWatermark( int searchHighWatermark )
+    {
+        this.searchHighWatermark = searchHighWatermark;
+    }
+
+
+    /**
+     * @return the number of requests expected to wait for their response on a connection
+     */
+    public int getMaxOutstandingRequests()
+    {
+        return maxOutstandingRequests;
+    }
+
+
+    /**
+     * Sets the number of requests expected to wait for their response on a connection. It
+     * sizes the table used to find the pending operation a response belongs to : more
+     * outstanding requests are accepted, but they are slower to correlate.
+     *
+     * @param maxOutstandingRequests the number of requests waiting for their response
+     */
+    public void setMaxOutstandingRequests( int maxOutstandingRequests )
+    {
+        this.maxOutstandingRequests = maxOutstandingRequests;
+    }
+
+
+    /**
+     * @return the maximum number of responses decoded for each received buffer, 0 if there is no limit
+     */
+    public int getMaxMessagesPerDecode()
+    {
+        return maxMessagesPerDecode;
+    }
+
+
+    /**
+     * Sets the maximum number of responses decoded for each received buffer before they are
+     * processed. A limit avoids delaying the first responses when a buffer contains thousands
+     * of small PDUs. It is only used by the MINA based network layer.
+     *
+     * @param maxMessagesPerDecode the maximum number of responses, 0 or below for no limit
+     */
+    public void setMaxMessagesPerDecode( int maxMessagesPerDecode )
+    {
+        this.maxMessagesPerDecode = maxMessagesPerDecode;
+    }
 }
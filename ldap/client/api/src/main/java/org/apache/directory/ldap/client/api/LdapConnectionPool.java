@@ -21,6 +21,11 @@
 package org.apache.directory.ldap.client.api;
 
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
 import org.apache.commons.pool2.PooledObjectFactory;
 import org.apache.commons.pool2.impl.GenericObjectPool;
 import org.apache.commons.pool2.impl.GenericObjectPoolConfig;
@@ -36,6 +41,14 @@ import org.slf4j.LoggerFactory;
  * 
  * This class is just a wrapper around the commons GenericObjectPool, and has
  * a more meaningful name to represent the pool type.
+ * <br>
+ * The connections can also be shared : when the maximum number of shared connections
+ * is set, {@link #getSharedConnection()} gives access to one of at most this number of
+ * connections borrowed from the pool, the one used by the fewest callers. As LDAP
+ * allows many operations to be outstanding on a connection, those callers can search,
+ * compare or lookup at the same time. The operations changing the state of the connection,
+ * like a bind or a StartTLS, must still be done on a connection obtained with
+ * {@link #getConnection()}.
  * 
  * @author <a href="mailto:dev@directory.apache.org">Apache Directory Project</a>
  */
@@ -45,6 +58,21 @@ public class LdapConnectionPool extends GenericObjectPool<LdapConnection>
 
     private PooledObjectFactory<LdapConnection> factory;
 
+    /** The maximum number of connections shared by the getSharedConnection() callers, 0 if they are not shared */
+    private volatile int maxSharedConnections;
+
+    /** The connections shared by the getSharedConnection() callers */
+    private volatile SharedSlot[] sharedSlots = new SharedSlot[0];
+
+    /** The lock protecting the changes of the shared connections */
+    private final Object sharedLock = new Object();
+
+    /** The number of shared connections being borrowed from the pool, protected by the sharedLock */
+    private int pendingShared;
+
+    /** Set when the pool is closed, protected by the sharedLock */
+    private boolean sharedClosed;
+
 
     /**
      * Instantiates a new LDAP connection pool.
@@ -122,12 +150,82 @@ public class LdapConnectionPool extends GenericObjectPool<LdapConnection>
      * @throws LdapException if an error occurs while obtaining a connection from the factory
      */
     public LdapConnection getConnection() throws LdapException
+    {
+        LdapConnection connection = borrowConnection();
+
+        if ( factory instanceof BindTrackingPoolableLdapConnectionFactory )
+        {
+            bindConnection( connection, null, null );
+        }
+
+        return connection;
+    }
+
+
+    /**
+     * Gives a LdapConnection fetched from the pool, bound with the given name and credentials.
+     * When the pool factory is a {@link BindTrackingPoolableLdapConnectionFactory}, the bind
+     * is done only if the connection is not already bound with this identity. Otherwise, it's
+     * always done.
+     *
+     * @param name The name to bind with
+     * @param credentials The credentials to bind with
+     * @return an LdapConnection object from pool
+     * @throws LdapException if an error occurs while obtaining a connection from the factory,
+     * or if the bind has failed
+     */
+    public LdapConnection getConnection( String name, String credentials ) throws LdapException
+    {
+        LdapConnection connection = borrowConnection();
+        bindConnection( connection, name, credentials );
+
+        return connection;
+    }
+
+
+    /**
+     * Binds a borrowed connection, and returns it to the pool if the bind fails
+     *
+     * @param connection The borrowed connection
+     * @param name The name to bind with, or null for the pool default identity
+     * @param credentials The credentials to bind with
+     * @throws LdapException if the bind has failed
+     */
+    private void bindConnection( LdapConnection connection, String name, String credentials ) throws LdapException
+    {
+        try
+        {
+            if ( factory instanceof BindTrackingPoolableLdapConnectionFactory )
+            {
+                ( ( BindTrackingPoolableLdapConnectionFactory ) factory ).bindConnection( connection, name, credentials );
+            }
+            else
+            {
+                connection.bind( name, credentials );
+            }
+        }
+        catch ( LdapException | RuntimeException e )
+        {
+            releaseConnection( connection );
+
+            throw e;
+        }
+    }
+
+
+    /**
+     * Borrows a LdapConnection from the pool.
+     *
+     * @return an LdapConnection object from pool
+     * @throws LdapException if an error occurs while obtaining a connection from the factory
+     */
+    private LdapConnection borrowConnection() throws LdapException
     {
         LdapConnection connection;
 
         try
         {
-            connection = super.borrowObject();
+            connection = borrowObject();
             
             if ( LOG.isTraceEnabled() )
             {
@@ -173,7 +271,7 @@ public class LdapConnectionPool extends GenericObjectPool<LdapConnection>
     {
         try
         {
-            super.returnObject( connection );
+            returnObject( connection );
 
             if ( LOG.isTraceEnabled() )
             {
@@ -189,4 +287,310 @@ public class LdapConnectionPool extends GenericObjectPool<LdapConnection>
             throw new RuntimeException( e );
         }
     }
+
+
+    /**
+     * @return The maximum number of connections shared by the {@link #getSharedConnection()} callers
+     */
+    public int getMaxSharedConnections()
+    {
+        return maxSharedConnections;
+    }
+
+
+    /**
+     * Sets the maximum number of connections shared by the {@link #getSharedConnection()} callers.
+     * Those connections are borrowed from the pool, when all the shared connections are in use,
+     * and are kept until the pool is closed. 0, the default, disables the sharing.
+     *
+     * @param maxSharedConnections The maximum number of shared connections
+     */
+    public void setMaxSharedConnections( int maxSharedConnections )
+    {
+        this.maxSharedConnections = maxSharedConnections;
+    }
+
+
+    /**
+     * @return The number of connections currently shared by the {@link #getSharedConnection()} callers
+     */
+    public int getNumShared()
+    {
+        return sharedSlots.length;
+    }
+
+
+    /**
+     * Gives a connection shared with other callers : the least loaded of the shared connections,
+     * or a new connection borrowed from the pool if they are all used and there are fewer than
+     * the maximum number of shared connections. The returned connection must be closed when
+     * the caller is done with it, so that the pool knows it's not used anymore by this caller.
+     * <br>
+     * The operations changing the state of the connection are not allowed on a shared connection.
+     *
+     * @return A shared LdapConnection
+     * @throws LdapException if the connections are not shared, or if an error occurs while
+     * obtaining a connection from the factory
+     */
+    public SharedLdapConnection getSharedConnection() throws LdapException
+    {
+        if ( maxSharedConnections <= 0 )
+        {
+            throw new LdapException( I18n.err( I18n.ERR_04184_CONNECTION_SHARING_DISABLED ) );
+        }
+
+        SharedSlot[] slots = sharedSlots;
+        SharedSlot slot = leastLoaded( slots );
+
+        // Use the least loaded connection if it's not used, or if we can't add another one
+        if ( ( slot == null ) || !slot.connection.isConnected()
+            || ( ( slot.load.get() > 0 ) && ( slots.length < maxSharedConnections ) ) )
+        {
+            slot = updateSharedSlots();
+        }
+
+        slot.load.incrementAndGet();
+
+        if ( LOG.isTraceEnabled() )
+        {
+            LOG.trace( I18n.msg( I18n.MSG_04163_BORROWED_CONNECTION, slot.connection ) );
+        }
+
+        return new SharedLdapConnection( slot );
+    }
+
+
+    /**
+     * Gets the least loaded slot
+     *
+     * @param slots The slots
+     * @return The least loaded slot, or null if there are none
+     */
+    private static SharedSlot leastLoaded( SharedSlot[] slots )
+    {
+        SharedSlot leastLoaded = null;
+        int minLoad = Integer.MAX_VALUE;
+
+        for ( SharedSlot slot : slots )
+        {
+            int load = slot.load.get();
+
+            if ( load < minLoad )
+            {
+                leastLoaded = slot;
+                minLoad = load;
+            }
+        }
+
+        return leastLoaded;
+    }
+
+
+    /**
+     * Replaces the shared connections which have been closed, and adds a new shared connection
+     * if they are all in use and there are fewer than the maximum number of shared connections.
+     * The new connection is borrowed from the pool without holding the lock, so that the other
+     * callers can use the existing shared connections in the meantime.
+     *
+     * @return The least loaded slot
+     * @throws LdapException if an error occurs while obtaining a connection from the factory
+     */
+    private SharedSlot updateSharedSlots() throws LdapException
+    {
+        synchronized ( sharedLock )
+        {
+            while ( true )
+            {
+                SharedSlot leastLoaded = removeClosedSharedSlots();
+                boolean full = sharedSlots.length + pendingShared >= maxSharedConnections;
+
+                if ( ( leastLoaded != null ) && ( ( leastLoaded.load.get() == 0 ) || full ) )
+                {
+                    return leastLoaded;
+                }
+
+                if ( !full )
+                {
+                    // Reserve the new shared connection
+                    pendingShared++;
+                    break;
+                }
+
+                // Wait for the caller borrowing the last shared connection
+                try
+                {
+                    sharedLock.wait();
+                }
+                catch ( InterruptedException ie )
+                {
+                    Thread.currentThread().interrupt();
+
+                    throw new LdapException( I18n.err( I18n.ERR_04107_UNEXPECTED_THROWN_EXCEPTION, ie.getMessage() ), ie );
+                }
+            }
+        }
+
+        LdapConnection connection = null;
+        SharedSlot slot = null;
+
+        try
+        {
+            connection = getConnection();
+        }
+        finally
+        {
+            // Publish the new shared connection, and wake up the waiting callers
+            synchronized ( sharedLock )
+            {
+                pendingShared--;
+                sharedLock.notifyAll();
+
+                if ( ( connection != null ) && !sharedClosed )
+                {
+                    slot = new SharedSlot( connection );
+                    SharedSlot[] slots = Arrays.copyOf( sharedSlots, sharedSlots.length + 1 );
+                    slots[sharedSlots.length] = slot;
+                    sharedSlots = slots;
+                }
+            }
+        }
+
+        if ( slot == null )
+        {
+            // The pool has been closed while the connection was borrowed
+            releaseConnection( connection );
+
+            throw new IllegalStateException( I18n.err( I18n.ERR_04194_POOL_CLOSED ) );
+        }
+
+        return slot;
+    }
+
+
+    /**
+     * Removes the shared connections which have been closed. Must be called while holding
+     * the sharedLock.
+     *
+     * @return The least loaded of the remaining slots, or null if there are none
+     */
+    private SharedSlot removeClosedSharedSlots()
+    {
+        List<SharedSlot> slots = new ArrayList<>( sharedSlots.length );
+
+        for ( SharedSlot slot : sharedSlots )
+        {
+            if ( slot.connection.isConnected() )
+            {
+                slots.add( slot );
+            }
+            else
+            {
+                discard( slot );
+            }
+        }
+
+        if ( slots.size() != sharedSlots.length )
+        {
+            sharedSlots = slots.toArray( new SharedSlot[0] );
+        }
+
+        return leastLoaded( sharedSlots );
+    }
+
+
+    /**
+     * Removes a closed shared connection from the pool. The callers still using it will
+     * get an error on their next operation.
+     *
+     * @param slot The slot holding the closed connection
+     */
+    private void discard( SharedSlot slot )
+    {
+        try
+        {
+            invalidateObject( slot.connection );
+        }
+        catch ( Exception e )
+        {
+            LOG.error( I18n.err( I18n.ERR_04107_UNEXPECTED_THROWN_EXCEPTION, e.getMessage() ), e );
+        }
+    }
+
+
+    /**
+     * {@inheritDoc}
+     * 
+     * The shared connections are released before the pool is closed.
+     */
+    @Override
+    public void close()
+    {
+        synchronized ( sharedLock )
+        {
+            sharedClosed = true;
+
+            for ( SharedSlot slot : sharedSlots )
+            {
+                try
+                {
+                    releaseConnection( slot.connection );
+                }
+                catch ( LdapException | RuntimeException e )
+                {
+                    discard( slot );
+                }
+            }
+
+            sharedSlots = new SharedSlot[0];
+        }
+
+        super.close();
+    }
+
+
+    /**
+     * A connection shared by the {@link LdapConnectionPool#getSharedConnection()} callers,
+     * and the number of callers using it.
+     */
+    static final class SharedSlot
+    {
+        /** The shared connection */
+        private final LdapConnection connection;
+
+        /** The number of callers using the connection */
+        private final AtomicInteger load = new AtomicInteger();
+
+
+        private SharedSlot( LdapConnection connection )
+        {
+            this.connection = connection;
+        }
+
+
+        /**
+         * @return The shared connection
+         */
+        LdapConnection getConnection()
+        {
+            return connection;
+        }
+
+
+        /**
+         * @return The number of callers using the connection
+         */
+        int getLoad()
+        {
+            return load.get();
+        }
+
+
+        /**
+         * Tells that a caller does not use the connection anymore
+         */
+        void release()
+        {
+            load.decrementAndGet();
+        }
+    }
 }
@@ -0,0 +1,713 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *    https://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ *
+ */
+package org.apache.directory.ldap.client.api;
+
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.directory.api.i18n.I18n;
+import org.apache.directory.api.ldap.model.constants.SchemaConstants;
+import org.apache.directory.api.ldap.model.exception.LdapException;
+import org.apache.directory.api.ldap.model.message.Message;
+import org.apache.directory.api.ldap.model.message.OpaqueExtendedRequest;
+import org.apache.directory.api.ldap.model.message.ResultCodeEnum;
+import org.apache.directory.api.ldap.model.message.ResultResponse;
+import org.apache.directory.api.ldap.model.message.SearchRequest;
+import org.apache.directory.api.ldap.model.message.SearchRequestImpl;
+import org.apache.directory.api.ldap.model.message.SearchScope;
+import org.apache.directory.api.ldap.model.name.Dn;
+import org.apache.directory.ldap.client.api.future.ResponseFuture;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+
+/**
+ * Validates the idle connections of a {@link LdapConnectionPool} in the background,
+ * and keeps a minimum number of ready connections in the pool.
+ * <br>
+ * At each run, the idle connections are borrowed from the pool, and a root DSE lookup,
+ * or a WhoAmI extended operation, is sent on all of them at once. They are given back
+ * to the pool as soon as the probes are answered, so they are unavailable to the
+ * borrowers for one round-trip at most, the pool creating new connections if needed.
+ * The connections which have not answered successfully before the probe timeout are
+ * invalidated. The pool is then filled up to the minimum number of ready connections.
+ * As the probed connections are borrowed, their idle time is reset by each run.
+ * <br>
+ * When the pool can't be filled, the server is considered unavailable, and the maintainer
+ * retries every recovery interval instead of every validation interval, so that the pool
+ * is pre-warmed as soon as the server is back.
+ * <br>
+ * As the connections are validated in the background, the inline validation of the pool
+ * (testOnBorrow and testOnReturn) is disabled while the maintainer is running, so that
+ * the borrowers don't pay the validation round-trip. It's restored when the maintainer
+ * is stopped.
+ * <pre>
+ * LdapConnectionPoolMaintainer maintainer = new LdapConnectionPoolMaintainer( pool );
+ * maintainer.setMinReady( 8 );
+ * maintainer.start();
+ * ...
+ * maintainer.stop();
+ * pool.close();
+ * </pre>
+ *
+ * @author <a href="mailto:dev@directory.apache.org">Apache Directory Project</a>
+ */
+public class LdapConnectionPoolMaintainer
+{
+    /** The logger */
+    private static final Logger LOG = LoggerFactory.getLogger( LdapConnectionPoolMaintainer.class );
+
+    /** The default delay between two runs, in milliseconds */
+    public static final long DEFAULT_VALIDATION_INTERVAL_MILLIS = 30_000L;
+
+    /** The default time given to the connections to answer a probe, in milliseconds */
+    public static final long DEFAULT_PROBE_TIMEOUT_MILLIS = 5_000L;
+
+    /** The WhoAmI extended operation OID (RFC 4532) */
+    private static final String WHO_AM_I_OID = "1.3.6.1.4.1.4203.1.11.3";
+
+    /** The default delay between two runs while the server is unavailable, in milliseconds */
+    public static final long DEFAULT_RECOVERY_INTERVAL_MILLIS = 1_000L;
+
+    /** The validator used for the connections which can't be probed asynchronously */
+    private static final LdapConnectionValidator LOOKUP_VALIDATOR = new LookupLdapConnectionValidator();
+
+    /**
+     * The request sent to probe a connection
+     */
+    public enum Probe
+    {
+        /** A base search on the root DSE, returning no attribute */
+        ROOT_DSE,
+
+        /** A WhoAmI extended operation */
+        WHO_AM_I
+    }
+
+    /** The maintained pool */
+    private final LdapConnectionPool pool;
+
+    /** The minimum number of idle connections in the pool */
+    private volatile int minReady;
+
+    /** The delay between two runs, in milliseconds */
+    private volatile long validationInterval = DEFAULT_VALIDATION_INTERVAL_MILLIS;
+
+    /** The delay between two runs while the server is unavailable, in milliseconds */
+    private volatile long recoveryInterval = DEFAULT_RECOVERY_INTERVAL_MILLIS;
+
+    /** The time given to the connections to answer a probe, in milliseconds */
+    private volatile long probeTimeout = DEFAULT_PROBE_TIMEOUT_MILLIS;
+
+    /** The request sent to probe a connection */
+    private volatile Probe probe = Probe.ROOT_DSE;
+
+    /** Tells if the server was available at the last run */
+    private volatile boolean serverAvailable = true;
+
+    /** The thread running the maintenance, when started */
+    private ScheduledExecutorService scheduler;
+
+    /** The scheduled maintenance, when started */
+    private ScheduledFuture<?> task;
+
+    /** The pool testOnBorrow flag, restored when the maintainer is stopped */
+    private boolean testOnBorrow;
+
+    /** The pool testOnReturn flag, restored when the maintainer is stopped */
+    private boolean testOnReturn;
+
+    /** The number of probed connections */
+    private final AtomicLong probedCount = new AtomicLong();
+
+    /** The number of evicted connections */
+    private final AtomicLong evictedCount = new AtomicLong();
+
+    /** The number of connections created to pre-warm the pool */
+    private final AtomicLong createdCount = new AtomicLong();
+
+
+    /**
+     * Creates a new instance of LdapConnectionPoolMaintainer
+     *
+     * @param pool The pool to maintain
+     */
+    public LdapConnectionPoolMaintainer( LdapConnectionPool pool )
+    {
+        this.pool = pool;
+    }
+
+
+    /**
+     * Starts the maintenance of the pool : the pool is pre-warmed right away, then
+     * validated every validation interval. Does nothing if the maintainer is already
+     * started.
+     */
+    public synchronized void start()
+    {
+        if ( scheduler != null )
+        {
+            return;
+        }
+
+        testOnBorrow = pool.getTestOnBorrow();
+        testOnReturn = pool.getTestOnReturn();
+        pool.setTestOnBorrow( false );
+        pool.setTestOnReturn( false );
+
+        scheduler = Executors.newSingleThreadScheduledExecutor(
+            runnable ->
+            {
+                Thread thread = new Thread( runnable, "LdapConnectionPoolMaintainer" );
+                thread.setDaemon( true );
+
+                return thread;
+            } );
+
+        schedule( 0L );
+    }
+
+
+    /**
+     * Stops the maintenance of the pool, and restores its inline validation. Waits for
+     * the current run, if any, to be completed. Does nothing if the maintainer is not
+     * started.
+     */
+    public void stop()
+    {
+        ScheduledExecutorService stopped;
+
+        synchronized ( this )
+        {
+            if ( scheduler == null )
+            {
+                return;
+            }
+
+            stopped = scheduler;
+            task.cancel( false );
+            scheduler.shutdown();
+            task = null;
+            scheduler = null;
+        }
+
+        // Don't hold the lock while waiting, the current run reschedules itself
+        try
+        {
+            stopped.awaitTermination( probeTimeout + validationInterval, TimeUnit.MILLISECONDS );
+        }
+        catch ( InterruptedException ie )
+        {
+            Thread.currentThread().interrupt();
+        }
+
+        synchronized ( this )
+        {
+            pool.setTestOnBorrow( testOnBorrow );
+            pool.setTestOnReturn( testOnReturn );
+        }
+    }
+
+
+    /**
+     * @return <tt>true</tt> if the maintainer is started
+     */
+    public synchronized boolean isStarted()
+    {
+        return scheduler != null;
+    }
+
+
+    /**
+     * Schedules the next run, if the maintainer is still started
+     *
+     * @param delay The delay before the run, in milliseconds
+     */
+    private synchronized void schedule( long delay )
+    {
+        if ( scheduler != null )
+        {
+            task = scheduler.schedule( this::run, delay, TimeUnit.MILLISECONDS );
+        }
+    }
+
+
+    /**
+     * The scheduled task : a failing run must not cancel the next ones. The next run
+     * comes sooner while the server is unavailable.
+     */
+    private void run()
+    {
+        try
+        {
+            maintain();
+        }
+        catch ( RuntimeException e )
+        {
+            LOG.error( I18n.err( I18n.ERR_04107_UNEXPECTED_THROWN_EXCEPTION, e.getMessage() ), e );
+        }
+        finally
+        {
+            schedule( serverAvailable ? validationInterval : recoveryInterval );
+        }
+    }
+
+
+    /**
+     * Runs the maintenance once : the idle connections are probed, the failing ones
+     * are evicted, then the pool is filled up to the minimum number of ready connections.
+     * This is what the started maintainer does at each run.
+     */
+    public synchronized void maintain()
+    {
+        if ( pool.isClosed() )
+        {
+            return;
+        }
+
+        validateIdleConnections();
+
+        prewarm();
+    }
+
+
+    /**
+     * Takes the idle connections from the pool, probes them all at once, then gives back
+     * the connections which have answered before the probe timeout, and invalidates the
+     * other ones. Neither the configuration of the pool nor its factory are modified, so
+     * the pool evictor and the inline validation, if any, are not affected by the run.
+     */
+    private void validateIdleConnections()
+    {
+        int numIdle = pool.getNumIdle();
+
+        if ( numIdle == 0 )
+        {
+            return;
+        }
+
+        List<LdapConnection> connections = new ArrayList<>( numIdle );
+
+        // Don't wait for a connection, nor create one, if the idle connections have been
+        // borrowed in the meantime
+        while ( ( connections.size() < numIdle ) && ( pool.getNumIdle() > 0 ) )
+        {
+            try
+            {
+                connections.add( pool.borrowObject( 0L ) );
+            }
+            catch ( NoSuchElementException nsee )
+            {
+                break;
+            }
+            catch ( Exception e )
+            {
+                LOG.error( I18n.err( I18n.ERR_04107_UNEXPECTED_THROWN_EXCEPTION, e.getMessage() ), e );
+
+                break;
+            }
+        }
+
+        List<CompletableFuture<Boolean>> probes = new ArrayList<>( connections.size() );
+
+        for ( LdapConnection connection : connections )
+        {
+            probes.add( probe( connection ) );
+        }
+
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos( probeTimeout );
+        boolean valid = false;
+
+        for ( int i = 0; i < connections.size(); i++ )
+        {
+            LdapConnection connection = connections.get( i );
+            boolean success = isSuccess( probes.get( i ), deadline );
+
+            probedCount.incrementAndGet();
+            valid |= success;
+
+            try
+            {
+                if ( success )
+                {
+                    pool.returnObject( connection );
+                }
+                else
+                {
+                    if ( LOG.isDebugEnabled() )
+                    {
+                        LOG.debug( I18n.msg( I18n.MSG_04181_CONNECTION_PROBE_FAILED, connection ) );
+                    }
+
+                    evictedCount.incrementAndGet();
+                    pool.invalidateObject( connection );
+                }
+            }
+            catch ( Exception e )
+            {
+                LOG.error( I18n.err( I18n.ERR_04107_UNEXPECTED_THROWN_EXCEPTION, e.getMessage() ), e );
+            }
+        }
+
+        if ( valid )
+        {
+            serverAvailable( true, null );
+        }
+    }
+
+
+    /**
+     * Sends the probe request on a connection
+     *
+     * @param connection The probed connection
+     * @return The probe outcome
+     */
+    private CompletableFuture<Boolean> probe( LdapConnection connection )
+    {
+        LdapConnection probed = connection;
+
+        while ( probed instanceof LdapConnectionWrapper )
+        {
+            probed = ( ( LdapConnectionWrapper ) probed ).wrapped();
+        }
+
+        if ( !probed.isConnected() || !probed.isAuthenticated() )
+        {
+            return CompletableFuture.completedFuture( Boolean.FALSE );
+        }
+
+        if ( !( probed instanceof LdapAsyncConnection ) )
+        {
+            return CompletableFuture.completedFuture( LOOKUP_VALIDATOR.validate( probed ) );
+        }
+
+        LdapAsyncConnection asyncConnection = ( LdapAsyncConnection ) probed;
+
+        try
+        {
+            ResponseFuture<?> future;
+
+            if ( probe == Probe.WHO_AM_I )
+            {
+                future = asyncConnection.extendedAsync( new OpaqueExtendedRequest( WHO_AM_I_OID ) );
+            }
+            else
+            {
+                future = asyncConnection.searchAsync( newRootDseRequest(), entry -> { } );
+            }
+
+            CompletableFuture<Boolean> outcome = future.toCompletionStage().toCompletableFuture()
+                .thenApply( LdapConnectionPoolMaintainer::isSuccess );
+
+            // Abandon the request if it does not answer in time
+            outcome.whenComplete( ( success, cause ) ->
+            {
+                if ( cause != null )
+                {
+                    future.cancel( true );
+                }
+            } );
+
+            return outcome;
+        }
+        catch ( LdapException | RuntimeException e )
+        {
+            return CompletableFuture.completedFuture( Boolean.FALSE );
+        }
+    }
+
+
+    /**
+     * @return A base search on the root DSE, returning no attribute
+     */
+    private static SearchRequest newRootDseRequest() throws LdapException
+    {
+        SearchRequest searchRequest = new SearchRequestImpl();
+        searchRequest.setBase( Dn.ROOT_DSE );
+        searchRequest.setFilter( "(objectClass=*)" );
+        searchRequest.setScope( SearchScope.OBJECT );
+        searchRequest.addAttributes( SchemaConstants.NO_ATTRIBUTE );
+
+        return searchRequest;
+    }
+
+
+    /**
+     * Tells if a probe has been answered successfully
+     *
+     * @param response The response to the probe
+     * @return <tt>true</tt> if the result is SUCCESS
+     */
+    private static boolean isSuccess( Message response )
+    {
+        return ( response instanceof ResultResponse )
+            && ( ( ( ResultResponse ) response ).getLdapResult().getResultCode() == ResultCodeEnum.SUCCESS );
+    }
+
+
+    /**
+     * Waits for the outcome of a probe until the deadline
+     *
+     * @param probe The probe outcome
+     * @param deadline The deadline, in nanoseconds
+     * @return <tt>true</tt> if the probe has been successful before the deadline
+     */
+    private static boolean isSuccess( CompletableFuture<Boolean> probe, long deadline )
+    {
+        try
+        {
+            return probe.get( Math.max( 0L, deadline - System.nanoTime() ), TimeUnit.NANOSECONDS );
+        }
+        catch ( TimeoutException | ExecutionException e )
+        {
+            probe.completeExceptionally( e );
+
+            return false;
+        }
+        catch ( InterruptedException ie )
+        {
+            Thread.currentThread().interrupt();
+            probe.cancel( true );
+
+            return false;
+        }
+    }
+
+
+    /**
+     * Fills the pool up to the minimum number of ready connections, without exceeding
+     * its maximum number of connections
+     */
+    private void prewarm()
+    {
+        int maxTotal = pool.getMaxTotal();
+
+        while ( ( pool.getNumIdle() < minReady )
+            && ( ( maxTotal < 0 ) || ( pool.getNumIdle() + pool.getNumActive() < maxTotal ) ) )
+        {
+            try
+            {
+                pool.addObject();
+                createdCount.incrementAndGet();
+                serverAvailable( true, null );
+            }
+            catch ( Exception e )
+            {
+                serverAvailable( false, e );
+
+                return;
+            }
+        }
+    }
+
+
+    /**
+     * Records the availability of the server, logging its changes
+     *
+     * @param available <tt>true</tt> if the server has answered
+     * @param cause The error, if the server has not answered
+     */
+    private void serverAvailable( boolean available, Exception cause )
+    {
+        if ( serverAvailable == available )
+        {
+            return;
+        }
+
+        serverAvailable = available;
+
+        if ( available )
+        {
+            LOG.info( I18n.msg( I18n.MSG_04183_SERVER_AVAILABLE ) );
+        }
+        else
+        {
+            LOG.warn( I18n.msg( I18n.MSG_04182_SERVER_UNAVAILABLE, cause.getMessage() ) );
+        }
+    }
+
+
+    /**
+     * @return The minimum number of idle connections kept in the pool
+     */
+    public int getMinReady()
+    {
+        return minReady;
+    }
+
+
+    /**
+     * Sets the minimum number of idle connections kept in the pool. They are created
+     * in the background, at the next run.
+     *
+     * @param minReady The minimum number of idle connections, 0 to disable the pre-warming
+     */
+    public void setMinReady( int minReady )
+    {
+        this.minReady = Math.max( 0, minReady );
+    }
+
+
+    /**
+     * @return The delay between two runs, in milliseconds
+     */
+    public long getValidationInterval()
+    {
+        return validationInterval;
+    }
+
+
+    /**
+     * Sets the delay between two runs. It's taken into account at the next run.
+     *
+     * @param validationInterval The delay between two runs, in milliseconds
+     */
+    public void setValidationInterval( long validationInterval )
+    {
+        if ( validationInterval <= 0L )
+        {
+            throw new IllegalArgumentException(
+                I18n.err( I18n.ERR_04190_INVALID_MAINTENANCE_DELAY, "validation interval", validationInterval ) );
+        }
+
+        this.validationInterval = validationInterval;
+    }
+
+
+    /**
+     * @return The delay between two runs while the server is unavailable, in milliseconds
+     */
+    public long getRecoveryInterval()
+    {
+        return recoveryInterval;
+    }
+
+
+    /**
+     * Sets the delay between two runs while the server is unavailable. It's taken into
+     * account at the next run.
+     *
+     * @param recoveryInterval The delay between two runs, in milliseconds
+     */
+    public void setRecoveryInterval( long recoveryInterval )
+    {
+        if ( recoveryInterval <= 0L )
+        {
+            throw new IllegalArgumentException(
+                I18n.err( I18n.ERR_04190_INVALID_MAINTENANCE_DELAY, "recovery interval", recoveryInterval ) );
+        }
+
+        this.recoveryInterval = recoveryInterval;
+    }
+
+
+    /**
+     * @return The time given to the connections to answer a probe, in milliseconds
+     */
+    public long getProbeTimeout()
+    {
+        return probeTimeout;
+    }
+
+
+    /**
+     * Sets the time given to the connections to answer a probe. The connections which
+     * have not answered are evicted.
+     *
+     * @param probeTimeout The probe timeout, in milliseconds
+     */
+    public void setProbeTimeout( long probeTimeout )
+    {
+        if ( probeTimeout <= 0L )
+        {
+            throw new IllegalArgumentException(
+                I18n.err( I18n.ERR_04190_INVALID_MAINTENANCE_DELAY, "probe timeout", probeTimeout ) );
+        }
+
+        this.probeTimeout = probeTimeout;
+    }
+
+
+    /**
+     * @return The request sent to probe a connection
+     */
+    public Probe getProbe()
+    {
+        return probe;
+    }
+
+
+    /**
+     * Sets the request sent to probe a connection. The WhoAmI probe is cheaper for
+     * the server, but needs it to support the WhoAmI extended operation.
+     *
+     * @param probe The probe request
+     */
+    public void setProbe( Probe probe )
+    {
+        this.probe = ( probe == null ) ? Probe.ROOT_DSE : probe;
+    }
+
+
+    /**
+     * @return <tt>true</tt> if the server was available at the last run
+     */
+    public boolean isServerAvailable()
+    {
+        return serverAvailable;
+    }
+
+
+    /**
+     * @return The number of probed connections
+     */
+    public long getProbedCount()
+    {
+        return probedCount.get();
+    }
+
+
+    /**
+     * @return The number of evicted connections
+     */
+    public long getEvictedCount()
+    {
+        return evictedCount.get();
+    }
+
+
+    /**
+     * @return The number of connections created to pre-warm the pool
+     */
+    public long getCreatedCount()
+    {
+        return createdCount.get();
+    }
+}
@@ -0,0 +1,393 @@
+/*
+ *   Licensed to the Apache Software Foundation (ASF) under one
+ *   or more contributor license agreements.  See the NOTICE file
+ *   distributed with this work for additional information
+ *   regarding copyright ownership.  The ASF licenses this file
+ *   to you under the Apache License, Version 2.0 (the
+ *   "License"); you may not use this file except in compliance
+ *   with the License.  You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing,
+ *   software distributed under the License is distributed on an
+ *   "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *   KIND, either express or implied.  See the License for the
+ *   specific language governing permissions and limitations
+ *   under the License.
+ *
+ */
+
+package org.apache.directory.ldap.client.api;
+
+
+import java.net.SocketAddress;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.mina.core.filterchain.IoFilterChain;
+import org.apache.mina.core.filterchain.IoFilterChainBuilder;
+import org.apache.mina.core.future.ConnectFuture;
+import org.apache.mina.core.service.IoConnector;
+import org.apache.mina.core.service.IoHandler;
+import org.apache.mina.core.service.IoHandlerAdapter;
+import org.apache.mina.core.service.SimpleIoProcessorPool;
+import org.apache.mina.core.session.AttributeKey;
+import org.apache.mina.core.session.IdleStatus;
+import org.apache.mina.core.session.IoSession;
+import org.apache.mina.filter.FilterEvent;
+import org.apache.mina.transport.socket.SocketSessionConfig;
+import org.apache.mina.transport.socket.nio.NioProcessor;
+import org.apache.mina.transport.socket.nio.NioSession;
+import org.apache.mina.transport.socket.nio.NioSocketConnector;
+
+
+/**
+ * A connector and a group of I/O processors shared by many {@link LdapNetworkConnection}s.
+ * Without it, each connection creates its own connector, with its own selector thread : a
+ * pool of 500 connections uses 500 I/O threads. With it, the connections created from a
+ * {@link LdapConnectionConfig} are all established by the same connector, and spread over
+ * a fixed number of processors.
+ * <br>
+ * Each session keeps the handler and the filters of its own connection : they are stored
+ * in the session when it's created, and the shared connector dispatches the events to the
+ * handler of the session.
+ * <br>
+ * The group is not tied to any connection : it has to be created before the connections,
+ * and disposed after they have been closed.
+ * <pre>
+ * LdapIoGroup ioGroup = new LdapIoGroup();
+ * LdapConnectionConfig config = new LdapConnectionConfig();
+ * config.setIoGroup( ioGroup );
+ * ...
+ * ioGroup.dispose();
+ * </pre>
+ *
+ * @author <a href="mailto:dev@directory.apache.org">Apache Directory Project</a>
+ */
+public class LdapIoGroup
+{
+    /** The default number of processors : one per core */
+    public static final int DEFAULT_NB_PROCESSORS = Runtime.getRuntime().availableProcessors();
+
+    /** A counter used to name the groups threads */
+    private static final AtomicInteger GROUP_COUNTER = new AtomicInteger();
+
+    /** The session attribute holding the handler of the connection */
+    private static final AttributeKey HANDLER_KEY = new AttributeKey( LdapIoGroup.class, "handler" );
+
+    /** The session attribute holding the filters of the connection */
+    private static final AttributeKey FILTER_CHAIN_KEY = new AttributeKey( LdapIoGroup.class, "filterChain" );
+
+    /** The handler of the sessions established after their connection has given up */
+    private static final IoHandler DETACHED_HANDLER = new IoHandlerAdapter();
+
+    /** The shared I/O processors */
+    private final SimpleIoProcessorPool<NioSession> processorPool;
+
+    /** The executor used by the connector to establish the connections */
+    private final ExecutorService connectExecutor;
+
+    /** The connector shared by the connections */
+    private final NioSocketConnector connector;
+
+    /** The number of I/O processors */
+    private final int nbProcessors;
+
+
+    /**
+     * Creates a new instance of LdapIoGroup, with one I/O processor per core.
+     */
+    public LdapIoGroup()
+    {
+        this( DEFAULT_NB_PROCESSORS );
+    }
+
+
+    /**
+     * Creates a new instance of LdapIoGroup.
+     *
+     * @param nbProcessors The number of I/O processors. If it's 0 or below, one processor
+     * per core is used
+     */
+    public LdapIoGroup( int nbProcessors )
+    {
+        if ( nbProcessors <= 0 )
+        {
+            nbProcessors = DEFAULT_NB_PROCESSORS;
+        }
+
+        this.nbProcessors = nbProcessors;
+        processorPool = new SimpleIoProcessorPool<>( NioProcessor.class, nbProcessors );
+        connectExecutor = Executors.newCachedThreadPool( new ConnectThreadFactory() );
+
+        connector = new NioSocketConnector( connectExecutor, processorPool );
+        connector.setHandler( new SessionHandler() );
+        connector.setFilterChainBuilder( LdapIoGroup::buildFilterChain );
+
+        // The connections default socket configuration
+        connector.getSessionConfig().setReuseAddress( true );
+        connector.getSessionConfig().setTcpNoDelay( true );
+    }
+
+
+    /**
+     * Establishes a session with the shared connector. The session gets the handler, the filters
+     * and the socket configuration of the connection, before any event is fired.
+     *
+     * @param address The server address
+     * @param handler The handler of the connection
+     * @param filterChainBuilder The filters of the connection
+     * @param sessionConfig The socket configuration of the connection, or null to use the default one
+     * @return The connection future
+     */
+    ConnectFuture connect( SocketAddress address, IoHandler handler, IoFilterChainBuilder filterChainBuilder,
+        SocketSessionConfig sessionConfig )
+    {
+        return connector.connect( address, ( IoSession session, ConnectFuture future ) ->
+        {
+            session.setAttribute( HANDLER_KEY, handler );
+            session.setAttribute( FILTER_CHAIN_KEY, filterChainBuilder );
+
+            if ( sessionConfig != null )
+            {
+                session.getConfig().setAll( sessionConfig );
+            }
+        } );
+    }
+
+
+    /**
+     * Aborts a connection attempt which has timed out or has been interrupted. The shared
+     * connector is not disposed, so the pending connection is cancelled, and if the session
+     * has been established anyway, it's detached from the connection handler and closed.
+     *
+     * @param connectFuture The connection future returned by {@link #connect}
+     */
+    void abort( ConnectFuture connectFuture )
+    {
+        connectFuture.cancel();
+
+        connectFuture.addListener( future ->
+        {
+            if ( ( ( ConnectFuture ) future ).isConnected() )
+            {
+                IoSession session = future.getSession();
+                session.setAttribute( HANDLER_KEY, DETACHED_HANDLER );
+                session.closeNow();
+            }
+        } );
+    }
+
+
+    /**
+     * @return The connector shared by the connections of this group
+     */
+    IoConnector getConnector()
+    {
+        return connector;
+    }
+
+
+    /**
+     * Builds the filter chain of a new session with the filters of its connection
+     *
+     * @param chain The session filter chain
+     * @throws Exception If the chain can't be built
+     */
+    private static void buildFilterChain( IoFilterChain chain ) throws Exception
+    {
+        IoFilterChainBuilder filterChainBuilder = ( IoFilterChainBuilder ) chain.getSession()
+            .getAttribute( FILTER_CHAIN_KEY );
+
+        if ( filterChainBuilder != null )
+        {
+            filterChainBuilder.buildFilterChain( chain );
+        }
+    }
+
+
+    /**
+     * @param session A session of the shared connector
+     * @return The handler of the connection owning the session
+     */
+    private static IoHandler handlerOf( IoSession session )
+    {
+        return ( IoHandler ) session.getAttribute( HANDLER_KEY );
+    }
+
+
+    /**
+     * @return The number of sessions established by the connections of this group
+     */
+    public int getManagedSessionCount()
+    {
+        return connector.getManagedSessionCount();
+    }
+
+
+    /**
+     * @return The number of I/O processors
+     */
+    public int getNbProcessors()
+    {
+        return nbProcessors;
+    }
+
+
+    /**
+     * @return <tt>true</tt> if the group has been disposed
+     */
+    public boolean isDisposed()
+    {
+        return connector.isDisposing() || connector.isDisposed();
+    }
+
+
+    /**
+     * Dispose the connector, the I/O processors and the threads of this group. The sessions
+     * which are still open are closed.
+     */
+    public void dispose()
+    {
+        // Disposing the connector does not dispose the processors and the executor it was given
+        connector.dispose();
+        processorPool.dispose();
+        connectExecutor.shutdownNow();
+    }
+
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public String toString()
+    {
+        return "LdapIoGroup[" + nbProcessors + " processors]";
+    }
+
+
+    /**
+     * The handler of the shared connector, dispatching the events to the handler of the
+     * connection owning the session
+     */
+    private static class SessionHandler implements IoHandler
+    {
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public void sessionCreated( IoSession session ) throws Exception
+        {
+            handlerOf( session ).sessionCreated( session );
+        }
+
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public void sessionOpened( IoSession session ) throws Exception
+        {
+            handlerOf( session ).sessionOpened( session );
+        }
+
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public void sessionClosed( IoSession session ) throws Exception
+        {
+            handlerOf( session ).sessionClosed( session );
+        }
+
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public void sessionIdle( IoSession session, IdleStatus status ) throws Exception
+        {
+            handlerOf( session ).sessionIdle( session, status );
+        }
+
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public void exceptionCaught( IoSession session, Throwable cause ) throws Exception
+        {
+            handlerOf( session ).exceptionCaught( session, cause );
+        }
+
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public void messageReceived( IoSession session, Object message ) throws Exception
+        {
+            handlerOf( session ).messageReceived( session, message );
+        }
+
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public void messageSent( IoSession session, Object message ) throws Exception
+        {
+            handlerOf( session ).messageSent( session, message );
+        }
+
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public void inputClosed( IoSession session ) throws Exception
+        {
+            handlerOf( session ).inputClosed( session );
+        }
+
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public void event( IoSession session, FilterEvent event ) throws Exception
+        {
+            handlerOf( session ).event( session, event );
+        }
+    }
+
+
+    /**
+     * The factory creating the daemon threads used to establish the connections
+     */
+    private static class ConnectThreadFactory implements ThreadFactory
+    {
+        /** The prefix of the thread names */
+        private final String prefix = "LdapIoGroup-" + GROUP_COUNTER.incrementAndGet() + "-connect-";
+
+        /** The threads counter */
+        private final AtomicInteger threadCounter = new AtomicInteger();
+
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public Thread newThread( Runnable runnable )
+        {
+            Thread thread = new Thread( runnable, prefix + threadCounter.incrementAndGet() );
+            thread.setDaemon( true );
+
+            return thread;
+        }
+    }
+}
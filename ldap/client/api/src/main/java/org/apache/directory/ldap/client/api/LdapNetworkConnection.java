@@ -34,13 +34,14 @@ import java.nio.charset.Charset;
 import java.nio.file.Files;
 import java.nio.file.Paths;
 import java.security.PrivilegedExceptionAction;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Deque;
 import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.CompletableFuture;
-import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
@@ -124,6 +125,8 @@ import org.apache.directory.api.ldap.model.message.OpaqueExtendedResponse;
 import org.apache.directory.api.ldap.model.message.Request;
 import org.apache.directory.api.ldap.model.message.Response;
 import org.apache.directory.api.ldap.model.message.ResultCodeEnum;
+import org.apache.directory.api.ldap.model.message.ResultResponse;
+import org.apache.directory.api.ldap.model.message.ResultResponseRequest;
 import org.apache.directory.api.ldap.model.message.SearchRequest;
 import org.apache.directory.api.ldap.model.message.SearchRequestImpl;
 import org.apache.directory.api.ldap.model.message.SearchResultDone;
@@ -169,6 +172,11 @@ import org.apache.directory.ldap.client.api.future.ModifyDnFuture;
 import org.apache.directory.ldap.client.api.future.ModifyFuture;
 import org.apache.directory.ldap.client.api.future.ResponseFuture;
 import org.apache.directory.ldap.client.api.future.SearchFuture;
+import org.apache.directory.ldap.client.api.future.SearchListener;
+import org.apache.directory.ldap.client.api.future.SearchSubscriber;
+import org.apache.directory.ldap.client.api.transport.LdapTransportHandler;
+import org.apache.directory.ldap.client.api.transport.LdapTransportSession;
+import org.apache.mina.core.filterchain.DefaultIoFilterChainBuilder;
 import org.apache.mina.core.filterchain.IoFilter;
 import org.apache.mina.core.filterchain.IoFilterChain;
 import org.apache.mina.core.future.CloseFuture;
@@ -230,6 +238,12 @@ public class LdapNetworkConnection extends AbstractLdapConnection implements Lda
     /** The connector open with the remote server */
     private IoConnector connector;
 
+    /** The group sharing its connector with this connection, if any */
+    private LdapIoGroup ioGroup;
+
+    /** The filters added to the session of this connection */
+    private DefaultIoFilterChainBuilder filterChainBuilder;
+
     /** A mutex used to avoid a double close of the connector */
     private ReentrantLock connectorMutex = new ReentrantLock();
 
@@ -239,8 +253,17 @@ public class LdapNetworkConnection extends AbstractLdapConnection implements Lda
      */
     private IoSession ioSession;
 
-    /** a map to hold the ResponseFutures for all operations */
-    private Map<Integer, ResponseFuture<? extends Response>> futureMap = new ConcurrentHashMap<>();
+    /**
+     * The session created by the transport set in the configuration, if any. It's
+     * used instead of the MINA session.
+     */
+    private LdapTransportSession transportSession;
+
+    /** The last exception received on the transport session */
+    private volatile Throwable transportException;
+
+    /** a table to hold the ResponseFutures for all operations, indexed by their message ID */
+    private final ResponseFutureTable futureMap;
 
     /** list of controls supported by the server */
     private List<String> supportedControls;
@@ -251,6 +274,12 @@ public class LdapNetworkConnection extends AbstractLdapConnection implements Lda
     /** A flag indicating that the BindRequest has been issued and successfully authenticated the user */
     private AtomicBoolean authenticated = new AtomicBoolean( false );
 
+    /** The number of search subscriptions which have suspended the reads */
+    private int readSuspensions;
+
+    /** The lock protecting the reads suspension */
+    private final Object readSuspensionLock = new Object();
+
     /** a list of listeners interested in getting notified when the
      *  connection's session gets closed cause of network issues
      */
@@ -259,6 +288,9 @@ public class LdapNetworkConnection extends AbstractLdapConnection implements Lda
     /** The LDAP codec protocol filter */
     private IoFilter ldapProtocolFilter = new ProtocolCodecFilter( codec.getProtocolCodecFactory() );
 
+    /** The filter coalescing the requests, when pipelining */
+    private WriteCoalescingFilter writeCoalescingFilter;
+
     /** The LDAP coded protocol filter key */
     private static final String LDAP_CODEC_FILTER_KEY = "ldapCodec";
 
@@ -268,6 +300,9 @@ public class LdapNetworkConnection extends AbstractLdapConnection implements Lda
     /** The SaslFilter key */
     private static final String SASL_FILTER_KEY = "saslFilter";
 
+    /** The WriteCoalescingFilter key */
+    private static final String WRITE_COALESCING_FILTER_KEY = "writeCoalescingFilter";
+
     /** The exception stored in the session if we've got one */
     private static final String EXCEPTION_KEY = "sessionException";
 
@@ -318,6 +353,7 @@ public class LdapNetworkConnection extends AbstractLdapConnection implements Lda
     {
         super( ldapApiService );
         this.config = config;
+        futureMap = new ResponseFutureTable( config.getMaxOutstandingRequests() );
 
         if ( config.getBinaryAttributeDetector() == null )
         {
@@ -539,31 +575,86 @@ public class LdapNetworkConnection extends AbstractLdapConnection implements Lda
      */
     private void createConnector() throws LdapException
     {
-        // Use only one thread inside the connector
-        connector = new NioSocketConnector( 1 );
-        SocketSessionConfig socketSessionConfig = ( ( SocketSessionConfig ) connector.getSessionConfig() );
-        
-        if ( this.socketSessionConfig != null )
+        ioGroup = config.getIoGroup();
+
+        if ( ioGroup != null )
         {
-            socketSessionConfig.setAll( this.socketSessionConfig );
+            // Use the shared connector : the session gets the filters, the handler and
+            // the socket configuration of this connection when it's created
+            connector = ioGroup.getConnector();
+            filterChainBuilder = new DefaultIoFilterChainBuilder();
         }
         else
         {
-            socketSessionConfig.setReuseAddress( true );
-            socketSessionConfig.setTcpNoDelay( true );
+            // Use only one thread inside the connector
+            connector = new NioSocketConnector( 1 );
+            filterChainBuilder = connector.getFilterChain();
+
+            SocketSessionConfig socketSessionConfig = ( ( SocketSessionConfig ) connector.getSessionConfig() );
+            
+            if ( this.socketSessionConfig != null )
+            {
+                socketSessionConfig.setAll( this.socketSessionConfig );
+            }
+            else
+            {
+                socketSessionConfig.setReuseAddress( true );
+                socketSessionConfig.setTcpNoDelay( true );
+            }
+
+            // Inject the protocolHandler
+            connector.setHandler( this );
         }
         
+        // Coalesce the encoded requests if we are pipelining
+        if ( config.isPipelining() )
+        {
+            writeCoalescingFilter = new WriteCoalescingFilter( config.getPipeliningFlushDelay(),
+                config.getPipeliningFlushThreshold() );
+            filterChainBuilder.addLast( WRITE_COALESCING_FILTER_KEY, writeCoalescingFilter );
+        }
+
         // Add the codec to the chain
-        connector.getFilterChain().addLast( LDAP_CODEC_FILTER_KEY, ldapProtocolFilter );
+        filterChainBuilder.addLast( LDAP_CODEC_FILTER_KEY, ldapProtocolFilter );
 
         // If we use SSL, we have to add the SslFilter to the chain
         if ( config.isUseSsl() )
         {
             addSslFilter();
         }
+    }
+
+
+    /**
+     * Give up a connection attempt. Disposing an unshared connector stops it, a shared one
+     * has to cancel it, and to close the session if it has been established in the meantime.
+     *
+     * @param connectionFuture The connection future
+     */
+    private void abortConnect( ConnectFuture connectionFuture )
+    {
+        if ( ioGroup != null )
+        {
+            ioGroup.abort( connectionFuture );
+        }
 
-        // Inject the protocolHandler
-        connector.setHandler( this );
+        disposeConnector();
+    }
+
+
+    /**
+     * Release the connector. It's disposed, unless it's shared with other connections.
+     */
+    private void disposeConnector()
+    {
+        if ( ( connector != null ) && ( ioGroup == null ) && !connector.isDisposing() && !connector.isDisposed() )
+        {
+            connector.dispose();
+        }
+
+        connector = null;
+        ioGroup = null;
+        filterChainBuilder = null;
     }
 
 
@@ -574,6 +665,11 @@ public class LdapNetworkConnection extends AbstractLdapConnection implements Lda
     @Override
     public boolean isConnected()
     {
+        if ( transportSession != null )
+        {
+            return transportSession.isConnected();
+        }
+
         return ( ioSession != null ) && ioSession.isConnected() && !ioSession.isClosing();
         
     }
@@ -596,6 +692,11 @@ public class LdapNetworkConnection extends AbstractLdapConnection implements Lda
      */
     public boolean isSecured()
     {
+        if ( transportSession != null )
+        {
+            return isConnected() && transportSession.isSecured();
+        }
+
         return isConnected() && ioSession.isSecured();
     }
 
@@ -606,6 +707,11 @@ public class LdapNetworkConnection extends AbstractLdapConnection implements Lda
     @Override
     public Throwable exceptionCaught()
     {
+        if ( transportSession != null )
+        {
+            return transportException;
+        }
+
         return ( Throwable ) ioSession.getAttribute( EXCEPTION_KEY );
     }
     
@@ -618,7 +724,7 @@ public class LdapNetworkConnection extends AbstractLdapConnection implements Lda
      */
     private void checkSession() throws InvalidConnectionException
     {
-        if ( ioSession == null )
+        if ( ( ioSession == null ) && ( transportSession == null ) )
         {
             throw new InvalidConnectionException( I18n.err( I18n.ERR_04104_NULL_CONNECTION_CANNOT_CONNECT ) );
         }
@@ -716,7 +822,17 @@ public class LdapNetworkConnection extends AbstractLdapConnection implements Lda
         
         // Build the connection address
         SocketAddress address = new InetSocketAddress( config.getLdapHost(), config.getLdapPort() );
-        ConnectFuture connectionFuture = connector.connect( address );
+        ConnectFuture connectionFuture;
+
+        if ( ioGroup != null )
+        {
+            connectionFuture = ioGroup.connect( address, this, filterChainBuilder, socketSessionConfig );
+        }
+        else
+        {
+            connectionFuture = connector.connect( address );
+        }
+
         boolean result = false;
 
         // Wait until it's established
@@ -726,8 +842,7 @@ public class LdapNetworkConnection extends AbstractLdapConnection implements Lda
         }
         catch ( InterruptedException e )
         {
-            connector.dispose();
-            connector = null;
+            abortConnect( connectionFuture );
 
             if ( LOG.isDebugEnabled() )
             {
@@ -744,12 +859,7 @@ public class LdapNetworkConnection extends AbstractLdapConnection implements Lda
             // It may be an exception, or a timeout
             Throwable connectionException = connectionFuture.getException();
 
-            if ( ( connector != null ) && !connector.isDisposing() && !connector.isDisposed() )
-            { 
-                connector.dispose();
-            }
-
-            connector = null;
+            abortConnect( connectionFuture );
 
             if ( connectionException == null )
             {
@@ -880,68 +990,80 @@ public class LdapNetworkConnection extends AbstractLdapConnection implements Lda
         // Get the close future for this session
         CloseFuture closeFuture = connectionFuture.getSession().getCloseFuture();
         
-        closeFuture.addListener( future -> 
+        closeFuture.addListener( future -> setNoDResponses() );
+    }
+    
+    
+    /**
+     * Cancel all the waiting operations, and give them a NoticeOfDisconnect response
+     */
+    private void setNoDResponses()
+    {
+        // Process all the waiting operations and cancel them
+        if ( LOG.isDebugEnabled() )
         {
-            // Process all the waiting operations and cancel them
-            if ( LOG.isDebugEnabled() )
-            {
-                LOG.debug( I18n.msg( I18n.MSG_04137_NOD_RECEIVED ) );
-            }
+            LOG.debug( I18n.msg( I18n.MSG_04137_NOD_RECEIVED ) );
+        }
 
-            for ( ResponseFuture<?> responseFuture : futureMap.values() )
-            {
-                if ( LOG.isDebugEnabled() )
-                {
-                    LOG.debug( I18n.msg( I18n.MSG_04137_NOD_RECEIVED ) );
-                }
+        futureMap.drain( this::setNoDResponse );
+    }
 
-                responseFuture.cancel();
 
-                try
-                {
-                    if ( responseFuture instanceof AddFuture )
-                    {
-                        ( ( AddFuture ) responseFuture ).set( AddNoDResponse.PROTOCOLERROR );
-                    }
-                    else if ( responseFuture instanceof BindFuture )
-                    {
-                        ( ( BindFuture ) responseFuture ).set( BindNoDResponse.PROTOCOLERROR );
-                    }
-                    else if ( responseFuture instanceof CompareFuture )
-                    {
-                        ( ( CompareFuture ) responseFuture ).set( CompareNoDResponse.PROTOCOLERROR );
-                    }
-                    else if ( responseFuture instanceof DeleteFuture )
-                    {
-                        ( ( DeleteFuture ) responseFuture ).set( DeleteNoDResponse.PROTOCOLERROR );
-                    }
-                    else if ( responseFuture instanceof ExtendedFuture )
-                    {
-                        ( ( ExtendedFuture ) responseFuture ).set( ExtendedNoDResponse.PROTOCOLERROR );
-                    }
-                    else if ( responseFuture instanceof ModifyFuture )
-                    {
-                        ( ( ModifyFuture ) responseFuture ).set( ModifyNoDResponse.PROTOCOLERROR );
-                    }
-                    else if ( responseFuture instanceof ModifyDnFuture )
-                    {
-                        ( ( ModifyDnFuture ) responseFuture ).set( ModifyDnNoDResponse.PROTOCOLERROR );
-                    }
-                    else if ( responseFuture instanceof SearchFuture )
-                    {
-                        ( ( SearchFuture ) responseFuture ).set( SearchNoDResponse.PROTOCOLERROR );
-                    }
-                }
-                catch ( InterruptedException e )
-                {
-                    LOG.error( I18n.err( I18n.ERR_04113_ERROR_PROCESSING_NOD, responseFuture ), e );
-                }
+    /**
+     * Cancel an operation, and set a NoticeOfDisconnection response in its future
+     *
+     * @param responseFuture The operation future
+     */
+    private void setNoDResponse( ResponseFuture<? extends Response> responseFuture )
+    {
+        if ( LOG.isDebugEnabled() )
+        {
+            LOG.debug( I18n.msg( I18n.MSG_04137_NOD_RECEIVED ) );
+        }
 
-                futureMap.remove( messageId.get() );
+        try
+        {
+            if ( responseFuture instanceof AddFuture )
+            {
+                ( ( AddFuture ) responseFuture ).set( AddNoDResponse.PROTOCOLERROR );
+            }
+            else if ( responseFuture instanceof BindFuture )
+            {
+                ( ( BindFuture ) responseFuture ).set( BindNoDResponse.PROTOCOLERROR );
+            }
+            else if ( responseFuture instanceof CompareFuture )
+            {
+                ( ( CompareFuture ) responseFuture ).set( CompareNoDResponse.PROTOCOLERROR );
+            }
+            else if ( responseFuture instanceof DeleteFuture )
+            {
+                ( ( DeleteFuture ) responseFuture ).set( DeleteNoDResponse.PROTOCOLERROR );
+            }
+            else if ( responseFuture instanceof ExtendedFuture )
+            {
+                ( ( ExtendedFuture ) responseFuture ).set( ExtendedNoDResponse.PROTOCOLERROR );
+            }
+            else if ( responseFuture instanceof ModifyFuture )
+            {
+                ( ( ModifyFuture ) responseFuture ).set( ModifyNoDResponse.PROTOCOLERROR );
+            }
+            else if ( responseFuture instanceof ModifyDnFuture )
+            {
+                ( ( ModifyDnFuture ) responseFuture ).set( ModifyDnNoDResponse.PROTOCOLERROR );
+            }
+            else if ( responseFuture instanceof SearchFuture )
+            {
+                ( ( SearchFuture ) responseFuture ).set( SearchNoDResponse.PROTOCOLERROR );
             }
+        }
+        catch ( InterruptedException e )
+        {
+            LOG.error( I18n.err( I18n.ERR_04113_ERROR_PROCESSING_NOD, responseFuture ), e );
+        }
 
-            futureMap.clear();
-        } );
+        // The future is marked as cancelled once it has got its response, so that
+        // its completion stage is completed with the NoticeOfDisconnection
+        responseFuture.cancel();
     }
     
     
@@ -950,10 +1072,7 @@ public class LdapNetworkConnection extends AbstractLdapConnection implements Lda
      */
     private void setBinaryDetector()
     {
-        @SuppressWarnings("unchecked")
-        LdapMessageContainer<? extends Message> container =
-            ( LdapMessageContainer<? extends Message> ) ioSession
-                .getAttribute( LdapDecoder.MESSAGE_CONTAINER_ATTR );
+        LdapMessageContainer<Message> container = getMessageContainer();
 
         if ( container != null )
         {
@@ -971,8 +1090,79 @@ public class LdapNetworkConnection extends AbstractLdapConnection implements Lda
                 atDetector = new SchemaBinaryAttributeDetector( schemaManager );
             }
 
-            ioSession.setAttribute( LdapDecoder.MESSAGE_CONTAINER_ATTR,
-                new LdapMessageContainer<Message>( codec, atDetector ) );
+            LdapMessageContainer<Message> messageContainer = new LdapMessageContainer<>( codec, atDetector );
+            messageContainer.setLazyEntries( config.isLazyEntries() );
+            messageContainer.setAttributeFilter( config.getAttributeFilter() );
+
+            setMessageContainer( messageContainer );
+        }
+    }
+
+
+    /**
+     * @return The container used to decode the messages received on the session, if any
+     */
+    @SuppressWarnings("unchecked")
+    private LdapMessageContainer<Message> getMessageContainer()
+    {
+        if ( transportSession != null )
+        {
+            return transportSession.getMessageContainer();
+        }
+
+        return ( LdapMessageContainer<Message> ) ioSession.getAttribute( LdapDecoder.MESSAGE_CONTAINER_ATTR );
+    }
+
+
+    /**
+     * Set the container used to decode the messages received on the session
+     *
+     * @param messageContainer The message container
+     */
+    private void setMessageContainer( LdapMessageContainer<Message> messageContainer )
+    {
+        if ( transportSession != null )
+        {
+            transportSession.setMessageContainer( messageContainer );
+        }
+        else
+        {
+            ioSession.setAttribute( LdapDecoder.MESSAGE_CONTAINER_ATTR, messageContainer );
+        }
+    }
+
+
+    /**
+     * Create the container used to decode the messages received on a new session
+     *
+     * @return The message container
+     */
+    private LdapMessageContainer<Message> createMessageContainer()
+    {
+        LdapMessageContainer<Message> ldapMessageContainer =
+            new LdapMessageContainer<>(
+                codec, config.getBinaryAttributeDetector() );
+        
+        ldapMessageContainer.setDnFactory( new DefaultDnFactory( schemaManager, 1000 ) );
+        ldapMessageContainer.setLazyEntries( config.isLazyEntries() );
+        ldapMessageContainer.setAttributeFilter( config.getAttributeFilter() );
+
+        return ldapMessageContainer;
+    }
+
+
+    /**
+     * Close the session, whichever transport it uses
+     */
+    private void closeSession()
+    {
+        if ( transportSession != null )
+        {
+            transportSession.close();
+        }
+        else
+        {
+            ioSession.closeNow();
         }
     }
     
@@ -990,6 +1180,11 @@ public class LdapNetworkConnection extends AbstractLdapConnection implements Lda
             return true;
         }
         
+        if ( config.getTransport() != null )
+        {
+            return connectTransport();
+        }
+        
         try
         {
             // And create the connection future
@@ -1035,12 +1230,47 @@ public class LdapNetworkConnection extends AbstractLdapConnection implements Lda
         }
         catch ( Exception e )
         {
-            if ( ( connector != null ) && !connector.isDisposing() && !connector.isDisposed() ) 
+            disposeConnector();
+
+            throw e;
+        }
+    }
+    
+    
+    /**
+     * Connect using the transport set in the configuration
+     *
+     * @return <tt>true</tt> if the connection is established
+     * @throws LdapException If we weren't able to connect
+     */
+    private boolean connectTransport() throws LdapException
+    {
+        transportException = null;
+        transportSession = config.getTransport().connect( config, new TransportHandler(), connectTimeout );
+
+        try
+        {
+            // Store the container into the session if we don't have one
+            setBinaryDetector();
+    
+            // Initialize the MessageId
+            messageId.set( 0 );
+            
+            connectionCloseFuture = new CompletableFuture<>();
+
+            // establish TLS layer if TLS is enabled and SSL is NOT
+            if ( config.isUseTls() && !config.isUseSsl() )
             {
-                connector.dispose();
-                connector = null;
+                startTls();
             }
 
+            // And return
+            return true;
+        }
+        catch ( Exception e )
+        {
+            transportSession.close();
+
             throw e;
         }
     }
@@ -1052,6 +1282,13 @@ public class LdapNetworkConnection extends AbstractLdapConnection implements Lda
     @Override
     public ConnectFuture connectAsync()  throws LdapException
     {
+        if ( config.getTransport() != null )
+        {
+            // The ConnectFuture is a MINA future
+            throw new LdapException( I18n.err( I18n.ERR_04181_ASYNC_CONNECT_NOT_SUPPORTED_BY_TRANSPORT,
+                config.getTransport().getClass().getName() ) );
+        }
+
         // Create the connector if needed
         if ( connector == null )
         {
@@ -1074,12 +1311,13 @@ public class LdapNetworkConnection extends AbstractLdapConnection implements Lda
         // Close the session
         if ( isConnected() )
         {
-            ioSession.closeNow();
+            closeSession();
         }
 
         try
         {
-            if ( ( ioSession != null ) && ioSession.isConnected() )
+            if ( ( ( transportSession != null ) && transportSession.isConnected() )
+                || ( ( ioSession != null ) && ioSession.isConnected() ) )
             { 
                 connectionCloseFuture.get( closeTimeout, TimeUnit.MILLISECONDS );
             }
@@ -1180,6 +1418,7 @@ public class LdapNetworkConnection extends AbstractLdapConnection implements Lda
         }
 
         AddFuture addFuture = addAsync( addRequest );
+        flush();
 
         // Get the result from the future
         try
@@ -1348,7 +1587,14 @@ public class LdapNetworkConnection extends AbstractLdapConnection implements Lda
         abandonRequest.setMessageId( newId );
 
         // Send the request to the server
-        ioSession.write( abandonRequest );
+        if ( transportSession != null )
+        {
+            transportSession.write( abandonRequest );
+        }
+        else
+        {
+            ioSession.write( abandonRequest );
+        }
 
         // remove the associated listener if any
         int abandonId = abandonRequest.getAbandoned();
@@ -1575,6 +1821,7 @@ public class LdapNetworkConnection extends AbstractLdapConnection implements Lda
         }
 
         BindFuture bindFuture = bindAsync( bindRequest );
+        flush();
 
         // Get the result from the future
         try
@@ -1736,6 +1983,7 @@ public class LdapNetworkConnection extends AbstractLdapConnection implements Lda
         saslRequest.setCredentials( credentials );
 
         BindFuture bindFuture = bindAsync( saslRequest );
+        flush();
 
         // Get the result from the future
         try
@@ -1808,6 +2056,7 @@ public class LdapNetworkConnection extends AbstractLdapConnection implements Lda
         }
 
         BindFuture bindFuture = bindAsync( request );
+        flush();
 
         // Get the result from the future
         try
@@ -1916,6 +2165,7 @@ public class LdapNetworkConnection extends AbstractLdapConnection implements Lda
         }
 
         BindFuture bindFuture = bindAsync( request );
+        flush();
 
         // Get the result from the future
         try
@@ -2002,6 +2252,7 @@ public class LdapNetworkConnection extends AbstractLdapConnection implements Lda
         }
 
         BindFuture bindFuture = bindAsync( request );
+        flush();
 
         // Get the result from the future
         try
@@ -2074,6 +2325,7 @@ public class LdapNetworkConnection extends AbstractLdapConnection implements Lda
         }
 
         BindFuture bindFuture = bindAsync( request );
+        flush();
 
         // Get the result from the future
         try
@@ -2146,6 +2398,7 @@ public class LdapNetworkConnection extends AbstractLdapConnection implements Lda
         }
 
         BindFuture bindFuture = bindAsync( request );
+        flush();
 
         // Get the result from the future
         try
@@ -2350,27 +2603,103 @@ public class LdapNetworkConnection extends AbstractLdapConnection implements Lda
     @Override
     public SearchFuture searchAsync( SearchRequest searchRequest ) throws LdapException
     {
-        if ( searchRequest == null )
+        return searchAsync( searchRequest, ( SearchListener ) null );
+    }
+
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public SearchFuture searchAsync( SearchRequest searchRequest, SearchSubscriber subscriber ) throws LdapException
+    {
+        SearchSubscriptionImpl subscription = new SearchSubscriptionImpl( this, subscriber,
+            config.getSearchHighWatermark() );
+        SearchFuture searchFuture = searchAsync( searchRequest, subscription );
+        subscription.start( searchFuture );
+
+        return searchFuture;
+    }
+
+
+    /**
+     * Stop reading the responses sent by the server, on behalf of a search subscription
+     * which does not keep up. The reads are suspended until all the subscriptions which
+     * have called this method have called {@link #resumeRead()}.
+     */
+    void suspendRead()
+    {
+        synchronized ( readSuspensionLock )
         {
-            String msg = I18n.err( I18n.ERR_04130_CANNOT_PROCESS_NULL_SEARCH_REQ );
+            readSuspensions++;
 
-            if ( LOG.isDebugEnabled() )
+            if ( readSuspensions == 1 )
             {
-                LOG.debug( msg );
+                if ( transportSession != null )
+                {
+                    transportSession.suspendRead();
+                }
+                else if ( ioSession != null )
+                {
+                    ioSession.suspendRead();
+                }
             }
-            
-            throw new IllegalArgumentException( msg );
         }
+    }
 
-        if ( searchRequest.getBase() == null )
+
+    /**
+     * Read again the responses sent by the server, once a search subscription has
+     * consumed its buffered responses.
+     */
+    void resumeRead()
+    {
+        synchronized ( readSuspensionLock )
         {
-            String msg = I18n.err( I18n.ERR_04131_CANNOT_PROCESS_SEARCH_NULL_DN );
+            readSuspensions--;
 
-            if ( LOG.isDebugEnabled() )
+            if ( readSuspensions == 0 )
             {
-                LOG.debug( msg );
+                if ( transportSession != null )
+                {
+                    transportSession.resumeRead();
+                }
+                else if ( ioSession != null )
+                {
+                    ioSession.resumeRead();
+                }
             }
-            
+        }
+    }
+
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public SearchFuture searchAsync( SearchRequest searchRequest, SearchListener listener ) throws LdapException
+    {
+        if ( searchRequest == null )
+        {
+            String msg = I18n.err( I18n.ERR_04130_CANNOT_PROCESS_NULL_SEARCH_REQ );
+
+            if ( LOG.isDebugEnabled() )
+            {
+                LOG.debug( msg );
+            }
+            
+            throw new IllegalArgumentException( msg );
+        }
+
+        if ( searchRequest.getBase() == null )
+        {
+            String msg = I18n.err( I18n.ERR_04131_CANNOT_PROCESS_SEARCH_NULL_DN );
+
+            if ( LOG.isDebugEnabled() )
+            {
+                LOG.debug( msg );
+            }
+            
             throw new IllegalArgumentException( msg );
         }
 
@@ -2394,7 +2723,7 @@ public class LdapNetworkConnection extends AbstractLdapConnection implements Lda
             LOG.debug( I18n.msg( I18n.MSG_04104_SENDING_REQUEST, searchRequest ) );
         }
 
-        SearchFuture searchFuture = new SearchFuture( this, searchRequest.getMessageId() );
+        SearchFuture searchFuture = new SearchFuture( this, searchRequest.getMessageId(), listener );
         addToFutureMap( searchRequest.getMessageId(), searchFuture );
 
         // Send the request to the server
@@ -2461,6 +2790,7 @@ public class LdapNetworkConnection extends AbstractLdapConnection implements Lda
         }
 
         SearchFuture searchFuture = searchAsync( searchRequest );
+        flush();
 
         return new SearchCursorImpl( searchFuture, localSearchTimeout, TimeUnit.MILLISECONDS );
     }
@@ -2492,9 +2822,32 @@ public class LdapNetworkConnection extends AbstractLdapConnection implements Lda
 
         // Send the request to the server
         // Use this for logging instead: WriteFuture unbindFuture = ldapSession.write( unbindRequest )
-        WriteFuture unbindFuture = ioSession.write( unbindRequest );
-
-        unbindFuture.awaitUninterruptibly( sendTimeout );
+        if ( transportSession != null )
+        {
+            try
+            {
+                transportSession.write( unbindRequest ).get( sendTimeout, TimeUnit.MILLISECONDS );
+            }
+            catch ( TimeoutException | ExecutionException e )
+            {
+                // The server may already have closed the session
+                if ( LOG.isDebugEnabled() )
+                {
+                    LOG.debug( e.getMessage(), e );
+                }
+            }
+            catch ( InterruptedException e )
+            {
+                Thread.currentThread().interrupt();
+            }
+        }
+        else
+        {
+            WriteFuture unbindFuture = ioSession.write( unbindRequest );
+            flush();
+    
+            unbindFuture.awaitUninterruptibly( sendTimeout );
+        }
 
         try
         {
@@ -2524,6 +2877,8 @@ public class LdapNetworkConnection extends AbstractLdapConnection implements Lda
     public void setConnector( IoConnector connector )
     {
         this.connector = connector;
+        filterChainBuilder = connector.getFilterChain();
+        ioGroup = null;
     }
 
 
@@ -2576,19 +2931,34 @@ public class LdapNetworkConnection extends AbstractLdapConnection implements Lda
 
         if ( cause instanceof ProtocolEncoderException )
         {
-            Throwable realCause = ( ( ProtocolEncoderException ) cause ).getCause();
+            cancelFailedRequest( cause.getCause() );
+        }
 
-            if ( realCause instanceof MessageEncoderException )
-            {
-                int messageId = ( ( MessageEncoderException ) realCause ).getMessageId();
+        session.closeNow();
+    }
+
+
+    /**
+     * Cancel the request which could not be encoded, if the exception is a
+     * {@link MessageEncoderException}
+     *
+     * @param cause The exception thrown by the encoder
+     */
+    private void cancelFailedRequest( Throwable cause )
+    {
+        if ( cause instanceof MessageEncoderException )
+        {
+            int messageId = ( ( MessageEncoderException ) cause ).getMessageId();
+
+            ResponseFuture<?> response = futureMap.get( messageId );
 
-                ResponseFuture<?> response = futureMap.get( messageId );
+            if ( response != null )
+            {
+                // Set the cause first, the completion stage is completed with it
+                response.setCause( cause );
                 response.cancel( true );
-                response.setCause( realCause );
             }
         }
-
-        session.closeNow();
     }
 
 
@@ -2981,8 +3351,23 @@ public class LdapNetworkConnection extends AbstractLdapConnection implements Lda
     @Override
     public void messageReceived( IoSession session, Object message ) throws Exception
     {
-        // Feed the response and store it into the session
-        Response response = ( Response ) message;
+        if ( !responseReceived( ( Response ) message ) )
+        {
+            // close the session
+            session.closeNow();
+        }
+    }
+
+
+    /**
+     * Process a response received from the server : feed the associated future.
+     *
+     * @param response The received response
+     * @return <tt>false</tt> if the response is a NoticeOfDisconnect, and the session must be closed
+     * @throws Exception If there is some error while processing the response
+     */
+    private boolean responseReceived( Response response ) throws Exception
+    {
 
         if ( LOG.isDebugEnabled() )
         {
@@ -3004,15 +3389,12 @@ public class LdapNetworkConnection extends AbstractLdapConnection implements Lda
                 LOG.info( I18n.msg( I18n.MSG_04166_NO_FUTURE_ASSOCIATED_TO_MSG_ID_IGNORING, responseId ) );
             }
             
-            return;
+            return true;
         }
 
         if ( isNoD )
         {
-            // close the session
-            session.closeNow();
-
-            return;
+            return false;
         }
 
         switch ( response.getType() )
@@ -3075,6 +3457,8 @@ public class LdapNetworkConnection extends AbstractLdapConnection implements Lda
             default:
                 throw new IllegalStateException( I18n.err( I18n.ERR_04132_UNEXPECTED_RESPONSE_TYPE, response.getType() ) );
         }
+
+        return true;
     }
 
     
@@ -3222,6 +3606,7 @@ public class LdapNetworkConnection extends AbstractLdapConnection implements Lda
         }
 
         ModifyFuture modifyFuture = modifyAsync( modRequest );
+        flush();
 
         // Get the result from the future
         try
@@ -3618,6 +4003,7 @@ public class LdapNetworkConnection extends AbstractLdapConnection implements Lda
         }
 
         ModifyDnFuture modifyDnFuture = modifyDnAsync( modDnRequest );
+        flush();
 
         // Get the result from the future
         try
@@ -3840,6 +4226,7 @@ public class LdapNetworkConnection extends AbstractLdapConnection implements Lda
         }
 
         DeleteFuture deleteFuture = deleteAsync( deleteRequest );
+        flush();
 
         // Get the result from the future
         try
@@ -4052,6 +4439,7 @@ public class LdapNetworkConnection extends AbstractLdapConnection implements Lda
         }
 
         CompareFuture compareFuture = compareAsync( compareRequest );
+        flush();
 
         // Get the result from the future
         try
@@ -4250,6 +4638,7 @@ public class LdapNetworkConnection extends AbstractLdapConnection implements Lda
         }
 
         ExtendedFuture extendedFuture = extendedAsync( extendedRequest );
+        flush();
 
         // Get the result from the future
         try
@@ -4355,6 +4744,238 @@ public class LdapNetworkConnection extends AbstractLdapConnection implements Lda
     }
 
 
+    //------------------------ The bulk operations ------------------------//
+
+    /**
+     * An asynchronous operation applied by a bulk operation on each request
+     *
+     * @param <Q> The request type
+     * @param <R> The response type
+     */
+    @FunctionalInterface
+    private interface BulkOperation<Q extends ResultResponseRequest, R extends ResultResponse>
+    {
+        /**
+         * Sends a request
+         *
+         * @param request The request to send
+         * @return The request future
+         * @throws LdapException If the request can't be sent
+         */
+        ResponseFuture<R> send( Q request ) throws LdapException;
+    }
+
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public BulkResult<AddRequest, AddResponse> addAll( Iterable<AddRequest> addRequests ) throws LdapException
+    {
+        return addAll( addRequests, config.getBulkMaxInFlight() );
+    }
+
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public BulkResult<AddRequest, AddResponse> addAll( Iterable<AddRequest> addRequests, int maxInFlight )
+        throws LdapException
+    {
+        return bulk( addRequests, maxInFlight, this::addAsync );
+    }
+
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public BulkResult<ModifyRequest, ModifyResponse> modifyAll( Iterable<ModifyRequest> modifyRequests )
+        throws LdapException
+    {
+        return modifyAll( modifyRequests, config.getBulkMaxInFlight() );
+    }
+
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public BulkResult<ModifyRequest, ModifyResponse> modifyAll( Iterable<ModifyRequest> modifyRequests,
+        int maxInFlight ) throws LdapException
+    {
+        return bulk( modifyRequests, maxInFlight, this::modifyAsync );
+    }
+
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public BulkResult<DeleteRequest, DeleteResponse> deleteAll( Iterable<DeleteRequest> deleteRequests )
+        throws LdapException
+    {
+        return deleteAll( deleteRequests, config.getBulkMaxInFlight() );
+    }
+
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public BulkResult<DeleteRequest, DeleteResponse> deleteAll( Iterable<DeleteRequest> deleteRequests,
+        int maxInFlight ) throws LdapException
+    {
+        return bulk( deleteRequests, maxInFlight, this::deleteAsync );
+    }
+
+
+    /**
+     * Sends all the requests, keeping at most <tt>maxInFlight</tt> of them waiting for
+     * their response. When the window is full, we wait for the oldest request's response
+     * before reading the next request, so the futureMap never holds more than
+     * <tt>maxInFlight</tt> of our futures.
+     *
+     * @param requests The requests to send
+     * @param maxInFlight The number of requests sent without waiting for their response
+     * @param operation The asynchronous operation to apply on each request
+     * @return The number of successful requests, and the outcome of the failed ones
+     * @throws LdapException If the thread has been interrupted
+     */
+    private <Q extends ResultResponseRequest, R extends ResultResponse> BulkResult<Q, R> bulk( Iterable<Q> requests,
+        int maxInFlight, BulkOperation<Q, R> operation ) throws LdapException
+    {
+        if ( maxInFlight <= 0 )
+        {
+            String msg = I18n.err( I18n.ERR_04182_INVALID_MAX_IN_FLIGHT, maxInFlight );
+
+            if ( LOG.isDebugEnabled() )
+            {
+                LOG.debug( msg );
+            }
+
+            throw new IllegalArgumentException( msg );
+        }
+
+        BulkResult<Q, R> result = new BulkResult<>();
+        Deque<BulkResult.Item<Q, R>> inFlight = new ArrayDeque<>( maxInFlight );
+
+        try
+        {
+            for ( Q request : requests )
+            {
+                if ( inFlight.size() == maxInFlight )
+                {
+                    waitForResponse( result, inFlight.peek() );
+                    inFlight.poll();
+                }
+
+                BulkResult.Item<Q, R> item = result.add( request );
+
+                try
+                {
+                    item.future = operation.send( request );
+                    inFlight.add( item );
+                }
+                catch ( IllegalArgumentException iae )
+                {
+                    // An invalid request : just skip it
+                    result.setCause( item, iae );
+                }
+                catch ( LdapException le )
+                {
+                    // The connection can't be used anymore
+                    result.setCause( item, le );
+                    result.setIncomplete();
+
+                    break;
+                }
+            }
+
+            while ( !inFlight.isEmpty() )
+            {
+                waitForResponse( result, inFlight.peek() );
+                inFlight.poll();
+            }
+        }
+        catch ( InterruptedException ie )
+        {
+            Thread.currentThread().interrupt();
+
+            // Abandon the pending requests, the one we were waiting for included : it's
+            // only removed from the window once its response has been processed
+            for ( BulkResult.Item<Q, R> item : inFlight )
+            {
+                item.future.setCause( ie );
+                item.future.cancel( true );
+                result.setCause( item, ie );
+            }
+
+            throw new LdapException( NO_RESPONSE_ERROR, ie );
+        }
+
+        return result;
+    }
+
+
+    /**
+     * Waits for the response to a request sent by a bulk operation
+     *
+     * @param result The bulk operation result
+     * @param item The request item
+     * @throws InterruptedException If the thread has been interrupted
+     */
+    private <Q extends ResultResponseRequest, R extends ResultResponse> void waitForResponse( BulkResult<Q, R> result,
+        BulkResult.Item<Q, R> item ) throws InterruptedException
+    {
+        ResponseFuture<R> future = item.future;
+
+        // The request may still be waiting to be written
+        flush();
+
+        try
+        {
+            R response = future.get( writeOperationTimeout, TimeUnit.MILLISECONDS );
+
+            if ( response != null )
+            {
+                result.setResponse( item, response );
+            }
+            else if ( future.getCause() != null )
+            {
+                result.setCause( item, future.getCause() );
+            }
+            else
+            {
+                // We didn't received anything : this is an error
+                if ( LOG.isErrorEnabled() )
+                {
+                    LOG.error( I18n.err( I18n.ERR_04112_OP_FAILED_TIMEOUT, item.getRequest().getType() ) );
+                }
+
+                if ( !future.isCancelled() )
+                {
+                    abandon( item.getRequest().getMessageId() );
+                }
+
+                result.setCause( item, new LdapException( TIME_OUT_ERROR ) );
+            }
+        }
+        catch ( ExecutionException | TimeoutException e )
+        {
+            LOG.error( NO_RESPONSE_ERROR, e );
+
+            if ( !future.isCancelled() )
+            {
+                abandon( item.getRequest().getMessageId() );
+            }
+
+            result.setCause( item, new LdapException( NO_RESPONSE_ERROR, e ) );
+        }
+    }
+
+
     /**
      * {@inheritDoc}
      */
@@ -4616,8 +5237,10 @@ public class LdapNetworkConnection extends AbstractLdapConnection implements Lda
             
             // Associate a DnFactory to the container
             ldapMessageContainer.setDnFactory( new DefaultDnFactory( schemaManager, 1000 ) );
+            ldapMessageContainer.setLazyEntries( config.isLazyEntries() );
+            ldapMessageContainer.setAttributeFilter( config.getAttributeFilter() );
             
-            ioSession.setAttribute( LdapDecoder.MESSAGE_CONTAINER_ATTR, ldapMessageContainer );
+            setMessageContainer( ldapMessageContainer );
 
         }
         catch ( LdapException le )
@@ -4795,15 +5418,6 @@ public class LdapNetworkConnection extends AbstractLdapConnection implements Lda
     }
 
 
-    /**
-     * clears the async listener, responseQueue and future mapppings to the corresponding request IDs
-     */
-    private void clearMaps()
-    {
-        futureMap.clear();
-    }
-
-
     /**
      * {@inheritDoc}
      */
@@ -4862,14 +5476,14 @@ public class LdapNetworkConnection extends AbstractLdapConnection implements Lda
     @Override
     public void sessionCreated( IoSession session ) throws Exception
     {
-        // Last, store the message container
-        LdapMessageContainer<Message> ldapMessageContainer =
-            new LdapMessageContainer<>(
-                codec, config.getBinaryAttributeDetector() );
-        
-        ldapMessageContainer.setDnFactory( new DefaultDnFactory( schemaManager, 1000 ) );
+        // The number of responses decoded before they are processed may be limited
+        if ( config.getMaxMessagesPerDecode() > 0 )
+        {
+            session.setAttribute( LdapDecoder.MAX_MESSAGES_PER_DECODE_ATTR, config.getMaxMessagesPerDecode() );
+        }
 
-        session.setAttribute( LdapDecoder.MESSAGE_CONTAINER_ATTR, ldapMessageContainer );
+        // Last, store the message container
+        session.setAttribute( LdapDecoder.MESSAGE_CONTAINER_ATTR, createMessageContainer() );
     }
 
 
@@ -4878,6 +5492,16 @@ public class LdapNetworkConnection extends AbstractLdapConnection implements Lda
      */
     @Override
     public void sessionClosed( IoSession session ) throws Exception
+    {
+        processSessionClosed();
+    }
+
+
+    /**
+     * Cancel all the pending operations, release the connector and notify the
+     * listeners when the session has been closed.
+     */
+    private void processSessionClosed()
     {
         authenticated.set( false );
         
@@ -4886,14 +5510,8 @@ public class LdapNetworkConnection extends AbstractLdapConnection implements Lda
             handshakeFuture.cancel();
         }
         
-        // Close all the Future for this session
-        for ( ResponseFuture<? extends Response> responseFuture : futureMap.values() )
-        {
-            responseFuture.cancel();
-        }
-
-        // clear the mappings
-        clearMaps();
+        // Close all the Future for this session, and clear the mappings
+        futureMap.drain( ResponseFuture::cancel );
 
         // Last, not least, reset the MessageId value
         messageId.set( 0 );
@@ -4902,11 +5520,7 @@ public class LdapNetworkConnection extends AbstractLdapConnection implements Lda
 
         try
         {
-            if ( connector != null )
-            {
-                connector.dispose();
-                connector = null;
-            }
+            disposeConnector();
         }
         finally
         {
@@ -4951,7 +5565,7 @@ public class LdapNetworkConnection extends AbstractLdapConnection implements Lda
 
             checkSession();
             
-            if ( ioSession.isSecured() )
+            if ( isSecured() )
             {
                 if ( LOG.isDebugEnabled() )
                 { 
@@ -4993,6 +5607,13 @@ public class LdapNetworkConnection extends AbstractLdapConnection implements Lda
      */
     private void addSaslFilter( SaslClient saslClient ) throws LdapException
     {
+        if ( transportSession != null )
+        {
+            transportSession.addSaslLayer( saslClient );
+
+            return;
+        }
+
         IoFilterChain filterChain = ioSession.getFilterChain();
         if ( filterChain.contains( SASL_FILTER_KEY ) )
         {
@@ -5011,6 +5632,13 @@ public class LdapNetworkConnection extends AbstractLdapConnection implements Lda
      */
     private void addSslFilter() throws LdapException
     {
+        if ( transportSession != null )
+        {
+            transportSession.startTls( config, connectTimeout );
+
+            return;
+        }
+
         try
         {
             SSLContext sslContext = SSLContext.getInstance( config.getSslProtocol() );
@@ -5047,11 +5675,13 @@ public class LdapNetworkConnection extends AbstractLdapConnection implements Lda
             
             if ( ( ioSession == null ) || !isConnected() )
             {
-                connector.getFilterChain().addFirst( SSL_FILTER_KEY, sslFilter );
+                filterChainBuilder.addFirst( SSL_FILTER_KEY, sslFilter );
             }
             else
             // for StartTLS
             {
+                // The pending requests must be written in clear
+                flush();
                 ioSession.getFilterChain().addFirst( SSL_FILTER_KEY, sslFilter );
                 
                 boolean isSecured = handshakeFuture.get( connectTimeout, TimeUnit.MILLISECONDS );
@@ -5170,6 +5800,7 @@ public class LdapNetworkConnection extends AbstractLdapConnection implements Lda
                 // Stores the challenge's response, and send it to the server
                 bindRequest.setCredentials( challengeResponse );
                 writeRequest( bindRequest );
+                flush();
 
                 // Get the server's response, blocking
                 bindResponse = bindFuture.get( connectTimeout, TimeUnit.MILLISECONDS );
@@ -5200,6 +5831,7 @@ public class LdapNetworkConnection extends AbstractLdapConnection implements Lda
                 bindRequestCopy.addAllControls( bindRequest.getControls().values().toArray( new Control[0] ) );
 
                 writeRequest( bindRequestCopy );
+                flush();
 
                 bindResponse = bindFuture.get( connectTimeout, TimeUnit.MILLISECONDS );
 
@@ -5238,6 +5870,7 @@ public class LdapNetworkConnection extends AbstractLdapConnection implements Lda
                     addToFutureMap( newId, bindFuture );
 
                     writeRequest( bindRequest );
+                    flush();
 
                     bindResponse = bindFuture.get( connectTimeout, TimeUnit.MILLISECONDS );
 
@@ -5289,6 +5922,23 @@ public class LdapNetworkConnection extends AbstractLdapConnection implements Lda
      */
     private void writeRequest( Request request ) throws LdapException
     {
+        if ( transportSession != null )
+        {
+            writeTransportRequest( request );
+
+            return;
+        }
+
+        if ( writeCoalescingFilter != null )
+        {
+            // The request may wait in the coalescing filter until it's flushed, which the
+            // synchronous operations do before waiting for the response. Don't wait for it
+            // to be written, a write failure will be reported through the response future
+            ioSession.write( request ).addListener( future -> requestWritten( request, ( WriteFuture ) future ) );
+
+            return;
+        }
+
         // Send the request to the server
         WriteFuture writeFuture = ioSession.write( request );
 
@@ -5339,6 +5989,101 @@ public class LdapNetworkConnection extends AbstractLdapConnection implements Lda
     }
 
 
+    /**
+     * Called when a pipelined request has been written, or has failed to be written.
+     * In the latter case, the request's future is cancelled.
+     * 
+     * @param request The written request
+     * @param writeFuture The request write future
+     */
+    private void requestWritten( Request request, WriteFuture writeFuture )
+    {
+        if ( writeFuture.isWritten() )
+        {
+            return;
+        }
+
+        if ( LOG.isErrorEnabled() )
+        {
+            LOG.error( I18n.err( I18n.ERR_04118_SOMETHING_WRONG_HAPPENED ) );
+        }
+
+        ResponseFuture<?> responseFuture = futureMap.remove( request.getMessageId() );
+
+        if ( responseFuture != null )
+        {
+            Throwable cause = writeFuture.getException();
+
+            if ( cause == null )
+            {
+                cause = new InvalidConnectionException( I18n.err( I18n.ERR_04160_SESSION_HAS_BEEN_CLOSED ) );
+            }
+
+            responseFuture.setCause( cause );
+            responseFuture.cancel();
+        }
+    }
+
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void flush()
+    {
+        if ( writeCoalescingFilter != null )
+        {
+            writeCoalescingFilter.flush();
+        }
+    }
+
+
+    /**
+     * Send a request using the transport session, and wait for it to be written
+     * 
+     * @param request The request to send
+     * @throws LdapException If the request was not properly sent
+     */
+    private void writeTransportRequest( Request request ) throws LdapException
+    {
+        try
+        {
+            transportSession.write( request ).get( sendTimeout, TimeUnit.MILLISECONDS );
+        }
+        catch ( TimeoutException te )
+        {
+            if ( LOG.isErrorEnabled() )
+            {
+                LOG.error( I18n.err( I18n.ERR_04119_TIMEOUT ) );
+            }
+            
+            throw new LdapException( TIME_OUT_ERROR, te );
+        }
+        catch ( InterruptedException ie )
+        {
+            Thread.currentThread().interrupt();
+
+            throw new LdapOtherException( ie.getMessage(), ie );
+        }
+        catch ( ExecutionException ee )
+        {
+            if ( LOG.isErrorEnabled() )
+            {
+                LOG.error( I18n.err( I18n.ERR_04118_SOMETHING_WRONG_HAPPENED ) );
+            }
+
+            Throwable cause = ee.getCause();
+
+            if ( cause instanceof LdapException )
+            {
+                throw ( LdapException ) cause;
+            }
+
+            throw new InvalidConnectionException( cause.getMessage(), cause );
+        }
+    }
+
+
     /**
      * method to write the kerberos config in the standard MIT kerberos format
      *
@@ -5443,6 +6188,18 @@ public class LdapNetworkConnection extends AbstractLdapConnection implements Lda
     public void setSchemaManager( SchemaManager schemaManager )
     {
         this.schemaManager = schemaManager;
+
+        // The binary attributes may have changed : update the session decoder, which
+        // also clears its cached decisions
+        if ( ( ( ioSession != null ) || ( transportSession != null ) ) && ( schemaManager != null ) )
+        {
+            LdapMessageContainer<Message> container = getMessageContainer();
+
+            if ( container != null )
+            {
+                container.setBinaryAttributeDetector( new SchemaBinaryAttributeDetector( schemaManager ) );
+            }
+        }
     }
 
 
@@ -5485,6 +6242,11 @@ public class LdapNetworkConnection extends AbstractLdapConnection implements Lda
      */
     public SSLSession getSslSession()
     {
+        if ( transportSession != null )
+        {
+            return transportSession.getSslSession();
+        }
+
         if ( isSecured() )
         {
             SSLSession sslSession = ( SSLSession ) ioSession.getAttribute( SslFilter.SSL_SECURED );
@@ -5496,4 +6258,73 @@ public class LdapNetworkConnection extends AbstractLdapConnection implements Lda
             return null;
         }
     }
+
+
+    /**
+     * The handler receiving the events of a session created by the transport set in
+     * the configuration. It does what the MINA {@link org.apache.mina.core.service.IoHandler}
+     * methods do for a MINA session.
+     */
+    private class TransportHandler implements LdapTransportHandler
+    {
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public void sessionCreated( LdapTransportSession session )
+        {
+            session.setMessageContainer( createMessageContainer() );
+        }
+
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public void messageReceived( LdapTransportSession session, Message message ) throws Exception
+        {
+            if ( !responseReceived( ( Response ) message ) )
+            {
+                // close the session
+                session.close();
+            }
+        }
+
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public void exceptionCaught( LdapTransportSession session, Throwable cause )
+        {
+            if ( LOG.isWarnEnabled() )
+            {
+                LOG.warn( cause.getMessage(), cause );
+            }
+
+            transportException = cause;
+
+            if ( cause instanceof MessageEncoderException )
+            {
+                cancelFailedRequest( cause );
+            }
+            else
+            {
+                cancelFailedRequest( cause.getCause() );
+            }
+
+            session.close();
+        }
+
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public void sessionClosed( LdapTransportSession session )
+        {
+            setNoDResponses();
+            processSessionClosed();
+        }
+    }
 }
@@ -56,6 +56,9 @@ public final class MonitoringLdapConnection extends LdapConnectionWrapper
     private boolean bindCalled = false;
     private boolean startTlsCalled = false;
 
+    /** The identity the pool has bound the connection with, null if it's unknown */
+    private volatile BindIdentity boundIdentity;
+
 
     MonitoringLdapConnection( LdapConnection connection )
     {
@@ -82,6 +85,26 @@ public final class MonitoringLdapConnection extends LdapConnectionWrapper
     }
 
 
+    /**
+     * @return The identity the pool has bound the connection with, null if it's unknown
+     */
+    BindIdentity getBoundIdentity()
+    {
+        return boundIdentity;
+    }
+
+
+    /**
+     * Sets the identity the pool has bound the connection with
+     *
+     * @param boundIdentity The identity, null if it's unknown
+     */
+    void setBoundIdentity( BindIdentity boundIdentity )
+    {
+        this.boundIdentity = boundIdentity;
+    }
+
+
     /**
      * @return tells if the StarTLS extended operation has been called
      */
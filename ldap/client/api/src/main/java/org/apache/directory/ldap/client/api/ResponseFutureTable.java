@@ -0,0 +1,274 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *    https://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ *
+ */
+package org.apache.directory.ldap.client.api;
+
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.Consumer;
+
+import org.apache.directory.api.ldap.model.message.Response;
+import org.apache.directory.ldap.client.api.future.ResponseFuture;
+
+
+/**
+ * The table associating the ID of each request waiting for its response with the
+ * request future. The message IDs are given in increasing order, so the future is
+ * stored in the slot indexed by the lowest bits of its ID : as long as fewer requests
+ * than the table capacity are outstanding, no two of them share a slot, and the table
+ * is read and updated with a single CAS, without boxing the ID nor locking.
+ * <br>
+ * A request still waiting when an ID using the same slot is given (a long running
+ * search, for instance) is stored in an overflow map, which is only looked up when it's
+ * not empty.
+ *
+ * @author <a href="mailto:dev@directory.apache.org">Apache Directory Project</a>
+ */
+final class ResponseFutureTable
+{
+    /** The maximum table capacity */
+    private static final int MAX_CAPACITY = 1 << 20;
+
+    /** The slots, indexed by the lowest bits of the message ID */
+    private final AtomicReferenceArray<Slot> slots;
+
+    /** The mask applied on a message ID to get its slot index */
+    private final int mask;
+
+    /** The futures which could not be stored in their slot */
+    private final Map<Integer, ResponseFuture<? extends Response>> overflow = new ConcurrentHashMap<>();
+
+    /** The number of futures stored in the overflow map */
+    private final AtomicInteger overflowSize = new AtomicInteger();
+
+
+    /**
+     * Creates a new ResponseFutureTable instance.
+     *
+     * @param maxOutstanding The number of requests expected to wait for their response at the same time
+     */
+    ResponseFutureTable( int maxOutstanding )
+    {
+        int capacity = 1;
+
+        while ( ( capacity < maxOutstanding ) && ( capacity < MAX_CAPACITY ) )
+        {
+            capacity <<= 1;
+        }
+
+        slots = new AtomicReferenceArray<>( capacity );
+        mask = capacity - 1;
+    }
+
+
+    /**
+     * Stores the future of a request
+     *
+     * @param messageId The request message ID
+     * @param future The request future
+     */
+    void put( int messageId, ResponseFuture<? extends Response> future )
+    {
+        int index = messageId & mask;
+        Slot slot = new Slot( messageId, future );
+
+        while ( true )
+        {
+            Slot current = slots.get( index );
+
+            if ( current == null )
+            {
+                if ( slots.compareAndSet( index, null, slot ) )
+                {
+                    return;
+                }
+            }
+            else if ( current.messageId == messageId )
+            {
+                // The same ID is reused, replace the previous future
+                if ( slots.compareAndSet( index, current, slot ) )
+                {
+                    return;
+                }
+            }
+            else
+            {
+                // The slot is used by an older request
+                overflowSize.incrementAndGet();
+
+                if ( overflow.put( messageId, future ) != null )
+                {
+                    overflowSize.decrementAndGet();
+                }
+
+                return;
+            }
+        }
+    }
+
+
+    /**
+     * Gets the future of a request, keeping it in the table
+     *
+     * @param messageId The request message ID
+     * @return The request future, or null if there is none
+     */
+    ResponseFuture<? extends Response> get( int messageId )
+    {
+        Slot slot = slots.get( messageId & mask );
+
+        if ( ( slot != null ) && ( slot.messageId == messageId ) )
+        {
+            return slot.future;
+        }
+
+        if ( overflowSize.get() == 0 )
+        {
+            return null;
+        }
+
+        return overflow.get( messageId );
+    }
+
+
+    /**
+     * Removes the future of a request from the table
+     *
+     * @param messageId The request message ID
+     * @return The removed future, or null if there is none
+     */
+    ResponseFuture<? extends Response> remove( int messageId )
+    {
+        int index = messageId & mask;
+        Slot slot = slots.get( index );
+
+        while ( ( slot != null ) && ( slot.messageId == messageId ) )
+        {
+            if ( slots.compareAndSet( index, slot, null ) )
+            {
+                return slot.future;
+            }
+
+            slot = slots.get( index );
+        }
+
+        if ( overflowSize.get() == 0 )
+        {
+            return null;
+        }
+
+        ResponseFuture<? extends Response> future = overflow.remove( messageId );
+
+        if ( future != null )
+        {
+            overflowSize.decrementAndGet();
+        }
+
+        return future;
+    }
+
+
+    /**
+     * Removes all the futures from the table, handing each of them to the given consumer.
+     * A future is handed once, even if it's removed concurrently.
+     *
+     * @param consumer The consumer processing the removed futures
+     */
+    void drain( Consumer<ResponseFuture<? extends Response>> consumer )
+    {
+        for ( int i = 0; i <= mask; i++ )
+        {
+            if ( slots.get( i ) != null )
+            {
+                Slot slot = slots.getAndSet( i, null );
+
+                if ( slot != null )
+                {
+                    consumer.accept( slot.future );
+                }
+            }
+        }
+
+        if ( overflowSize.get() != 0 )
+        {
+            for ( Integer key : overflow.keySet() )
+            {
+                ResponseFuture<? extends Response> future = overflow.remove( key );
+
+                if ( future != null )
+                {
+                    overflowSize.decrementAndGet();
+                    consumer.accept( future );
+                }
+            }
+        }
+    }
+
+
+    /**
+     * Removes all the futures from the table
+     */
+    void clear()
+    {
+        drain( future ->
+        {
+        } );
+    }
+
+
+    /**
+     * @return The number of slots of the table
+     */
+    int capacity()
+    {
+        return mask + 1;
+    }
+
+
+    /**
+     * @return The number of futures stored in the overflow map
+     */
+    int overflowSize()
+    {
+        return overflowSize.get();
+    }
+
+
+    /**
+     * A message ID and the future of the request
+     */
+    private static final class Slot
+    {
+        /** The request message ID */
+        private final int messageId;
+
+        /** The request future */
+        private final ResponseFuture<? extends Response> future;
+
+
+        private Slot( int messageId, ResponseFuture<? extends Response> future )
+        {
+            this.messageId = messageId;
+            this.future = future;
+        }
+    }
+}
@@ -0,0 +1,404 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *    https://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ *
+ */
+package org.apache.directory.ldap.client.api;
+
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.directory.api.ldap.model.message.IntermediateResponse;
+import org.apache.directory.api.ldap.model.message.Response;
+import org.apache.directory.api.ldap.model.message.SearchResultEntry;
+import org.apache.directory.api.ldap.model.message.SearchResultReference;
+import org.apache.directory.ldap.client.api.future.SearchFuture;
+import org.apache.directory.ldap.client.api.future.SearchListener;
+import org.apache.directory.ldap.client.api.future.SearchSubscriber;
+import org.apache.directory.ldap.client.api.future.SearchSubscription;
+
+
+/**
+ * The subscription of a {@link SearchSubscriber} to a search. The responses read from the
+ * connection are buffered until the subscriber requests them. When the buffer reaches its
+ * high watermark, the connection stops reading, until the subscriber has consumed half of
+ * the buffered responses : the memory used by a search does not depend on its result size.
+ * <br>
+ * As the reads are suspended on the whole connection, the other operations running on it
+ * are also paused while a subscriber does not keep up.
+ *
+ * @author <a href="mailto:dev@directory.apache.org">Apache Directory Project</a>
+ */
+class SearchSubscriptionImpl implements SearchListener, SearchSubscription
+{
+    /** The connection running the search */
+    private final LdapNetworkConnection connection;
+
+    /** The subscriber */
+    private final SearchSubscriber subscriber;
+
+    /** The number of buffered responses above which the reads are suspended */
+    private final int highWatermark;
+
+    /** The number of buffered responses below which the reads are resumed */
+    private final int lowWatermark;
+
+    /** The responses read but not yet requested */
+    private final Deque<Response> buffer = new ArrayDeque<>();
+
+    /** The number of responses requested and not yet delivered */
+    private long demand;
+
+    /** Set when the subscription has been cancelled */
+    private boolean cancelled;
+
+    /** Set when the SearchResultDone has been buffered */
+    private boolean done;
+
+    /** The error which has stopped the search, if any */
+    private Throwable error;
+
+    /** Set when the subscriber has been given the last signal */
+    private boolean terminated;
+
+    /** Set when the subscription has suspended the reads */
+    private boolean readSuspended;
+
+    /** Set once the subscriber's onSubscribe method has been called */
+    private volatile boolean subscribed;
+
+    /** The number of drain requests : only one thread delivers the responses */
+    private final AtomicInteger drainRequests = new AtomicInteger();
+
+    /** The search future */
+    private SearchFuture searchFuture;
+
+
+    /**
+     * Creates a new SearchSubscriptionImpl instance
+     *
+     * @param connection The connection running the search
+     * @param subscriber The subscriber
+     * @param highWatermark The number of buffered responses above which the reads are suspended
+     */
+    SearchSubscriptionImpl( LdapNetworkConnection connection, SearchSubscriber subscriber, int highWatermark )
+    {
+        this.connection = connection;
+        this.subscriber = subscriber;
+        this.highWatermark = Math.max( 1, highWatermark );
+        this.lowWatermark = this.highWatermark / 2;
+    }
+
+
+    /**
+     * Starts the subscription, once the search request has been sent
+     *
+     * @param searchFuture The search future
+     */
+    void start( SearchFuture searchFuture )
+    {
+        synchronized ( this )
+        {
+            this.searchFuture = searchFuture;
+        }
+
+        searchFuture.toCompletionStage().whenComplete( this::searchCompleted );
+
+        subscribed = true;
+        subscriber.onSubscribe( this );
+        drain();
+    }
+
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void entryReceived( SearchResultEntry searchResultEntry )
+    {
+        responseReceived( searchResultEntry );
+    }
+
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void referenceReceived( SearchResultReference searchResultReference )
+    {
+        responseReceived( searchResultReference );
+    }
+
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void intermediateReceived( IntermediateResponse intermediateResponse )
+    {
+        responseReceived( intermediateResponse );
+    }
+
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void request( long n )
+    {
+        boolean invalid = n <= 0;
+
+        synchronized ( this )
+        {
+            if ( cancelled || terminated )
+            {
+                return;
+            }
+
+            if ( invalid )
+            {
+                // Rule 3.9 of the Reactive Streams specification
+                error = new IllegalArgumentException( "The requested number of responses must be positive: " + n );
+            }
+            else
+            {
+                demand += n;
+
+                if ( demand < 0 )
+                {
+                    // Overflow : the demand is unbounded
+                    demand = Long.MAX_VALUE;
+                }
+            }
+        }
+
+        if ( invalid )
+        {
+            abandon();
+        }
+
+        drain();
+    }
+
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void cancel()
+    {
+        synchronized ( this )
+        {
+            if ( cancelled || terminated )
+            {
+                return;
+            }
+
+            cancelled = true;
+            buffer.clear();
+        }
+
+        // Abandon the search before resuming the reads, otherwise the server
+        // would send the remaining responses before getting the AbandonRequest
+        abandon();
+
+        synchronized ( this )
+        {
+            resumeRead();
+        }
+    }
+
+
+    /**
+     * Buffers a response read from the connection, and suspends the reads if
+     * the high watermark is reached.
+     *
+     * @param response The received response
+     */
+    private void responseReceived( Response response )
+    {
+        synchronized ( this )
+        {
+            if ( cancelled || terminated )
+            {
+                return;
+            }
+
+            buffer.add( response );
+
+            if ( !readSuspended && ( buffer.size() >= highWatermark ) )
+            {
+                readSuspended = true;
+                connection.suspendRead();
+            }
+        }
+
+        drain();
+    }
+
+
+    /**
+     * Called when the SearchResultDone has been received, or when the search has failed
+     *
+     * @param searchResultDone The SearchResultDone, if the search was successful
+     * @param cause The failure cause, if the search failed
+     */
+    private void searchCompleted( Response searchResultDone, Throwable cause )
+    {
+        synchronized ( this )
+        {
+            if ( cancelled || terminated || ( error != null ) )
+            {
+                return;
+            }
+
+            if ( cause != null )
+            {
+                error = cause;
+            }
+            else
+            {
+                buffer.add( searchResultDone );
+                done = true;
+            }
+        }
+
+        drain();
+    }
+
+
+    /**
+     * Abandons the search, if it's still running
+     */
+    private void abandon()
+    {
+        SearchFuture future;
+
+        synchronized ( this )
+        {
+            future = searchFuture;
+        }
+
+        if ( ( future != null ) && !future.isCancelled() )
+        {
+            future.cancel( true );
+        }
+    }
+
+
+    /**
+     * Resumes the reads, if this subscription has suspended them. Must be called while
+     * holding the lock.
+     */
+    private void resumeRead()
+    {
+        if ( readSuspended )
+        {
+            readSuspended = false;
+            connection.resumeRead();
+        }
+    }
+
+
+    /**
+     * Gives the subscriber the responses it has requested, and the final signal. Only one
+     * thread at a time delivers the responses : the other threads only tell it to check
+     * again the buffer.
+     */
+    private void drain()
+    {
+        if ( !subscribed || ( drainRequests.getAndIncrement() != 0 ) )
+        {
+            return;
+        }
+
+        int requests = 1;
+
+        do
+        {
+            while ( true )
+            {
+                Response next;
+                Throwable failure = null;
+                boolean complete = false;
+
+                synchronized ( this )
+                {
+                    if ( cancelled || terminated )
+                    {
+                        return;
+                    }
+
+                    if ( error != null )
+                    {
+                        failure = error;
+                    }
+                    else if ( done && buffer.isEmpty() )
+                    {
+                        complete = true;
+                    }
+
+                    if ( ( failure != null ) || complete )
+                    {
+                        terminated = true;
+                        buffer.clear();
+                        resumeRead();
+                        next = null;
+                    }
+                    else if ( ( demand == 0 ) || buffer.isEmpty() )
+                    {
+                        break;
+                    }
+                    else
+                    {
+                        next = buffer.poll();
+
+                        if ( demand != Long.MAX_VALUE )
+                        {
+                            demand--;
+                        }
+
+                        if ( buffer.size() <= lowWatermark )
+                        {
+                            resumeRead();
+                        }
+                    }
+                }
+
+                if ( failure != null )
+                {
+                    subscriber.onError( failure );
+
+                    return;
+                }
+                else if ( complete )
+                {
+                    subscriber.onComplete();
+
+                    return;
+                }
+
+                subscriber.onNext( next );
+            }
+
+            requests = drainRequests.addAndGet( -requests );
+        }
+        while ( requests != 0 );
+    }
+}
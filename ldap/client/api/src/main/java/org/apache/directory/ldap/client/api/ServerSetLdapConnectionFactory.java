@@ -0,0 +1,900 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *    https://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ *
+ */
+package org.apache.directory.ldap.client.api;
+
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.WeakHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.directory.api.i18n.I18n;
+import org.apache.directory.api.ldap.codec.api.LdapApiService;
+import org.apache.directory.api.ldap.model.exception.LdapException;
+import org.apache.directory.api.ldap.model.exception.LdapOperationException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+
+/**
+ * A LdapConnectionFactory spreading the connections over a set of servers, typically
+ * replicas of the same directory. Each server is described by its own
+ * {@link LdapConnectionConfig}, which gives its host, its port, its TLS settings and
+ * the name and credentials used to bind the connections.
+ * <br>
+ * The server of each new connection is chosen by a {@link Policy} :
+ * <ul>
+ *   <li>ROUND_ROBIN : the servers are used in turn</li>
+ *   <li>FEWEST_CONNECTIONS : the server with the fewest open connections created by this factory,
+ *   including the ones being connected</li>
+ *   <li>LATENCY_WEIGHTED : a server picked at random, with a probability inversely proportional
+ *   to its latency, an exponentially weighted moving average of the time spent to connect and
+ *   bind</li>
+ * </ul>
+ * When a connection can't be connected or bound, another server is tried. A server failing
+ * failureThreshold times in a row is not used anymore for retryDelay milliseconds (the circuit
+ * is opened). After this delay, a single connection is made to the server as a trial : the
+ * server is used again if it succeeds, or put aside for another retryDelay if it fails. The
+ * trials can also be done in the background by calling {@link #probeServers()}.
+ * <br>
+ * Only the connection errors, the timeouts and the BUSY or UNAVAILABLE results are server
+ * failures. Any other bind error, like invalid credentials or insufficient access rights, is
+ * an answer of the server : it does not make the server unavailable, and is not retried on
+ * another server.
+ * <br>
+ * The factory can be used wherever a LdapConnectionFactory is expected, for instance to create
+ * a pool used by a LdapConnectionTemplate :
+ * <pre>
+ * ServerSetLdapConnectionFactory factory = new ServerSetLdapConnectionFactory( replica1, replica2, replica3 );
+ * factory.setPolicy( ServerSetLdapConnectionFactory.Policy.LATENCY_WEIGHTED );
+ *
+ * LdapConnectionPool pool = new LdapConnectionPool( new ValidatingPoolableLdapConnectionFactory( factory ) );
+ * LdapConnectionTemplate template = new LdapConnectionTemplate( pool );
+ * </pre>
+ *
+ * @author <a href="mailto:dev@directory.apache.org">Apache Directory Project</a>
+ */
+public class ServerSetLdapConnectionFactory implements LdapConnectionFactory
+{
+    /** The logger */
+    private static final Logger LOG = LoggerFactory.getLogger( ServerSetLdapConnectionFactory.class );
+
+    /** The default number of consecutive failures after which a server is not used anymore */
+    public static final int DEFAULT_FAILURE_THRESHOLD = 3;
+
+    /** The default delay, in milliseconds, before a failing server is tried again */
+    public static final long DEFAULT_RETRY_DELAY_MILLIS = 30_000L;
+
+    /** The weight of the last sample in the latency moving average */
+    private static final double LATENCY_SAMPLE_WEIGHT = 0.2d;
+
+    /**
+     * The policy choosing the server of a new connection
+     */
+    public enum Policy
+    {
+        /** The servers are used in turn */
+        ROUND_ROBIN,
+
+        /** The server with the fewest open connections is used */
+        FEWEST_CONNECTIONS,
+
+        /** The servers are used with a probability inversely proportional to their latency */
+        LATENCY_WEIGHTED
+    }
+
+    /**
+     * The state of a server
+     */
+    public enum State
+    {
+        /** The server is used */
+        AVAILABLE,
+
+        /** The server has failed, it's not used until its retry delay has expired */
+        UNAVAILABLE,
+
+        /** A trial connection is made to an unavailable server */
+        PROBING
+    }
+
+    /** The servers */
+    private final Server[] servers;
+
+    /** The counter used to spread the connections in turn */
+    private final AtomicInteger next = new AtomicInteger();
+
+    /** The policy choosing the server of a new connection */
+    private volatile Policy policy = Policy.ROUND_ROBIN;
+
+    /** The number of consecutive failures after which a server is not used anymore */
+    private volatile int failureThreshold = DEFAULT_FAILURE_THRESHOLD;
+
+    /** The delay, in milliseconds, before a failing server is tried again */
+    private volatile long retryDelay = DEFAULT_RETRY_DELAY_MILLIS;
+
+    /** The codec used by the connections */
+    private LdapApiService apiService;
+
+    /** The timeout of the connections, if not the one of their server configuration */
+    private Long timeout;
+
+
+    /**
+     * Creates a new instance of ServerSetLdapConnectionFactory.
+     *
+     * @param configs The configuration of each server
+     */
+    public ServerSetLdapConnectionFactory( LdapConnectionConfig... configs )
+    {
+        this( Arrays.asList( configs ) );
+    }
+
+
+    /**
+     * Creates a new instance of ServerSetLdapConnectionFactory.
+     *
+     * @param configs The configuration of each server
+     */
+    public ServerSetLdapConnectionFactory( List<LdapConnectionConfig> configs )
+    {
+        if ( ( configs == null ) || configs.isEmpty() )
+        {
+            throw new IllegalArgumentException( I18n.err( I18n.ERR_04191_EMPTY_SERVER_SET ) );
+        }
+
+        servers = new Server[configs.size()];
+
+        for ( int i = 0; i < servers.length; i++ )
+        {
+            servers[i] = new Server( configs.get( i ) );
+        }
+    }
+
+
+    /**
+     * {@inheritDoc}
+     *
+     * The connection is bound with the name and credentials of the configuration of its server.
+     */
+    @Override
+    public LdapConnection bindConnection( LdapConnection connection ) throws LdapException
+    {
+        Server server = serverOf( connection );
+
+        if ( server == null )
+        {
+            server = servers[0];
+        }
+
+        bind( server, connection );
+
+        return connection;
+    }
+
+
+    /**
+     * Binds a connection, recording the outcome in the server health. The connection
+     * is closed if it can't be bound.
+     *
+     * @param server The server of the connection
+     * @param connection The connection to bind
+     * @throws LdapException If the bind fails
+     */
+    private void bind( Server server, LdapConnection connection ) throws LdapException
+    {
+        long start = System.nanoTime();
+
+        try
+        {
+            connection.bind( server.config.getName(), server.config.getCredentials() );
+            server.success( System.nanoTime() - start );
+        }
+        catch ( LdapException e )
+        {
+            if ( isServerFailure( e ) )
+            {
+                server.failure( failureThreshold, retryDelay );
+            }
+            else
+            {
+                // The server has answered : the request is wrong, not the server
+                server.success( 0L );
+            }
+
+            close( connection, e );
+
+            throw e;
+        }
+        finally
+        {
+            server.opening.remove( connection );
+        }
+    }
+
+
+    /**
+     * Tells if a bind error is a failure of the server : a connection error, a timeout,
+     * or a BUSY or UNAVAILABLE result. The connection errors are reported as OTHER results.
+     *
+     * @param e The bind error
+     * @return <tt>true</tt> if the server has failed
+     */
+    private static boolean isServerFailure( LdapException e )
+    {
+        if ( e instanceof LdapOperationException )
+        {
+            switch ( ( ( LdapOperationException ) e ).getResultCode() )
+            {
+                case BUSY:
+                case UNAVAILABLE:
+                case OTHER:
+                    return true;
+
+                default:
+                    return false;
+            }
+        }
+
+        return true;
+    }
+
+
+    /**
+     * Closes a connection which can't be bound
+     *
+     * @param connection The connection
+     * @param cause The bind error
+     */
+    private static void close( LdapConnection connection, LdapException cause )
+    {
+        LOG.error( I18n.err( I18n.ERR_04102_UNABLE_TO_BIND_CONNECTION, cause.getMessage() ) );
+
+        try
+        {
+            connection.close();
+        }
+        catch ( IOException ioe )
+        {
+            LOG.error( I18n.err( I18n.ERR_04103_UNABLE_TO_CLOSE_FAILED_CONNECTION, cause.getMessage() ), ioe );
+        }
+    }
+
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public LdapConnection configureConnection( LdapConnection connection )
+    {
+        Server server = serverOf( connection );
+        LdapConnectionConfig config = ( server == null ) ? servers[0].config : server.config;
+
+        connection.setTimeOut( ( timeout == null ) ? config.getTimeout() : timeout );
+        connection.setBinaryAttributeDetector( config.getBinaryAttributeDetector() );
+
+        return connection;
+    }
+
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public LdapApiService getLdapApiService()
+    {
+        return apiService;
+    }
+
+
+    /**
+     * {@inheritDoc}
+     *
+     * The servers are tried in the order given by the policy, until a connection can
+     * be bound.
+     */
+    @Override
+    public LdapConnection newLdapConnection() throws LdapException
+    {
+        boolean[] tried = new boolean[servers.length];
+        LdapException failure = null;
+
+        while ( true )
+        {
+            Server server = select( tried );
+
+            if ( server == null )
+            {
+                throw new LdapException( I18n.err( I18n.ERR_04192_NO_SERVER_AVAILABLE, servers.length ), failure );
+            }
+
+            LdapConnection connection = newConnection( server );
+
+            try
+            {
+                bind( server, connection );
+
+                return connection;
+            }
+            catch ( LdapException e )
+            {
+                if ( !isServerFailure( e ) )
+                {
+                    throw e;
+                }
+
+                if ( LOG.isWarnEnabled() )
+                {
+                    LOG.warn( I18n.msg( I18n.MSG_04186_SERVER_FAILOVER, server, e.getMessage() ) );
+                }
+
+                failure = e;
+            }
+        }
+    }
+
+
+    /**
+     * {@inheritDoc}
+     *
+     * The server of the connection is chosen by the policy.
+     */
+    @Override
+    public LdapConnection newUnboundLdapConnection()
+    {
+        Server server = select( new boolean[servers.length] );
+
+        return newConnection( ( server == null ) ? servers[0] : server );
+    }
+
+
+    /**
+     * Creates a new configured connection to a server
+     *
+     * @param server The server
+     * @return The connection
+     */
+    private LdapConnection newConnection( Server server )
+    {
+        LdapConnection connection;
+
+        if ( apiService == null )
+        {
+            connection = new LdapNetworkConnection( server.config );
+        }
+        else
+        {
+            connection = new LdapNetworkConnection( server.config, apiService );
+        }
+
+        server.connections.add( connection );
+        server.opening.add( connection );
+
+        return configureConnection( connection );
+    }
+
+
+    /**
+     * Chooses the server of a new connection among the usable ones. An unavailable
+     * server which retry delay has expired is usable for a single trial connection.
+     *
+     * @param tried The servers which have already been tried, they are not chosen again
+     * @return The chosen server, or null if none is usable
+     */
+    private Server select( boolean[] tried )
+    {
+        while ( true )
+        {
+            int start = Math.floorMod( next.getAndIncrement(), servers.length );
+            long now = System.nanoTime();
+            int selected;
+
+            switch ( policy )
+            {
+                case FEWEST_CONNECTIONS:
+                    selected = selectFewestConnections( tried, start, now );
+                    break;
+
+                case LATENCY_WEIGHTED:
+                    selected = selectLatencyWeighted( tried, start, now );
+                    break;
+
+                default:
+                    selected = selectNext( tried, start, now );
+                    break;
+            }
+
+            if ( selected < 0 )
+            {
+                return null;
+            }
+
+            tried[selected] = true;
+
+            // Another thread may have started the trial of this server meanwhile
+            if ( servers[selected].acquire( now, retryDelay ) )
+            {
+                return servers[selected];
+            }
+        }
+    }
+
+
+    /**
+     * @return The index of the first usable server, starting at the given index
+     */
+    private int selectNext( boolean[] tried, int start, long now )
+    {
+        for ( int i = 0; i < servers.length; i++ )
+        {
+            int index = ( start + i ) % servers.length;
+
+            if ( !tried[index] && servers[index].isUsable( now ) )
+            {
+                return index;
+            }
+        }
+
+        return -1;
+    }
+
+
+    /**
+     * @return The index of the usable server with the fewest open connections
+     */
+    private int selectFewestConnections( boolean[] tried, int start, long now )
+    {
+        int selected = -1;
+        int fewest = Integer.MAX_VALUE;
+
+        for ( int i = 0; i < servers.length; i++ )
+        {
+            int index = ( start + i ) % servers.length;
+
+            if ( !tried[index] && servers[index].isUsable( now ) )
+            {
+                int count = servers[index].getOpenConnections();
+
+                if ( count < fewest )
+                {
+                    fewest = count;
+                    selected = index;
+                }
+            }
+        }
+
+        return selected;
+    }
+
+
+    /**
+     * @return The index of a usable server picked with a probability inversely proportional
+     * to its latency. A server which latency is not known yet is picked first.
+     */
+    private int selectLatencyWeighted( boolean[] tried, int start, long now )
+    {
+        double[] weights = new double[servers.length];
+        double total = 0d;
+
+        for ( int i = 0; i < servers.length; i++ )
+        {
+            int index = ( start + i ) % servers.length;
+
+            if ( !tried[index] && servers[index].isUsable( now ) )
+            {
+                double latency = servers[index].latency;
+
+                if ( latency == 0d )
+                {
+                    return index;
+                }
+
+                weights[index] = 1d / latency;
+                total += weights[index];
+            }
+        }
+
+        if ( total == 0d )
+        {
+            return -1;
+        }
+
+        double random = ThreadLocalRandom.current().nextDouble( total );
+        int selected = -1;
+
+        for ( int index = 0; index < servers.length; index++ )
+        {
+            if ( weights[index] > 0d )
+            {
+                selected = index;
+                random -= weights[index];
+
+                if ( random < 0d )
+                {
+                    break;
+                }
+            }
+        }
+
+        return selected;
+    }
+
+
+    /**
+     * @return The server a connection, or the connection it wraps, has been created for, if any
+     */
+    private Server serverOf( LdapConnection connection )
+    {
+        LdapConnection created = connection;
+
+        while ( created instanceof LdapConnectionWrapper )
+        {
+            created = ( ( LdapConnectionWrapper ) created ).wrapped();
+        }
+
+        for ( Server server : servers )
+        {
+            if ( server.connections.contains( created ) )
+            {
+                return server;
+            }
+        }
+
+        return null;
+    }
+
+
+    /**
+     * Makes a trial connection to each unavailable server which retry delay has expired,
+     * and makes them available again if they succeed. This can be scheduled to bring the
+     * servers back without making the callers of {@link #newLdapConnection()} wait for
+     * the trials.
+     *
+     * @return The number of available servers
+     */
+    public int probeServers()
+    {
+        int available = 0;
+
+        for ( Server server : servers )
+        {
+            long now = System.nanoTime();
+
+            if ( ( server.state != State.AVAILABLE ) && server.isUsable( now ) && server.acquire( now, retryDelay ) )
+            {
+                LdapConnection connection = newConnection( server );
+
+                try
+                {
+                    bind( server, connection );
+                    connection.close();
+                }
+                catch ( LdapException | IOException e )
+                {
+                    // The failure has been recorded
+                }
+            }
+
+            if ( server.state == State.AVAILABLE )
+            {
+                available++;
+            }
+        }
+
+        return available;
+    }
+
+
+    /**
+     * @return The servers
+     */
+    public List<Server> getServers()
+    {
+        return Collections.unmodifiableList( Arrays.asList( servers ) );
+    }
+
+
+    /**
+     * @return The policy choosing the server of a new connection
+     */
+    public Policy getPolicy()
+    {
+        return policy;
+    }
+
+
+    /**
+     * Sets the policy choosing the server of a new connection
+     *
+     * @param policy The policy, ROUND_ROBIN if null
+     */
+    public void setPolicy( Policy policy )
+    {
+        this.policy = ( policy == null ) ? Policy.ROUND_ROBIN : policy;
+    }
+
+
+    /**
+     * @return The number of consecutive failures after which a server is not used anymore
+     */
+    public int getFailureThreshold()
+    {
+        return failureThreshold;
+    }
+
+
+    /**
+     * Sets the number of consecutive failures after which a server is not used anymore
+     *
+     * @param failureThreshold The number of consecutive failures, at least 1
+     */
+    public void setFailureThreshold( int failureThreshold )
+    {
+        this.failureThreshold = Math.max( 1, failureThreshold );
+    }
+
+
+    /**
+     * @return The delay, in milliseconds, before a failing server is tried again
+     */
+    public long getRetryDelay()
+    {
+        return retryDelay;
+    }
+
+
+    /**
+     * Sets the delay before a failing server is tried again
+     *
+     * @param retryDelay The delay, in milliseconds
+     */
+    public void setRetryDelay( long retryDelay )
+    {
+        if ( retryDelay <= 0L )
+        {
+            throw new IllegalArgumentException(
+                I18n.err( I18n.ERR_04190_INVALID_MAINTENANCE_DELAY, "retry", retryDelay ) );
+        }
+
+        this.retryDelay = retryDelay;
+    }
+
+
+    /**
+     * Sets the LdapApiService (codec) to be used by the connections created
+     * by this factory.
+     *
+     * @param apiService The codec to used by connections created by this
+     * factory
+     */
+    public void setLdapApiService( LdapApiService apiService )
+    {
+        this.apiService = apiService;
+    }
+
+
+    /**
+     * Sets the timeout that will be used by all connections created by this
+     * factory, whatever their server configuration.
+     *
+     * @param timeout The timeout in millis.
+     *
+     * @see LdapConnection#setTimeOut(long)
+     */
+    public void setTimeOut( long timeout )
+    {
+        this.timeout = timeout;
+    }
+
+
+    /**
+     * A server of the set, and its health
+     */
+    public static final class Server
+    {
+        /** The server configuration */
+        private final LdapConnectionConfig config;
+
+        /** The connections created for this server */
+        private final Set<LdapConnection> connections = Collections.synchronizedSet(
+            Collections.newSetFromMap( new WeakHashMap<LdapConnection, Boolean>() ) );
+
+        /** The connections created for this server which have not been bound yet */
+        private final Set<LdapConnection> opening = Collections.synchronizedSet(
+            Collections.newSetFromMap( new WeakHashMap<LdapConnection, Boolean>() ) );
+
+        /** The server state */
+        private volatile State state = State.AVAILABLE;
+
+        /** The number of consecutive failures */
+        private int failures;
+
+        /** The time, in nanoseconds, after which the server can be tried again */
+        private long retryTime;
+
+        /** The moving average of the time spent to connect and bind, in nanoseconds, 0 if unknown */
+        private volatile double latency;
+
+
+        private Server( LdapConnectionConfig config )
+        {
+            this.config = config;
+        }
+
+
+        /**
+         * Tells if the server can be used for a new connection
+         *
+         * @param now The current time, in nanoseconds
+         * @return <tt>true</tt> if the server is available, or if it can be tried again
+         */
+        private synchronized boolean isUsable( long now )
+        {
+            return ( state == State.AVAILABLE ) || ( now - retryTime >= 0L );
+        }
+
+
+        /**
+         * Acquires the server for a new connection. The first caller acquiring an
+         * unavailable server which retry delay has expired makes the trial connection,
+         * the other callers can't acquire it until the trial result is known, or until
+         * another retry delay has expired.
+         *
+         * @param now The current time, in nanoseconds
+         * @param retryDelay The retry delay, in milliseconds
+         * @return <tt>true</tt> if the server can be used
+         */
+        private synchronized boolean acquire( long now, long retryDelay )
+        {
+            if ( state == State.AVAILABLE )
+            {
+                return true;
+            }
+
+            if ( now - retryTime < 0L )
+            {
+                return false;
+            }
+
+            state = State.PROBING;
+            retryTime = now + TimeUnit.MILLISECONDS.toNanos( retryDelay );
+
+            return true;
+        }
+
+
+        /**
+         * Records a successful connection
+         *
+         * @param elapsed The time spent to connect and bind, in nanoseconds, 0 if unknown
+         */
+        private synchronized void success( long elapsed )
+        {
+            failures = 0;
+
+            if ( state != State.AVAILABLE )
+            {
+                state = State.AVAILABLE;
+
+                if ( LOG.isInfoEnabled() )
+                {
+                    LOG.info( I18n.msg( I18n.MSG_04185_SERVER_CIRCUIT_CLOSED, this ) );
+                }
+            }
+
+            if ( elapsed > 0L )
+            {
+                latency = ( latency == 0d )
+                    ? elapsed
+                    : ( LATENCY_SAMPLE_WEIGHT * elapsed ) + ( ( 1d - LATENCY_SAMPLE_WEIGHT ) * latency );
+            }
+        }
+
+
+        /**
+         * Records a failed connection
+         *
+         * @param failureThreshold The number of consecutive failures after which the server is not used anymore
+         * @param retryDelay The delay, in milliseconds, before the server is tried again
+         */
+        private synchronized void failure( int failureThreshold, long retryDelay )
+        {
+            failures++;
+
+            if ( ( state == State.PROBING ) || ( ( state == State.AVAILABLE ) && ( failures >= failureThreshold ) ) )
+            {
+                state = State.UNAVAILABLE;
+                retryTime = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos( retryDelay );
+
+                if ( LOG.isWarnEnabled() )
+                {
+                    LOG.warn( I18n.msg( I18n.MSG_04184_SERVER_CIRCUIT_OPENED, this, failures, retryDelay ) );
+                }
+            }
+        }
+
+
+        /**
+         * @return The server configuration
+         */
+        public LdapConnectionConfig getConfig()
+        {
+            return config;
+        }
+
+
+        /**
+         * @return The server state
+         */
+        public State getState()
+        {
+            return state;
+        }
+
+
+        /**
+         * @return The moving average of the time spent to connect and bind, in nanoseconds,
+         * 0 if no connection has been made yet
+         */
+        public long getLatency()
+        {
+            return ( long ) latency;
+        }
+
+
+        /**
+         * @return The number of open connections created for this server. A connection is
+         * counted from its creation, so that the connections being connected and bound
+         * concurrently are spread over the servers.
+         */
+        public int getOpenConnections()
+        {
+            int count = 0;
+
+            synchronized ( connections )
+            {
+                for ( LdapConnection connection : connections )
+                {
+                    if ( opening.contains( connection ) || connection.isConnected() )
+                    {
+                        count++;
+                    }
+                }
+            }
+
+            return count;
+        }
+
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public String toString()
+        {
+            return config.getLdapHost() + ":" + config.getLdapPort();
+        }
+    }
+}
@@ -0,0 +1,346 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *    https://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ *
+ */
+package org.apache.directory.ldap.client.api;
+
+
+import java.lang.reflect.Proxy;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.apache.directory.api.asn1.util.Oid;
+import org.apache.directory.api.i18n.I18n;
+import org.apache.directory.api.ldap.codec.api.BinaryAttributeDetector;
+import org.apache.directory.api.ldap.model.exception.LdapException;
+import org.apache.directory.api.ldap.model.message.BindRequest;
+import org.apache.directory.api.ldap.model.message.BindResponse;
+import org.apache.directory.api.ldap.model.message.ExtendedRequest;
+import org.apache.directory.api.ldap.model.message.ExtendedResponse;
+import org.apache.directory.api.ldap.model.name.Dn;
+import org.apache.directory.api.ldap.model.schema.SchemaManager;
+import org.apache.directory.ldap.client.api.exception.InvalidConnectionException;
+
+
+/**
+ * A connection given by {@link LdapConnectionPool#getSharedConnection()}. The underlying
+ * connection is used at the same time by other callers, so the operations changing the
+ * state of the connection (bind, unbind, extended operations like StartTLS, schema and
+ * configuration changes) throw an {@link UnsupportedOperationException} : they must be
+ * done on a connection borrowed with {@link LdapConnectionPool#getConnection()}.
+ * <br>
+ * Closing this connection does not close the underlying connection, it just tells the
+ * pool it's not used anymore by this caller. Once closed, this connection is neither
+ * connected nor authenticated, and its operations throw an exception.
+ *
+ * @author <a href="mailto:dev@directory.apache.org">Apache Directory Project</a>
+ */
+public class SharedLdapConnection extends LdapConnectionWrapper
+{
+    /** The pool slot holding the underlying connection */
+    private final LdapConnectionPool.SharedSlot slot;
+
+    /** A flag set when this connection has been closed */
+    private final AtomicBoolean closed = new AtomicBoolean( false );
+
+
+    /**
+     * Creates a new SharedLdapConnection instance
+     *
+     * @param slot The pool slot holding the underlying connection
+     */
+    SharedLdapConnection( LdapConnectionPool.SharedSlot slot )
+    {
+        super( slot.getConnection() );
+        this.slot = slot;
+    }
+
+
+    /**
+     * Creates the exception thrown when an operation changing the connection state is called
+     *
+     * @param operation The operation name
+     * @return The exception to throw
+     */
+    private static UnsupportedOperationException stateChange( String operation )
+    {
+        return new UnsupportedOperationException( I18n.err( I18n.ERR_04183_SHARED_CONNECTION_STATE_CHANGE, operation ) );
+    }
+
+
+    /**
+     * Creates the connection this connection delegates to once it has been closed : closing
+     * it does nothing, it's neither connected nor authenticated, and all its other operations
+     * throw an {@link InvalidConnectionException}, or an IllegalStateException when they can't
+     * throw a LdapException.
+     *
+     * @return The closed connection
+     */
+    private static LdapConnection closedConnection()
+    {
+        return ( LdapConnection ) Proxy.newProxyInstance( LdapConnection.class.getClassLoader(),
+            new Class<?>[] { LdapConnection.class },
+            ( proxy, method, args ) ->
+            {
+                switch ( method.getName() )
+                {
+                    case "close":
+                        return null;
+
+                    case "isConnected":
+                    case "isAuthenticated":
+                        return Boolean.FALSE;
+
+                    case "equals":
+                        return proxy == args[0];
+
+                    case "hashCode":
+                        return System.identityHashCode( proxy );
+
+                    case "toString":
+                        return "SharedLdapConnection[closed]";
+
+                    default:
+                        String message = I18n.err( I18n.ERR_04193_SHARED_CONNECTION_CLOSED, method.getName() );
+
+                        if ( Arrays.asList( method.getExceptionTypes() ).contains( LdapException.class ) )
+                        {
+                            throw new InvalidConnectionException( message );
+                        }
+
+                        throw new IllegalStateException( message );
+                }
+            } );
+    }
+
+
+    /**
+     * {@inheritDoc}
+     * 
+     * The underlying connection is left open, and may be given to another caller. This
+     * connection can't be used anymore.
+     */
+    @Override
+    public void close()
+    {
+        if ( closed.compareAndSet( false, true ) )
+        {
+            connection = closedConnection();
+            slot.release();
+        }
+    }
+
+
+    /**
+     * @return <tt>true</tt> if this connection has been closed
+     */
+    public boolean isClosed()
+    {
+        return closed.get();
+    }
+
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void bind() throws LdapException
+    {
+        throw stateChange( "bind" );
+    }
+
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void anonymousBind() throws LdapException
+    {
+        throw stateChange( "bind" );
+    }
+
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void bind( String name ) throws LdapException
+    {
+        throw stateChange( "bind" );
+    }
+
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void bind( String name, String credentials ) throws LdapException
+    {
+        throw stateChange( "bind" );
+    }
+
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void bind( Dn name ) throws LdapException
+    {
+        throw stateChange( "bind" );
+    }
+
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void bind( Dn name, String credentials ) throws LdapException
+    {
+        throw stateChange( "bind" );
+    }
+
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public BindResponse bind( BindRequest bindRequest ) throws LdapException
+    {
+        throw stateChange( "bind" );
+    }
+
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public BindResponse bind( SaslRequest saslRequest ) throws LdapException
+    {
+        throw stateChange( "bind" );
+    }
+
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void unBind() throws LdapException
+    {
+        throw stateChange( "unbind" );
+    }
+
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void setTimeOut( long timeOut )
+    {
+        throw stateChange( "setTimeOut" );
+    }
+
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public ExtendedResponse extended( String oid ) throws LdapException
+    {
+        throw stateChange( "extended" );
+    }
+
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public ExtendedResponse extended( String oid, byte[] value ) throws LdapException
+    {
+        throw stateChange( "extended" );
+    }
+
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public ExtendedResponse extended( Oid oid ) throws LdapException
+    {
+        throw stateChange( "extended" );
+    }
+
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public ExtendedResponse extended( Oid oid, byte[] value ) throws LdapException
+    {
+        throw stateChange( "extended" );
+    }
+
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public ExtendedResponse extended( ExtendedRequest extendedRequest ) throws LdapException
+    {
+        throw stateChange( "extended" );
+    }
+
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void loadSchema() throws LdapException
+    {
+        throw stateChange( "loadSchema" );
+    }
+
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void loadSchemaRelaxed() throws LdapException
+    {
+        throw stateChange( "loadSchemaRelaxed" );
+    }
+
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void setBinaryAttributeDetector( BinaryAttributeDetector binaryAttributeDetecter )
+    {
+        throw stateChange( "setBinaryAttributeDetector" );
+    }
+
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void setSchemaManager( SchemaManager schemaManager )
+    {
+        throw stateChange( "setSchemaManager" );
+    }
+}
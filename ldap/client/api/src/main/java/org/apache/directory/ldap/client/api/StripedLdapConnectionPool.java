@@ -0,0 +1,812 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *    https://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ *
+ */
+package org.apache.directory.ldap.client.api;
+
+
+import java.time.Duration;
+import java.util.NoSuchElementException;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+import org.apache.commons.pool2.DestroyMode;
+import org.apache.commons.pool2.PooledObject;
+import org.apache.commons.pool2.PooledObjectFactory;
+import org.apache.commons.pool2.impl.GenericObjectPoolConfig;
+import org.apache.directory.api.i18n.I18n;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+
+/**
+ * A LdapConnectionPool which does not use the commons-pool queue and locks : the connections
+ * are stored in a fixed array of slots, one per connection the pool may hold, which are taken
+ * and released with a CAS on their state. Each thread starts looking for an idle connection
+ * at its own position in the array, so concurrent threads don't compete for the same slots.
+ * When the thread affinity is enabled, a thread first tries to get back the connection it
+ * last released.
+ * <br>
+ * The pool configuration is the same as the GenericObjectPool one : the maximum number of
+ * connections, which must be positive and can't be changed once the pool has been created
+ * as it gives the number of slots, the maximum waiting time and the exhausted pool
+ * behavior, and the validation on borrow, on return and while idle, which uses the factory
+ * validateObject method. The idle connections are evicted by the {@link #evict()} method,
+ * using the configured {@link EvictionPolicy}, and the minimum number of idle connections
+ * is kept by this method too.
+ * <br>
+ * All the methods borrowing, returning, invalidating or adding a connection use the slots,
+ * the GenericObjectPool ones are never called.
+ *
+ * @author <a href="mailto:dev@directory.apache.org">Apache Directory Project</a>
+ */
+public class StripedLdapConnectionPool extends LdapConnectionPool
+{
+    /** This class logger */
+    private static final Logger LOG = LoggerFactory.getLogger( StripedLdapConnectionPool.class );
+
+    /** The default time a connection may stay idle before being evicted : 30 minutes */
+    public static final long DEFAULT_MIN_EVICTABLE_IDLE_MILLIS = 30L * 60L * 1000L;
+
+    /** The slot does not hold a connection */
+    private static final int EMPTY = 0;
+
+    /** The slot holds an idle connection */
+    private static final int IDLE = 1;
+
+    /** The slot holds a borrowed connection */
+    private static final int BORROWED = 2;
+
+    /** The slot is being filled, validated or emptied */
+    private static final int RESERVED = 3;
+
+    /** Spreads the thread IDs over the slots */
+    private static final int SPREAD = 0x9E3779B9;
+
+    /**
+     * Decides if an idle connection must be evicted from the pool
+     */
+    @FunctionalInterface
+    public interface EvictionPolicy
+    {
+        /**
+         * Tells if an idle connection must be evicted
+         *
+         * @param connection The idle connection
+         * @param idleMillis The time the connection has been idle, in milliseconds
+         * @param idleCount The number of idle connections in the pool
+         * @return <tt>true</tt> if the connection must be evicted
+         */
+        boolean evict( LdapConnection connection, long idleMillis, int idleCount );
+    }
+
+    /** The factory creating, validating and destroying the connections */
+    private final PooledObjectFactory<LdapConnection> connectionFactory;
+
+    /** The slots */
+    private final Slot[] slots;
+
+    /** The slot holding the connection last released by each thread */
+    private final ThreadLocal<Slot> lastReleased = new ThreadLocal<>();
+
+    /** The threads waiting for a connection */
+    private final Queue<Thread> waiters = new ConcurrentLinkedQueue<>();
+
+    /** Tells if a thread first tries to get the connection it last released */
+    private volatile boolean threadAffinity = true;
+
+    /** The minimum number of idle connections kept by the eviction */
+    private volatile int minIdle;
+
+    /** The time a connection may stay idle before being evicted by the default policy */
+    private volatile long minEvictableIdleMillis = DEFAULT_MIN_EVICTABLE_IDLE_MILLIS;
+
+    /** The eviction policy */
+    private volatile EvictionPolicy evictionPolicy = this::isEvictable;
+
+    /** Set when the pool has been closed */
+    private volatile boolean closed;
+
+
+    /**
+     * Instantiates a new striped LDAP connection pool.
+     *
+     * @param factory The LDAP connection factory
+     */
+    public StripedLdapConnectionPool( PooledObjectFactory<LdapConnection> factory )
+    {
+        this( factory, null );
+    }
+
+
+    /**
+     * Instantiates a new striped LDAP connection pool.
+     *
+     * @param factory The LDAP connection factory
+     * @param poolConfig The pool configuration
+     */
+    public StripedLdapConnectionPool( PooledObjectFactory<LdapConnection> factory,
+        GenericObjectPoolConfig<LdapConnection> poolConfig )
+    {
+        super( factory, poolConfig );
+
+        int maxTotal = getMaxTotal();
+
+        if ( maxTotal <= 0 )
+        {
+            throw new IllegalArgumentException( I18n.err( I18n.ERR_04185_INVALID_POOL_SIZE, maxTotal ) );
+        }
+
+        connectionFactory = factory;
+        slots = new Slot[maxTotal];
+
+        for ( int i = 0; i < maxTotal; i++ )
+        {
+            slots[i] = new Slot();
+        }
+
+        // The minimum number of idle connections is kept by this pool, not by the GenericObjectPool
+        minIdle = ( poolConfig == null ) ? 0 : poolConfig.getMinIdle();
+        super.setMinIdle( 0 );
+    }
+
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public LdapConnection borrowObject() throws Exception
+    {
+        return borrowObject( getMaxWaitDuration().toMillis() );
+    }
+
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public LdapConnection borrowObject( Duration maxWaitDuration ) throws Exception
+    {
+        return borrowObject( maxWaitDuration.toMillis() );
+    }
+
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public LdapConnection borrowObject( long maxWaitMillis ) throws Exception
+    {
+        long deadline = ( maxWaitMillis < 0 ) ? Long.MAX_VALUE : System.nanoTime()
+            + TimeUnit.MILLISECONDS.toNanos( maxWaitMillis );
+        Thread current = Thread.currentThread();
+
+        while ( true )
+        {
+            Slot slot = acquire();
+
+            if ( slot != null )
+            {
+                return slot.pooledObject.getObject();
+            }
+
+            long remaining = deadline - System.nanoTime();
+
+            if ( !getBlockWhenExhausted() || ( remaining <= 0 ) )
+            {
+                throw new NoSuchElementException( I18n.err( I18n.ERR_04186_POOL_EXHAUSTED, maxWaitMillis ) );
+            }
+
+            // Register before trying again, so that a release done in between wakes us up
+            waiters.add( current );
+
+            try
+            {
+                slot = acquire();
+
+                if ( slot != null )
+                {
+                    return slot.pooledObject.getObject();
+                }
+
+                if ( deadline == Long.MAX_VALUE )
+                {
+                    LockSupport.park( this );
+                }
+                else
+                {
+                    LockSupport.parkNanos( this, remaining );
+                }
+            }
+            finally
+            {
+                waiters.remove( current );
+            }
+
+            if ( Thread.interrupted() )
+            {
+                throw new InterruptedException();
+            }
+        }
+    }
+
+
+    /**
+     * Takes an idle connection, or creates a new one if there is an empty slot
+     *
+     * @return The slot holding the borrowed connection, or null if the pool is exhausted
+     * @throws Exception If a new connection can't be created or activated
+     */
+    private Slot acquire() throws Exception
+    {
+        if ( closed )
+        {
+            throw new IllegalStateException( I18n.err( I18n.ERR_04187_POOL_CLOSED ) );
+        }
+
+        if ( threadAffinity )
+        {
+            Slot slot = lastReleased.get();
+
+            if ( ( slot != null ) && slot.state.compareAndSet( IDLE, BORROWED ) && activate( slot ) )
+            {
+                return slot;
+            }
+        }
+
+        int start = Math.floorMod( ( int ) Thread.currentThread().getId() * SPREAD, slots.length );
+
+        for ( int i = 0; i < slots.length; i++ )
+        {
+            Slot slot = slots[( start + i ) % slots.length];
+
+            if ( slot.state.compareAndSet( IDLE, BORROWED ) && activate( slot ) )
+            {
+                return slot;
+            }
+        }
+
+        for ( int i = 0; i < slots.length; i++ )
+        {
+            Slot slot = slots[( start + i ) % slots.length];
+
+            if ( slot.state.compareAndSet( EMPTY, RESERVED ) )
+            {
+                create( slot );
+
+                if ( getTestOnBorrow() && !connectionFactory.validateObject( slot.pooledObject ) )
+                {
+                    LdapConnection connection = slot.pooledObject.getObject();
+                    destroy( slot );
+
+                    throw new NoSuchElementException( I18n.err( I18n.ERR_04189_INVALID_NEW_CONNECTION, connection ) );
+                }
+
+                slot.state.set( BORROWED );
+
+                return slot;
+            }
+        }
+
+        return null;
+    }
+
+
+    /**
+     * Creates a new connection in a reserved slot, and activates it
+     *
+     * @param slot The reserved slot
+     * @throws Exception If the connection can't be created or activated
+     */
+    private void create( Slot slot ) throws Exception
+    {
+        try
+        {
+            PooledObject<LdapConnection> pooledObject = connectionFactory.makeObject();
+            slot.pooledObject = pooledObject;
+            connectionFactory.activateObject( pooledObject );
+        }
+        catch ( Exception | Error e )
+        {
+            destroy( slot );
+
+            throw e;
+        }
+    }
+
+
+    /**
+     * Activates and validates, if required, the connection of a borrowed slot. The
+     * connection is destroyed if it can't be activated or validated.
+     *
+     * @param slot The borrowed slot
+     * @return <tt>true</tt> if the connection can be used
+     */
+    private boolean activate( Slot slot )
+    {
+        try
+        {
+            connectionFactory.activateObject( slot.pooledObject );
+
+            if ( !getTestOnBorrow() || connectionFactory.validateObject( slot.pooledObject ) )
+            {
+                return true;
+            }
+        }
+        catch ( Exception e )
+        {
+            LOG.warn( I18n.err( I18n.ERR_04107_UNEXPECTED_THROWN_EXCEPTION, e.getMessage() ), e );
+        }
+
+        destroy( slot );
+
+        return false;
+    }
+
+
+    /**
+     * Destroys the connection held by a slot we own, and empties the slot
+     *
+     * @param slot The slot
+     */
+    private void destroy( Slot slot )
+    {
+        PooledObject<LdapConnection> pooledObject = slot.pooledObject;
+        slot.pooledObject = null;
+
+        if ( pooledObject != null )
+        {
+            try
+            {
+                connectionFactory.destroyObject( pooledObject );
+            }
+            catch ( Exception e )
+            {
+                LOG.warn( I18n.err( I18n.ERR_04107_UNEXPECTED_THROWN_EXCEPTION, e.getMessage() ), e );
+            }
+        }
+
+        slot.state.set( EMPTY );
+        signal();
+    }
+
+
+    /**
+     * Wakes up a thread waiting for a connection
+     */
+    private void signal()
+    {
+        Thread waiter = waiters.poll();
+
+        if ( waiter != null )
+        {
+            LockSupport.unpark( waiter );
+        }
+    }
+
+
+    /**
+     * Finds the slot holding a borrowed connection
+     *
+     * @param connection The borrowed connection
+     * @return The slot holding the connection
+     * @throws IllegalStateException If the connection has not been borrowed from this pool
+     */
+    private Slot findBorrowed( LdapConnection connection )
+    {
+        Slot slot = lastReleased.get();
+
+        if ( ( slot == null ) || !isBorrowed( slot, connection ) )
+        {
+            slot = null;
+
+            for ( Slot candidate : slots )
+            {
+                if ( isBorrowed( candidate, connection ) )
+                {
+                    slot = candidate;
+                    break;
+                }
+            }
+        }
+
+        if ( slot == null )
+        {
+            throw new IllegalStateException( I18n.err( I18n.ERR_04188_NOT_A_POOLED_CONNECTION, connection ) );
+        }
+
+        return slot;
+    }
+
+
+    private static boolean isBorrowed( Slot slot, LdapConnection connection )
+    {
+        PooledObject<LdapConnection> pooledObject = slot.pooledObject;
+
+        return ( slot.state.get() == BORROWED ) && ( pooledObject != null ) && ( pooledObject.getObject() == connection );
+    }
+
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void returnObject( LdapConnection connection )
+    {
+        Slot slot = findBorrowed( connection );
+
+        if ( !slot.state.compareAndSet( BORROWED, RESERVED ) )
+        {
+            throw new IllegalStateException( I18n.err( I18n.ERR_04188_NOT_A_POOLED_CONNECTION, connection ) );
+        }
+
+        try
+        {
+            if ( closed || ( getTestOnReturn() && !connectionFactory.validateObject( slot.pooledObject ) ) )
+            {
+                destroy( slot );
+
+                return;
+            }
+
+            connectionFactory.passivateObject( slot.pooledObject );
+        }
+        catch ( Exception e )
+        {
+            LOG.warn( I18n.err( I18n.ERR_04107_UNEXPECTED_THROWN_EXCEPTION, e.getMessage() ), e );
+            destroy( slot );
+
+            return;
+        }
+
+        slot.idleSince = System.currentTimeMillis();
+        slot.state.set( IDLE );
+
+        if ( threadAffinity )
+        {
+            lastReleased.set( slot );
+        }
+
+        signal();
+    }
+
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void invalidateObject( LdapConnection connection ) throws Exception
+    {
+        Slot slot = findBorrowed( connection );
+
+        if ( slot.state.compareAndSet( BORROWED, RESERVED ) )
+        {
+            destroy( slot );
+        }
+    }
+
+
+    /**
+     * {@inheritDoc}
+     * 
+     * The connection is destroyed the same way whatever the destroy mode is.
+     */
+    @Override
+    public void invalidateObject( LdapConnection connection, DestroyMode destroyMode ) throws Exception
+    {
+        invalidateObject( connection );
+    }
+
+
+    /**
+     * {@inheritDoc}
+     * 
+     * An idle connection is created, if the pool is not full.
+     */
+    @Override
+    public void addObject() throws Exception
+    {
+        for ( Slot slot : slots )
+        {
+            if ( slot.state.compareAndSet( EMPTY, RESERVED ) )
+            {
+                create( slot );
+
+                try
+                {
+                    connectionFactory.passivateObject( slot.pooledObject );
+                }
+                catch ( Exception e )
+                {
+                    destroy( slot );
+
+                    throw e;
+                }
+
+                slot.idleSince = System.currentTimeMillis();
+                slot.state.set( IDLE );
+                signal();
+
+                return;
+            }
+        }
+    }
+
+
+    /**
+     * {@inheritDoc}
+     * 
+     * No more connections are created once the pool is full.
+     */
+    @Override
+    public void addObjects( int count ) throws Exception
+    {
+        for ( int i = 0; ( i < count ) && !closed; i++ )
+        {
+            addObject();
+        }
+    }
+
+
+    /**
+     * {@inheritDoc}
+     * 
+     * Creates idle connections until there are at least the minimum number of idle connections.
+     */
+    @Override
+    public void preparePool() throws Exception
+    {
+        int missing = minIdle - getNumIdle();
+
+        for ( int i = 0; ( i < missing ) && !closed; i++ )
+        {
+            addObject();
+        }
+    }
+
+
+    /**
+     * {@inheritDoc}
+     * 
+     * The idle connections selected by the eviction policy are destroyed, and so are the
+     * idle connections which are not valid, if the validation while idle is enabled. Then
+     * connections are created, to keep the minimum number of idle connections.
+     */
+    @Override
+    public void evict() throws Exception
+    {
+        long now = System.currentTimeMillis();
+
+        for ( Slot slot : slots )
+        {
+            if ( slot.state.compareAndSet( IDLE, RESERVED ) )
+            {
+                boolean evicted = evictionPolicy.evict( slot.pooledObject.getObject(), now - slot.idleSince,
+                    getNumIdle() + 1 );
+
+                if ( evicted || ( getTestWhileIdle() && !connectionFactory.validateObject( slot.pooledObject ) ) )
+                {
+                    destroy( slot );
+                }
+                else
+                {
+                    slot.state.set( IDLE );
+                    signal();
+                }
+            }
+        }
+
+        preparePool();
+    }
+
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void clear()
+    {
+        for ( Slot slot : slots )
+        {
+            if ( slot.state.compareAndSet( IDLE, RESERVED ) )
+            {
+                destroy( slot );
+            }
+        }
+    }
+
+
+    /**
+     * {@inheritDoc}
+     * 
+     * The idle connections are destroyed, the borrowed ones will be when they are returned.
+     */
+    @Override
+    public void close()
+    {
+        super.close();
+        closed = true;
+        clear();
+
+        // Wake up the waiting threads, they will get an error
+        for ( Thread waiter : waiters )
+        {
+            LockSupport.unpark( waiter );
+        }
+    }
+
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int getNumIdle()
+    {
+        return count( IDLE );
+    }
+
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int getNumActive()
+    {
+        return count( BORROWED );
+    }
+
+
+    private int count( int state )
+    {
+        int count = 0;
+
+        for ( Slot slot : slots )
+        {
+            if ( slot.state.get() == state )
+            {
+                count++;
+            }
+        }
+
+        return count;
+    }
+
+
+    /**
+     * @return <tt>true</tt> if a thread first tries to get the connection it last released
+     */
+    public boolean isThreadAffinity()
+    {
+        return threadAffinity;
+    }
+
+
+    /**
+     * Tells if a thread first tries to get back the connection it last released, enabled by default
+     *
+     * @param threadAffinity <tt>true</tt> to enable the thread affinity
+     */
+    public void setThreadAffinity( boolean threadAffinity )
+    {
+        this.threadAffinity = threadAffinity;
+    }
+
+
+    /**
+     * {@inheritDoc}
+     * 
+     * The minimum number of idle connections is kept by the {@link #evict()} and
+     * {@link #preparePool()} methods of this pool. The GenericObjectPool value, returned
+     * by {@link #getMinIdle()}, stays 0 so that it does not create connections itself.
+     */
+    @Override
+    public void setMinIdle( int minIdle )
+    {
+        this.minIdle = minIdle;
+    }
+
+
+    /**
+     * {@inheritDoc}
+     * 
+     * The maximum number of connections is the number of slots of this pool, it can't be
+     * changed once the pool has been created.
+     * 
+     * @throws UnsupportedOperationException If the maximum number of connections is not the
+     * one the pool has been created with
+     */
+    @Override
+    public void setMaxTotal( int maxTotal )
+    {
+        // Called by the GenericObjectPool constructor, before the slots are created
+        if ( slots == null )
+        {
+            super.setMaxTotal( maxTotal );
+
+            return;
+        }
+
+        if ( maxTotal != slots.length )
+        {
+            throw new UnsupportedOperationException(
+                I18n.err( I18n.ERR_04195_FIXED_POOL_SIZE, slots.length, maxTotal ) );
+        }
+    }
+
+
+    /**
+     * @return The time a connection may stay idle before being evicted by the default policy
+     */
+    public long getMinEvictableIdleMillis()
+    {
+        return minEvictableIdleMillis;
+    }
+
+
+    /**
+     * Sets the time a connection may stay idle before being evicted by the default eviction
+     * policy, which keeps at least the minimum number of idle connections.
+     *
+     * @param minEvictableIdleMillis The time, in milliseconds
+     */
+    public void setMinEvictableIdleMillis( long minEvictableIdleMillis )
+    {
+        this.minEvictableIdleMillis = minEvictableIdleMillis;
+    }
+
+
+    /**
+     * Sets the policy selecting the idle connections evicted by {@link #evict()}
+     *
+     * @param evictionPolicy The eviction policy, or null to use the default policy
+     */
+    public void setEvictionPolicy( EvictionPolicy evictionPolicy )
+    {
+        this.evictionPolicy = ( evictionPolicy == null ) ? this::isEvictable : evictionPolicy;
+    }
+
+
+    /**
+     * The default eviction policy : a connection is evicted if it has been idle for longer
+     * than the minimum evictable idle time, and if there are more idle connections than
+     * the minimum.
+     */
+    private boolean isEvictable( LdapConnection connection, long idleMillis, int idleCount )
+    {
+        return ( idleMillis > minEvictableIdleMillis ) && ( idleCount > minIdle );
+    }
+
+
+    /**
+     * A slot holding a connection
+     */
+    private static final class Slot
+    {
+        /** The slot state */
+        private final AtomicInteger state = new AtomicInteger( EMPTY );
+
+        /** The connection, if any */
+        private volatile PooledObject<LdapConnection> pooledObject;
+
+        /** The time the connection has been released */
+        private volatile long idleSince;
+    }
+}
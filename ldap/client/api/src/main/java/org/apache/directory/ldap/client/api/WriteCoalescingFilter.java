@@ -0,0 +1,354 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *    https://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ *
+ */
+package org.apache.directory.ldap.client.api;
+
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.directory.api.i18n.I18n;
+import org.apache.mina.core.buffer.IoBuffer;
+import org.apache.mina.core.filterchain.IoFilterAdapter;
+import org.apache.mina.core.future.DefaultWriteFuture;
+import org.apache.mina.core.future.IoFutureListener;
+import org.apache.mina.core.future.WriteFuture;
+import org.apache.mina.core.session.IoSession;
+import org.apache.mina.core.write.DefaultWriteRequest;
+import org.apache.mina.core.write.WriteRequest;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+
+/**
+ * An {@link IoFilterAdapter} that coalesces the encoded PDUs written in a short window
+ * into a single buffer, which is written with a single write on the socket. The pending
+ * PDUs are written :
+ * <ul>
+ *   <li>when the flush delay has expired since the first pending PDU was queued</li>
+ *   <li>when the pending PDUs size reaches the flush threshold</li>
+ *   <li>when {@link #flush()} is called</li>
+ *   <li>before the session is closed</li>
+ * </ul>
+ * The filter must be placed between the LDAP codec and the socket. The write futures of
+ * the coalesced requests are completed when the buffer containing them has been written.
+ * <br>
+ * This filter is used by a single connection, and holds the state of its session.
+ *
+ * @author <a href="mailto:dev@directory.apache.org">Apache Directory Project</a>
+ */
+public class WriteCoalescingFilter extends IoFilterAdapter
+{
+    /** The logger */
+    private static final Logger LOG = LoggerFactory.getLogger( WriteCoalescingFilter.class );
+
+    /** The scheduler used to flush the pending PDUs once the delay has expired */
+    private static final ScheduledExecutorService FLUSH_SCHEDULER = Executors.newSingleThreadScheduledExecutor(
+        runnable ->
+        {
+            Thread thread = new Thread( runnable, "WriteCoalescingFilter-flush" );
+            thread.setDaemon( true );
+
+            return thread;
+        } );
+
+    /** The delay, in milliseconds, after which the pending PDUs are written. 0 means no delay */
+    private final long flushDelay;
+
+    /** The number of pending bytes above which the PDUs are written */
+    private final int flushThreshold;
+
+    /** The requests which have been coalesced in the pending buffer */
+    private List<WriteRequest> pendingRequests = new ArrayList<>();
+
+    /** The buffer containing the pending PDUs */
+    private IoBuffer pendingBuffer;
+
+    /** The scheduled flush, if any */
+    private ScheduledFuture<?> scheduledFlush;
+
+    /** The next filter in the chain, set when the first request is written */
+    private NextFilter nextFilter;
+
+    /** The session the PDUs are written to, set when the first request is written */
+    private IoSession session;
+
+
+    /**
+     * Creates a new instance of WriteCoalescingFilter.
+     *
+     * @param flushDelay The delay, in milliseconds, after which the pending PDUs are written.
+     * If 0, the PDUs are only written when the threshold is reached or when {@link #flush()} is called
+     * @param flushThreshold The number of pending bytes above which the PDUs are written
+     */
+    public WriteCoalescingFilter( long flushDelay, int flushThreshold )
+    {
+        if ( flushDelay < 0 )
+        {
+            throw new IllegalArgumentException( "Invalid flush delay: " + flushDelay );
+        }
+
+        if ( flushThreshold <= 0 )
+        {
+            throw new IllegalArgumentException( "Invalid flush threshold: " + flushThreshold );
+        }
+
+        this.flushDelay = flushDelay;
+        this.flushThreshold = flushThreshold;
+    }
+
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void filterWrite( NextFilter nextFilter, IoSession session, WriteRequest writeRequest ) throws Exception
+    {
+        Object message = writeRequest.getMessage();
+
+        synchronized ( this )
+        {
+            this.nextFilter = nextFilter;
+            this.session = session;
+
+            if ( !( message instanceof IoBuffer ) )
+            {
+                // We can't coalesce this message, but it must be written after the pending ones
+                flushPending();
+                nextFilter.filterWrite( session, writeRequest );
+
+                return;
+            }
+
+            IoBuffer buffer = ( IoBuffer ) message;
+
+            if ( pendingRequests.isEmpty() && ( buffer.remaining() >= flushThreshold ) )
+            {
+                // Big enough to be written as is
+                nextFilter.filterWrite( session, writeRequest );
+
+                return;
+            }
+
+            if ( pendingBuffer == null )
+            {
+                pendingBuffer = IoBuffer.allocate( Math.max( flushThreshold, buffer.remaining() ) );
+                pendingBuffer.setAutoExpand( true );
+            }
+
+            pendingBuffer.put( buffer );
+            pendingRequests.add( writeRequest );
+
+            if ( pendingBuffer.position() >= flushThreshold )
+            {
+                flushPending();
+            }
+            else if ( ( scheduledFlush == null ) && ( flushDelay > 0 ) )
+            {
+                scheduledFlush = FLUSH_SCHEDULER.schedule( this::flush, flushDelay, TimeUnit.MILLISECONDS );
+            }
+        }
+    }
+
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void messageSent( NextFilter nextFilter, IoSession session, WriteRequest writeRequest ) throws Exception
+    {
+        if ( writeRequest instanceof CoalescedWriteRequest )
+        {
+            // Propagate the event for each coalesced request
+            for ( WriteRequest coalescedRequest : ( ( CoalescedWriteRequest ) writeRequest ).coalescedRequests )
+            {
+                nextFilter.messageSent( session, coalescedRequest );
+            }
+        }
+        else
+        {
+            nextFilter.messageSent( session, writeRequest );
+        }
+    }
+
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void filterClose( NextFilter nextFilter, IoSession session ) throws Exception
+    {
+        // Don't lose the pending PDUs (an UnbindRequest, typically)
+        flush();
+
+        nextFilter.filterClose( session );
+    }
+
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void sessionClosed( NextFilter nextFilter, IoSession session ) throws Exception
+    {
+        List<WriteRequest> lostRequests;
+
+        synchronized ( this )
+        {
+            cancelScheduledFlush();
+            lostRequests = pendingRequests;
+            pendingRequests = new ArrayList<>();
+            pendingBuffer = null;
+            this.nextFilter = null;
+            this.session = null;
+        }
+
+        if ( !lostRequests.isEmpty() )
+        {
+            IOException cause = new IOException( I18n.err( I18n.ERR_04160_SESSION_HAS_BEEN_CLOSED ) );
+
+            for ( WriteRequest lostRequest : lostRequests )
+            {
+                lostRequest.getFuture().setException( cause );
+            }
+        }
+
+        nextFilter.sessionClosed( session );
+    }
+
+
+    /**
+     * Writes the pending PDUs, if any.
+     */
+    public synchronized void flush()
+    {
+        if ( session != null )
+        {
+            flushPending();
+        }
+    }
+
+
+    /**
+     * @return The number of bytes waiting to be written
+     */
+    public synchronized int getPendingBytes()
+    {
+        return pendingBuffer == null ? 0 : pendingBuffer.position();
+    }
+
+
+    /**
+     * Writes the pending PDUs as a single request. Must be called while holding the lock.
+     */
+    private void flushPending()
+    {
+        cancelScheduledFlush();
+
+        if ( pendingRequests.isEmpty() )
+        {
+            return;
+        }
+
+        List<WriteRequest> coalescedRequests = pendingRequests;
+        IoBuffer buffer = pendingBuffer.flip();
+        pendingRequests = new ArrayList<>();
+        pendingBuffer = null;
+
+        if ( LOG.isDebugEnabled() )
+        {
+            LOG.debug( "Writing {} coalesced PDUs ({} bytes)", coalescedRequests.size(), buffer.remaining() );
+        }
+
+        WriteFuture writeFuture = new DefaultWriteFuture( session );
+        writeFuture.addListener( new CoalescedWriteListener( coalescedRequests ) );
+        nextFilter.filterWrite( session, new CoalescedWriteRequest( buffer, writeFuture, coalescedRequests ) );
+    }
+
+
+    /**
+     * Cancels the scheduled flush, if any. Must be called while holding the lock.
+     */
+    private void cancelScheduledFlush()
+    {
+        if ( scheduledFlush != null )
+        {
+            scheduledFlush.cancel( false );
+            scheduledFlush = null;
+        }
+    }
+
+
+    /**
+     * The request carrying the coalesced PDUs.
+     */
+    private static final class CoalescedWriteRequest extends DefaultWriteRequest
+    {
+        /** The requests which have been coalesced */
+        private final List<WriteRequest> coalescedRequests;
+
+
+        private CoalescedWriteRequest( IoBuffer buffer, WriteFuture writeFuture, List<WriteRequest> coalescedRequests )
+        {
+            super( buffer, writeFuture );
+            this.coalescedRequests = coalescedRequests;
+        }
+    }
+
+
+    /**
+     * Completes the futures of the coalesced requests when their buffer has been written.
+     */
+    private static final class CoalescedWriteListener implements IoFutureListener<WriteFuture>
+    {
+        /** The requests which have been coalesced */
+        private final List<WriteRequest> coalescedRequests;
+
+
+        private CoalescedWriteListener( List<WriteRequest> coalescedRequests )
+        {
+            this.coalescedRequests = coalescedRequests;
+        }
+
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public void operationComplete( WriteFuture future )
+        {
+            for ( WriteRequest coalescedRequest : coalescedRequests )
+            {
+                if ( future.isWritten() )
+                {
+                    coalescedRequest.getFuture().setWritten();
+                }
+                else
+                {
+                    coalescedRequest.getFuture().setException( future.getException() );
+                }
+            }
+        }
+    }
+}
@@ -22,6 +22,7 @@ package org.apache.directory.ldap.client.api.future;
 
 import org.apache.directory.api.ldap.model.message.ExtendedRequest;
 import org.apache.directory.api.ldap.model.message.ExtendedResponse;
+import org.apache.directory.api.ldap.model.message.IntermediateResponse;
 import org.apache.directory.api.ldap.model.message.Response;
 import org.apache.directory.ldap.client.api.LdapConnection;
 
@@ -82,7 +83,18 @@ public class ExtendedFuture extends MultipleResponseFuture<Response>
             response.setResponseName( extendedRequest.getRequestName() );
         }
         
-        queue.add( response );
+        super.set( response );
+    }
+
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    protected boolean isFinalResponse( Response response )
+    {
+        // The IntermediateResponses are followed by the ExtendedResponse
+        return !( response instanceof IntermediateResponse );
     }
 
 
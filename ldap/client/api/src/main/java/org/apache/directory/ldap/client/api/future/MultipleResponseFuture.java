@@ -21,6 +21,9 @@ package org.apache.directory.ldap.client.api.future;
 
 
 import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
 import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.TimeUnit;
 
@@ -52,6 +55,9 @@ public abstract class MultipleResponseFuture<R extends Response> implements Resp
     /** The connection used by the request */
     protected LdapConnection connection;
 
+    /** The stage completed when the final response has been received */
+    private final CompletableFuture<R> completion = new CompletableFuture<>();
+
 
     /**
      * Creates a new instance of ResponseFuture.
@@ -87,6 +93,8 @@ public abstract class MultipleResponseFuture<R extends Response> implements Resp
             // then clear the queue, cause the might be some incoming messages before this abandon request
             // hits the server
             queue.clear();
+
+            completeCancelled();
         }
 
         return cancelled;
@@ -114,6 +122,42 @@ public abstract class MultipleResponseFuture<R extends Response> implements Resp
     public void set( R response ) throws InterruptedException
     {
         queue.add( response );
+
+        if ( isFinalResponse( response ) )
+        {
+            completion.complete( response );
+        }
+    }
+
+
+    /**
+     * Tells if a response is the last one the operation will get. 
+     *
+     * @param response The received response
+     * @return <tt>true</tt> if no other response is expected. Always <tt>true</tt> by default
+     */
+    protected boolean isFinalResponse( R response )
+    {
+        return true;
+    }
+
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public CompletionStage<R> toCompletionStage()
+    {
+        return completion;
+    }
+
+
+    /**
+     * Completes the stage exceptionally, as the operation has been cancelled
+     */
+    private void completeCancelled()
+    {
+        completion.completeExceptionally( cause != null ? cause : new CancellationException() );
     }
 
 
@@ -177,6 +221,8 @@ public abstract class MultipleResponseFuture<R extends Response> implements Resp
     {
         // set the cancel flag first
         cancelled = true;
+
+        completeCancelled();
     }
 
 
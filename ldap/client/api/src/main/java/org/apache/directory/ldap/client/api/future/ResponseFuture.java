@@ -20,6 +20,7 @@
 package org.apache.directory.ldap.client.api.future;
 
 
+import java.util.concurrent.CompletionStage;
 import java.util.concurrent.Future;
 
 import org.apache.directory.api.ldap.model.message.Response;
@@ -60,4 +61,16 @@ public interface ResponseFuture<R extends Response> extends Future<R>
      *
      */
     void cancel();
+
+
+    /**
+     * Gives a stage completed with the final response of the operation, from the thread
+     * which has read it. The stage is completed exceptionally if the operation is cancelled,
+     * with the cancellation cause if any, or with a {@link java.util.concurrent.CancellationException}.
+     * When the connection is closed, the pending operations get a NoticeOfDisconnection response.
+     * Using the stage does not require a thread to wait for the response.
+     *
+     * @return The stage completed when the final response has been received
+     */
+    CompletionStage<R> toCompletionStage();
 }
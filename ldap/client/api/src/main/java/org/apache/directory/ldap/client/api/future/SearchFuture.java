@@ -20,8 +20,14 @@
 package org.apache.directory.ldap.client.api.future;
 
 
+import org.apache.directory.api.ldap.model.message.IntermediateResponse;
 import org.apache.directory.api.ldap.model.message.Response;
+import org.apache.directory.api.ldap.model.message.SearchResultDone;
+import org.apache.directory.api.ldap.model.message.SearchResultEntry;
+import org.apache.directory.api.ldap.model.message.SearchResultReference;
 import org.apache.directory.ldap.client.api.LdapConnection;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 
 /**
@@ -31,6 +37,13 @@ import org.apache.directory.ldap.client.api.LdapConnection;
  */
 public class SearchFuture extends MultipleResponseFuture<Response>
 {
+    /** The logger */
+    private static final Logger LOG = LoggerFactory.getLogger( SearchFuture.class );
+
+    /** The listener the responses are given to, if any */
+    private final SearchListener listener;
+
+
     /**
      * Creates a new instance of SearchFuture.
      *
@@ -38,8 +51,78 @@ public class SearchFuture extends MultipleResponseFuture<Response>
      * @param messageId The associated messageId
      */
     public SearchFuture( LdapConnection connection, int messageId )
+    {
+        this( connection, messageId, null );
+    }
+
+
+    /**
+     * Creates a new instance of SearchFuture, which gives the received responses to a listener
+     * instead of storing them. Only the SearchResultDone is stored.
+     *
+     * @param connection the LDAP connection
+     * @param messageId The associated messageId
+     * @param listener The listener the responses are given to
+     */
+    public SearchFuture( LdapConnection connection, int messageId, SearchListener listener )
     {
         super( connection, messageId );
+        this.listener = listener;
+    }
+
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void set( Response response ) throws InterruptedException
+    {
+        if ( ( listener == null ) || ( response instanceof SearchResultDone ) )
+        {
+            super.set( response );
+
+            return;
+        }
+
+        try
+        {
+            if ( response instanceof SearchResultEntry )
+            {
+                listener.entryReceived( ( SearchResultEntry ) response );
+            }
+            else if ( response instanceof SearchResultReference )
+            {
+                listener.referenceReceived( ( SearchResultReference ) response );
+            }
+            else if ( response instanceof IntermediateResponse )
+            {
+                listener.intermediateReceived( ( IntermediateResponse ) response );
+            }
+        }
+        catch ( RuntimeException re )
+        {
+            // Don't let the listener break the connection
+            LOG.error( re.getMessage(), re );
+        }
+    }
+
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    protected boolean isFinalResponse( Response response )
+    {
+        return response instanceof SearchResultDone;
+    }
+
+
+    /**
+     * @return The listener the responses are given to, or null if they are stored in the future
+     */
+    public SearchListener getListener()
+    {
+        return listener;
     }
 
 
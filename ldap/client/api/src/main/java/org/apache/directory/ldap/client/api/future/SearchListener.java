@@ -0,0 +1,66 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *    https://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ *
+ */
+package org.apache.directory.ldap.client.api.future;
+
+
+import org.apache.directory.api.ldap.model.message.IntermediateResponse;
+import org.apache.directory.api.ldap.model.message.SearchResultEntry;
+import org.apache.directory.api.ldap.model.message.SearchResultReference;
+
+
+/**
+ * A listener called for each response received for a search, but the SearchResultDone,
+ * which completes the {@link SearchFuture#toCompletionStage()} stage. The responses are
+ * not stored in the {@link SearchFuture}.
+ * <br>
+ * The methods are called by the thread reading the responses : they must not block,
+ * and should not throw exceptions.
+ *
+ * @author <a href="mailto:dev@directory.apache.org">Apache Directory Project</a>
+ */
+public interface SearchListener
+{
+    /**
+     * Called when an entry has been received
+     *
+     * @param searchResultEntry The received entry
+     */
+    void entryReceived( SearchResultEntry searchResultEntry );
+
+
+    /**
+     * Called when a referral has been received. Does nothing by default.
+     *
+     * @param searchResultReference The received reference
+     */
+    default void referenceReceived( SearchResultReference searchResultReference )
+    {
+    }
+
+
+    /**
+     * Called when an intermediate response has been received. Does nothing by default.
+     *
+     * @param intermediateResponse The received intermediate response
+     */
+    default void intermediateReceived( IntermediateResponse intermediateResponse )
+    {
+    }
+}
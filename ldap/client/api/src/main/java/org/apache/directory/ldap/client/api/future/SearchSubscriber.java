@@ -0,0 +1,68 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *    https://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ *
+ */
+package org.apache.directory.ldap.client.api.future;
+
+
+import org.apache.directory.api.ldap.model.message.Response;
+
+
+/**
+ * A subscriber receiving the responses of a search at its own pace : no response is
+ * given to the subscriber before it has requested it through its {@link SearchSubscription}.
+ * The responses are the entries, references and intermediate responses, followed by the
+ * SearchResultDone. The methods are never called concurrently, and follow the Reactive
+ * Streams rules : <tt>onSubscribe</tt>, then <tt>onNext</tt> for each requested response,
+ * then <tt>onComplete</tt> or <tt>onError</tt>.
+ *
+ * @author <a href="mailto:dev@directory.apache.org">Apache Directory Project</a>
+ */
+public interface SearchSubscriber
+{
+    /**
+     * Called once, before any other method
+     *
+     * @param subscription The subscription used to request the responses
+     */
+    void onSubscribe( SearchSubscription subscription );
+
+
+    /**
+     * Called for each requested response
+     *
+     * @param response The received response
+     */
+    void onNext( Response response );
+
+
+    /**
+     * Called when the search has failed or has been cancelled by the connection. No
+     * other method is called afterwards.
+     *
+     * @param cause The failure cause
+     */
+    void onError( Throwable cause );
+
+
+    /**
+     * Called once the SearchResultDone has been given to the subscriber. No other
+     * method is called afterwards.
+     */
+    void onComplete();
+}
@@ -0,0 +1,44 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *    https://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ *
+ */
+package org.apache.directory.ldap.client.api.future;
+
+
+/**
+ * The link between a {@link SearchSubscriber} and the search it has subscribed to.
+ *
+ * @author <a href="mailto:dev@directory.apache.org">Apache Directory Project</a>
+ */
+public interface SearchSubscription
+{
+    /**
+     * Request more responses. The demand is cumulative, and may be requested
+     * from any thread, including from {@link SearchSubscriber#onNext(org.apache.directory.api.ldap.model.message.Response)}.
+     *
+     * @param n The number of additional responses the subscriber is ready to process. Must be positive
+     */
+    void request( long n );
+
+
+    /**
+     * Stop the subscription : the search is abandoned, and the subscriber won't
+     * receive any other response.
+     */
+    void cancel();
+}
@@ -19,6 +19,9 @@
  */
 package org.apache.directory.ldap.client.api.future;
 
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
 import java.util.concurrent.TimeUnit;
 
 import org.apache.directory.api.ldap.model.message.Response;
@@ -51,6 +54,9 @@ public abstract class UniqueResponseFuture<R extends Response> implements Respon
     /** A flag set to TRUE when the response has been received */
     private volatile boolean done = false;
 
+    /** The stage completed when the response has been received */
+    private final CompletableFuture<R> completion = new CompletableFuture<>();
+
     /**
      * Creates a new instance of UniqueResponseFuture.
      *
@@ -110,6 +116,25 @@ public abstract class UniqueResponseFuture<R extends Response> implements Respon
         done = response != null;
 
         notifyAll();
+
+        if ( done )
+        {
+            completion.complete( response );
+        }
+        else
+        {
+            completion.completeExceptionally( cause != null ? cause : new CancellationException() );
+        }
+    }
+
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public CompletionStage<R> toCompletionStage()
+    {
+        return completion;
     }
 
 
@@ -133,14 +158,17 @@ public abstract class UniqueResponseFuture<R extends Response> implements Respon
             connection.abandon( messageId );
         }
         
-        // Notify the future
-        try
-        { 
-            set( null );
-        }
-        catch ( InterruptedException ie )
+        // Notify the future, unless it already has its response
+        if ( !done )
         {
-            // Nothing we can do
+            try
+            { 
+                set( null );
+            }
+            catch ( InterruptedException ie )
+            {
+                // Nothing we can do
+            }
         }
 
         return cancelled;
@@ -197,14 +225,17 @@ public abstract class UniqueResponseFuture<R extends Response> implements Respon
         // set the cancel flag first
         cancelled = true;
         
-        // Notify the future
-        try
-        { 
-            set( null );
-        }
-        catch ( InterruptedException ie )
+        // Notify the future, unless it already has its response
+        if ( !done )
         {
-            // Nothing we can do
+            try
+            { 
+                set( null );
+            }
+            catch ( InterruptedException ie )
+            {
+                // Nothing we can do
+            }
         }
     }
 
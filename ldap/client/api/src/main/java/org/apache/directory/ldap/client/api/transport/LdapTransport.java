@@ -0,0 +1,59 @@
+/*
+ *   Licensed to the Apache Software Foundation (ASF) under one
+ *   or more contributor license agreements.  See the NOTICE file
+ *   distributed with this work for additional information
+ *   regarding copyright ownership.  The ASF licenses this file
+ *   to you under the Apache License, Version 2.0 (the
+ *   "License"); you may not use this file except in compliance
+ *   with the License.  You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing,
+ *   software distributed under the License is distributed on an
+ *   "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *   KIND, either express or implied.  See the License for the
+ *   specific language governing permissions and limitations
+ *   under the License.
+ *
+ */
+
+package org.apache.directory.ldap.client.api.transport;
+
+
+import org.apache.directory.api.ldap.model.exception.LdapException;
+import org.apache.directory.ldap.client.api.LdapConnectionConfig;
+
+
+/**
+ * The network layer used by a {@link org.apache.directory.ldap.client.api.LdapNetworkConnection}
+ * to exchange LDAP messages with a server. When no transport is set in the
+ * {@link LdapConnectionConfig}, the connection uses its own MINA based network layer.
+ * <br>
+ * A transport may be shared by many connections : it's not disposed when a connection
+ * is closed, its owner has to call {@link #dispose()} when it's not needed anymore.
+ *
+ * @author <a href="mailto:dev@directory.apache.org">Apache Directory Project</a>
+ */
+public interface LdapTransport
+{
+    /**
+     * Open a session with the server configured in the connection configuration. If
+     * the configuration requires LDAPS, the TLS handshake must be completed when this
+     * method returns.
+     *
+     * @param config The connection configuration
+     * @param handler The handler notified of the session events
+     * @param timeout The maximum time to wait for the session to be established, in milliseconds
+     * @return The established session
+     * @throws LdapException If the session can't be established
+     */
+    LdapTransportSession connect( LdapConnectionConfig config, LdapTransportHandler handler, long timeout )
+        throws LdapException;
+
+
+    /**
+     * Release all the resources used by this transport. The sessions still open are closed.
+     */
+    void dispose();
+}
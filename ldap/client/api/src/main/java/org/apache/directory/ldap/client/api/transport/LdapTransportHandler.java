@@ -0,0 +1,69 @@
+/*
+ *   Licensed to the Apache Software Foundation (ASF) under one
+ *   or more contributor license agreements.  See the NOTICE file
+ *   distributed with this work for additional information
+ *   regarding copyright ownership.  The ASF licenses this file
+ *   to you under the Apache License, Version 2.0 (the
+ *   "License"); you may not use this file except in compliance
+ *   with the License.  You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing,
+ *   software distributed under the License is distributed on an
+ *   "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *   KIND, either express or implied.  See the License for the
+ *   specific language governing permissions and limitations
+ *   under the License.
+ *
+ */
+
+package org.apache.directory.ldap.client.api.transport;
+
+
+import org.apache.directory.api.ldap.model.message.Message;
+
+
+/**
+ * The callbacks a {@link LdapTransport} uses to notify the connection about the
+ * events happening on a session.
+ *
+ * @author <a href="mailto:dev@directory.apache.org">Apache Directory Project</a>
+ */
+public interface LdapTransportHandler
+{
+    /**
+     * Called when a session has been created, before any message is received. The
+     * handler sets the message container used to decode the incoming PDUs.
+     *
+     * @param session The created session
+     */
+    void sessionCreated( LdapTransportSession session );
+
+
+    /**
+     * Called when a message has been decoded
+     *
+     * @param session The session the message has been received on
+     * @param message The decoded message
+     * @throws Exception If the message can't be processed
+     */
+    void messageReceived( LdapTransportSession session, Message message ) throws Exception;
+
+
+    /**
+     * Called when an exception has been thrown while processing the session
+     *
+     * @param session The session the exception has been thrown on
+     * @param cause The exception
+     */
+    void exceptionCaught( LdapTransportSession session, Throwable cause );
+
+
+    /**
+     * Called when the session has been closed, by either side
+     *
+     * @param session The closed session
+     */
+    void sessionClosed( LdapTransportSession session );
+}
@@ -0,0 +1,123 @@
+/*
+ *   Licensed to the Apache Software Foundation (ASF) under one
+ *   or more contributor license agreements.  See the NOTICE file
+ *   distributed with this work for additional information
+ *   regarding copyright ownership.  The ASF licenses this file
+ *   to you under the Apache License, Version 2.0 (the
+ *   "License"); you may not use this file except in compliance
+ *   with the License.  You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing,
+ *   software distributed under the License is distributed on an
+ *   "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *   KIND, either express or implied.  See the License for the
+ *   specific language governing permissions and limitations
+ *   under the License.
+ *
+ */
+
+package org.apache.directory.ldap.client.api.transport;
+
+
+import java.util.concurrent.CompletableFuture;
+
+import javax.net.ssl.SSLSession;
+import javax.security.sasl.SaslClient;
+
+import org.apache.directory.api.ldap.codec.api.LdapMessageContainer;
+import org.apache.directory.api.ldap.model.exception.LdapException;
+import org.apache.directory.api.ldap.model.message.Message;
+import org.apache.directory.ldap.client.api.LdapConnectionConfig;
+
+
+/**
+ * A session established with a LDAP server by a {@link LdapTransport}.
+ *
+ * @author <a href="mailto:dev@directory.apache.org">Apache Directory Project</a>
+ */
+public interface LdapTransportSession
+{
+    /**
+     * Encode and send a message to the server
+     *
+     * @param message The message to send
+     * @return A future completed when the message has been written, or completed
+     * exceptionally if it can't be written
+     */
+    CompletableFuture<Void> write( Message message );
+
+
+    /**
+     * @return <tt>true</tt> if the session is connected and not being closed
+     */
+    boolean isConnected();
+
+
+    /**
+     * @return <tt>true</tt> if the session is using a secured channel
+     */
+    boolean isSecured();
+
+
+    /**
+     * @return The {@link SSLSession} associated with the session, or null if it's not secured
+     */
+    SSLSession getSslSession();
+
+
+    /**
+     * Add a TLS layer to the session, once the server has accepted the StartTLS
+     * extended operation, and wait for the handshake to be completed.
+     *
+     * @param config The connection configuration, containing the TLS parameters
+     * @param timeout The maximum time to wait for the handshake, in milliseconds
+     * @throws LdapException If the handshake failed
+     */
+    void startTls( LdapConnectionConfig config, long timeout ) throws LdapException;
+
+
+    /**
+     * Add the security layer negotiated by a SASL bind to the session. It replaces
+     * the previous one, if any.
+     *
+     * @param saslClient The SASL client which has completed the negotiation
+     * @throws LdapException If the security layer can't be added
+     */
+    void addSaslLayer( SaslClient saslClient ) throws LdapException;
+
+
+    /**
+     * @return The container used to decode the messages received on this session
+     */
+    LdapMessageContainer<Message> getMessageContainer();
+
+
+    /**
+     * Set the container used to decode the messages received on this session
+     *
+     * @param messageContainer The message container
+     */
+    void setMessageContainer( LdapMessageContainer<Message> messageContainer );
+
+
+    /**
+     * Stop reading the messages sent by the server, until {@link #resumeRead()} is called.
+     * The messages already read may still be delivered.
+     */
+    void suspendRead();
+
+
+    /**
+     * Read again the messages sent by the server, after a call to {@link #suspendRead()}.
+     */
+    void resumeRead();
+
+
+    /**
+     * Close the session. The {@link LdapTransportHandler#sessionClosed(LdapTransportSession)}
+     * callback is called once it's closed.
+     */
+    void close();
+}
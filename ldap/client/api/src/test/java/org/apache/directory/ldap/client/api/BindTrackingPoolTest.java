@@ -0,0 +1,250 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *    https://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ *
+ */
+package org.apache.directory.ldap.client.api;
+
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.apache.directory.api.ldap.model.exception.LdapException;
+import org.apache.directory.api.ldap.model.message.BindRequest;
+import org.apache.directory.api.ldap.model.message.BindResponseImpl;
+import org.apache.directory.api.ldap.model.message.Message;
+import org.apache.directory.api.ldap.model.message.ResultCodeEnum;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+
+/**
+ * Test the pool bound connections tracking
+ *
+ * @author <a href="mailto:dev@directory.apache.org">Apache Directory Project</a>
+ */
+public class BindTrackingPoolTest
+{
+    private static final String ADMIN_DN = "uid=admin,ou=system";
+    private static final String USER_DN = "uid=user,ou=system";
+
+    /** The transports used by the pooled connections */
+    private final List<MockLdapTransport> transports = Collections.synchronizedList( new ArrayList<>() );
+
+    /** The tested factory */
+    private BindTrackingPoolableLdapConnectionFactory factory;
+
+    /** The tested pool */
+    private LdapConnectionPool pool;
+
+
+    /**
+     * The BindRequests are successful, but for a wrong password
+     */
+    private static List<? extends Message> respond( Message request )
+    {
+        if ( request instanceof BindRequest )
+        {
+            BindResponseImpl response = new BindResponseImpl( request.getMessageId() );
+            boolean wrongPassword = "wrong".equals( new String( ( ( BindRequest ) request ).getCredentials() ) );
+            response.getLdapResult().setResultCode(
+                wrongPassword ? ResultCodeEnum.INVALID_CREDENTIALS : ResultCodeEnum.SUCCESS );
+
+            return Collections.singletonList( response );
+        }
+
+        return Collections.emptyList();
+    }
+
+
+    /**
+     * @return The number of BindRequests sent on all the connections
+     */
+    private int countBinds()
+    {
+        int count = 0;
+
+        synchronized ( transports )
+        {
+            for ( MockLdapTransport transport : transports )
+            {
+                for ( Message message : transport.getWritten() )
+                {
+                    if ( message instanceof BindRequest )
+                    {
+                        count++;
+                    }
+                }
+            }
+        }
+
+        return count;
+    }
+
+
+    @BeforeEach
+    public void createPool()
+    {
+        LdapConnectionConfig config = new LdapConnectionConfig();
+        config.setName( ADMIN_DN );
+        config.setCredentials( "secret" );
+
+        DefaultLdapConnectionFactory connectionFactory = new DefaultLdapConnectionFactory( config )
+        {
+            @Override
+            public LdapConnection newUnboundLdapConnection()
+            {
+                MockLdapTransport transport = new MockLdapTransport( BindTrackingPoolTest::respond );
+                transports.add( transport );
+
+                LdapConnectionConfig transportConfig = new LdapConnectionConfig();
+                transportConfig.setTransport( transport );
+
+                return configureConnection( new LdapNetworkConnection( transportConfig ) );
+            }
+        };
+
+        factory = new BindTrackingPoolableLdapConnectionFactory( connectionFactory );
+        pool = new LdapConnectionPool( factory );
+    }
+
+
+    @AfterEach
+    public void closePool()
+    {
+        pool.close();
+
+        for ( MockLdapTransport transport : transports )
+        {
+            transport.dispose();
+        }
+    }
+
+
+    @Test
+    public void testNoRebindForSameIdentity() throws Exception
+    {
+        // The new connection is bound with the default identity
+        LdapConnection connection = pool.getConnection();
+        pool.releaseConnection( connection );
+
+        connection = pool.getConnection();
+        pool.releaseConnection( connection );
+
+        assertEquals( 1, countBinds() );
+        assertEquals( 0, factory.getBindCount() );
+        assertEquals( 2, factory.getAvoidedBindCount() );
+
+        // The identity changes
+        connection = pool.getConnection( USER_DN, "secret" );
+        pool.releaseConnection( connection );
+
+        connection = pool.getConnection( USER_DN, "secret" );
+        pool.releaseConnection( connection );
+
+        assertEquals( 2, countBinds() );
+        assertEquals( 1, factory.getBindCount() );
+        assertEquals( 3, factory.getAvoidedBindCount() );
+
+        // Back to the default identity
+        connection = pool.getConnection();
+        pool.releaseConnection( connection );
+
+        assertEquals( 3, countBinds() );
+        assertEquals( 2, factory.getBindCount() );
+    }
+
+
+    @Test
+    public void testRebindAfterBorrowerBind() throws Exception
+    {
+        LdapConnection connection = pool.getConnection();
+        connection.bind( USER_DN, "secret" );
+        pool.releaseConnection( connection );
+
+        // The identity set by the borrower is not trusted, a single bind is done
+        connection = pool.getConnection( USER_DN, "secret" );
+        pool.releaseConnection( connection );
+
+        assertEquals( 3, countBinds() );
+        assertEquals( 1, factory.getBindCount() );
+        assertEquals( 1, factory.getAvoidedBindCount() );
+    }
+
+
+    @Test
+    public void testValidationOfUnknownIdentity() throws Exception
+    {
+        factory.setValidator( new DefaultLdapConnectionValidator() );
+        pool.setTestOnBorrow( true );
+
+        LdapConnection connection = pool.getConnection();
+        connection.bind( USER_DN, "secret" );
+        pool.releaseConnection( connection );
+
+        // The connection which identity is unknown is valid, and bound once
+        connection = pool.getConnection();
+        pool.releaseConnection( connection );
+
+        assertEquals( 3, countBinds() );
+        assertEquals( 1, factory.getBindCount() );
+        assertEquals( 1, transports.size() );
+    }
+
+
+    @Test
+    public void testDroppedConnection() throws Exception
+    {
+        LdapConnection connection = pool.getConnection();
+        pool.releaseConnection( connection );
+
+        // The connection is connected again when borrowed, then bound once
+        transports.get( 0 ).close();
+
+        connection = pool.getConnection();
+
+        assertTrue( connection.isAuthenticated() );
+        pool.releaseConnection( connection );
+
+        assertEquals( 2, countBinds() );
+        assertEquals( 1, factory.getBindCount() );
+        assertEquals( 1, factory.getAvoidedBindCount() );
+        assertEquals( 1, transports.size() );
+    }
+
+
+    @Test
+    public void testFailedBind() throws Exception
+    {
+        assertThrows( LdapException.class, () -> pool.getConnection( USER_DN, "wrong" ) );
+
+        // The connection has been returned, and is bound again
+        assertEquals( 0, pool.getNumActive() );
+
+        LdapConnection connection = pool.getConnection();
+        pool.releaseConnection( connection );
+
+        assertEquals( 3, countBinds() );
+        assertEquals( 1, transports.size() );
+    }
+}
@@ -0,0 +1,259 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *    https://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ *
+ */
+package org.apache.directory.ldap.client.api;
+
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import org.apache.directory.api.ldap.model.entry.DefaultEntry;
+import org.apache.directory.api.ldap.model.exception.LdapException;
+import org.apache.directory.api.ldap.model.message.AbandonRequest;
+import org.apache.directory.api.ldap.model.message.AddRequest;
+import org.apache.directory.api.ldap.model.message.AddRequestImpl;
+import org.apache.directory.api.ldap.model.message.AddResponse;
+import org.apache.directory.api.ldap.model.message.AddResponseImpl;
+import org.apache.directory.api.ldap.model.message.DeleteRequest;
+import org.apache.directory.api.ldap.model.message.DeleteRequestImpl;
+import org.apache.directory.api.ldap.model.message.DeleteResponse;
+import org.apache.directory.api.ldap.model.message.DeleteResponseImpl;
+import org.apache.directory.api.ldap.model.message.Message;
+import org.apache.directory.api.ldap.model.message.ResultCodeEnum;
+import org.apache.directory.api.ldap.model.message.ResultResponse;
+import org.apache.directory.api.ldap.model.name.Dn;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+
+/**
+ * Test the bulk operations of the LdapNetworkConnection
+ *
+ * @author <a href="mailto:dev@directory.apache.org">Apache Directory Project</a>
+ */
+public class BulkOperationTest
+{
+    /** The transport answering the requests */
+    private MockLdapTransport transport;
+
+
+    /**
+     * The AddRequests for an entry which RDN value starts with "existing" get an
+     * ENTRY_ALREADY_EXISTS result, the ones for an entry which RDN value starts with
+     * "silent" get no response, all the other requests are successful.
+     */
+    private static List<? extends Message> respond( Message request )
+    {
+        ResultResponse response;
+
+        if ( request instanceof AddRequest )
+        {
+            response = new AddResponseImpl( request.getMessageId() );
+            String rdn = ( ( AddRequest ) request ).getEntryDn().getRdn().getValue();
+
+            if ( rdn.startsWith( "silent" ) )
+            {
+                return Collections.emptyList();
+            }
+
+            response.getLdapResult().setResultCode(
+                rdn.startsWith( "existing" ) ? ResultCodeEnum.ENTRY_ALREADY_EXISTS : ResultCodeEnum.SUCCESS );
+        }
+        else if ( request instanceof DeleteRequest )
+        {
+            response = new DeleteResponseImpl( request.getMessageId() );
+            response.getLdapResult().setResultCode( ResultCodeEnum.SUCCESS );
+        }
+        else
+        {
+            return Collections.emptyList();
+        }
+
+        return Collections.singletonList( response );
+    }
+
+
+    @BeforeEach
+    public void startServer()
+    {
+        transport = new MockLdapTransport( BulkOperationTest::respond );
+    }
+
+
+    @AfterEach
+    public void stopServer()
+    {
+        transport.dispose();
+    }
+
+
+    private LdapNetworkConnection connect() throws Exception
+    {
+        LdapConnectionConfig config = new LdapConnectionConfig();
+        config.setTransport( transport );
+
+        LdapNetworkConnection connection = new LdapNetworkConnection( config );
+        connection.connect();
+
+        return connection;
+    }
+
+
+    private static AddRequest addRequest( String cn ) throws Exception
+    {
+        return new AddRequestImpl().setEntry( new DefaultEntry( "cn=" + cn + ",ou=system",
+            "objectClass: person",
+            "cn", cn,
+            "sn", cn ) );
+    }
+
+
+    @Test
+    public void testAddAll() throws Exception
+    {
+        List<AddRequest> requests = new ArrayList<>();
+
+        for ( int i = 0; i < 100; i++ )
+        {
+            requests.add( addRequest( ( i % 10 == 0 ? "existing" : "entry" ) + i ) );
+        }
+
+        try ( LdapNetworkConnection connection = connect() )
+        {
+            BulkResult<AddRequest, AddResponse> result = connection.addAll( requests, 8 );
+
+            assertTrue( result.isComplete() );
+            assertFalse( result.isSuccess() );
+            assertEquals( 100, result.size() );
+            assertEquals( 90, result.getSuccessCount() );
+            assertEquals( 10, result.getFailures().size() );
+
+            // Only the failures are kept, in the same order than the requests
+            for ( int i = 0; i < 10; i++ )
+            {
+                BulkResult.Item<AddRequest, AddResponse> item = result.getFailures().get( i );
+
+                assertEquals( i * 10, item.getIndex() );
+                assertSame( requests.get( i * 10 ), item.getRequest() );
+                assertNull( item.getCause() );
+                assertEquals( ResultCodeEnum.ENTRY_ALREADY_EXISTS, item.getResponse().getLdapResult().getResultCode() );
+            }
+        }
+
+        assertTrue( transport.getMaxOutstanding() <= 8 );
+    }
+
+
+    @Test
+    public void testDeleteAllFromStream() throws Exception
+    {
+        List<DeleteRequest> requests = IntStream.range( 0, 50 )
+            .mapToObj( i -> ( DeleteRequest ) new DeleteRequestImpl().setName( Dn.EMPTY_DN ) )
+            .collect( Collectors.toList() );
+
+        try ( LdapNetworkConnection connection = connect() )
+        {
+            BulkResult<DeleteRequest, DeleteResponse> result = connection.deleteAll( requests.stream()::iterator, 1 );
+
+            assertTrue( result.isSuccess() );
+            assertEquals( 50, result.getSuccessCount() );
+        }
+
+        assertEquals( 1, transport.getMaxOutstanding() );
+    }
+
+
+    @Test
+    public void testInvalidRequests() throws Exception
+    {
+        List<AddRequest> requests = new ArrayList<>();
+        requests.add( addRequest( "entry1" ) );
+        requests.add( null );
+        requests.add( addRequest( "entry2" ) );
+
+        try ( LdapNetworkConnection connection = connect() )
+        {
+            assertThrows( IllegalArgumentException.class, () -> connection.addAll( requests, 0 ) );
+
+            BulkResult<AddRequest, AddResponse> result = connection.addAll( requests );
+
+            // The invalid request is skipped
+            assertTrue( result.isComplete() );
+            assertEquals( 3, result.size() );
+            assertEquals( 2, result.getSuccessCount() );
+            assertEquals( 1, result.getFailures().size() );
+            assertEquals( 1, result.getFailures().get( 0 ).getIndex() );
+            assertTrue( result.getFailures().get( 0 ).getCause() instanceof IllegalArgumentException );
+            assertNull( result.getFailures().get( 0 ).getResponse() );
+        }
+    }
+
+
+    @Test
+    public void testInterrupted() throws Exception
+    {
+        List<AddRequest> requests = new ArrayList<>();
+        requests.add( addRequest( "entry0" ) );
+        requests.add( addRequest( "silent1" ) );
+        requests.add( addRequest( "entry2" ) );
+
+        try ( LdapNetworkConnection connection = connect() )
+        {
+            Thread caller = Thread.currentThread();
+            Thread interrupter = new Thread( () ->
+            {
+                try
+                {
+                    Thread.sleep( 200L );
+                }
+                catch ( InterruptedException ie )
+                {
+                    return;
+                }
+
+                caller.interrupt();
+            } );
+
+            interrupter.start();
+
+            // We are interrupted while waiting for the response to the second request
+            LdapException le = assertThrows( LdapException.class, () -> connection.addAll( requests, 2 ) );
+            assertTrue( Thread.interrupted() );
+            assertTrue( le.getCause() instanceof InterruptedException );
+            interrupter.join();
+
+            // The request we were waiting for has been abandoned
+            int messageId = requests.get( 1 ).getMessageId();
+            assertTrue( transport.getWritten().stream()
+                .anyMatch( message -> ( message instanceof AbandonRequest )
+                    && ( ( ( AbandonRequest ) message ).getAbandoned() == messageId ) ) );
+        }
+    }
+}
@@ -0,0 +1,245 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *    https://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ *
+ */
+package org.apache.directory.ldap.client.api;
+
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.directory.api.ldap.codec.api.MessageEncoderException;
+import org.apache.directory.api.ldap.model.entry.DefaultEntry;
+import org.apache.directory.api.ldap.model.message.AddRequestImpl;
+import org.apache.directory.api.ldap.model.message.AddResponseImpl;
+import org.apache.directory.api.ldap.model.message.Message;
+import org.apache.directory.api.ldap.model.message.ModifyRequestImpl;
+import org.apache.directory.api.ldap.model.message.Response;
+import org.apache.directory.api.ldap.model.message.ResultCodeEnum;
+import org.apache.directory.api.ldap.model.message.SearchRequest;
+import org.apache.directory.api.ldap.model.message.SearchRequestImpl;
+import org.apache.directory.api.ldap.model.message.SearchResultDone;
+import org.apache.directory.api.ldap.model.message.SearchResultDoneImpl;
+import org.apache.directory.api.ldap.model.message.SearchResultEntry;
+import org.apache.directory.api.ldap.model.message.SearchResultEntryImpl;
+import org.apache.directory.api.ldap.model.message.SearchScope;
+import org.apache.directory.api.ldap.model.message.extended.ModifyNoDResponse;
+import org.apache.directory.api.ldap.model.name.Dn;
+import org.apache.directory.ldap.client.api.future.ModifyFuture;
+import org.apache.directory.ldap.client.api.future.SearchFuture;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+
+/**
+ * Test the completion stages and the search listener of the asynchronous operations
+ *
+ * @author <a href="mailto:dev@directory.apache.org">Apache Directory Project</a>
+ */
+public class CompletionStageTest
+{
+    /** The number of entries returned by a search */
+    private static final int NB_ENTRIES = 10;
+
+    /** The transport answering the requests */
+    private MockLdapTransport transport;
+
+
+    /**
+     * The AddRequests and the SearchRequests are answered, the other requests are not
+     */
+    private static List<? extends Message> respond( Message request )
+    {
+        if ( request instanceof AddRequestImpl )
+        {
+            AddResponseImpl addResponse = new AddResponseImpl( request.getMessageId() );
+            addResponse.getLdapResult().setResultCode( ResultCodeEnum.SUCCESS );
+
+            return Collections.singletonList( addResponse );
+        }
+        else if ( request instanceof SearchRequest )
+        {
+            List<Response> responses = new ArrayList<>();
+
+            for ( int i = 0; i < NB_ENTRIES; i++ )
+            {
+                SearchResultEntryImpl entry = new SearchResultEntryImpl( request.getMessageId() );
+
+                try
+                {
+                    entry.setEntry( new DefaultEntry( "cn=entry" + i + ",ou=system", "cn", "entry" + i ) );
+                }
+                catch ( Exception e )
+                {
+                    throw new IllegalStateException( e );
+                }
+
+                responses.add( entry );
+            }
+
+            SearchResultDoneImpl done = new SearchResultDoneImpl( request.getMessageId() );
+            done.getLdapResult().setResultCode( ResultCodeEnum.SUCCESS );
+            responses.add( done );
+
+            return responses;
+        }
+
+        return Collections.emptyList();
+    }
+
+
+    @BeforeEach
+    public void startServer()
+    {
+        transport = new MockLdapTransport( CompletionStageTest::respond );
+    }
+
+
+    @AfterEach
+    public void stopServer()
+    {
+        transport.dispose();
+    }
+
+
+    private LdapNetworkConnection connect() throws Exception
+    {
+        LdapConnectionConfig config = new LdapConnectionConfig();
+        config.setTransport( transport );
+
+        LdapNetworkConnection connection = new LdapNetworkConnection( config );
+        connection.connect();
+
+        return connection;
+    }
+
+
+    @Test
+    public void testAddCompletionStage() throws Exception
+    {
+        try ( LdapNetworkConnection connection = connect() )
+        {
+            CompletableFuture<ResultCodeEnum> resultCode = connection
+                .addAsync( new DefaultEntry( "cn=test,ou=system", "cn", "test" ) )
+                .toCompletionStage()
+                .thenApply( response -> response.getLdapResult().getResultCode() )
+                .toCompletableFuture();
+
+            assertEquals( ResultCodeEnum.SUCCESS, resultCode.get( 10, TimeUnit.SECONDS ) );
+        }
+    }
+
+
+    @Test
+    public void testSearchListener() throws Exception
+    {
+        List<SearchResultEntry> entries = Collections.synchronizedList( new ArrayList<>() );
+        SearchRequest searchRequest = new SearchRequestImpl().setBase( new Dn( "ou=system" ) )
+            .setFilter( "(cn=*)" ).setScope( SearchScope.ONELEVEL );
+
+        try ( LdapNetworkConnection connection = connect() )
+        {
+            SearchFuture searchFuture = connection.searchAsync( searchRequest, entries::add );
+            Response done = searchFuture.toCompletionStage().toCompletableFuture().get( 10, TimeUnit.SECONDS );
+
+            assertTrue( done instanceof SearchResultDone );
+            assertEquals( NB_ENTRIES, entries.size() );
+            assertEquals( new Dn( "cn=entry0,ou=system" ), entries.get( 0 ).getObjectName() );
+
+            // Only the SearchResultDone has been stored in the future
+            assertEquals( done, searchFuture.get( 0, TimeUnit.SECONDS ) );
+            assertNull( searchFuture.get( 0, TimeUnit.SECONDS ) );
+        }
+    }
+
+
+    @Test
+    public void testCancelledCompletionStage() throws Exception
+    {
+        try ( LdapNetworkConnection connection = connect() )
+        {
+            // The ModifyRequest is never answered
+            ModifyFuture modifyFuture = connection.modifyAsync(
+                new ModifyRequestImpl().setName( new Dn( "cn=test,ou=system" ) ).remove( "description" ) );
+            CompletableFuture<?> stage = modifyFuture.toCompletionStage().toCompletableFuture();
+
+            modifyFuture.cancel( true );
+
+            assertTrue( stage.isCompletedExceptionally() );
+            assertThrows( CancellationException.class, () -> stage.get( 10, TimeUnit.SECONDS ) );
+        }
+    }
+
+
+    @Test
+    public void testCompletionStageCompletedOnClose() throws Exception
+    {
+        CompletableFuture<?> stage;
+
+        try ( LdapNetworkConnection connection = connect() )
+        {
+            // The ModifyRequest is never answered
+            stage = connection.modifyAsync(
+                new ModifyRequestImpl().setName( new Dn( "cn=test,ou=system" ) ).remove( "description" ) )
+                .toCompletionStage().toCompletableFuture();
+        }
+
+        // The stage is completed with the NoticeOfDisconnection
+        assertEquals( ModifyNoDResponse.PROTOCOLERROR, stage.get( 10, TimeUnit.SECONDS ) );
+    }
+
+
+    @Test
+    public void testCompletionStageCompletedOnEncoderFailure() throws Exception
+    {
+        try ( LdapNetworkConnection connection = connect() )
+        {
+            // The ModifyRequest is never answered
+            ModifyFuture modifyFuture = connection.modifyAsync(
+                new ModifyRequestImpl().setName( new Dn( "cn=test,ou=system" ) ).remove( "description" ) );
+            CompletableFuture<?> stage = modifyFuture.toCompletionStage().toCompletableFuture();
+
+            List<Message> written = transport.getWritten();
+            int messageId = written.get( written.size() - 1 ).getMessageId();
+            MessageEncoderException cause = new MessageEncoderException( messageId, "failure" );
+            transport.fail( cause );
+
+            // The stage is completed with the encoder failure, not with a CancellationException
+            ExecutionException failure = assertThrows( ExecutionException.class,
+                () -> stage.get( 10, TimeUnit.SECONDS ) );
+            assertSame( cause, failure.getCause() );
+            assertTrue( modifyFuture.isCancelled() );
+            assertSame( cause, modifyFuture.getCause() );
+
+            // An exception for an unknown request is ignored
+            transport.fail( new MessageEncoderException( 1000, "failure" ) );
+        }
+    }
+}
@@ -0,0 +1,339 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *    https://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ *
+ */
+package org.apache.directory.ldap.client.api;
+
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import org.apache.directory.api.ldap.model.message.BindRequest;
+import org.apache.directory.api.ldap.model.message.BindResponseImpl;
+import org.apache.directory.api.ldap.model.message.ExtendedRequest;
+import org.apache.directory.api.ldap.model.message.Message;
+import org.apache.directory.api.ldap.model.message.OpaqueExtendedResponse;
+import org.apache.directory.api.ldap.model.message.ResultCodeEnum;
+import org.apache.directory.api.ldap.model.message.ResultResponse;
+import org.apache.directory.api.ldap.model.message.SearchRequest;
+import org.apache.directory.api.ldap.model.message.SearchResultDoneImpl;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+
+/**
+ * Test the background validation and the pre-warming of the LdapConnectionPool
+ *
+ * @author <a href="mailto:dev@directory.apache.org">Apache Directory Project</a>
+ */
+public class LdapConnectionPoolMaintainerTest
+{
+    /** The transports used by the pooled connections */
+    private final List<MockLdapTransport> transports = Collections.synchronizedList( new ArrayList<>() );
+
+    /** The transports which don't answer anymore */
+    private final List<MockLdapTransport> silentTransports = Collections.synchronizedList( new ArrayList<>() );
+
+    /** When set, the BindRequests fail */
+    private volatile boolean serverDown;
+
+    /** The tested pool */
+    private LdapConnectionPool pool;
+
+    /** The tested maintainer */
+    private LdapConnectionPoolMaintainer maintainer;
+
+
+    /**
+     * The BindRequests are successful unless the server is down, the root DSE searches
+     * and the extended requests are successful unless the transport is silent
+     */
+    private List<? extends Message> respond( MockLdapTransport transport, Message request )
+    {
+        ResultResponse response;
+
+        if ( request instanceof BindRequest )
+        {
+            response = new BindResponseImpl( request.getMessageId() );
+            response.getLdapResult().setResultCode( serverDown ? ResultCodeEnum.UNAVAILABLE : ResultCodeEnum.SUCCESS );
+        }
+        else if ( silentTransports.contains( transport ) )
+        {
+            return Collections.emptyList();
+        }
+        else if ( request instanceof SearchRequest )
+        {
+            response = new SearchResultDoneImpl( request.getMessageId() );
+            response.getLdapResult().setResultCode( ResultCodeEnum.SUCCESS );
+        }
+        else if ( request instanceof ExtendedRequest )
+        {
+            response = new OpaqueExtendedResponse( request.getMessageId() );
+            response.getLdapResult().setResultCode( ResultCodeEnum.SUCCESS );
+        }
+        else
+        {
+            return Collections.emptyList();
+        }
+
+        return Collections.singletonList( response );
+    }
+
+
+    @BeforeEach
+    public void createPool()
+    {
+        DefaultLdapConnectionFactory connectionFactory = new DefaultLdapConnectionFactory( new LdapConnectionConfig() )
+        {
+            @Override
+            public LdapConnection newUnboundLdapConnection()
+            {
+                MockLdapTransport[] transport = new MockLdapTransport[1];
+                transport[0] = new MockLdapTransport( request -> respond( transport[0], request ) );
+                transports.add( transport[0] );
+
+                LdapConnectionConfig config = new LdapConnectionConfig();
+                config.setTransport( transport[0] );
+
+                return configureConnection( new LdapNetworkConnection( config ) );
+            }
+        };
+
+        pool = new LdapConnectionPool( new DefaultPoolableLdapConnectionFactory( connectionFactory ) );
+        pool.setMaxTotal( 8 );
+
+        maintainer = new LdapConnectionPoolMaintainer( pool );
+        maintainer.setMinReady( 4 );
+        maintainer.setProbeTimeout( 200L );
+    }
+
+
+    @AfterEach
+    public void closePool()
+    {
+        maintainer.stop();
+        pool.close();
+
+        for ( MockLdapTransport transport : transports )
+        {
+            transport.dispose();
+        }
+    }
+
+
+    @Test
+    public void testPrewarm() throws Exception
+    {
+        maintainer.maintain();
+
+        assertEquals( 4, pool.getNumIdle() );
+        assertEquals( 4, maintainer.getCreatedCount() );
+
+        // The borrowed connections are replaced, up to the maximum number of connections
+        List<LdapConnection> borrowed = new ArrayList<>();
+
+        for ( int i = 0; i < 6; i++ )
+        {
+            borrowed.add( pool.getConnection() );
+        }
+
+        maintainer.maintain();
+
+        assertEquals( 2, pool.getNumIdle() );
+        assertEquals( 6, pool.getNumActive() );
+
+        for ( LdapConnection connection : borrowed )
+        {
+            pool.releaseConnection( connection );
+        }
+    }
+
+
+    @Test
+    public void testEvictFailingConnections() throws Exception
+    {
+        maintainer.maintain();
+
+        // The first connection doesn't answer anymore, the second one has been dropped
+        silentTransports.add( transports.get( 0 ) );
+        transports.get( 1 ).close();
+
+        maintainer.maintain();
+
+        // The dropped connection has been bound again when taken from the pool,
+        // the silent one has been replaced
+        assertEquals( 4, maintainer.getProbedCount() );
+        assertEquals( 1, maintainer.getEvictedCount() );
+        assertEquals( 5, maintainer.getCreatedCount() );
+        assertEquals( 4, pool.getNumIdle() );
+        assertTrue( transports.get( 1 ).isConnected() );
+        assertFalse( transports.get( 0 ).isConnected() );
+        assertTrue( maintainer.isServerAvailable() );
+
+        // A root DSE search has been sent on each connection
+        assertTrue( transports.get( 0 ).getWritten().stream().anyMatch( SearchRequest.class::isInstance ) );
+    }
+
+
+    @Test
+    public void testBorrowWhileProbing() throws Exception
+    {
+        maintainer.maintain();
+
+        AbstractPoolableLdapConnectionFactory factory = ( AbstractPoolableLdapConnectionFactory ) pool.getFactory();
+        LdapConnectionValidator validator = factory.getValidator();
+        int numTestsPerEvictionRun = pool.getNumTestsPerEvictionRun();
+
+        for ( MockLdapTransport transport : transports )
+        {
+            silentTransports.add( transport );
+        }
+
+        CompletableFuture<Void> run = CompletableFuture.runAsync( maintainer::maintain );
+
+        long deadline = System.currentTimeMillis() + 10_000L;
+
+        while ( transports.stream().anyMatch( transport -> transport.getWritten().stream()
+            .noneMatch( SearchRequest.class::isInstance ) ) && ( System.currentTimeMillis() < deadline ) )
+        {
+            Thread.sleep( 5L );
+        }
+
+        // The idle connections are probed at once, the borrowers get a new connection meanwhile
+        assertEquals( 0, pool.getNumIdle() );
+        assertFalse( run.isDone() );
+
+        LdapConnection connection = pool.getConnection();
+        pool.releaseConnection( connection );
+
+        // Neither the pool configuration nor its factory validator have been changed
+        assertFalse( pool.getTestWhileIdle() );
+        assertEquals( numTestsPerEvictionRun, pool.getNumTestsPerEvictionRun() );
+        assertSame( validator, factory.getValidator() );
+
+        run.get();
+
+        assertEquals( 4, maintainer.getEvictedCount() );
+        assertEquals( 4, pool.getNumIdle() );
+    }
+
+
+    @Test
+    public void testWhoAmIProbe() throws Exception
+    {
+        maintainer.setProbe( LdapConnectionPoolMaintainer.Probe.WHO_AM_I );
+        maintainer.maintain();
+        maintainer.maintain();
+
+        assertEquals( 4, maintainer.getProbedCount() );
+        assertEquals( 0, maintainer.getEvictedCount() );
+        assertTrue( transports.get( 0 ).getWritten().stream().anyMatch( ExtendedRequest.class::isInstance ) );
+    }
+
+
+    @Test
+    public void testServerRecovery() throws Exception
+    {
+        serverDown = true;
+        maintainer.maintain();
+
+        assertFalse( maintainer.isServerAvailable() );
+        assertEquals( 0, pool.getNumIdle() );
+
+        // The pool is pre-warmed as soon as the server is back
+        serverDown = false;
+        maintainer.maintain();
+
+        assertTrue( maintainer.isServerAvailable() );
+        assertEquals( 4, pool.getNumIdle() );
+    }
+
+
+    @Test
+    public void testServerRecoveryWhileStarted() throws Exception
+    {
+        maintainer.setValidationInterval( 60_000L );
+        maintainer.setRecoveryInterval( 20L );
+        serverDown = true;
+        maintainer.start();
+
+        long deadline = System.currentTimeMillis() + 10_000L;
+
+        while ( maintainer.isServerAvailable() && ( System.currentTimeMillis() < deadline ) )
+        {
+            Thread.sleep( 5L );
+        }
+
+        assertFalse( maintainer.isServerAvailable() );
+
+        // The pool is pre-warmed without waiting for the validation interval
+        serverDown = false;
+
+        while ( ( pool.getNumIdle() < 4 ) && ( System.currentTimeMillis() < deadline ) )
+        {
+            Thread.sleep( 5L );
+        }
+
+        assertTrue( maintainer.isServerAvailable() );
+        assertEquals( 4, pool.getNumIdle() );
+    }
+
+
+    @Test
+    public void testStartStop() throws Exception
+    {
+        pool.setTestOnBorrow( true );
+        maintainer.start();
+
+        // The inline validation is disabled while the maintainer is running
+        assertTrue( maintainer.isStarted() );
+        assertFalse( pool.getTestOnBorrow() );
+
+        long deadline = System.currentTimeMillis() + 10_000L;
+
+        while ( ( pool.getNumIdle() < 4 ) && ( System.currentTimeMillis() < deadline ) )
+        {
+            Thread.sleep( 10L );
+        }
+
+        assertEquals( 4, pool.getNumIdle() );
+
+        maintainer.stop();
+
+        assertFalse( maintainer.isStarted() );
+        assertTrue( pool.getTestOnBorrow() );
+    }
+
+
+    @Test
+    public void testInvalidDelays()
+    {
+        assertThrows( IllegalArgumentException.class, () -> maintainer.setValidationInterval( 0L ) );
+        assertThrows( IllegalArgumentException.class, () -> maintainer.setProbeTimeout( -1L ) );
+        assertThrows( IllegalArgumentException.class, () -> maintainer.setRecoveryInterval( 0L ) );
+    }
+}
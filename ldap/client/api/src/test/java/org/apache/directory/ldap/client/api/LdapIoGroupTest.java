@@ -0,0 +1,219 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *    https://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ *
+ */
+package org.apache.directory.ldap.client.api;
+
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.directory.api.ldap.model.exception.LdapException;
+import org.apache.mina.core.session.IoSession;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+
+/**
+ * Test the LdapIoGroup : the connections created with the same configuration share its connector.
+ *
+ * @author <a href="mailto:dev@directory.apache.org">Apache Directory Project</a>
+ */
+public class LdapIoGroupTest
+{
+    /** A server accepting the connections, and never answering */
+    private ServerSocket serverSocket;
+
+    /** The sockets accepted by the server */
+    private final List<Socket> accepted = new ArrayList<>();
+
+    private LdapIoGroup ioGroup;
+
+    private LdapConnectionConfig config;
+
+
+    @BeforeEach
+    public void setUp() throws IOException
+    {
+        serverSocket = new ServerSocket( 0, 50, InetAddress.getLoopbackAddress() );
+
+        Thread acceptor = new Thread( () ->
+        {
+            try
+            {
+                while ( true )
+                {
+                    Socket socket = serverSocket.accept();
+
+                    synchronized ( accepted )
+                    {
+                        accepted.add( socket );
+                    }
+                }
+            }
+            catch ( IOException ioe )
+            {
+                // The server socket has been closed
+            }
+        } );
+
+        acceptor.setDaemon( true );
+        acceptor.start();
+
+        ioGroup = new LdapIoGroup( 2 );
+
+        config = new LdapConnectionConfig();
+        config.setLdapHost( InetAddress.getLoopbackAddress().getHostAddress() );
+        config.setLdapPort( serverSocket.getLocalPort() );
+        config.setIoGroup( ioGroup );
+    }
+
+
+    @AfterEach
+    public void tearDown() throws IOException
+    {
+        ioGroup.dispose();
+        serverSocket.close();
+
+        synchronized ( accepted )
+        {
+            for ( Socket socket : accepted )
+            {
+                socket.close();
+            }
+        }
+    }
+
+
+    private static void waitFor( LdapIoGroup ioGroup, int expected ) throws InterruptedException
+    {
+        long deadline = System.currentTimeMillis() + 5000L;
+
+        while ( ( ioGroup.getManagedSessionCount() != expected ) && ( System.currentTimeMillis() < deadline ) )
+        {
+            Thread.sleep( 10L );
+        }
+
+        assertEquals( expected, ioGroup.getManagedSessionCount() );
+    }
+
+
+    @Test
+    public void testConnectionsShareTheConnector() throws Exception
+    {
+        List<LdapNetworkConnection> connections = new ArrayList<>();
+
+        for ( int i = 0; i < 3; i++ )
+        {
+            LdapNetworkConnection connection = new LdapNetworkConnection( config );
+            assertTrue( connection.connect() );
+            connections.add( connection );
+        }
+
+        // All the sessions have been established by the group connector
+        waitFor( ioGroup, 3 );
+
+        // Closing a connection does not dispose the shared connector
+        connections.get( 0 ).close();
+        waitFor( ioGroup, 2 );
+        assertFalse( ioGroup.isDisposed() );
+
+        // and it can be reconnected with it
+        assertTrue( connections.get( 0 ).connect() );
+        assertTrue( connections.get( 0 ).isConnected() );
+        waitFor( ioGroup, 3 );
+
+        for ( LdapNetworkConnection connection : connections )
+        {
+            connection.close();
+        }
+
+        waitFor( ioGroup, 0 );
+        assertFalse( ioGroup.isDisposed() );
+    }
+
+
+    @Test
+    public void testConnectionsKeepTheirOwnFilters() throws Exception
+    {
+        config.setPipelining( true );
+
+        LdapNetworkConnection pipelined = new LdapNetworkConnection( config );
+        assertTrue( pipelined.connect() );
+
+        LdapConnectionConfig plainConfig = new LdapConnectionConfig();
+        plainConfig.setLdapHost( config.getLdapHost() );
+        plainConfig.setLdapPort( config.getLdapPort() );
+        plainConfig.setIoGroup( ioGroup );
+
+        LdapNetworkConnection plain = new LdapNetworkConnection( plainConfig );
+        assertTrue( plain.connect() );
+
+        waitFor( ioGroup, 2 );
+
+        // Each session gets the filters of its own connection
+        int coalescing = 0;
+
+        for ( IoSession session : ioGroup.getConnector().getManagedSessions().values() )
+        {
+            assertTrue( session.getFilterChain().contains( "ldapCodec" ) );
+
+            if ( session.getFilterChain().contains( "writeCoalescingFilter" ) )
+            {
+                coalescing++;
+            }
+        }
+
+        assertEquals( 1, coalescing );
+
+        pipelined.close();
+        plain.close();
+    }
+
+
+    @Test
+    public void testConnectionTimeoutLeavesNoSession() throws Exception
+    {
+        // A non routable address : the connection attempt never completes
+        LdapConnectionConfig timeoutConfig = new LdapConnectionConfig();
+        timeoutConfig.setLdapHost( "10.255.255.1" );
+        timeoutConfig.setLdapPort( 389 );
+        timeoutConfig.setConnectTimeout( 200L );
+        timeoutConfig.setIoGroup( ioGroup );
+
+        LdapNetworkConnection connection = new LdapNetworkConnection( timeoutConfig );
+
+        assertThrows( LdapException.class, connection::connect );
+
+        // The pending connection has been cancelled, not left to the shared connector
+        waitFor( ioGroup, 0 );
+        assertFalse( ioGroup.isDisposed() );
+
+        connection.close();
+    }
+}
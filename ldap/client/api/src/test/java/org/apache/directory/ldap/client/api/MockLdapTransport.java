@@ -0,0 +1,300 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *    https://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ *
+ */
+package org.apache.directory.ldap.client.api;
+
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+import javax.net.ssl.SSLSession;
+import javax.security.sasl.SaslClient;
+
+import org.apache.directory.api.ldap.codec.api.LdapMessageContainer;
+import org.apache.directory.api.ldap.model.message.Message;
+import org.apache.directory.api.ldap.model.message.UnbindRequest;
+import org.apache.directory.ldap.client.api.transport.LdapTransport;
+import org.apache.directory.ldap.client.api.transport.LdapTransportHandler;
+import org.apache.directory.ldap.client.api.transport.LdapTransportSession;
+
+
+/**
+ * A transport which does not use the network : the responses to each written request
+ * are computed by a responder, and sent by another thread, like a server would do.
+ *
+ * @author <a href="mailto:dev@directory.apache.org">Apache Directory Project</a>
+ */
+public class MockLdapTransport implements LdapTransport, LdapTransportSession
+{
+    /** The thread sending the responses */
+    private final ExecutorService server = Executors.newSingleThreadExecutor();
+
+    /** Computes the responses to a request */
+    private final Function<Message, List<? extends Message>> responder;
+
+    /** The written requests */
+    private final List<Message> written = Collections.synchronizedList( new ArrayList<>() );
+
+    private LdapTransportHandler handler;
+    private LdapMessageContainer<Message> messageContainer;
+    private volatile boolean connected;
+
+    /** The number of requests waiting for their responses */
+    private int outstanding;
+
+    /** The maximum number of requests waiting for their responses */
+    private int maxOutstanding;
+
+    /** Set when the reads are suspended : the responses are not sent */
+    private boolean readSuspended;
+
+    /** The number of times the reads have been suspended */
+    private int readSuspensions;
+
+
+    /**
+     * Creates a new MockLdapTransport
+     *
+     * @param responder Computes the responses to a request
+     */
+    public MockLdapTransport( Function<Message, List<? extends Message>> responder )
+    {
+        this.responder = responder;
+    }
+
+
+    @Override
+    public LdapTransportSession connect( LdapConnectionConfig config, LdapTransportHandler handler, long timeout )
+    {
+        this.handler = handler;
+        connected = true;
+        handler.sessionCreated( this );
+
+        return this;
+    }
+
+
+    @Override
+    public void dispose()
+    {
+        server.shutdown();
+
+        try
+        {
+            server.awaitTermination( 10, TimeUnit.SECONDS );
+        }
+        catch ( InterruptedException ie )
+        {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+
+    @Override
+    public CompletableFuture<Void> write( Message message )
+    {
+        written.add( message );
+
+        if ( message instanceof UnbindRequest )
+        {
+            close();
+
+            return CompletableFuture.completedFuture( null );
+        }
+
+        List<? extends Message> responses = responder.apply( message );
+
+        if ( responses.isEmpty() )
+        {
+            return CompletableFuture.completedFuture( null );
+        }
+
+        synchronized ( this )
+        {
+            outstanding++;
+            maxOutstanding = Math.max( maxOutstanding, outstanding );
+        }
+
+        server.execute( () ->
+        {
+            synchronized ( this )
+            {
+                outstanding--;
+            }
+
+            try
+            {
+                for ( Message response : responses )
+                {
+                    waitForRead();
+                    handler.messageReceived( this, response );
+                }
+            }
+            catch ( Exception e )
+            {
+                handler.exceptionCaught( this, e );
+            }
+        } );
+
+        return CompletableFuture.completedFuture( null );
+    }
+
+
+    /**
+     * Wait until the reads are not suspended
+     * 
+     * @throws InterruptedException If the thread is interrupted
+     */
+    private synchronized void waitForRead() throws InterruptedException
+    {
+        while ( readSuspended && connected )
+        {
+            wait();
+        }
+    }
+
+
+    /**
+     * @return The written requests
+     */
+    public List<Message> getWritten()
+    {
+        return written;
+    }
+
+
+    /**
+     * Reports an exception to the connection, as the transport would do
+     * 
+     * @param cause The exception
+     */
+    public void fail( Throwable cause )
+    {
+        handler.exceptionCaught( this, cause );
+    }
+
+
+    /**
+     * @return The maximum number of requests which have been waiting for their responses
+     */
+    public synchronized int getMaxOutstanding()
+    {
+        return maxOutstanding;
+    }
+
+
+    @Override
+    public boolean isConnected()
+    {
+        return connected;
+    }
+
+
+    @Override
+    public boolean isSecured()
+    {
+        return false;
+    }
+
+
+    @Override
+    public SSLSession getSslSession()
+    {
+        return null;
+    }
+
+
+    @Override
+    public void startTls( LdapConnectionConfig config, long timeout )
+    {
+    }
+
+
+    @Override
+    public void addSaslLayer( SaslClient saslClient )
+    {
+    }
+
+
+    @Override
+    public LdapMessageContainer<Message> getMessageContainer()
+    {
+        return messageContainer;
+    }
+
+
+    @Override
+    public void setMessageContainer( LdapMessageContainer<Message> messageContainer )
+    {
+        this.messageContainer = messageContainer;
+    }
+
+
+    /**
+     * @return The number of times the reads have been suspended
+     */
+    public synchronized int getReadSuspensions()
+    {
+        return readSuspensions;
+    }
+
+
+    @Override
+    public synchronized void suspendRead()
+    {
+        if ( !readSuspended )
+        {
+            readSuspended = true;
+            readSuspensions++;
+        }
+    }
+
+
+    @Override
+    public synchronized void resumeRead()
+    {
+        readSuspended = false;
+        notifyAll();
+    }
+
+
+    @Override
+    public void close()
+    {
+        boolean wasConnected;
+
+        synchronized ( this )
+        {
+            wasConnected = connected;
+            connected = false;
+            notifyAll();
+        }
+
+        if ( wasConnected )
+        {
+            handler.sessionClosed( this );
+        }
+    }
+}
@@ -0,0 +1,213 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *    https://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ *
+ */
+package org.apache.directory.ldap.client.api;
+
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.directory.api.ldap.model.entry.DefaultEntry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+
+/**
+ * Test the synchronous operations of a pipelined connection : they must not wait for the
+ * coalesced requests to be flushed.
+ *
+ * @author <a href="mailto:dev@directory.apache.org">Apache Directory Project</a>
+ */
+public class PipeliningTest
+{
+    /** A server answering SUCCESS to the bind and add requests */
+    private ServerSocket serverSocket;
+
+    /** The sockets accepted by the server */
+    private final List<Socket> accepted = new ArrayList<>();
+
+    private LdapConnectionConfig config;
+
+
+    @BeforeEach
+    public void setUp() throws IOException
+    {
+        serverSocket = new ServerSocket( 0, 50, InetAddress.getLoopbackAddress() );
+
+        Thread acceptor = new Thread( () ->
+        {
+            try
+            {
+                while ( true )
+                {
+                    Socket socket = serverSocket.accept();
+
+                    synchronized ( accepted )
+                    {
+                        accepted.add( socket );
+                    }
+
+                    Thread responder = new Thread( () -> respond( socket ) );
+                    responder.setDaemon( true );
+                    responder.start();
+                }
+            }
+            catch ( IOException ioe )
+            {
+                // The server socket has been closed
+            }
+        } );
+
+        acceptor.setDaemon( true );
+        acceptor.start();
+
+        config = new LdapConnectionConfig();
+        config.setLdapHost( InetAddress.getLoopbackAddress().getHostAddress() );
+        config.setLdapPort( serverSocket.getLocalPort() );
+        config.setTimeout( 5000L );
+        config.setPipelining( true );
+
+        // The requests are only written when they are flushed
+        config.setPipeliningFlushDelay( 0L );
+    }
+
+
+    @AfterEach
+    public void tearDown() throws IOException
+    {
+        serverSocket.close();
+
+        synchronized ( accepted )
+        {
+            for ( Socket socket : accepted )
+            {
+                socket.close();
+            }
+        }
+    }
+
+
+    /**
+     * Reads the requests, and answers a SUCCESS result to each of them, until an
+     * UnbindRequest is received. The response protocolOp tag follows the request one.
+     */
+    private static void respond( Socket socket )
+    {
+        try
+        {
+            DataInputStream in = new DataInputStream( socket.getInputStream() );
+            OutputStream out = socket.getOutputStream();
+
+            while ( true )
+            {
+                // The LDAPMessage SEQUENCE
+                in.readUnsignedByte();
+                byte[] message = new byte[readLength( in )];
+                in.readFully( message );
+
+                // The messageID, always short here, then the protocolOp tag
+                int idLength = message[1];
+                int opTag = message[2 + idLength] & 0xFF;
+
+                if ( opTag == 0x42 )
+                {
+                    // UnbindRequest
+                    socket.close();
+
+                    return;
+                }
+
+                byte[] response = new byte[12 + idLength];
+                response[0] = 0x30;
+                response[1] = ( byte ) ( 10 + idLength );
+                System.arraycopy( message, 0, response, 2, 2 + idLength );
+                int pos = 4 + idLength;
+                response[pos++] = ( byte ) ( opTag + 1 );
+                response[pos++] = 0x07;
+
+                // resultCode SUCCESS, empty matchedDN and diagnosticMessage
+                response[pos++] = 0x0A;
+                response[pos++] = 0x01;
+                response[pos++] = 0x00;
+                response[pos++] = 0x04;
+                response[pos++] = 0x00;
+                response[pos++] = 0x04;
+                response[pos] = 0x00;
+
+                out.write( response );
+                out.flush();
+            }
+        }
+        catch ( IOException ioe )
+        {
+            // The connection has been closed
+        }
+    }
+
+
+    private static int readLength( InputStream in ) throws IOException
+    {
+        int length = in.read();
+
+        if ( ( length & 0x80 ) == 0 )
+        {
+            return length;
+        }
+
+        int nbBytes = length & 0x7F;
+        length = 0;
+
+        for ( int i = 0; i < nbBytes; i++ )
+        {
+            length = ( length << 8 ) | in.read();
+        }
+
+        return length;
+    }
+
+
+    @Test
+    public void testSynchronousOperationsWithoutFlushDelay() throws Exception
+    {
+        // The operations would time out if their request was never flushed
+        try ( LdapNetworkConnection connection = new LdapNetworkConnection( config ) )
+        {
+            connection.bind( "uid=admin,ou=system", "secret" );
+            assertTrue( connection.isAuthenticated() );
+
+            connection.add( new DefaultEntry( "cn=test,dc=example,dc=com",
+                "objectClass: top",
+                "objectClass: person",
+                "cn: test",
+                "sn: test" ) );
+
+            connection.unBind();
+        }
+    }
+}
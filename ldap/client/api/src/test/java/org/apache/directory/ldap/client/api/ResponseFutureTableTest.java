@@ -0,0 +1,161 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *    https://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ *
+ */
+package org.apache.directory.ldap.client.api;
+
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.directory.api.ldap.model.message.Response;
+import org.apache.directory.ldap.client.api.future.AddFuture;
+import org.apache.directory.ldap.client.api.future.ResponseFuture;
+import org.junit.jupiter.api.Test;
+
+
+/**
+ * Test the table correlating the message IDs with the request futures
+ *
+ * @author <a href="mailto:dev@directory.apache.org">Apache Directory Project</a>
+ */
+public class ResponseFutureTableTest
+{
+    @Test
+    public void testPutGetRemove()
+    {
+        ResponseFutureTable table = new ResponseFutureTable( 100 );
+        AddFuture future = new AddFuture( null, 1 );
+
+        assertEquals( 128, table.capacity() );
+        assertNull( table.get( 1 ) );
+
+        table.put( 1, future );
+
+        assertSame( future, table.get( 1 ) );
+        assertSame( future, table.get( 1 ) );
+        assertNull( table.get( 129 ) );
+        assertSame( future, table.remove( 1 ) );
+        assertNull( table.remove( 1 ) );
+        assertNull( table.get( 1 ) );
+    }
+
+
+    @Test
+    public void testOverflow()
+    {
+        ResponseFutureTable table = new ResponseFutureTable( 4 );
+        AddFuture oldFuture = new AddFuture( null, 1 );
+        AddFuture newFuture = new AddFuture( null, 5 );
+
+        // Both IDs use the same slot
+        table.put( 1, oldFuture );
+        table.put( 5, newFuture );
+
+        assertEquals( 1, table.overflowSize() );
+        assertSame( oldFuture, table.get( 1 ) );
+        assertSame( newFuture, table.get( 5 ) );
+
+        assertSame( oldFuture, table.remove( 1 ) );
+        assertSame( newFuture, table.get( 5 ) );
+        assertSame( newFuture, table.remove( 5 ) );
+        assertEquals( 0, table.overflowSize() );
+    }
+
+
+    @Test
+    public void testDrain()
+    {
+        ResponseFutureTable table = new ResponseFutureTable( 8 );
+
+        for ( int i = 1; i <= 20; i++ )
+        {
+            table.put( i, new AddFuture( null, i ) );
+        }
+
+        List<ResponseFuture<? extends Response>> drained = new ArrayList<>();
+        table.drain( drained::add );
+
+        assertEquals( 20, drained.size() );
+        assertEquals( 0, table.overflowSize() );
+
+        for ( int i = 1; i <= 20; i++ )
+        {
+            assertNull( table.get( i ) );
+        }
+    }
+
+
+    @Test
+    public void testConcurrentAccess() throws Exception
+    {
+        ResponseFutureTable table = new ResponseFutureTable( 16 );
+        AtomicInteger messageId = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool( 4 );
+        List<Future<Integer>> results = new ArrayList<>();
+
+        try
+        {
+            for ( int t = 0; t < 4; t++ )
+            {
+                results.add( executor.submit( () ->
+                {
+                    int found = 0;
+
+                    for ( int i = 0; i < 10000; i++ )
+                    {
+                        int id = messageId.incrementAndGet();
+                        AddFuture future = new AddFuture( null, id );
+                        table.put( id, future );
+
+                        if ( ( table.get( id ) == future ) && ( table.remove( id ) == future ) )
+                        {
+                            found++;
+                        }
+                    }
+
+                    return found;
+                } ) );
+            }
+
+            for ( Future<Integer> result : results )
+            {
+                assertEquals( 10000, result.get().intValue() );
+            }
+        }
+        finally
+        {
+            executor.shutdownNow();
+        }
+
+        List<ResponseFuture<? extends Response>> remaining = new ArrayList<>();
+        table.drain( remaining::add );
+
+        assertTrue( remaining.isEmpty() );
+        assertEquals( 0, table.overflowSize() );
+    }
+}
@@ -0,0 +1,279 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *    https://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ *
+ */
+package org.apache.directory.ldap.client.api;
+
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.directory.api.ldap.model.entry.DefaultEntry;
+import org.apache.directory.api.ldap.model.message.AbandonRequest;
+import org.apache.directory.api.ldap.model.message.Message;
+import org.apache.directory.api.ldap.model.message.Response;
+import org.apache.directory.api.ldap.model.message.ResultCodeEnum;
+import org.apache.directory.api.ldap.model.message.SearchRequest;
+import org.apache.directory.api.ldap.model.message.SearchRequestImpl;
+import org.apache.directory.api.ldap.model.message.SearchResultDone;
+import org.apache.directory.api.ldap.model.message.SearchResultDoneImpl;
+import org.apache.directory.api.ldap.model.message.SearchResultEntry;
+import org.apache.directory.api.ldap.model.message.SearchResultEntryImpl;
+import org.apache.directory.api.ldap.model.message.SearchScope;
+import org.apache.directory.api.ldap.model.name.Dn;
+import org.apache.directory.ldap.client.api.future.SearchSubscriber;
+import org.apache.directory.ldap.client.api.future.SearchSubscription;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+
+/**
+ * Test the searches with a subscriber controlling the responses flow
+ *
+ * @author <a href="mailto:dev@directory.apache.org">Apache Directory Project</a>
+ */
+public class SearchSubscriberTest
+{
+    /** The number of entries returned by a search */
+    private static final int NB_ENTRIES = 100;
+
+    /** The transport answering the requests */
+    private MockLdapTransport transport;
+
+
+    /**
+     * A subscriber storing the received responses
+     */
+    private static class QueueSubscriber implements SearchSubscriber
+    {
+        private volatile SearchSubscription subscription;
+        private BlockingQueue<Response> responses = new LinkedBlockingQueue<>();
+        private CountDownLatch completed = new CountDownLatch( 1 );
+        private volatile Throwable error;
+
+
+        @Override
+        public void onSubscribe( SearchSubscription subscription )
+        {
+            this.subscription = subscription;
+        }
+
+
+        @Override
+        public void onNext( Response response )
+        {
+            responses.add( response );
+        }
+
+
+        @Override
+        public void onError( Throwable cause )
+        {
+            error = cause;
+            completed.countDown();
+        }
+
+
+        @Override
+        public void onComplete()
+        {
+            completed.countDown();
+        }
+    }
+
+
+    /**
+     * The SearchRequests get NB_ENTRIES entries, the other requests are not answered
+     */
+    private static List<? extends Message> respond( Message request )
+    {
+        if ( !( request instanceof SearchRequest ) )
+        {
+            return Collections.emptyList();
+        }
+
+        List<Response> responses = new ArrayList<>();
+
+        for ( int i = 0; i < NB_ENTRIES; i++ )
+        {
+            SearchResultEntryImpl entry = new SearchResultEntryImpl( request.getMessageId() );
+
+            try
+            {
+                entry.setEntry( new DefaultEntry( "cn=entry" + i + ",ou=system", "cn", "entry" + i ) );
+            }
+            catch ( Exception e )
+            {
+                throw new IllegalStateException( e );
+            }
+
+            responses.add( entry );
+        }
+
+        SearchResultDoneImpl done = new SearchResultDoneImpl( request.getMessageId() );
+        done.getLdapResult().setResultCode( ResultCodeEnum.SUCCESS );
+        responses.add( done );
+
+        return responses;
+    }
+
+
+    @BeforeEach
+    public void startServer()
+    {
+        transport = new MockLdapTransport( SearchSubscriberTest::respond );
+    }
+
+
+    @AfterEach
+    public void stopServer()
+    {
+        transport.dispose();
+    }
+
+
+    private LdapNetworkConnection connect() throws Exception
+    {
+        LdapConnectionConfig config = new LdapConnectionConfig();
+        config.setTransport( transport );
+        config.setSearchHighWatermark( 10 );
+
+        LdapNetworkConnection connection = new LdapNetworkConnection( config );
+        connection.connect();
+
+        return connection;
+    }
+
+
+    private static SearchRequest searchRequest() throws Exception
+    {
+        return new SearchRequestImpl().setBase( new Dn( "ou=system" ) ).setFilter( "(cn=*)" )
+            .setScope( SearchScope.ONELEVEL );
+    }
+
+
+    @Test
+    public void testBackpressure() throws Exception
+    {
+        QueueSubscriber subscriber = new QueueSubscriber();
+
+        try ( LdapNetworkConnection connection = connect() )
+        {
+            connection.searchAsync( searchRequest(), subscriber );
+            assertNotNull( subscriber.subscription );
+
+            // Nothing is delivered before being requested
+            assertNull( subscriber.responses.poll( 100, TimeUnit.MILLISECONDS ) );
+
+            subscriber.subscription.request( 5 );
+
+            for ( int i = 0; i < 5; i++ )
+            {
+                SearchResultEntry entry = ( SearchResultEntry ) subscriber.responses.poll( 10, TimeUnit.SECONDS );
+                assertEquals( new Dn( "cn=entry" + i + ",ou=system" ), entry.getObjectName() );
+            }
+
+            assertNull( subscriber.responses.poll( 100, TimeUnit.MILLISECONDS ) );
+
+            // The subscriber does not keep up : the reads have been suspended
+            assertTrue( transport.getReadSuspensions() >= 1 );
+
+            subscriber.subscription.request( Long.MAX_VALUE );
+            assertTrue( subscriber.completed.await( 10, TimeUnit.SECONDS ) );
+            assertNull( subscriber.error );
+
+            // The remaining entries, and the SearchResultDone
+            assertEquals( NB_ENTRIES - 5 + 1, subscriber.responses.size() );
+            assertTrue( new ArrayList<>( subscriber.responses ).get( NB_ENTRIES - 5 ) instanceof SearchResultDone );
+        }
+    }
+
+
+    @Test
+    public void testCancel() throws Exception
+    {
+        QueueSubscriber subscriber = new QueueSubscriber();
+
+        try ( LdapNetworkConnection connection = connect() )
+        {
+            connection.searchAsync( searchRequest(), subscriber );
+
+            subscriber.subscription.request( 1 );
+            assertNotNull( subscriber.responses.poll( 10, TimeUnit.SECONDS ) );
+
+            subscriber.subscription.cancel();
+            subscriber.subscription.request( 10 );
+
+            // The search has been abandoned, and nothing else is delivered
+            assertTrue( transport.getWritten().stream().anyMatch( AbandonRequest.class::isInstance ) );
+            assertNull( subscriber.responses.poll( 100, TimeUnit.MILLISECONDS ) );
+            assertFalse( subscriber.completed.await( 100, TimeUnit.MILLISECONDS ) );
+        }
+    }
+
+
+    @Test
+    public void testCancelAbandonsBeforeResumingReads() throws Exception
+    {
+        List<Boolean> abandonedOnResume = Collections.synchronizedList( new ArrayList<>() );
+        transport.dispose();
+        transport = new MockLdapTransport( SearchSubscriberTest::respond )
+        {
+            @Override
+            public synchronized void resumeRead()
+            {
+                abandonedOnResume.add( getWritten().stream().anyMatch( AbandonRequest.class::isInstance ) );
+                super.resumeRead();
+            }
+        };
+
+        QueueSubscriber subscriber = new QueueSubscriber();
+
+        try ( LdapNetworkConnection connection = connect() )
+        {
+            connection.searchAsync( searchRequest(), subscriber );
+
+            // Wait for the reads to be suspended, as nothing has been requested
+            long deadline = System.currentTimeMillis() + 10_000L;
+
+            while ( ( transport.getReadSuspensions() == 0 ) && ( System.currentTimeMillis() < deadline ) )
+            {
+                Thread.sleep( 10 );
+            }
+
+            assertEquals( 1, transport.getReadSuspensions() );
+
+            subscriber.subscription.cancel();
+
+            // The reads have been resumed once the AbandonRequest has been sent
+            assertEquals( Collections.singletonList( Boolean.TRUE ), abandonedOnResume );
+        }
+    }
+}
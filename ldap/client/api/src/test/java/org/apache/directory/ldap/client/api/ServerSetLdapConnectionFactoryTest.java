@@ -0,0 +1,546 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *    https://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ *
+ */
+package org.apache.directory.ldap.client.api;
+
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.directory.api.ldap.model.exception.LdapAuthenticationException;
+import org.apache.directory.api.ldap.model.exception.LdapException;
+import org.apache.directory.api.ldap.model.exception.LdapOperationException;
+import org.apache.directory.api.ldap.model.message.BindRequest;
+import org.apache.directory.api.ldap.model.message.BindResponseImpl;
+import org.apache.directory.api.ldap.model.message.CompareRequest;
+import org.apache.directory.api.ldap.model.message.CompareResponseImpl;
+import org.apache.directory.api.ldap.model.message.Message;
+import org.apache.directory.api.ldap.model.message.ResultCodeEnum;
+import org.apache.directory.api.ldap.model.message.ResultResponse;
+import org.apache.directory.ldap.client.api.ServerSetLdapConnectionFactory.Policy;
+import org.apache.directory.ldap.client.api.ServerSetLdapConnectionFactory.Server;
+import org.apache.directory.ldap.client.api.ServerSetLdapConnectionFactory.State;
+import org.apache.directory.ldap.client.api.transport.LdapTransport;
+import org.apache.directory.ldap.client.api.transport.LdapTransportHandler;
+import org.apache.directory.ldap.client.api.transport.LdapTransportSession;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+
+/**
+ * Test the load balancing and the failover of the ServerSetLdapConnectionFactory
+ *
+ * @author <a href="mailto:dev@directory.apache.org">Apache Directory Project</a>
+ */
+public class ServerSetLdapConnectionFactoryTest
+{
+    /** The number of servers */
+    private static final int NB_SERVERS = 3;
+
+    /** The transports used by the connections */
+    private final List<MockLdapTransport> transports = Collections.synchronizedList( new ArrayList<>() );
+
+    /** The simulated servers */
+    private final List<MockServer> mockServers = new ArrayList<>();
+
+    /** The number of connections which have been attempted */
+    private final AtomicInteger connecting = new AtomicInteger();
+
+    /** The tested factory */
+    private ServerSetLdapConnectionFactory factory;
+
+
+    /**
+     * A simulated server : each connection gets its own MockLdapTransport
+     */
+    private class MockServer implements LdapTransport
+    {
+        /** When set, the BindRequests fail */
+        private volatile boolean down;
+
+        /** When set, the BindRequests are rejected with this result code */
+        private volatile ResultCodeEnum rejection;
+
+        /** The time spent to answer a BindRequest, in milliseconds */
+        private volatile long bindDelay;
+
+        /** The time spent to connect, in milliseconds */
+        private volatile long connectDelay;
+
+        /** The names of the received BindRequests */
+        private final List<String> bindNames = Collections.synchronizedList( new ArrayList<>() );
+
+
+        @Override
+        public LdapTransportSession connect( LdapConnectionConfig config, LdapTransportHandler handler, long timeout )
+        {
+            connecting.incrementAndGet();
+            sleep( connectDelay );
+
+            MockLdapTransport transport = new MockLdapTransport( this::respond );
+            transports.add( transport );
+
+            return transport.connect( config, handler, timeout );
+        }
+
+
+        /**
+         * The BindRequests are successful unless the server is down or rejects them,
+         * the CompareRequests return true
+         */
+        private List<? extends Message> respond( Message request )
+        {
+            ResultResponse response;
+
+            if ( request instanceof BindRequest )
+            {
+                sleep( bindDelay );
+                bindNames.add( ( ( BindRequest ) request ).getName() );
+                response = new BindResponseImpl( request.getMessageId() );
+
+                if ( down )
+                {
+                    response.getLdapResult().setResultCode( ResultCodeEnum.UNAVAILABLE );
+                }
+                else if ( rejection != null )
+                {
+                    response.getLdapResult().setResultCode( rejection );
+                }
+                else
+                {
+                    response.getLdapResult().setResultCode( ResultCodeEnum.SUCCESS );
+                }
+            }
+            else if ( request instanceof CompareRequest )
+            {
+                response = new CompareResponseImpl( request.getMessageId() );
+                response.getLdapResult().setResultCode( ResultCodeEnum.COMPARE_TRUE );
+            }
+            else
+            {
+                return Collections.emptyList();
+            }
+
+            return Collections.singletonList( response );
+        }
+
+
+        @Override
+        public void dispose()
+        {
+        }
+    }
+
+
+    private static void sleep( long millis )
+    {
+        try
+        {
+            Thread.sleep( millis );
+        }
+        catch ( InterruptedException ie )
+        {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+
+    @BeforeEach
+    public void createFactory()
+    {
+        List<LdapConnectionConfig> configs = new ArrayList<>();
+
+        for ( int i = 0; i < NB_SERVERS; i++ )
+        {
+            MockServer mockServer = new MockServer();
+            mockServers.add( mockServer );
+
+            LdapConnectionConfig config = new LdapConnectionConfig();
+            config.setLdapHost( "replica" + i );
+            config.setName( "uid=replica" + i + ",ou=system" );
+            config.setTransport( mockServer );
+            configs.add( config );
+        }
+
+        factory = new ServerSetLdapConnectionFactory( configs );
+    }
+
+
+    @AfterEach
+    public void stopServers()
+    {
+        for ( MockLdapTransport transport : transports )
+        {
+            transport.close();
+            transport.dispose();
+        }
+    }
+
+
+    private Server server( int index )
+    {
+        return factory.getServers().get( index );
+    }
+
+
+    @Test
+    public void testEmptyServerSet()
+    {
+        assertThrows( IllegalArgumentException.class, () -> new ServerSetLdapConnectionFactory() );
+    }
+
+
+    @Test
+    public void testRoundRobin() throws Exception
+    {
+        for ( int i = 0; i < 2 * NB_SERVERS; i++ )
+        {
+            factory.newLdapConnection();
+        }
+
+        for ( int i = 0; i < NB_SERVERS; i++ )
+        {
+            assertEquals( 2, server( i ).getOpenConnections() );
+            assertTrue( server( i ).getLatency() > 0L );
+        }
+    }
+
+
+    @Test
+    public void testFewestConnections() throws Exception
+    {
+        factory.setPolicy( Policy.FEWEST_CONNECTIONS );
+        List<LdapConnection> connections = new ArrayList<>();
+
+        for ( int i = 0; i < 2 * NB_SERVERS; i++ )
+        {
+            connections.add( factory.newLdapConnection() );
+        }
+
+        // Close the connections of the first server
+        for ( LdapConnection connection : connections )
+        {
+            if ( ( ( LdapNetworkConnection ) connection ).getConfig() == server( 0 ).getConfig() )
+            {
+                connection.close();
+            }
+        }
+
+        assertEquals( 0, server( 0 ).getOpenConnections() );
+
+        // The new connections go to the first server
+        factory.newLdapConnection();
+        factory.newLdapConnection();
+
+        assertEquals( 2, server( 0 ).getOpenConnections() );
+        assertEquals( 2, server( 1 ).getOpenConnections() );
+        assertEquals( 2, server( 2 ).getOpenConnections() );
+    }
+
+
+    @Test
+    public void testLatencyWeighted() throws Exception
+    {
+        factory.setPolicy( Policy.LATENCY_WEIGHTED );
+        mockServers.get( 0 ).bindDelay = 50L;
+        mockServers.get( 1 ).bindDelay = 50L;
+
+        // The latency of each server is measured first
+        for ( int i = 0; i < NB_SERVERS; i++ )
+        {
+            factory.newLdapConnection();
+        }
+
+        for ( int i = 0; i < 20; i++ )
+        {
+            factory.newLdapConnection();
+        }
+
+        assertTrue( server( 0 ).getLatency() > server( 2 ).getLatency() );
+        assertTrue( server( 1 ).getLatency() > server( 2 ).getLatency() );
+
+        // Most of the connections have been made to the fastest server
+        assertTrue( server( 2 ).getOpenConnections() >= 16 );
+    }
+
+
+    @Test
+    public void testFailover() throws Exception
+    {
+        factory.setFailureThreshold( 2 );
+        mockServers.get( 0 ).down = true;
+
+        // The first server fails, the connections are made to the other ones
+        for ( int i = 0; i < 2 * NB_SERVERS; i++ )
+        {
+            assertTrue( factory.newLdapConnection().isAuthenticated() );
+        }
+
+        assertEquals( State.UNAVAILABLE, server( 0 ).getState() );
+        assertEquals( 0, server( 0 ).getOpenConnections() );
+        assertEquals( 2 * NB_SERVERS, server( 1 ).getOpenConnections() + server( 2 ).getOpenConnections() );
+
+        // No server left
+        mockServers.get( 1 ).down = true;
+        mockServers.get( 2 ).down = true;
+        factory.setFailureThreshold( 1 );
+
+        assertThrows( LdapException.class, () -> factory.newLdapConnection() );
+        assertEquals( State.UNAVAILABLE, server( 1 ).getState() );
+        assertEquals( State.UNAVAILABLE, server( 2 ).getState() );
+        assertThrows( LdapException.class, () -> factory.newLdapConnection() );
+    }
+
+
+    @Test
+    public void testRecovery() throws Exception
+    {
+        factory.setFailureThreshold( 1 );
+        factory.setRetryDelay( 50L );
+        mockServers.get( 0 ).down = true;
+
+        factory.newLdapConnection();
+        assertEquals( State.UNAVAILABLE, server( 0 ).getState() );
+
+        // The server is still down when it's tried again
+        sleep( 60L );
+        assertEquals( NB_SERVERS - 1, factory.probeServers() );
+        assertEquals( State.UNAVAILABLE, server( 0 ).getState() );
+
+        // The server is back
+        mockServers.get( 0 ).down = false;
+        assertEquals( NB_SERVERS - 1, factory.probeServers() );
+
+        sleep( 60L );
+        assertEquals( NB_SERVERS, factory.probeServers() );
+        assertEquals( State.AVAILABLE, server( 0 ).getState() );
+    }
+
+
+    @Test
+    public void testInvalidCredentials() throws Exception
+    {
+        factory.setFailureThreshold( 1 );
+        mockServers.get( 0 ).rejection = ResultCodeEnum.INVALID_CREDENTIALS;
+
+        // The error is not retried on another server, and the server stays available
+        assertThrows( LdapAuthenticationException.class, () -> factory.newLdapConnection() );
+        assertEquals( State.AVAILABLE, server( 0 ).getState() );
+        assertEquals( 1, transports.size() );
+    }
+
+
+    @Test
+    public void testRejectedBind() throws Exception
+    {
+        factory.setFailureThreshold( 1 );
+        ResultCodeEnum[] rejections = new ResultCodeEnum[]
+            {
+                ResultCodeEnum.INAPPROPRIATE_AUTHENTICATION,
+                ResultCodeEnum.UNWILLING_TO_PERFORM,
+                ResultCodeEnum.INSUFFICIENT_ACCESS_RIGHTS
+            };
+
+        for ( ResultCodeEnum rejection : rejections )
+        {
+            mockServers.get( 0 ).rejection = rejection;
+            int created = transports.size();
+
+            // The server has answered : the error is not retried on another server, and
+            // the server stays available
+            LdapOperationException error = assertThrows( LdapOperationException.class,
+                () -> factory.newLdapConnection() );
+            assertEquals( rejection, error.getResultCode() );
+            assertEquals( State.AVAILABLE, server( 0 ).getState() );
+            assertEquals( created + 1, transports.size() );
+
+            // Make the next connection go to the first server again
+            factory.newLdapConnection();
+            factory.newLdapConnection();
+        }
+    }
+
+
+    @Test
+    public void testBusyServer() throws Exception
+    {
+        factory.setFailureThreshold( 1 );
+        mockServers.get( 0 ).rejection = ResultCodeEnum.BUSY;
+
+        // A busy server is a failing server : the connection is made to another server
+        assertTrue( factory.newLdapConnection().isAuthenticated() );
+        assertEquals( State.UNAVAILABLE, server( 0 ).getState() );
+        assertEquals( 1, server( 1 ).getOpenConnections() );
+    }
+
+
+    @Test
+    public void testFewestConnectionsConcurrent() throws Exception
+    {
+        factory.setPolicy( Policy.FEWEST_CONNECTIONS );
+
+        // The first servers get a connection each
+        factory.newLdapConnection();
+        factory.newLdapConnection();
+        assertEquals( 0, server( 2 ).getOpenConnections() );
+
+        for ( MockServer mockServer : mockServers )
+        {
+            mockServer.connectDelay = 200L;
+        }
+
+        List<Thread> threads = new ArrayList<>();
+
+        // Each connection is created while the previous ones are still being connected
+        for ( int i = 0; i < NB_SERVERS; i++ )
+        {
+            Thread thread = new Thread( () ->
+            {
+                try
+                {
+                    factory.newLdapConnection();
+                }
+                catch ( LdapException e )
+                {
+                    throw new IllegalStateException( e );
+                }
+            } );
+
+            thread.start();
+            threads.add( thread );
+
+            while ( connecting.get() <= 2 + i )
+            {
+                sleep( 1L );
+            }
+        }
+
+        for ( Thread thread : threads )
+        {
+            thread.join();
+        }
+
+        // The connections being connected are counted : they don't all go to the last server
+        int total = 0;
+
+        for ( int i = 0; i < NB_SERVERS; i++ )
+        {
+            assertTrue( server( i ).getOpenConnections() <= 2 );
+            total += server( i ).getOpenConnections();
+        }
+
+        assertEquals( 2 + NB_SERVERS, total );
+    }
+
+
+    @Test
+    public void testPool() throws Exception
+    {
+        LdapConnectionPool pool = new LdapConnectionPool( new DefaultPoolableLdapConnectionFactory( factory ) );
+        mockServers.get( 1 ).down = true;
+        List<LdapConnection> connections = new ArrayList<>();
+
+        try
+        {
+            for ( int i = 0; i < NB_SERVERS; i++ )
+            {
+                LdapConnection connection = pool.getConnection();
+                connections.add( connection );
+
+                assertTrue( connection.compare( "cn=test,ou=system", "cn", "test" ) );
+            }
+
+            for ( LdapConnection connection : connections )
+            {
+                pool.releaseConnection( connection );
+            }
+
+            // The dropped connections are bound again to their own server
+            mockServers.get( 1 ).down = false;
+
+            for ( MockLdapTransport transport : transports )
+            {
+                transport.close();
+            }
+
+            for ( int i = 0; i < NB_SERVERS; i++ )
+            {
+                assertTrue( pool.getConnection().isAuthenticated() );
+            }
+
+            assertEquals( 0, server( 1 ).getOpenConnections() );
+            assertEquals( NB_SERVERS, server( 0 ).getOpenConnections() + server( 2 ).getOpenConnections() );
+        }
+        finally
+        {
+            pool.close();
+        }
+    }
+
+
+    @Test
+    public void testWrappedConnectionsRebindToTheirServer() throws Exception
+    {
+        LdapConnectionPool pool = new LdapConnectionPool( new ValidatingPoolableLdapConnectionFactory( factory ) );
+        List<LdapConnection> connections = new ArrayList<>();
+
+        try
+        {
+            for ( int i = 0; i < NB_SERVERS; i++ )
+            {
+                LdapConnection connection = pool.getConnection();
+                connections.add( connection );
+
+                // The pool will have to bind the connection again when it's released
+                connection.bind();
+            }
+
+            for ( LdapConnection connection : connections )
+            {
+                pool.releaseConnection( connection );
+            }
+
+            // Each server has only been sent BindRequests for its own name
+            for ( int i = 0; i < NB_SERVERS; i++ )
+            {
+                String name = "uid=replica" + i + ",ou=system";
+
+                assertTrue( mockServers.get( i ).bindNames.size() > 1 );
+
+                for ( String bindName : mockServers.get( i ).bindNames )
+                {
+                    assertEquals( name, bindName );
+                }
+
+                assertEquals( 1, server( i ).getOpenConnections() );
+            }
+        }
+        finally
+        {
+            pool.close();
+        }
+    }
+}
@@ -0,0 +1,313 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *    https://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ *
+ */
+package org.apache.directory.ldap.client.api;
+
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.directory.api.ldap.model.exception.LdapException;
+import org.apache.directory.api.ldap.model.message.BindRequest;
+import org.apache.directory.api.ldap.model.message.BindResponseImpl;
+import org.apache.directory.api.ldap.model.message.CompareRequest;
+import org.apache.directory.api.ldap.model.message.CompareResponseImpl;
+import org.apache.directory.api.ldap.model.message.Message;
+import org.apache.directory.api.ldap.model.message.ResultCodeEnum;
+import org.apache.directory.api.ldap.model.message.ResultResponse;
+import org.apache.directory.ldap.client.api.exception.InvalidConnectionException;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+
+/**
+ * Test the connections shared by the LdapConnectionPool
+ *
+ * @author <a href="mailto:dev@directory.apache.org">Apache Directory Project</a>
+ */
+public class SharedConnectionPoolTest
+{
+    /** The transports used by the pooled connections */
+    private final List<MockLdapTransport> transports = Collections.synchronizedList( new ArrayList<>() );
+
+    /** The tested pool */
+    private LdapConnectionPool pool;
+
+    /** When set, the creation of the connections waits for it */
+    private volatile CountDownLatch creationLatch;
+
+    /** Set when a connection creation is waiting for the latch */
+    private volatile boolean creating;
+
+
+    /**
+     * The BindRequests are successful, and the CompareRequests return true
+     */
+    private static List<? extends Message> respond( Message request )
+    {
+        ResultResponse response;
+
+        if ( request instanceof BindRequest )
+        {
+            response = new BindResponseImpl( request.getMessageId() );
+            response.getLdapResult().setResultCode( ResultCodeEnum.SUCCESS );
+        }
+        else if ( request instanceof CompareRequest )
+        {
+            response = new CompareResponseImpl( request.getMessageId() );
+            response.getLdapResult().setResultCode( ResultCodeEnum.COMPARE_TRUE );
+        }
+        else
+        {
+            return Collections.emptyList();
+        }
+
+        return Collections.singletonList( response );
+    }
+
+
+    @BeforeEach
+    public void createPool()
+    {
+        DefaultLdapConnectionFactory connectionFactory = new DefaultLdapConnectionFactory( new LdapConnectionConfig() )
+        {
+            @Override
+            public LdapConnection newUnboundLdapConnection()
+            {
+                CountDownLatch latch = creationLatch;
+
+                if ( latch != null )
+                {
+                    creating = true;
+
+                    try
+                    {
+                        latch.await();
+                    }
+                    catch ( InterruptedException ie )
+                    {
+                        Thread.currentThread().interrupt();
+                    }
+                }
+
+                MockLdapTransport transport = new MockLdapTransport( SharedConnectionPoolTest::respond );
+                transports.add( transport );
+
+                LdapConnectionConfig config = new LdapConnectionConfig();
+                config.setTransport( transport );
+
+                return configureConnection( new LdapNetworkConnection( config ) );
+            }
+        };
+
+        pool = new LdapConnectionPool( new DefaultPoolableLdapConnectionFactory( connectionFactory ) );
+    }
+
+
+    @AfterEach
+    public void closePool()
+    {
+        pool.close();
+
+        for ( MockLdapTransport transport : transports )
+        {
+            transport.dispose();
+        }
+    }
+
+
+    @Test
+    public void testSharingDisabled()
+    {
+        assertThrows( LdapException.class, () -> pool.getSharedConnection() );
+    }
+
+
+    @Test
+    public void testLeastLoadedConnection() throws Exception
+    {
+        pool.setMaxSharedConnections( 2 );
+
+        // An unused connection is reused
+        try ( SharedLdapConnection connection = pool.getSharedConnection() )
+        {
+            assertTrue( connection.compare( "cn=test,ou=system", "cn", "test" ) );
+        }
+
+        try ( SharedLdapConnection connection = pool.getSharedConnection() )
+        {
+            assertTrue( connection.compare( "cn=test,ou=system", "cn", "test" ) );
+        }
+
+        assertEquals( 1, pool.getNumShared() );
+
+        // The callers are spread on at most 2 connections
+        List<SharedLdapConnection> connections = new ArrayList<>();
+        Set<LdapConnection> used = new HashSet<>();
+
+        for ( int i = 0; i < 5; i++ )
+        {
+            SharedLdapConnection connection = pool.getSharedConnection();
+            connections.add( connection );
+            used.add( connection.wrapped() );
+        }
+
+        assertEquals( 2, used.size() );
+        assertEquals( 2, pool.getNumShared() );
+        assertEquals( 2, pool.getNumActive() );
+        assertNotSame( connections.get( 0 ).wrapped(), connections.get( 1 ).wrapped() );
+        assertSame( connections.get( 0 ).wrapped(), connections.get( 2 ).wrapped() );
+
+        for ( SharedLdapConnection connection : connections )
+        {
+            assertTrue( connection.compare( "cn=test,ou=system", "cn", "test" ) );
+        }
+
+        // The least loaded connection is given
+        LdapConnection leastLoaded = connections.get( 1 ).wrapped();
+        connections.get( 1 ).close();
+        connections.get( 3 ).close();
+
+        try ( SharedLdapConnection connection = pool.getSharedConnection() )
+        {
+            assertSame( leastLoaded, connection.wrapped() );
+        }
+
+        // An exclusive connection can still be borrowed
+        LdapConnection exclusive = pool.getConnection();
+        assertFalse( used.contains( exclusive ) );
+        pool.releaseConnection( exclusive );
+
+        for ( SharedLdapConnection connection : connections )
+        {
+            connection.close();
+        }
+
+        // The shared connections are kept
+        assertEquals( 2, pool.getNumShared() );
+    }
+
+
+    @Test
+    public void testStateChangeRejected() throws Exception
+    {
+        pool.setMaxSharedConnections( 1 );
+
+        try ( SharedLdapConnection connection = pool.getSharedConnection() )
+        {
+            assertThrows( UnsupportedOperationException.class, () -> connection.bind( "uid=admin,ou=system", "secret" ) );
+            assertThrows( UnsupportedOperationException.class, () -> connection.unBind() );
+            assertThrows( UnsupportedOperationException.class, () -> connection.extended( "1.3.6.1.4.1.1466.20037" ) );
+            assertTrue( connection.isConnected() );
+        }
+    }
+
+
+    @Test
+    public void testClosedSharedConnection() throws Exception
+    {
+        pool.setMaxSharedConnections( 1 );
+
+        SharedLdapConnection connection = pool.getSharedConnection();
+        LdapConnection shared = connection.wrapped();
+        connection.close();
+
+        // The closed connection does not delegate to the shared connection anymore
+        assertTrue( connection.isClosed() );
+        assertFalse( connection.isConnected() );
+        assertFalse( connection.isAuthenticated() );
+        assertThrows( InvalidConnectionException.class, () -> connection.compare( "cn=test,ou=system", "cn", "test" ) );
+        assertThrows( IllegalStateException.class, () -> connection.getSchemaManager() );
+        connection.close();
+
+        // The shared connection is still open, and used by a single caller
+        assertTrue( shared.isConnected() );
+
+        try ( SharedLdapConnection other = pool.getSharedConnection() )
+        {
+            assertSame( shared, other.wrapped() );
+            assertTrue( other.compare( "cn=test,ou=system", "cn", "test" ) );
+        }
+    }
+
+
+    @Test
+    public void testSharedConnectionsUsableWhileBorrowing() throws Exception
+    {
+        pool.setMaxSharedConnections( 2 );
+
+        SharedLdapConnection first = pool.getSharedConnection();
+
+        // The second shared connection takes a while to be created
+        creationLatch = new CountDownLatch( 1 );
+        CompletableFuture<SharedLdapConnection> second = CompletableFuture.supplyAsync( this::getSharedConnection );
+
+        while ( !creating )
+        {
+            Thread.sleep( 5L );
+        }
+
+        // Meanwhile, the other callers get the first connection
+        SharedLdapConnection other = CompletableFuture.supplyAsync( this::getSharedConnection ).get( 10L, TimeUnit.SECONDS );
+
+        assertSame( first.wrapped(), other.wrapped() );
+        assertFalse( second.isDone() );
+
+        creationLatch.countDown();
+
+        SharedLdapConnection secondConnection = second.get( 10L, TimeUnit.SECONDS );
+
+        assertNotSame( first.wrapped(), secondConnection.wrapped() );
+        assertEquals( 2, pool.getNumShared() );
+
+        first.close();
+        other.close();
+        secondConnection.close();
+    }
+
+
+    /**
+     * @return A shared connection
+     */
+    private SharedLdapConnection getSharedConnection()
+    {
+        try
+        {
+            return pool.getSharedConnection();
+        }
+        catch ( LdapException le )
+        {
+            throw new IllegalStateException( le );
+        }
+    }
+}
@@ -0,0 +1,343 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *    https://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ *
+ */
+package org.apache.directory.ldap.client.api;
+
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.commons.pool2.DestroyMode;
+import org.apache.commons.pool2.PooledObject;
+import org.apache.commons.pool2.PooledObjectFactory;
+import org.apache.commons.pool2.impl.DefaultPooledObject;
+import org.apache.commons.pool2.impl.GenericObjectPoolConfig;
+import org.junit.jupiter.api.Test;
+
+
+/**
+ * Test the StripedLdapConnectionPool
+ *
+ * @author <a href="mailto:dev@directory.apache.org">Apache Directory Project</a>
+ */
+public class StripedLdapConnectionPoolTest
+{
+    /**
+     * A connection which knows if it's borrowed
+     */
+    private static class TestConnection extends LdapConnectionWrapper
+    {
+        private final AtomicBoolean borrowed = new AtomicBoolean();
+
+
+        TestConnection()
+        {
+            super( null );
+        }
+    }
+
+
+    /**
+     * A factory creating TestConnections, and counting them
+     */
+    private static class TestFactory implements PooledObjectFactory<LdapConnection>
+    {
+        private final AtomicInteger created = new AtomicInteger();
+        private final AtomicInteger destroyed = new AtomicInteger();
+        private volatile boolean valid = true;
+
+
+        @Override
+        public PooledObject<LdapConnection> makeObject()
+        {
+            created.incrementAndGet();
+
+            return new DefaultPooledObject<>( new TestConnection() );
+        }
+
+
+        @Override
+        public void activateObject( PooledObject<LdapConnection> pooledObject )
+        {
+            if ( !( ( TestConnection ) pooledObject.getObject() ).borrowed.compareAndSet( false, true ) )
+            {
+                throw new IllegalStateException( "Connection borrowed twice" );
+            }
+        }
+
+
+        @Override
+        public void passivateObject( PooledObject<LdapConnection> pooledObject )
+        {
+            ( ( TestConnection ) pooledObject.getObject() ).borrowed.set( false );
+        }
+
+
+        @Override
+        public boolean validateObject( PooledObject<LdapConnection> pooledObject )
+        {
+            return valid;
+        }
+
+
+        @Override
+        public void destroyObject( PooledObject<LdapConnection> pooledObject )
+        {
+            destroyed.incrementAndGet();
+        }
+    }
+
+
+    private static GenericObjectPoolConfig<LdapConnection> poolConfig( int maxTotal, long maxWaitMillis )
+    {
+        GenericObjectPoolConfig<LdapConnection> poolConfig = new GenericObjectPoolConfig<>();
+        poolConfig.setMaxTotal( maxTotal );
+        poolConfig.setMaxWaitMillis( maxWaitMillis );
+
+        return poolConfig;
+    }
+
+
+    @Test
+    public void testThreadAffinity() throws Exception
+    {
+        TestFactory factory = new TestFactory();
+        StripedLdapConnectionPool pool = new StripedLdapConnectionPool( factory, poolConfig( 8, -1 ) );
+
+        LdapConnection connection1 = pool.getConnection();
+        LdapConnection connection2 = pool.getConnection();
+        assertNotSame( connection1, connection2 );
+        assertEquals( 2, pool.getNumActive() );
+
+        pool.releaseConnection( connection1 );
+        pool.releaseConnection( connection2 );
+        assertEquals( 2, pool.getNumIdle() );
+
+        // The last released connection is given back
+        assertSame( connection2, pool.getConnection() );
+        pool.releaseConnection( connection2 );
+
+        assertEquals( 2, factory.created.get() );
+        assertThrows( IllegalStateException.class, () -> pool.returnObject( connection2 ) );
+        assertThrows( IllegalStateException.class, () -> pool.returnObject( new TestConnection() ) );
+
+        pool.close();
+        assertEquals( 2, factory.destroyed.get() );
+        assertThrows( IllegalStateException.class, () -> pool.getConnection() );
+    }
+
+
+    @Test
+    public void testExhaustedPool() throws Exception
+    {
+        StripedLdapConnectionPool pool = new StripedLdapConnectionPool( new TestFactory(), poolConfig( 1, 10000 ) );
+        LdapConnection connection = pool.getConnection();
+
+        // A waiting thread gets the connection when it's released
+        CompletableFuture<LdapConnection> waiting = CompletableFuture.supplyAsync( () ->
+        {
+            try
+            {
+                return pool.getConnection();
+            }
+            catch ( Exception e )
+            {
+                throw new IllegalStateException( e );
+            }
+        } );
+
+        Thread.sleep( 100 );
+        assertFalse( waiting.isDone() );
+        pool.releaseConnection( connection );
+        assertSame( connection, waiting.get( 10, TimeUnit.SECONDS ) );
+
+        assertThrows( NoSuchElementException.class, () -> pool.borrowObject( 50 ) );
+
+        pool.releaseConnection( connection );
+        pool.close();
+    }
+
+
+    @Test
+    public void testValidationAndEviction() throws Exception
+    {
+        TestFactory factory = new TestFactory();
+        GenericObjectPoolConfig<LdapConnection> poolConfig = poolConfig( 4, -1 );
+        poolConfig.setMinIdle( 2 );
+        poolConfig.setTestOnBorrow( true );
+        StripedLdapConnectionPool pool = new StripedLdapConnectionPool( factory, poolConfig );
+
+        pool.preparePool();
+        assertEquals( 2, pool.getNumIdle() );
+
+        // The idle connections are replaced
+        pool.setEvictionPolicy( ( connection, idleMillis, idleCount ) -> true );
+        pool.evict();
+        assertEquals( 2, pool.getNumIdle() );
+        assertEquals( 4, factory.created.get() );
+        assertEquals( 2, factory.destroyed.get() );
+
+        // The default policy keeps the minimum number of idle connections
+        pool.setEvictionPolicy( null );
+        pool.setMinEvictableIdleMillis( 0 );
+        pool.addObject();
+        assertEquals( 3, pool.getNumIdle() );
+        Thread.sleep( 10 );
+        pool.evict();
+        assertEquals( 2, pool.getNumIdle() );
+
+        // The invalid connections are destroyed when borrowed
+        factory.valid = false;
+        assertThrows( Exception.class, () -> pool.getConnection() );
+        assertEquals( 0, pool.getNumIdle() );
+
+        pool.close();
+    }
+
+
+    @Test
+    public void testConcurrentBorrowers() throws Exception
+    {
+        TestFactory factory = new TestFactory();
+        StripedLdapConnectionPool pool = new StripedLdapConnectionPool( factory, poolConfig( 4, -1 ) );
+        ExecutorService executor = Executors.newFixedThreadPool( 16 );
+        List<Future<?>> results = new ArrayList<>();
+
+        try
+        {
+            for ( int t = 0; t < 16; t++ )
+            {
+                results.add( executor.submit( () ->
+                {
+                    for ( int i = 0; i < 2000; i++ )
+                    {
+                        LdapConnection connection = pool.getConnection();
+                        pool.releaseConnection( connection );
+                    }
+
+                    return null;
+                } ) );
+            }
+
+            for ( Future<?> result : results )
+            {
+                result.get( 60, TimeUnit.SECONDS );
+            }
+        }
+        finally
+        {
+            executor.shutdownNow();
+        }
+
+        assertTrue( factory.created.get() <= 4 );
+        assertEquals( 0, pool.getNumActive() );
+        assertEquals( factory.created.get(), pool.getNumIdle() );
+
+        pool.close();
+    }
+
+
+    @Test
+    public void testFixedMaxTotal() throws Exception
+    {
+        StripedLdapConnectionPool pool = new StripedLdapConnectionPool( new TestFactory(), poolConfig( 4, -1 ) );
+
+        try
+        {
+            assertEquals( 4, pool.getMaxTotal() );
+
+            // The number of slots can't be changed
+            pool.setMaxTotal( 4 );
+            assertThrows( UnsupportedOperationException.class, () -> pool.setMaxTotal( 8 ) );
+            assertThrows( UnsupportedOperationException.class, () -> pool.setConfig( poolConfig( 2, -1 ) ) );
+            assertEquals( 4, pool.getMaxTotal() );
+        }
+        finally
+        {
+            pool.close();
+        }
+    }
+
+
+    @Test
+    public void testAllMethodsUseTheSlots() throws Exception
+    {
+        TestFactory factory = new TestFactory();
+        StripedLdapConnectionPool pool = new StripedLdapConnectionPool( factory, poolConfig( 4, -1 ) );
+
+        try
+        {
+            // No more connections than slots are added
+            pool.addObjects( 8 );
+            assertEquals( 4, factory.created.get() );
+            assertEquals( 4, pool.getNumIdle() );
+
+            LdapConnection connection = pool.borrowObject( Duration.ofMillis( 100L ) );
+            assertTrue( ( ( TestConnection ) connection ).borrowed.get() );
+            assertEquals( 1, pool.getNumActive() );
+            assertEquals( 3, pool.getNumIdle() );
+
+            pool.invalidateObject( connection, DestroyMode.NORMAL );
+            assertEquals( 1, factory.destroyed.get() );
+            assertEquals( 0, pool.getNumActive() );
+            assertEquals( 3, pool.getNumIdle() );
+
+            // The freed slot can be filled again
+            pool.addObjects( 2 );
+            assertEquals( 5, factory.created.get() );
+            assertEquals( 4, pool.getNumIdle() );
+
+            List<LdapConnection> connections = new ArrayList<>();
+
+            for ( int i = 0; i < 4; i++ )
+            {
+                connections.add( pool.borrowObject( Duration.ofMillis( 100L ) ) );
+            }
+
+            assertThrows( NoSuchElementException.class, () -> pool.borrowObject( Duration.ofMillis( 50L ) ) );
+
+            for ( LdapConnection borrowed : connections )
+            {
+                pool.returnObject( borrowed );
+            }
+
+            assertEquals( 4, pool.getNumIdle() );
+        }
+        finally
+        {
+            pool.close();
+        }
+    }
+}
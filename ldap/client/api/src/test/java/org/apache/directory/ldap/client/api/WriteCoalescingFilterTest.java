@@ -0,0 +1,448 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *    https://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ *
+ */
+package org.apache.directory.ldap.client.api;
+
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.apache.mina.core.buffer.IoBuffer;
+import org.apache.mina.core.filterchain.IoFilter.NextFilter;
+import org.apache.mina.core.session.DummySession;
+import org.apache.mina.core.session.IdleStatus;
+import org.apache.mina.core.session.IoSession;
+import org.apache.mina.core.write.DefaultWriteRequest;
+import org.apache.mina.core.write.WriteRequest;
+import org.apache.mina.filter.FilterEvent;
+import org.junit.jupiter.api.Test;
+
+
+/**
+ * Test the WriteCoalescingFilter
+ *
+ * @author <a href="mailto:dev@directory.apache.org">Apache Directory Project</a>
+ */
+public class WriteCoalescingFilterTest
+{
+    /** The session the requests are written to */
+    private final IoSession session = new DummySession();
+
+    /** The next filter, recording the events */
+    private final RecordingNextFilter nextFilter = new RecordingNextFilter();
+
+
+    /**
+     * A next filter recording the written requests and the propagated events
+     */
+    private static class RecordingNextFilter implements NextFilter
+    {
+        /** The written requests */
+        private final List<WriteRequest> written = Collections.synchronizedList( new ArrayList<>() );
+
+        /** The requests propagated by messageSent */
+        private final List<WriteRequest> sent = new ArrayList<>();
+
+        /** The propagated events, in order */
+        private final List<String> events = Collections.synchronizedList( new ArrayList<>() );
+
+
+        @Override
+        public void sessionCreated( IoSession session )
+        {
+        }
+
+
+        @Override
+        public void sessionOpened( IoSession session )
+        {
+        }
+
+
+        @Override
+        public void sessionClosed( IoSession session )
+        {
+            events.add( "sessionClosed" );
+        }
+
+
+        @Override
+        public void sessionIdle( IoSession session, IdleStatus status )
+        {
+        }
+
+
+        @Override
+        public void exceptionCaught( IoSession session, Throwable cause )
+        {
+        }
+
+
+        @Override
+        public void inputClosed( IoSession session )
+        {
+        }
+
+
+        @Override
+        public void messageReceived( IoSession session, Object message )
+        {
+        }
+
+
+        @Override
+        public void messageSent( IoSession session, WriteRequest writeRequest )
+        {
+            sent.add( writeRequest );
+        }
+
+
+        @Override
+        public void filterWrite( IoSession session, WriteRequest writeRequest )
+        {
+            written.add( writeRequest );
+            events.add( "filterWrite" );
+        }
+
+
+        @Override
+        public void filterClose( IoSession session )
+        {
+            events.add( "filterClose" );
+        }
+
+
+        @Override
+        public void event( IoSession session, FilterEvent event )
+        {
+        }
+    }
+
+
+    /**
+     * @param length The buffer length
+     * @param value The bytes value
+     * @return A write request for a buffer
+     */
+    private static WriteRequest request( int length, int value )
+    {
+        byte[] bytes = new byte[length];
+
+        for ( int i = 0; i < length; i++ )
+        {
+            bytes[i] = ( byte ) value;
+        }
+
+        return new DefaultWriteRequest( IoBuffer.wrap( bytes ) );
+    }
+
+
+    /**
+     * @param writeRequest The written request
+     * @return The remaining bytes of the request buffer
+     */
+    private static byte[] bytes( WriteRequest writeRequest )
+    {
+        IoBuffer buffer = ( ( IoBuffer ) writeRequest.getMessage() ).duplicate();
+        byte[] bytes = new byte[buffer.remaining()];
+        buffer.get( bytes );
+
+        return bytes;
+    }
+
+
+    @Test
+    public void testInvalidParameters()
+    {
+        assertThrows( IllegalArgumentException.class, () -> new WriteCoalescingFilter( -1L, 10 ) );
+        assertThrows( IllegalArgumentException.class, () -> new WriteCoalescingFilter( 0L, 0 ) );
+    }
+
+
+    @Test
+    public void testThresholdFlush() throws Exception
+    {
+        WriteCoalescingFilter filter = new WriteCoalescingFilter( 0L, 100 );
+        List<WriteRequest> requests = new ArrayList<>();
+        ByteArrayOutputStream expected = new ByteArrayOutputStream();
+
+        for ( int i = 0; i < 3; i++ )
+        {
+            WriteRequest request = request( 40, i );
+            byte[] bytes = bytes( request );
+            expected.write( bytes, 0, bytes.length );
+            requests.add( request );
+        }
+
+        filter.filterWrite( nextFilter, session, requests.get( 0 ) );
+        filter.filterWrite( nextFilter, session, requests.get( 1 ) );
+
+        assertTrue( nextFilter.written.isEmpty() );
+        assertEquals( 80, filter.getPendingBytes() );
+
+        // The threshold is reached : the three PDUs are written at once
+        filter.filterWrite( nextFilter, session, requests.get( 2 ) );
+
+        assertEquals( 1, nextFilter.written.size() );
+        assertEquals( 0, filter.getPendingBytes() );
+
+        WriteRequest coalesced = nextFilter.written.get( 0 );
+
+        for ( WriteRequest request : requests )
+        {
+            assertFalse( request.getFuture().isDone() );
+        }
+
+        assertArrayEquals( expected.toByteArray(), bytes( coalesced ) );
+
+        // The futures are completed when the coalesced buffer has been written
+        coalesced.getFuture().setWritten();
+
+        for ( WriteRequest request : requests )
+        {
+            assertTrue( request.getFuture().isWritten() );
+        }
+
+        // Each coalesced request is notified as sent
+        filter.messageSent( nextFilter, session, coalesced );
+
+        assertEquals( requests, nextFilter.sent );
+    }
+
+
+    @Test
+    public void testLargeBufferNotCoalesced() throws Exception
+    {
+        WriteCoalescingFilter filter = new WriteCoalescingFilter( 0L, 100 );
+        WriteRequest request = request( 150, 1 );
+
+        filter.filterWrite( nextFilter, session, request );
+
+        assertEquals( 1, nextFilter.written.size() );
+        assertSame( request, nextFilter.written.get( 0 ) );
+    }
+
+
+    @Test
+    public void testExplicitFlush() throws Exception
+    {
+        WriteCoalescingFilter filter = new WriteCoalescingFilter( 0L, 1024 );
+        WriteRequest first = request( 10, 1 );
+        WriteRequest second = request( 20, 2 );
+
+        // Nothing to flush yet
+        filter.flush();
+
+        filter.filterWrite( nextFilter, session, first );
+        filter.filterWrite( nextFilter, session, second );
+
+        assertTrue( nextFilter.written.isEmpty() );
+
+        filter.flush();
+
+        assertEquals( 1, nextFilter.written.size() );
+        assertEquals( 30, bytes( nextFilter.written.get( 0 ) ).length );
+
+        // A failed write fails all the coalesced requests
+        IOException cause = new IOException( "write failed" );
+        nextFilter.written.get( 0 ).getFuture().setException( cause );
+
+        assertSame( cause, first.getFuture().getException() );
+        assertSame( cause, second.getFuture().getException() );
+
+        // Nothing left
+        filter.flush();
+
+        assertEquals( 1, nextFilter.written.size() );
+    }
+
+
+    @Test
+    public void testDelayedFlush() throws Exception
+    {
+        WriteCoalescingFilter filter = new WriteCoalescingFilter( 10L, 1024 );
+        WriteRequest request = request( 10, 1 );
+
+        filter.filterWrite( nextFilter, session, request );
+
+        long deadline = System.currentTimeMillis() + 10_000L;
+
+        while ( nextFilter.written.isEmpty() && ( System.currentTimeMillis() < deadline ) )
+        {
+            Thread.sleep( 5L );
+        }
+
+        assertEquals( 1, nextFilter.written.size() );
+        assertEquals( 0, filter.getPendingBytes() );
+    }
+
+
+    @Test
+    public void testMessageWrittenAfterPendingOnes() throws Exception
+    {
+        WriteCoalescingFilter filter = new WriteCoalescingFilter( 0L, 1024 );
+        WriteRequest message = new DefaultWriteRequest( "not a buffer" );
+
+        filter.filterWrite( nextFilter, session, request( 10, 1 ) );
+        filter.filterWrite( nextFilter, session, message );
+
+        assertEquals( 2, nextFilter.written.size() );
+        assertEquals( 10, bytes( nextFilter.written.get( 0 ) ).length );
+        assertSame( message, nextFilter.written.get( 1 ) );
+    }
+
+
+    @Test
+    public void testConcurrentWriters() throws Exception
+    {
+        int nbWriters = 8;
+        int nbWrites = 500;
+        WriteCoalescingFilter filter = new WriteCoalescingFilter( 0L, 256 );
+        ExecutorService executor = Executors.newFixedThreadPool( nbWriters );
+        CountDownLatch start = new CountDownLatch( 1 );
+        List<Future<List<WriteRequest>>> writers = new ArrayList<>();
+
+        try
+        {
+            for ( int writer = 0; writer < nbWriters; writer++ )
+            {
+                int id = writer;
+
+                writers.add( executor.submit( () ->
+                {
+                    List<WriteRequest> requests = new ArrayList<>();
+                    start.await();
+
+                    for ( int i = 0; i < nbWrites; i++ )
+                    {
+                        // Each PDU contains its writer and its sequence number
+                        IoBuffer buffer = IoBuffer.allocate( 8 );
+                        buffer.putInt( id );
+                        buffer.putInt( i );
+                        buffer.flip();
+
+                        WriteRequest request = new DefaultWriteRequest( buffer );
+                        requests.add( request );
+                        filter.filterWrite( nextFilter, session, request );
+                    }
+
+                    return requests;
+                } ) );
+            }
+
+            start.countDown();
+
+            List<WriteRequest> requests = new ArrayList<>();
+
+            for ( Future<List<WriteRequest>> writer : writers )
+            {
+                requests.addAll( writer.get() );
+            }
+
+            filter.flush();
+
+            // The PDUs have been coalesced, without being lost, duplicated nor reordered
+            assertTrue( nextFilter.written.size() < nbWriters * nbWrites / 10 );
+
+            int[] next = new int[nbWriters];
+
+            for ( WriteRequest written : nextFilter.written )
+            {
+                ByteBuffer buffer = ByteBuffer.wrap( bytes( written ) );
+
+                assertEquals( 0, buffer.remaining() % 8 );
+
+                while ( buffer.hasRemaining() )
+                {
+                    int id = buffer.getInt();
+                    assertEquals( next[id]++, buffer.getInt() );
+                }
+
+                written.getFuture().setWritten();
+            }
+
+            for ( int writer = 0; writer < nbWriters; writer++ )
+            {
+                assertEquals( nbWrites, next[writer] );
+            }
+
+            for ( WriteRequest request : requests )
+            {
+                assertTrue( request.getFuture().isWritten() );
+            }
+        }
+        finally
+        {
+            executor.shutdownNow();
+        }
+    }
+
+
+    @Test
+    public void testFilterCloseFlushesPendingWrites() throws Exception
+    {
+        WriteCoalescingFilter filter = new WriteCoalescingFilter( 0L, 1024 );
+
+        filter.filterWrite( nextFilter, session, request( 10, 1 ) );
+        filter.filterClose( nextFilter, session );
+
+        assertEquals( Collections.singletonList( "filterWrite" ), nextFilter.events.subList( 0, 1 ) );
+        assertEquals( "filterClose", nextFilter.events.get( 1 ) );
+    }
+
+
+    @Test
+    public void testSessionClosedFailsPendingWrites() throws Exception
+    {
+        WriteCoalescingFilter filter = new WriteCoalescingFilter( 60_000L, 1024 );
+        WriteRequest first = request( 10, 1 );
+        WriteRequest second = request( 10, 2 );
+
+        filter.filterWrite( nextFilter, session, first );
+        filter.filterWrite( nextFilter, session, second );
+        filter.sessionClosed( nextFilter, session );
+
+        // The pending PDUs can't be written anymore
+        assertTrue( nextFilter.written.isEmpty() );
+        assertEquals( Collections.singletonList( "sessionClosed" ), nextFilter.events );
+        assertEquals( 0, filter.getPendingBytes() );
+        assertTrue( first.getFuture().getException() instanceof IOException );
+        assertTrue( second.getFuture().getException() instanceof IOException );
+
+        // Nothing is written once the session is closed
+        filter.flush();
+
+        assertTrue( nextFilter.written.isEmpty() );
+    }
+}
@@ -0,0 +1,246 @@
+/*
+ *   Licensed to the Apache Software Foundation (ASF) under one
+ *   or more contributor license agreements.  See the NOTICE file
+ *   distributed with this work for additional information
+ *   regarding copyright ownership.  The ASF licenses this file
+ *   to you under the Apache License, Version 2.0 (the
+ *   "License"); you may not use this file except in compliance
+ *   with the License.  You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing,
+ *   software distributed under the License is distributed on an
+ *   "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *   KIND, either express or implied.  See the License for the
+ *   specific language governing permissions and limitations
+ *   under the License.
+ *
+ */
+package org.apache.directory.ldap.client.api.transport;
+
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import javax.net.ssl.SSLSession;
+import javax.security.sasl.SaslClient;
+
+import org.apache.directory.api.ldap.codec.api.LdapMessageContainer;
+import org.apache.directory.api.ldap.model.exception.LdapException;
+import org.apache.directory.api.ldap.model.message.BindRequest;
+import org.apache.directory.api.ldap.model.message.BindResponseImpl;
+import org.apache.directory.api.ldap.model.message.Message;
+import org.apache.directory.api.ldap.model.message.ResultCodeEnum;
+import org.apache.directory.api.ldap.model.message.UnbindRequest;
+import org.apache.directory.ldap.client.api.LdapConnectionConfig;
+import org.apache.directory.ldap.client.api.LdapNetworkConnection;
+import org.junit.jupiter.api.Test;
+
+
+/**
+ * Test the use of a LdapTransport by the LdapNetworkConnection
+ *
+ * @author <a href="mailto:dev@directory.apache.org">Apache Directory Project</a>
+ */
+public class LdapTransportTest
+{
+    /**
+     * A transport which does not use the network : the session answers the
+     * BindRequests itself.
+     */
+    private static class LoopbackTransport implements LdapTransport
+    {
+        /** The messages written on the sessions */
+        private List<Message> written = new ArrayList<>();
+
+        /** The last created session */
+        private LoopbackSession session;
+
+
+        @Override
+        public LdapTransportSession connect( LdapConnectionConfig config, LdapTransportHandler handler, long timeout )
+        {
+            session = new LoopbackSession( this, handler );
+            handler.sessionCreated( session );
+
+            return session;
+        }
+
+
+        @Override
+        public void dispose()
+        {
+        }
+    }
+
+
+    /**
+     * The session created by the LoopbackTransport
+     */
+    private static class LoopbackSession implements LdapTransportSession
+    {
+        private LoopbackTransport transport;
+        private LdapTransportHandler handler;
+        private LdapMessageContainer<Message> messageContainer;
+        private boolean connected = true;
+
+
+        LoopbackSession( LoopbackTransport transport, LdapTransportHandler handler )
+        {
+            this.transport = transport;
+            this.handler = handler;
+        }
+
+
+        @Override
+        public CompletableFuture<Void> write( Message message )
+        {
+            transport.written.add( message );
+
+            if ( message instanceof BindRequest )
+            {
+                BindResponseImpl bindResponse = new BindResponseImpl( message.getMessageId() );
+                bindResponse.getLdapResult().setResultCode( ResultCodeEnum.SUCCESS );
+
+                try
+                {
+                    handler.messageReceived( this, bindResponse );
+                }
+                catch ( Exception e )
+                {
+                    handler.exceptionCaught( this, e );
+                }
+            }
+            else if ( message instanceof UnbindRequest )
+            {
+                close();
+            }
+
+            return CompletableFuture.completedFuture( null );
+        }
+
+
+        @Override
+        public boolean isConnected()
+        {
+            return connected;
+        }
+
+
+        @Override
+        public boolean isSecured()
+        {
+            return false;
+        }
+
+
+        @Override
+        public SSLSession getSslSession()
+        {
+            return null;
+        }
+
+
+        @Override
+        public void startTls( LdapConnectionConfig config, long timeout )
+        {
+        }
+
+
+        @Override
+        public void addSaslLayer( SaslClient saslClient )
+        {
+        }
+
+
+        @Override
+        public LdapMessageContainer<Message> getMessageContainer()
+        {
+            return messageContainer;
+        }
+
+
+        @Override
+        public void setMessageContainer( LdapMessageContainer<Message> messageContainer )
+        {
+            this.messageContainer = messageContainer;
+        }
+
+
+        @Override
+        public void suspendRead()
+        {
+        }
+
+
+        @Override
+        public void resumeRead()
+        {
+        }
+
+
+        @Override
+        public void close()
+        {
+            if ( connected )
+            {
+                connected = false;
+                handler.sessionClosed( this );
+            }
+        }
+    }
+
+
+    @Test
+    public void testBindUsingTransport() throws Exception
+    {
+        LoopbackTransport transport = new LoopbackTransport();
+        LdapConnectionConfig config = new LdapConnectionConfig();
+        config.setTransport( transport );
+
+        try ( LdapNetworkConnection connection = new LdapNetworkConnection( config ) )
+        {
+            assertTrue( connection.connect() );
+            assertTrue( connection.isConnected() );
+            assertFalse( connection.isSecured() );
+            assertNull( connection.getSslSession() );
+
+            // The container has been created when the session has been created
+            assertNotNull( transport.session.getMessageContainer() );
+
+            connection.bind( "uid=admin,ou=system", "secret" );
+
+            assertTrue( connection.isAuthenticated() );
+            assertEquals( 1, transport.written.size() );
+            assertTrue( transport.written.get( 0 ) instanceof BindRequest );
+
+            connection.unBind();
+
+            assertFalse( connection.isConnected() );
+            assertFalse( connection.isAuthenticated() );
+            assertTrue( transport.written.get( 1 ) instanceof UnbindRequest );
+        }
+    }
+
+
+    @Test
+    public void testConnectAsyncNotSupported() throws Exception
+    {
+        LdapConnectionConfig config = new LdapConnectionConfig();
+        config.setTransport( new LoopbackTransport() );
+
+        try ( LdapNetworkConnection connection = new LdapNetworkConnection( config ) )
+        {
+            assertThrows( LdapException.class, connection::connectAsync );
+        }
+    }
+}
@@ -31,7 +31,6 @@ import org.apache.directory.api.asn1.actions.CheckNotNullLength;
 import org.apache.directory.api.asn1.ber.grammar.AbstractGrammar;
 import org.apache.directory.api.asn1.ber.grammar.Grammar;
 import org.apache.directory.api.asn1.ber.grammar.GrammarTransition;
-import org.apache.directory.api.ldap.codec.actions.AllowGrammarEnd;
 import org.apache.directory.api.ldap.codec.actions.CheckLengthNotNull;
 import org.apache.directory.api.ldap.codec.actions.controls.StoreControlName;
 import org.apache.directory.api.ldap.codec.actions.controls.InitControls;
@@ -122,6 +121,8 @@ import org.apache.directory.api.ldap.codec.actions.response.search.done.InitSear
 import org.apache.directory.api.ldap.codec.actions.response.search.entry.AddAttributeType;
 import org.apache.directory.api.ldap.codec.actions.response.search.entry.InitSearchResultEntry;
 import org.apache.directory.api.ldap.codec.actions.response.search.entry.StoreSearchResultAttributeValue;
+import org.apache.directory.api.ldap.codec.actions.response.search.entry.StoreSearchResultAttributeValues;
+import org.apache.directory.api.ldap.codec.actions.response.search.entry.StoreSearchResultEntryAttributes;
 import org.apache.directory.api.ldap.codec.actions.response.search.entry.StoreSearchResultEntryObjectName;
 import org.apache.directory.api.ldap.codec.actions.response.search.reference.InitSearchResultReference;
 import org.apache.directory.api.ldap.codec.actions.response.search.reference.StoreReference;
@@ -829,13 +830,30 @@ public final class LdapMessageGrammar extends
         // PartialAttributeList ::= *SEQUENCE* OF SEQUENCE {
         // ...
         //
-        // We may have no attributes. Just allows the grammar to end
+        // We may have no attributes. Just allows the grammar to end, or store
+        // the whole attribute list when the entries are decoded lazily
         super.transitions[LdapStatesEnum.OBJECT_NAME_STATE.ordinal()][SEQUENCE.getValue()] =
             new GrammarTransition(
                 LdapStatesEnum.OBJECT_NAME_STATE,
                 LdapStatesEnum.ATTRIBUTES_SR_STATE,
                 SEQUENCE,
-                new AllowGrammarEnd(),
+                new StoreSearchResultEntryAttributes(),
+                FollowUp.OPTIONAL );
+
+        // --------------------------------------------------------------------------------------------
+        // Transition from AttributesSR to Controls
+        // --------------------------------------------------------------------------------------------
+        //     searchResultEntry SearchResultEntry,
+        //     ... },
+        // controls   [0] Controls OPTIONAL }
+        //
+        // The attribute list is empty, or has been stored as a whole. Initialize the controls
+        super.transitions[LdapStatesEnum.ATTRIBUTES_SR_STATE.ordinal()][LdapCodecConstants.CONTROLS_TAG] =
+            new GrammarTransition(
+                LdapStatesEnum.ATTRIBUTES_SR_STATE,
+                LdapStatesEnum.CONTROLS_STATE,
+                LdapCodecConstants.CONTROLS_TAG,
+                new InitControls(),
                 FollowUp.OPTIONAL );
 
         // --------------------------------------------------------------------------------------------
@@ -891,13 +909,14 @@ public final class LdapMessageGrammar extends
         //     ...
         //     vals       *SET OF* value OCTET STRING }
         //
-        // We may have no value. Just allows the grammar to end
+        // We may have no value. Allows the grammar to end, and stop skipping the values
+        // of an attribute which has been filtered out
         super.transitions[LdapStatesEnum.TYPE_SR_STATE.ordinal()][SET.getValue()] =
             new GrammarTransition(
                 LdapStatesEnum.TYPE_SR_STATE,
                 LdapStatesEnum.VALS_SR_STATE,
                 SET,
-                new AllowGrammarEnd(),
+                new StoreSearchResultAttributeValues(),
                 FollowUp.OPTIONAL );
 
         // --------------------------------------------------------------------------------------------
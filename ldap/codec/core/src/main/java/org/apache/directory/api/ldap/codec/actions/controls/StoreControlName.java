@@ -23,7 +23,7 @@ package org.apache.directory.api.ldap.codec.actions.controls;
 import org.apache.directory.api.asn1.DecoderException;
 import org.apache.directory.api.asn1.ber.grammar.GrammarAction;
 import org.apache.directory.api.asn1.ber.tlv.TLV;
-import org.apache.directory.api.asn1.util.Oid;
+import org.apache.directory.api.asn1.util.OidCache;
 import org.apache.directory.api.i18n.I18n;
 import org.apache.directory.api.ldap.codec.api.ControlFactory;
 import org.apache.directory.api.ldap.codec.api.LdapApiService;
@@ -80,13 +80,18 @@ public class StoreControlName extends GrammarAction<LdapMessageContainer<Message
             throw new DecoderException( msg );
         }
 
-        byte[] value = tlv.getValue().getData();
-        String oidValue = Strings.asciiBytesToString( value );
+        // The OID is encoded as a String, not an Object Id. The cache gives back
+        // the canonical OID String, without parsing nor allocating anything if it's known
+        String oidValue;
 
-        // The OID is encoded as a String, not an Object Id
-        if ( !Oid.isOid( oidValue ) )
+        try
         {
-            String msg = I18n.err( I18n.ERR_08215_INVALID_CONTROL_OID, oidValue );
+            oidValue = OidCache.getDefault().fromAscii( tlv.getValue().getDataBuffer() ).toString();
+        }
+        catch ( DecoderException de )
+        {
+            String msg = I18n.err( I18n.ERR_08215_INVALID_CONTROL_OID,
+                Strings.asciiBytesToString( tlv.getValue().getData() ) );
             LOG.error( msg );
 
             // This will generate a PROTOCOL_ERROR
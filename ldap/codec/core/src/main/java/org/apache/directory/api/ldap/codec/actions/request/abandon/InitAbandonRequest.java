@@ -75,7 +75,7 @@ public class InitAbandonRequest extends GrammarAction<LdapMessageContainer<Aband
 
         BerValue value = tlv.getValue();
 
-        if ( ( value == null ) || ( value.getData() == null ) )
+        if ( ( value == null ) || ( value.getDataLength() < 0 ) )
         {
             String msg = I18n.err( I18n.ERR_05109_ABANDON_REQ_MSG_ID_NULL );
             LOG.error( msg );
@@ -24,6 +24,7 @@ import org.apache.directory.api.asn1.DecoderException;
 import org.apache.directory.api.asn1.ber.grammar.GrammarAction;
 import org.apache.directory.api.asn1.ber.tlv.TLV;
 import org.apache.directory.api.i18n.I18n;
+import org.apache.directory.api.ldap.codec.api.AttributeFilter;
 import org.apache.directory.api.ldap.codec.api.LdapMessageContainer;
 import org.apache.directory.api.ldap.model.entry.Attribute;
 import org.apache.directory.api.ldap.model.entry.DefaultAttribute;
@@ -69,6 +70,18 @@ public class AddAttributeType extends GrammarAction<LdapMessageContainer<SearchR
         SearchResultEntry searchResultEntry = container.getMessage();
 
         TLV tlv = container.getCurrentTLV();
+        AttributeFilter attributeFilter = container.getAttributeFilter();
+
+        // The attributes which are filtered out are not stored, and the decoder
+        // will skip their values
+        if ( ( attributeFilter != null ) && ( tlv.getLength() != 0 )
+            && !attributeFilter.accept( Strings.utf8ToString( tlv.getValue().getDataBuffer() ) ) )
+        {
+            container.setCurrentAttribute( null );
+            container.setSkipping( true );
+
+            return;
+        }
 
         // Store the type
         if ( tlv.getLength() == 0 )
@@ -82,6 +95,9 @@ public class AddAttributeType extends GrammarAction<LdapMessageContainer<SearchR
         {
             try
             {
+                // The binary decision is cached, using the encoded attribute type
+                container.setCurrentAttributeBinary( container.isBinary( tlv.getValue().getDataBuffer() ) );
+
                 byte[] attributeTypeBytes = tlv.getValue().getData();
                 Attribute attribute = new DefaultAttribute( attributeTypeBytes );
                 container.setCurrentAttribute( attribute );
@@ -20,11 +20,14 @@
 package org.apache.directory.api.ldap.codec.actions.response.search.entry;
 
 
+import java.nio.ByteBuffer;
+
 import org.apache.directory.api.asn1.ber.grammar.GrammarAction;
 import org.apache.directory.api.asn1.ber.tlv.TLV;
 import org.apache.directory.api.i18n.I18n;
 import org.apache.directory.api.ldap.codec.api.LdapMessageContainer;
 import org.apache.directory.api.ldap.model.entry.Attribute;
+import org.apache.directory.api.ldap.model.entry.Value;
 import org.apache.directory.api.ldap.model.exception.LdapException;
 import org.apache.directory.api.ldap.model.message.SearchResultEntry;
 import org.apache.directory.api.util.Strings;
@@ -80,19 +83,23 @@ public class StoreSearchResultAttributeValue extends GrammarAction<LdapMessageCo
             }
             else
             {
-                if ( container.isBinary( container.getCurrentAttribute().getId() ) )
+                // Read the value directly from the TLV, which may be a slice of the
+                // decoded stream : this avoids an intermediate copy
+                ByteBuffer data = tlv.getValue().getDataBuffer();
+
+                if ( container.isCurrentAttributeBinary() )
                 {
-                    byte[] value = tlv.getValue().getData();
+                    Value value = new Value( data );
                     currentAttribute.add( value );
 
                     if ( LOG.isDebugEnabled() )
                     {
-                        LOG.debug( I18n.msg( I18n.MSG_05181_ATTRIBUTE_VALUE, Strings.dumpBytes( ( byte[] ) value ) ) );
+                        LOG.debug( I18n.msg( I18n.MSG_05181_ATTRIBUTE_VALUE, Strings.dumpBytes( value.getBytes() ) ) );
                     }
                 }
                 else
                 {
-                    String value = Strings.utf8ToString( tlv.getValue().getData() );
+                    String value = Strings.utf8ToString( data );
                     currentAttribute.add( value );
 
                     if ( LOG.isDebugEnabled() )
@@ -103,6 +103,12 @@ public class StoreSearchResultEntryObjectName extends GrammarAction<LdapMessageC
             }
         }
 
+        // The attributes will be decoded when accessed : gather the whole PartialAttributeList
+        if ( container.isLazyEntries() )
+        {
+            container.setGathering( true );
+        }
+
         if ( LOG.isDebugEnabled() )
         {
             LOG.debug( I18n.msg( I18n.MSG_05182_SEARCH_RESULT_ENTRY_DN, searchResultEntry.getObjectName() ) );
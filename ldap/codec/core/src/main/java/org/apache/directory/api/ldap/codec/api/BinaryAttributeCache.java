@@ -0,0 +1,229 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *    https://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ *
+ */
+package org.apache.directory.api.ldap.codec.api;
+
+
+import java.nio.ByteBuffer;
+
+import org.apache.directory.api.util.Strings;
+
+
+/**
+ * A bounded cache of the decisions made by a {@link BinaryAttributeDetector}, keyed on
+ * the encoded attribute descriptions, as they are received. The ASCII letters are
+ * compared ignoring their case, so that 'jpegPhoto' and 'JPEGPHOTO' share the same
+ * decision. When the decision is cached, it costs one hash computation and one probe,
+ * and nothing is allocated.
+ * <br>
+ * The cache is a direct mapped table : a new decision replaces the one stored in its
+ * slot. It must be cleared when the detector decisions change, typically when the
+ * schema is updated. Setting a new detector clears it.
+ * <br>
+ * This class is thread safe, and does not use any lock : each slot contains an
+ * immutable decision, so a thread may at worst ask the detector for a decision another
+ * thread is also caching.
+ *
+ * @author <a href="mailto:dev@directory.apache.org">Apache Directory Project</a>
+ */
+public class BinaryAttributeCache
+{
+    /** The default number of slots */
+    public static final int DEFAULT_SIZE = 256;
+
+    /** The detector the decisions are asked to */
+    private volatile BinaryAttributeDetector binaryAttributeDetector;
+
+    /** The cached decisions */
+    private volatile Decision[] decisions;
+
+    /** The mask used to compute a slot from a hash */
+    private final int mask;
+
+
+    /**
+     * A decision, and the lower cased attribute description it's associated with
+     */
+    private static final class Decision
+    {
+        /** The attribute description, with its ASCII letters in lower case */
+        private final byte[] attributeDescription;
+
+        /** Tells if the attribute is binary */
+        private final boolean binary;
+
+
+        private Decision( byte[] attributeDescription, boolean binary )
+        {
+            this.attributeDescription = attributeDescription;
+            this.binary = binary;
+        }
+    }
+
+
+    /**
+     * Creates a new BinaryAttributeCache instance, using the default size
+     *
+     * @param binaryAttributeDetector The detector the decisions are asked to
+     */
+    public BinaryAttributeCache( BinaryAttributeDetector binaryAttributeDetector )
+    {
+        this( binaryAttributeDetector, DEFAULT_SIZE );
+    }
+
+
+    /**
+     * Creates a new BinaryAttributeCache instance
+     *
+     * @param binaryAttributeDetector The detector the decisions are asked to
+     * @param size The number of slots. It will be rounded up to the next power of 2
+     */
+    public BinaryAttributeCache( BinaryAttributeDetector binaryAttributeDetector, int size )
+    {
+        int nbSlots = Integer.highestOneBit( Math.max( size, 1 ) );
+
+        if ( nbSlots < size )
+        {
+            nbSlots <<= 1;
+        }
+
+        mask = nbSlots - 1;
+        this.binaryAttributeDetector = binaryAttributeDetector;
+        decisions = new Decision[nbSlots];
+    }
+
+
+    /**
+     * Lower case an ASCII letter
+     *
+     * @param b The byte to lower case
+     * @return The lower cased byte
+     */
+    private static byte toLowerCase( byte b )
+    {
+        if ( ( b >= 'A' ) && ( b <= 'Z' ) )
+        {
+            return ( byte ) ( b + ( 'a' - 'A' ) );
+        }
+
+        return b;
+    }
+
+
+    /**
+     * Tells if an attribute is binary. The attribute description is read between the
+     * buffer position and its limit, and the buffer is not modified.
+     *
+     * @param attributeDescription The encoded attribute description
+     * @return true if the attribute is binary
+     */
+    public boolean isBinary( ByteBuffer attributeDescription )
+    {
+        int start = attributeDescription.position();
+        int length = attributeDescription.remaining();
+        int hash = 0;
+
+        for ( int i = start; i < start + length; i++ )
+        {
+            hash = 31 * hash + toLowerCase( attributeDescription.get( i ) );
+        }
+
+        Decision[] table = decisions;
+        int slot = ( hash ^ ( hash >>> 16 ) ) & mask;
+        Decision decision = table[slot];
+
+        if ( ( decision != null ) && ( decision.attributeDescription.length == length ) )
+        {
+            byte[] cached = decision.attributeDescription;
+            int i = 0;
+
+            while ( ( i < length ) && ( cached[i] == toLowerCase( attributeDescription.get( start + i ) ) ) )
+            {
+                i++;
+            }
+
+            if ( i == length )
+            {
+                return decision.binary;
+            }
+        }
+
+        // Not found : ask the detector
+        byte[] lowerCased = new byte[length];
+
+        for ( int i = 0; i < length; i++ )
+        {
+            lowerCased[i] = toLowerCase( attributeDescription.get( start + i ) );
+        }
+
+        boolean binary = binaryAttributeDetector.isBinary( Strings.trim( Strings.utf8ToString( lowerCased ) ) );
+        table[slot] = new Decision( lowerCased, binary );
+
+        return binary;
+    }
+
+
+    /**
+     * @return The detector the decisions are asked to
+     */
+    public BinaryAttributeDetector getBinaryAttributeDetector()
+    {
+        return binaryAttributeDetector;
+    }
+
+
+    /**
+     * Set the detector the decisions are asked to, and clear the cache
+     *
+     * @param binaryAttributeDetector The new detector
+     */
+    public void setBinaryAttributeDetector( BinaryAttributeDetector binaryAttributeDetector )
+    {
+        this.binaryAttributeDetector = binaryAttributeDetector;
+        clear();
+    }
+
+
+    /**
+     * Remove all the decisions from the cache
+     */
+    public void clear()
+    {
+        decisions = new Decision[mask + 1];
+    }
+
+
+    /**
+     * @return The number of slots
+     */
+    public int getSize()
+    {
+        return mask + 1;
+    }
+
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public String toString()
+    {
+        return "BinaryAttributeCache[" + ( mask + 1 ) + " slots, " + binaryAttributeDetector + "]";
+    }
+}
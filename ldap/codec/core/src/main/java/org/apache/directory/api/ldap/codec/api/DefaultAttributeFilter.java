@@ -0,0 +1,96 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *    https://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ *
+ */
+package org.apache.directory.api.ldap.codec.api;
+
+
+import java.util.HashSet;
+import java.util.Set;
+
+import org.apache.directory.api.util.Strings;
+
+
+/**
+ * An AttributeFilter accepting a fixed list of attributes, typically the ones listed
+ * in a SearchRequest. The attribute IDs are compared ignoring the case, and the options
+ * of the received attribute descriptions are ignored : 'cn' accepts 'CN;lang-fr'.
+ * <br>
+ * No schema is used, so an attribute is not accepted using one of its other names,
+ * or its OID, unless it's also listed.
+ *
+ * @author <a href="mailto:dev@directory.apache.org">Apache Directory Project</a>
+ */
+public class DefaultAttributeFilter implements AttributeFilter
+{
+    /** The accepted attribute IDs, in lower case */
+    private final Set<String> attributeIds = new HashSet<>();
+
+
+    /**
+     * Creates a new instance of DefaultAttributeFilter.
+     *
+     * @param attributeIds The accepted attribute IDs
+     */
+    public DefaultAttributeFilter( String... attributeIds )
+    {
+        if ( attributeIds != null )
+        {
+            for ( String attributeId : attributeIds )
+            {
+                if ( !Strings.isEmpty( attributeId ) )
+                {
+                    this.attributeIds.add( Strings.toLowerCaseAscii( Strings.trim( attributeId ) ) );
+                }
+            }
+        }
+    }
+
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean accept( String attributeId )
+    {
+        if ( attributeId == null )
+        {
+            return false;
+        }
+
+        String id = Strings.trim( attributeId );
+        int optionsPos = id.indexOf( ';' );
+
+        if ( optionsPos != -1 )
+        {
+            id = id.substring( 0, optionsPos );
+        }
+
+        return attributeIds.contains( Strings.toLowerCaseAscii( id ) );
+    }
+
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public String toString()
+    {
+        return "DefaultAttributeFilter" + attributeIds;
+    }
+}
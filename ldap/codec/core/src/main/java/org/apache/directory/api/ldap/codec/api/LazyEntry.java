@@ -0,0 +1,1199 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ * 
+ *    https://www.apache.org/licenses/LICENSE-2.0
+ * 
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ * 
+ */
+package org.apache.directory.api.ldap.codec.api;
+
+
+import java.io.IOException;
+import java.io.ObjectInput;
+import java.io.ObjectOutput;
+import java.nio.ByteBuffer;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.directory.api.asn1.DecoderException;
+import org.apache.directory.api.asn1.ber.tlv.UniversalTag;
+import org.apache.directory.api.i18n.I18n;
+import org.apache.directory.api.ldap.model.constants.SchemaConstants;
+import org.apache.directory.api.ldap.model.entry.Attribute;
+import org.apache.directory.api.ldap.model.entry.DefaultAttribute;
+import org.apache.directory.api.ldap.model.entry.DefaultEntry;
+import org.apache.directory.api.ldap.model.entry.Entry;
+import org.apache.directory.api.ldap.model.entry.Value;
+import org.apache.directory.api.ldap.model.exception.LdapException;
+import org.apache.directory.api.ldap.model.exception.LdapInvalidDnException;
+import org.apache.directory.api.ldap.model.name.Dn;
+import org.apache.directory.api.ldap.model.schema.AttributeType;
+import org.apache.directory.api.util.Strings;
+
+
+/**
+ * An Entry which attributes are decoded on demand. It's created by the decoder for the
+ * SearchResultEntry messages when the {@link LdapMessageContainer#setLazyEntries(boolean)}
+ * flag is set. The encoded PartialAttributeList is kept as is, and an attribute is decoded
+ * the first time it's accessed using its name :
+ * <pre>
+ * PartialAttributeList ::= SEQUENCE OF partialAttribute PartialAttribute
+ *
+ * PartialAttribute ::= SEQUENCE {
+ *     type       AttributeDescription,
+ *     vals       SET OF value AttributeValue }
+ * </pre>
+ * The structure of the list is checked when the entry is created, so an invalid PDU is
+ * still rejected by the decoder.
+ * <br>
+ * The methods that need all the attributes, like the iterator, or those using an
+ * AttributeType, decode all the remaining attributes. So do the methods using an attribute
+ * name when the wrapped entry is schema aware, as the name may be an alias or an OID of a
+ * pending attribute. The received bytes are available using {@link #getRawAttributes()}.
+ * <br>
+ * This class is not thread safe.
+ *
+ * @author <a href="mailto:dev@directory.apache.org">Apache Directory Project</a>
+ */
+public class LazyEntry implements Entry
+{
+    /** Used for serialization */
+    private static final long serialVersionUID = 1L;
+
+    /** The wrapped entry, containing the decoded attributes */
+    private Entry entry;
+
+    /** The encoded PartialAttributeList value */
+    private byte[] rawAttributes;
+
+    /** The position of the attributes not yet decoded, by attribute ID */
+    private Map<String, Integer> pending;
+
+    /** The detector used to decide if a value is binary or not */
+    private transient BinaryAttributeDetector binaryAttributeDetector;
+
+    /** The filter selecting the attributes to keep, if any */
+    private transient AttributeFilter attributeFilter;
+
+
+    /**
+     * Creates a new, empty, instance of LazyEntry. This constructor is used by the
+     * deserialization, the entry being read by {@link #readExternal(ObjectInput)}.
+     */
+    public LazyEntry()
+    {
+        entry = new DefaultEntry();
+        rawAttributes = Strings.EMPTY_BYTES;
+        pending = new HashMap<>();
+    }
+
+
+    /**
+     * Creates a new instance of LazyEntry.
+     *
+     * @param entry The entry the attributes will be decoded into
+     * @param rawAttributes The PartialAttributeList value, without its tag and length
+     * @param binaryAttributeDetector The detector used to decide if a value is binary or not
+     * @throws DecoderException If the PartialAttributeList is invalid
+     */
+    public LazyEntry( Entry entry, byte[] rawAttributes, BinaryAttributeDetector binaryAttributeDetector )
+        throws DecoderException
+    {
+        this( entry, rawAttributes, binaryAttributeDetector, null );
+    }
+
+
+    /**
+     * Creates a new instance of LazyEntry, which only keeps the attributes accepted
+     * by a filter.
+     *
+     * @param entry The entry the attributes will be decoded into
+     * @param rawAttributes The PartialAttributeList value, without its tag and length
+     * @param binaryAttributeDetector The detector used to decide if a value is binary or not
+     * @param attributeFilter The filter selecting the attributes to keep, or null to keep them all
+     * @throws DecoderException If the PartialAttributeList is invalid
+     */
+    public LazyEntry( Entry entry, byte[] rawAttributes, BinaryAttributeDetector binaryAttributeDetector,
+        AttributeFilter attributeFilter ) throws DecoderException
+    {
+        this.entry = entry;
+        this.rawAttributes = rawAttributes;
+        this.binaryAttributeDetector = binaryAttributeDetector;
+        this.attributeFilter = attributeFilter;
+        pending = new HashMap<>();
+
+        index();
+    }
+
+
+    /**
+     * Read the header of a TLV, and check that it fits in its parent
+     *
+     * @param pos The position of the TLV
+     * @param limit The end of the parent TLV
+     * @param tag The expected tag
+     * @param header An array storing the value position and length
+     * @throws DecoderException If the TLV is invalid
+     */
+    private void readHeader( int pos, int limit, byte tag, int[] header ) throws DecoderException
+    {
+        if ( ( pos + 2 > limit ) || ( rawAttributes[pos] != tag ) )
+        {
+            throw new DecoderException( I18n.err( I18n.ERR_05209_INVALID_PARTIAL_ATTRIBUTE_LIST, pos ) );
+        }
+
+        int current = pos + 1;
+        int length = rawAttributes[current++] & 0x00FF;
+
+        if ( ( length & 0x0080 ) != 0 )
+        {
+            int nbBytes = length & 0x007F;
+
+            // We don't accept undefined lengths, nor lengths above 2^31 - 1
+            if ( ( nbBytes == 0 ) || ( nbBytes > 4 ) || ( current + nbBytes > limit ) )
+            {
+                throw new DecoderException( I18n.err( I18n.ERR_05209_INVALID_PARTIAL_ATTRIBUTE_LIST, pos ) );
+            }
+
+            length = 0;
+
+            for ( int i = 0; i < nbBytes; i++ )
+            {
+                length = ( length << 8 ) | ( rawAttributes[current++] & 0x00FF );
+            }
+        }
+
+        if ( ( length < 0 ) || ( length > limit - current ) )
+        {
+            throw new DecoderException( I18n.err( I18n.ERR_05209_INVALID_PARTIAL_ATTRIBUTE_LIST, pos ) );
+        }
+
+        header[0] = current;
+        header[1] = length;
+    }
+
+
+    /**
+     * Check the PartialAttributeList structure, and store the position of each attribute.
+     *
+     * @throws DecoderException If the PartialAttributeList is invalid
+     */
+    private void index() throws DecoderException
+    {
+        int[] header = new int[2];
+        int pos = 0;
+
+        while ( pos < rawAttributes.length )
+        {
+            // The PartialAttribute SEQUENCE
+            readHeader( pos, rawAttributes.length, UniversalTag.SEQUENCE.getValue(), header );
+            int attributeStart = header[0];
+            int attributeEnd = header[0] + header[1];
+
+            // The type
+            readHeader( attributeStart, attributeEnd, UniversalTag.OCTET_STRING.getValue(), header );
+            String id = Strings.toLowerCaseAscii( Strings.trim( Strings.utf8ToString( rawAttributes, header[0],
+                header[1] ) ) );
+
+            if ( Strings.isEmpty( id ) )
+            {
+                throw new DecoderException( I18n.err( I18n.ERR_05147_NULL_ATTRIBUTE_TYPE ) );
+            }
+
+            // The values
+            readHeader( header[0] + header[1], attributeEnd, UniversalTag.SET.getValue(), header );
+            pos = header[0];
+
+            if ( pos + header[1] != attributeEnd )
+            {
+                throw new DecoderException( I18n.err( I18n.ERR_05209_INVALID_PARTIAL_ATTRIBUTE_LIST, pos ) );
+            }
+
+            while ( pos < attributeEnd )
+            {
+                readHeader( pos, attributeEnd, UniversalTag.OCTET_STRING.getValue(), header );
+                pos = header[0] + header[1];
+            }
+
+            // The attributes which are filtered out are just checked
+            if ( ( attributeFilter == null ) || attributeFilter.accept( id ) )
+            {
+                // As when the attributes are decoded eagerly, an attribute replaces a previous one with the same ID
+                if ( entry.size() != 0 )
+                {
+                    entry.removeAttributes( id );
+                }
+
+                pending.put( id, attributeStart );
+            }
+        }
+    }
+
+
+    /**
+     * Get the position of the value of a TLV which has been checked already, and its length
+     *
+     * @param pos The TLV position
+     * @param header An array storing the value position and length
+     */
+    private void skipHeader( int pos, int[] header )
+    {
+        int current = pos + 1;
+        int length = rawAttributes[current++] & 0x00FF;
+
+        if ( ( length & 0x0080 ) != 0 )
+        {
+            int nbBytes = length & 0x007F;
+            length = 0;
+
+            for ( int i = 0; i < nbBytes; i++ )
+            {
+                length = ( length << 8 ) | ( rawAttributes[current++] & 0x00FF );
+            }
+        }
+
+        header[0] = current;
+        header[1] = length;
+    }
+
+
+    /**
+     * Decode an attribute, if it has not been decoded already. When the wrapped entry is
+     * schema aware, the name may be an alias or the OID of a pending attribute, and all
+     * the attributes are decoded if it's not the name the attribute has been received with.
+     *
+     * @param upId The attribute ID
+     */
+    private void decode( String upId )
+    {
+        if ( pending.isEmpty() || ( upId == null ) )
+        {
+            return;
+        }
+
+        Integer position = pending.remove( Strings.toLowerCaseAscii( Strings.trim( upId ) ) );
+
+        if ( position != null )
+        {
+            decodeAttribute( position );
+        }
+        else if ( entry.isSchemaAware() )
+        {
+            decodeAll();
+        }
+    }
+
+
+    /**
+     * Decode all the attributes that have not been decoded yet
+     */
+    private void decodeAll()
+    {
+        if ( pending.isEmpty() )
+        {
+            return;
+        }
+
+        for ( Integer position : pending.values() )
+        {
+            decodeAttribute( position );
+        }
+
+        pending.clear();
+    }
+
+
+    /**
+     * Decode an attribute and add it into the wrapped entry, the same way the
+     * decoder does when the attributes are decoded eagerly.
+     *
+     * @param position The position of the PartialAttribute value
+     */
+    private void decodeAttribute( int position )
+    {
+        int[] header = new int[2];
+
+        // The type
+        skipHeader( position, header );
+        Attribute attribute = new DefaultAttribute( Strings.utf8ToString( rawAttributes, header[0], header[1] ) );
+        boolean isBinary = binaryAttributeDetector.isBinary( attribute.getId() );
+
+        // The values
+        skipHeader( header[0] + header[1], header );
+        int pos = header[0];
+        int end = header[0] + header[1];
+
+        try
+        {
+            while ( pos < end )
+            {
+                skipHeader( pos, header );
+
+                if ( header[1] == 0 )
+                {
+                    attribute.add( "" );
+                }
+                else if ( isBinary )
+                {
+                    attribute.add( new Value( ByteBuffer.wrap( rawAttributes, header[0], header[1] ) ) );
+                }
+                else
+                {
+                    attribute.add( Strings.utf8ToString( rawAttributes, header[0], header[1] ) );
+                }
+
+                pos = header[0] + header[1];
+            }
+
+            entry.put( attribute );
+        }
+        catch ( LdapException le )
+        {
+            // The wrapped entry has rejected the attribute, for instance if its schema does not know it
+            throw new IllegalStateException( I18n.err( I18n.ERR_05210_CANNOT_DECODE_ATTRIBUTE, attribute.getUpId(),
+                le.getMessage() ), le );
+        }
+    }
+
+
+    /**
+     * @return The encoded PartialAttributeList, as it has been received, without its tag and
+     * length. It's not updated when the entry is modified, and must not be modified.
+     */
+    public byte[] getRawAttributes()
+    {
+        return rawAttributes;
+    }
+
+
+    /**
+     * Tells if an attribute has been decoded already. An attribute that is not present in
+     * the entry is considered as decoded. The name must be the one the attribute has been
+     * received with.
+     *
+     * @param upId The attribute ID
+     * @return <code>true</code> if the attribute is not waiting to be decoded
+     */
+    public boolean isDecoded( String upId )
+    {
+        return ( upId == null ) || !pending.containsKey( Strings.toLowerCaseAscii( Strings.trim( upId ) ) );
+    }
+
+
+    /**
+     * Decode the attributes present in an array of attributes
+     *
+     * @param attributes The attributes to decode
+     */
+    private void decode( Attribute... attributes )
+    {
+        if ( attributes != null )
+        {
+            for ( Attribute attribute : attributes )
+            {
+                if ( attribute != null )
+                {
+                    decode( attribute.getUpId() );
+                }
+            }
+        }
+    }
+
+
+    /**
+     * Forget about the attributes which are going to be replaced or removed. When the
+     * wrapped entry is schema aware, the IDs may be aliases of pending attributes, which
+     * are decoded so that the wrapped entry can replace or remove them.
+     *
+     * @param upIds The attributes IDs
+     */
+    private void discard( String... upIds )
+    {
+        if ( entry.isSchemaAware() )
+        {
+            decodeAll();
+        }
+        else if ( upIds != null )
+        {
+            for ( String upId : upIds )
+            {
+                if ( upId != null )
+                {
+                    pending.remove( Strings.toLowerCaseAscii( Strings.trim( upId ) ) );
+                }
+            }
+        }
+    }
+
+
+    //-------------------------------------------------------------------------
+    // Entry methods
+    //-------------------------------------------------------------------------
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Entry add( AttributeType attributeType, byte[]... values ) throws LdapException
+    {
+        decodeAll();
+
+        return entry.add( attributeType, values );
+    }
+
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Entry add( AttributeType attributeType, String... values ) throws LdapException
+    {
+        decodeAll();
+
+        return entry.add( attributeType, values );
+    }
+
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Entry add( AttributeType attributeType, Value... values ) throws LdapException
+    {
+        decodeAll();
+
+        return entry.add( attributeType, values );
+    }
+
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Entry add( String upId, AttributeType attributeType, byte[]... values ) throws LdapException
+    {
+        decodeAll();
+
+        return entry.add( upId, attributeType, values );
+    }
+
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Entry add( String upId, AttributeType attributeType, Value... values ) throws LdapException
+    {
+        decodeAll();
+
+        return entry.add( upId, attributeType, values );
+    }
+
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Entry add( String upId, AttributeType attributeType, String... values ) throws LdapException
+    {
+        decodeAll();
+
+        return entry.add( upId, attributeType, values );
+    }
+
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Entry add( Attribute... attributes ) throws LdapException
+    {
+        decode( attributes );
+
+        return entry.add( attributes );
+    }
+
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Entry add( String upId, byte[]... values ) throws LdapException
+    {
+        decode( upId );
+
+        return entry.add( upId, values );
+    }
+
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Entry add( String upId, String... values ) throws LdapException
+    {
+        decode( upId );
+
+        return entry.add( upId, values );
+    }
+
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Entry add( String upId, Value... values ) throws LdapException
+    {
+        decode( upId );
+
+        return entry.add( upId, values );
+    }
+
+
+    /**
+     * Clone an entry. All the attributes are decoded, and the returned entry
+     * is a copy of the wrapped entry.
+     */
+    @Override
+    public Entry clone()
+    {
+        decodeAll();
+
+        return entry.clone();
+    }
+
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Entry shallowClone()
+    {
+        decodeAll();
+
+        return entry.shallowClone();
+    }
+
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean contains( Attribute... attributes )
+    {
+        decode( attributes );
+
+        return entry.contains( attributes );
+    }
+
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean containsAttribute( String... attributes )
+    {
+        if ( attributes == null )
+        {
+            return entry.containsAttribute( attributes );
+        }
+
+        if ( entry.isSchemaAware() )
+        {
+            // The names may be aliases of pending attributes
+            for ( String attribute : attributes )
+            {
+                decode( attribute );
+            }
+
+            return entry.containsAttribute( attributes );
+        }
+
+        // No need to decode the attributes here
+        for ( String attribute : attributes )
+        {
+            if ( isDecoded( attribute ) && !entry.containsAttribute( attribute ) )
+            {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean containsAttribute( AttributeType attributeType )
+    {
+        decodeAll();
+
+        return entry.containsAttribute( attributeType );
+    }
+
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean contains( AttributeType attributeType, byte[]... values )
+    {
+        decodeAll();
+
+        return entry.contains( attributeType, values );
+    }
+
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean contains( AttributeType attributeType, String... values )
+    {
+        decodeAll();
+
+        return entry.contains( attributeType, values );
+    }
+
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean contains( AttributeType attributeType, Value... values )
+    {
+        decodeAll();
+
+        return entry.contains( attributeType, values );
+    }
+
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean contains( String upId, byte[]... values )
+    {
+        decode( upId );
+
+        return entry.contains( upId, values );
+    }
+
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean contains( String upId, String... values )
+    {
+        decode( upId );
+
+        return entry.contains( upId, values );
+    }
+
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean contains( String upId, Value... values )
+    {
+        decode( upId );
+
+        return entry.contains( upId, values );
+    }
+
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Attribute get( String alias )
+    {
+        decode( alias );
+
+        return entry.get( alias );
+    }
+
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Attribute get( AttributeType attributeType )
+    {
+        decodeAll();
+
+        return entry.get( attributeType );
+    }
+
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Collection<Attribute> getAttributes()
+    {
+        decodeAll();
+
+        return entry.getAttributes();
+    }
+
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Attribute put( String upId, byte[]... values )
+    {
+        discard( upId );
+
+        return entry.put( upId, values );
+    }
+
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Attribute put( String upId, String... values )
+    {
+        discard( upId );
+
+        return entry.put( upId, values );
+    }
+
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Attribute put( String upId, Value... values )
+    {
+        discard( upId );
+
+        return entry.put( upId, values );
+    }
+
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public List<Attribute> put( Attribute... attributes ) throws LdapException
+    {
+        if ( attributes != null )
+        {
+            for ( Attribute attribute : attributes )
+            {
+                if ( attribute != null )
+                {
+                    discard( attribute.getUpId() );
+                }
+            }
+        }
+
+
+        return entry.put( attributes );
+    }
+
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Attribute put( AttributeType attributeType, byte[]... values ) throws LdapException
+    {
+        decodeAll();
+
+        return entry.put( attributeType, values );
+    }
+
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Attribute put( AttributeType attributeType, String... values ) throws LdapException
+    {
+        decodeAll();
+
+        return entry.put( attributeType, values );
+    }
+
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Attribute put( AttributeType attributeType, Value... values ) throws LdapException
+    {
+        decodeAll();
+
+        return entry.put( attributeType, values );
+    }
+
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Attribute put( String upId, AttributeType attributeType, byte[]... values ) throws LdapException
+    {
+        decodeAll();
+
+        return entry.put( upId, attributeType, values );
+    }
+
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Attribute put( String upId, AttributeType attributeType, String... values ) throws LdapException
+    {
+        decodeAll();
+
+        return entry.put( upId, attributeType, values );
+    }
+
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Attribute put( String upId, AttributeType attributeType, Value... values ) throws LdapException
+    {
+        decodeAll();
+
+        return entry.put( upId, attributeType, values );
+    }
+
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public List<Attribute> remove( Attribute... attributes ) throws LdapException
+    {
+        decode( attributes );
+
+        return entry.remove( attributes );
+    }
+
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean remove( AttributeType attributeType, byte[]... values ) throws LdapException
+    {
+        decodeAll();
+
+        return entry.remove( attributeType, values );
+    }
+
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean remove( AttributeType attributeType, String... values ) throws LdapException
+    {
+        decodeAll();
+
+        return entry.remove( attributeType, values );
+    }
+
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean remove( AttributeType attributeType, Value... values ) throws LdapException
+    {
+        decodeAll();
+
+        return entry.remove( attributeType, values );
+    }
+
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void removeAttributes( AttributeType... attributes )
+    {
+        decodeAll();
+
+        entry.removeAttributes( attributes );
+    }
+
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void removeAttributes( String... attributes )
+    {
+        discard( attributes );
+
+        entry.removeAttributes( attributes );
+    }
+
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean remove( String upId, byte[]... values ) throws LdapException
+    {
+        decode( upId );
+
+        return entry.remove( upId, values );
+    }
+
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean remove( String upId, String... values ) throws LdapException
+    {
+        decode( upId );
+
+        return entry.remove( upId, values );
+    }
+
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean remove( String upId, Value... values ) throws LdapException
+    {
+        decode( upId );
+
+        return entry.remove( upId, values );
+    }
+
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Dn getDn()
+    {
+        return entry.getDn();
+    }
+
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void setDn( Dn dn )
+    {
+        entry.setDn( dn );
+    }
+
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void setDn( String dn ) throws LdapInvalidDnException
+    {
+        entry.setDn( dn );
+    }
+
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void clear()
+    {
+        pending.clear();
+        entry.clear();
+    }
+
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Iterator<Attribute> iterator()
+    {
+        decodeAll();
+
+        return entry.iterator();
+    }
+
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int size()
+    {
+        // The pending attributes are never present in the wrapped entry
+        return entry.size() + pending.size();
+    }
+
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void writeExternal( ObjectOutput out ) throws IOException
+    {
+        decodeAll();
+
+        entry.writeExternal( out );
+    }
+
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void readExternal( ObjectInput in ) throws IOException, ClassNotFoundException
+    {
+        // The attributes have all been decoded when the entry has been written
+        pending = new HashMap<>();
+        rawAttributes = Strings.EMPTY_BYTES;
+        entry = new DefaultEntry();
+
+        entry.readExternal( in );
+    }
+
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int hashCode()
+    {
+        decodeAll();
+
+        return entry.hashCode();
+    }
+
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean hasObjectClass( String... objectClasses )
+    {
+        decode( SchemaConstants.OBJECT_CLASS_AT );
+
+        return entry.hasObjectClass( objectClasses );
+    }
+
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean hasObjectClass( Attribute... objectClasses )
+    {
+        decode( SchemaConstants.OBJECT_CLASS_AT );
+
+        return entry.hasObjectClass( objectClasses );
+    }
+
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean isSchemaAware()
+    {
+        return entry.isSchemaAware();
+    }
+
+
+    /**
+     * {@inheritDoc}
+     *
+     * As for a DefaultEntry, any Entry with the same Dn and the same attributes is equal.
+     */
+    @Override
+    public boolean equals( Object o )
+    {
+        if ( this == o )
+        {
+            return true;
+        }
+
+        if ( !( o instanceof Entry ) )
+        {
+            return false;
+        }
+
+        Entry other = ( Entry ) o;
+        Dn dn = getDn();
+
+        if ( ( dn == null ) ? ( other.getDn() != null ) : !dn.equals( other.getDn() ) )
+        {
+            return false;
+        }
+
+        if ( size() != other.size() )
+        {
+            return false;
+        }
+
+        for ( Attribute attribute : other )
+        {
+            if ( !attribute.equals( get( attribute.getId() ) ) )
+            {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public String toString()
+    {
+        decodeAll();
+
+        return entry.toString();
+    }
+
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public String toString( String tabs )
+    {
+        decodeAll();
+
+        return entry.toString( tabs );
+    }
+}
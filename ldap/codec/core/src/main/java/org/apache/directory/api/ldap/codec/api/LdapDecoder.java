@@ -48,6 +48,9 @@ public class LdapDecoder
     /** The maximum PDU size, stored into the LDAPSession's attribute */
     public static final String MAX_PDU_SIZE_ATTR = "LDAP-maxPduSize";
 
+    /** The maximum number of messages decoded for each received buffer, stored into the LDAPSession's attribute */
+    public static final String MAX_MESSAGES_PER_DECODE_ATTR = "LDAP-maxMessagesPerDecode";
+
 
     /**
      * Creates an instance of a Ldap Decoder implementation.
@@ -109,4 +112,83 @@ public class LdapDecoder
             throw new DecoderException( I18n.err( I18n.ERR_05206_INPUT_STREAM_TOO_SHORT_PDU ) );
         }
     }
+
+
+    /**
+     * Decodes all the complete PDUs a buffer contains, up to a maximum number of messages,
+     * and give them to a sink. The container keeps the state of a PDU which is not complete,
+     * its decoding will resume on the next call. When the maximum number of messages has
+     * been reached, the buffer position is set just after the last decoded PDU, and the
+     * remaining bytes can be decoded by a subsequent call.
+     * <br>
+     * No intermediate collection is created : the sink and the container can be reused
+     * for all the buffers read on a connection.
+     *
+     * @param buffer The buffer containing the PDUs to decode
+     * @param container The LdapMessageContainer used to decode the PDUs
+     * @param sink The sink receiving each decoded message
+     * @param maxMessages The maximum number of messages to decode, or a value below or
+     * equal to 0 to decode all the PDUs the buffer contains
+     * @return The number of decoded messages
+     * @throws DecoderException If the decoding failed. The container is then cleaned.
+     */
+    public static int decode( ByteBuffer buffer, LdapMessageContainer<? extends Message> container,
+        LdapMessageSink sink, int maxMessages ) throws DecoderException
+    {
+        int nbMessages = 0;
+
+        while ( buffer.hasRemaining() && ( ( maxMessages <= 0 ) || ( nbMessages < maxMessages ) ) )
+        {
+            try
+            {
+                Asn1Decoder.decode( buffer, container );
+            }
+            catch ( DecoderException de )
+            {
+                container.clean();
+
+                throw de;
+            }
+
+            if ( container.getState() == TLVStateEnum.PDU_DECODED )
+            {
+                Message message = container.getMessage();
+
+                if ( LOG.isDebugEnabled() )
+                {
+                    LOG.debug( I18n.msg( I18n.MSG_5200_DECODED_LDAP_MESSAGE, message ) );
+                }
+
+                container.clean();
+                sink.messageDecoded( message );
+                nbMessages++;
+            }
+        }
+
+        return nbMessages;
+    }
+
+
+    /**
+     * Decodes the complete PDUs a buffer contains into a batch, until the batch is full.
+     *
+     * @param buffer The buffer containing the PDUs to decode
+     * @param container The LdapMessageContainer used to decode the PDUs
+     * @param batch The batch the decoded messages are added to
+     * @return The number of decoded messages
+     * @throws DecoderException If the decoding failed. The container is then cleaned.
+     * @see #decode(ByteBuffer, LdapMessageContainer, LdapMessageSink, int)
+     */
+    public static int decode( ByteBuffer buffer, LdapMessageContainer<? extends Message> container,
+        LdapMessageBatch batch ) throws DecoderException
+    {
+        int remaining = batch.remainingCapacity();
+
+        if ( remaining == 0 )
+        {
+            return 0;
+        }
+
+        return decode( buffer, container, batch, remaining );
+    }
 }
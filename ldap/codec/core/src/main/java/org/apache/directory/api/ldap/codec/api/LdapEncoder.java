@@ -28,6 +28,7 @@ import org.apache.directory.api.asn1.EncoderException;
 import org.apache.directory.api.asn1.ber.tlv.BerValue;
 import org.apache.directory.api.asn1.ber.tlv.UniversalTag;
 import org.apache.directory.api.asn1.util.Asn1Buffer;
+import org.apache.directory.api.asn1.util.Asn1Buffer2;
 import org.apache.directory.api.i18n.I18n;
 import org.apache.directory.api.ldap.codec.factory.AbandonRequestFactory;
 import org.apache.directory.api.ldap.codec.factory.AddRequestFactory;
@@ -273,6 +274,46 @@ public final class LdapEncoder
      * @throws EncoderException If anything goes wrong.
      */
     public static ByteBuffer encodeMessage( Asn1Buffer buffer, LdapApiService codec, Message message ) throws EncoderException
+    {
+        encodeMessageReverse( buffer, codec, message );
+
+        return buffer.getBytes();
+    }
+
+
+    /**
+     * Generate the PDU which contains the encoded object, as a list of segments. The
+     * encoding never copies the already encoded bytes, whatever the PDU size, and the
+     * returned ByteBuffers can be written using a single gathering write.
+     * <br>
+     * The returned ByteBuffers are backed by the Asn1Buffer2 segments, so they are
+     * only valid until the buffer is cleared or reused.
+     *
+     * @param buffer The Asn1Buffer2 instance in which we store the result
+     * @param codec The LdapApiService instance
+     * @param message The message to encode
+     * @return The ByteBuffers containing the PDU, in the order they have to be written
+     * @throws EncoderException If anything goes wrong.
+     */
+    public static ByteBuffer[] encodeMessageSegments( Asn1Buffer2 buffer, LdapApiService codec, Message message ) throws EncoderException
+    {
+        encodeMessageReverse( buffer, codec, message );
+
+        return buffer.getByteBuffers();
+    }
+
+
+    /**
+     * Encode a message into an Asn1Buffer, without extracting the resulting PDU. The
+     * caller can then get it with {@link Asn1Buffer#getReadOnlyBytes()}, without any copy,
+     * or copy it in its own (possibly direct) ByteBuffer with {@link Asn1Buffer#writeTo(ByteBuffer)}.
+     *
+     * @param buffer The Asn1Buffer instance in which we store the result
+     * @param codec The LdapApiService instance
+     * @param message The message to encode
+     * @throws EncoderException If anything goes wrong.
+     */
+    public static void encodeMessageReverse( Asn1Buffer buffer, LdapApiService codec, Message message ) throws EncoderException
     {
         int start = buffer.getPos();
 
@@ -295,7 +336,5 @@ public final class LdapEncoder
 
         // The LdapMessage Sequence
         BerValue.encodeSequence( buffer );
-
-        return buffer.getBytes();
     }
 }
@@ -0,0 +1,173 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *    https://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ *
+ */
+package org.apache.directory.api.ldap.codec.api;
+
+
+import java.util.Arrays;
+
+import org.apache.directory.api.i18n.I18n;
+import org.apache.directory.api.ldap.model.message.Message;
+
+
+/**
+ * A bounded, reusable array of decoded LDAP messages. It's meant to be given to
+ * {@link LdapDecoder#decode(java.nio.ByteBuffer, LdapMessageContainer, LdapMessageBatch)},
+ * which will stop decoding as soon as the batch is full. The messages are then read,
+ * and the batch cleared before the next decoding.
+ * <br>
+ * This class is not thread safe.
+ *
+ * @author <a href="mailto:dev@directory.apache.org">Apache Directory Project</a>
+ */
+public class LdapMessageBatch implements LdapMessageSink
+{
+    /** The default batch capacity */
+    public static final int DEFAULT_CAPACITY = 64;
+
+    /** The decoded messages */
+    private final Message[] messages;
+
+    /** The number of messages in the batch */
+    private int size;
+
+
+    /**
+     * Creates a new LdapMessageBatch instance, with the default capacity
+     */
+    public LdapMessageBatch()
+    {
+        this( DEFAULT_CAPACITY );
+    }
+
+
+    /**
+     * Creates a new LdapMessageBatch instance
+     *
+     * @param capacity The maximum number of messages the batch can contain
+     */
+    public LdapMessageBatch( int capacity )
+    {
+        if ( capacity <= 0 )
+        {
+            throw new IllegalArgumentException( I18n.err( I18n.ERR_05207_INVALID_BATCH_CAPACITY, capacity ) );
+        }
+
+        messages = new Message[capacity];
+    }
+
+
+    /**
+     * {@inheritDoc}
+     * 
+     * @throws IllegalStateException If the batch is already full
+     */
+    @Override
+    public void messageDecoded( Message message )
+    {
+        if ( size == messages.length )
+        {
+            throw new IllegalStateException( I18n.err( I18n.ERR_05208_BATCH_FULL, messages.length ) );
+        }
+
+        messages[size++] = message;
+    }
+
+
+    /**
+     * Get a decoded message
+     *
+     * @param index The message index, in [0, size()[
+     * @return The decoded message
+     */
+    public Message get( int index )
+    {
+        if ( ( index < 0 ) || ( index >= size ) )
+        {
+            throw new IndexOutOfBoundsException( "Index: " + index + ", size: " + size );
+        }
+
+        return messages[index];
+    }
+
+
+    /**
+     * @return The number of messages in the batch
+     */
+    public int size()
+    {
+        return size;
+    }
+
+
+    /**
+     * @return <code>true</code> if the batch does not contain any message
+     */
+    public boolean isEmpty()
+    {
+        return size == 0;
+    }
+
+
+    /**
+     * @return <code>true</code> if no more messages can be added to the batch
+     */
+    public boolean isFull()
+    {
+        return size == messages.length;
+    }
+
+
+    /**
+     * @return The number of messages that can still be added to the batch
+     */
+    public int remainingCapacity()
+    {
+        return messages.length - size;
+    }
+
+
+    /**
+     * @return The maximum number of messages the batch can contain
+     */
+    public int getCapacity()
+    {
+        return messages.length;
+    }
+
+
+    /**
+     * Remove all the messages from the batch, so that it can be reused.
+     */
+    public void clear()
+    {
+        Arrays.fill( messages, 0, size, null );
+        size = 0;
+    }
+
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public String toString()
+    {
+        return "LdapMessageBatch[" + size + "/" + messages.length + "]";
+    }
+}
@@ -20,6 +20,8 @@
 package org.apache.directory.api.ldap.codec.api;
 
 
+import java.nio.ByteBuffer;
+
 import org.apache.directory.api.asn1.DecoderException;
 import org.apache.directory.api.asn1.ber.AbstractContainer;
 import org.apache.directory.api.asn1.ber.tlv.TLV;
@@ -52,8 +54,8 @@ public class LdapMessageContainer<E extends Message> extends AbstractContainer
     /** The Message being decoded */
     private E message;
 
-    /** checks if attribute is binary */
-    private BinaryAttributeDetector binaryAttributeDetector;
+    /** checks if attribute is binary, caching its decisions */
+    private final BinaryAttributeCache binaryAttributeCache;
 
     /** The message ID */
     private int messageId;
@@ -82,6 +84,9 @@ public class LdapMessageContainer<E extends Message> extends AbstractContainer
     /** The current attribute being decoded */
     private Attribute currentAttribute;
 
+    /** Tells if the current attribute values are binary */
+    private boolean currentAttributeBinary;
+
     /** A local storage for the MODIFY operation */
     private Modification currentModification;
     
@@ -97,6 +102,12 @@ public class LdapMessageContainer<E extends Message> extends AbstractContainer
     /** The global filter. This is used while decoding a PDU */
     private Filter topFilter;
 
+    /** A flag set when the SearchResultEntry attributes are decoded lazily */
+    private boolean lazyEntries;
+
+    /** The filter selecting the SearchResultEntry attributes to decode, if any */
+    private AttributeFilter attributeFilter;
+
 
     /**
      * Creates a new LdapMessageContainer object. We will store ten grammars,
@@ -121,7 +132,7 @@ public class LdapMessageContainer<E extends Message> extends AbstractContainer
         super();
         this.codec = codec;
         setGrammar( LdapMessageGrammar.getInstance() );
-        this.binaryAttributeDetector = binaryAttributeDetector;
+        binaryAttributeCache = new BinaryAttributeCache( binaryAttributeDetector );
         setTransition( LdapStatesEnum.START_STATE );
     }
 
@@ -188,7 +199,33 @@ public class LdapMessageContainer<E extends Message> extends AbstractContainer
      */
     public boolean isBinary( String id )
     {
-        return binaryAttributeDetector.isBinary( id );
+        return binaryAttributeCache.getBinaryAttributeDetector().isBinary( id );
+    }
+
+
+    /**
+     * Tells if an attribute is binary, using the encoded attribute description. The
+     * decisions are cached, so this is cheaper than {@link #isBinary(String)} when the
+     * same attributes are received again and again.
+     *
+     * @param attributeDescription The encoded attribute description, between the buffer
+     * position and its limit
+     * @return true if the attribute is binary
+     */
+    public boolean isBinary( ByteBuffer attributeDescription )
+    {
+        return binaryAttributeCache.isBinary( attributeDescription );
+    }
+
+
+    /**
+     * Clear the cached binary attribute decisions. This must be called when the
+     * binary attribute detector decisions change, for instance when some binary
+     * attributes are added to a {@link ConfigurableBinaryAttributeDetector}.
+     */
+    public void clearBinaryAttributeCache()
+    {
+        binaryAttributeCache.clear();
     }
 
 
@@ -231,13 +268,13 @@ public class LdapMessageContainer<E extends Message> extends AbstractContainer
 
 
     /**
-     * Sets the binary attribute detector
+     * Sets the binary attribute detector. The cached decisions are cleared.
      * 
      * @param binaryAttributeDetector the binary attribute detector
      */
     public void setBinaryAttributeDetector( BinaryAttributeDetector binaryAttributeDetector )
     {
-        this.binaryAttributeDetector = binaryAttributeDetector;
+        binaryAttributeCache.setBinaryAttributeDetector( binaryAttributeDetector );
     }
 
 
@@ -246,7 +283,7 @@ public class LdapMessageContainer<E extends Message> extends AbstractContainer
      */
     public BinaryAttributeDetector getBinaryAttributeDetector()
     {
-        return binaryAttributeDetector;
+        return binaryAttributeCache.getBinaryAttributeDetector();
     }
 
 
@@ -304,6 +341,24 @@ public class LdapMessageContainer<E extends Message> extends AbstractContainer
     }
 
 
+    /**
+     * @return true if the current attribute values are binary
+     */
+    public boolean isCurrentAttributeBinary()
+    {
+        return currentAttributeBinary;
+    }
+
+
+    /**
+     * @param currentAttributeBinary true if the current attribute values are binary
+     */
+    public void setCurrentAttributeBinary( boolean currentAttributeBinary )
+    {
+        this.currentAttributeBinary = currentAttributeBinary;
+    }
+
+
     /**
      * @return the currentModification
      */
@@ -568,4 +623,51 @@ public class LdapMessageContainer<E extends Message> extends AbstractContainer
     {
         this.dnFactory = dnFactory;
     }
+
+
+    /**
+     * @return <code>true</code> if the SearchResultEntry attributes are decoded lazily
+     */
+    public boolean isLazyEntries()
+    {
+        return lazyEntries;
+    }
+
+
+    /**
+     * Tells the decoder to decode the SearchResultEntry attributes lazily. When set, the
+     * PartialAttributeList is kept encoded in a {@link LazyEntry}, and each attribute is
+     * decoded when it's accessed for the first time. This is useful when only a few of
+     * the returned attributes are read. The default value is <code>false</code>.
+     *
+     * @param lazyEntries <code>true</code> to decode the SearchResultEntry attributes lazily
+     */
+    public void setLazyEntries( boolean lazyEntries )
+    {
+        this.lazyEntries = lazyEntries;
+    }
+
+
+    /**
+     * @return The filter selecting the SearchResultEntry attributes to decode, or null if
+     * all the attributes are decoded
+     */
+    public AttributeFilter getAttributeFilter()
+    {
+        return attributeFilter;
+    }
+
+
+    /**
+     * Set the filter selecting the SearchResultEntry attributes to decode. The values of
+     * the attributes which are not accepted are skipped without being decoded, and those
+     * attributes are not added into the entries. The default value is <code>null</code> :
+     * all the attributes are decoded.
+     *
+     * @param attributeFilter The filter to use, or null to decode all the attributes
+     */
+    public void setAttributeFilter( AttributeFilter attributeFilter )
+    {
+        this.attributeFilter = attributeFilter;
+    }
 }
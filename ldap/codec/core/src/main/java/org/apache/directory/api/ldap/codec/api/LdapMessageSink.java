@@ -0,0 +1,41 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *    https://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ *
+ */
+package org.apache.directory.api.ldap.codec.api;
+
+
+import org.apache.directory.api.ldap.model.message.Message;
+
+
+/**
+ * A receiver for the LDAP messages decoded by {@link LdapDecoder#decode(java.nio.ByteBuffer, LdapMessageContainer, LdapMessageSink, int)}.
+ * The same instance can be used for all the buffers read on a connection, so that
+ * decoding many messages does not require any intermediate collection.
+ *
+ * @author <a href="mailto:dev@directory.apache.org">Apache Directory Project</a>
+ */
+public interface LdapMessageSink
+{
+    /**
+     * Called each time a complete LDAP message has been decoded.
+     *
+     * @param message The decoded message
+     */
+    void messageDecoded( Message message );
+}
@@ -31,6 +31,7 @@ import javax.naming.ldap.BasicControl;
 import org.apache.directory.api.asn1.DecoderException;
 import org.apache.directory.api.asn1.EncoderException;
 import org.apache.directory.api.asn1.util.Asn1Buffer;
+import org.apache.directory.api.asn1.util.OidCache;
 import org.apache.directory.api.i18n.I18n;
 import org.apache.directory.api.ldap.codec.BasicControlDecorator;
 import org.apache.directory.api.ldap.codec.api.ControlFactory;
@@ -110,13 +111,35 @@ public class DefaultLdapCodecService implements LdapApiService
     }
 
 
+    /**
+     * Get the canonical instance of an OID string, as interned in the shared
+     * {@link OidCache}. The decoder gets the control and operation names from the
+     * same cache, so the factories lookup most of the time compares the keys by
+     * reference. An invalid OID is returned as is.
+     *
+     * @param oid The OID to look for
+     * @return The canonical OID String
+     */
+    private static String canonicalOid( String oid )
+    {
+        try
+        {
+            return OidCache.getDefault().fromString( oid ).toString();
+        }
+        catch ( DecoderException de )
+        {
+            return oid;
+        }
+    }
+
+
     /**
      * Loads the Controls implement out of the box in the codec.
      */
     private void loadStockControls()
     {
         ControlFactory<Cascade> cascadeFactory = new CascadeFactory( this );
-        requestControlFactories.put( cascadeFactory.getOid(), cascadeFactory );
+        requestControlFactories.put( canonicalOid( cascadeFactory.getOid() ), cascadeFactory );
 
         if ( LOG.isInfoEnabled() )
         {
@@ -124,7 +147,7 @@ public class DefaultLdapCodecService implements LdapApiService
         }
 
         ControlFactory<EntryChange> entryChangeFactory = new EntryChangeFactory( this );
-        responseControlFactories.put( entryChangeFactory.getOid(), entryChangeFactory );
+        responseControlFactories.put( canonicalOid( entryChangeFactory.getOid() ), entryChangeFactory );
 
         if ( LOG.isInfoEnabled() )
         {
@@ -132,7 +155,7 @@ public class DefaultLdapCodecService implements LdapApiService
         }
 
         ControlFactory<ManageDsaIT> manageDsaItFactory = new ManageDsaITFactory( this );
-        requestControlFactories.put( manageDsaItFactory.getOid(), manageDsaItFactory );
+        requestControlFactories.put( canonicalOid( manageDsaItFactory.getOid() ), manageDsaItFactory );
 
         if ( LOG.isInfoEnabled() )
         {
@@ -140,8 +163,8 @@ public class DefaultLdapCodecService implements LdapApiService
         }
 
         ControlFactory<PagedResults> pageResultsFactory = new PagedResultsFactory( this );
-        requestControlFactories.put( pageResultsFactory.getOid(), pageResultsFactory );
-        responseControlFactories.put( pageResultsFactory.getOid(), pageResultsFactory );
+        requestControlFactories.put( canonicalOid( pageResultsFactory.getOid() ), pageResultsFactory );
+        responseControlFactories.put( canonicalOid( pageResultsFactory.getOid() ), pageResultsFactory );
 
         if ( LOG.isInfoEnabled() )
         {
@@ -149,7 +172,7 @@ public class DefaultLdapCodecService implements LdapApiService
         }
 
         ControlFactory<PersistentSearch> persistentSearchFactory = new PersistentSearchFactory( this );
-        requestControlFactories.put( persistentSearchFactory.getOid(), persistentSearchFactory );
+        requestControlFactories.put( canonicalOid( persistentSearchFactory.getOid() ), persistentSearchFactory );
 
         if ( LOG.isInfoEnabled() )
         {
@@ -157,7 +180,7 @@ public class DefaultLdapCodecService implements LdapApiService
         }
 
         ControlFactory<ProxiedAuthz> proxiedAuthzFactory = new ProxiedAuthzFactory( this );
-        requestControlFactories.put( proxiedAuthzFactory.getOid(), proxiedAuthzFactory );
+        requestControlFactories.put( canonicalOid( proxiedAuthzFactory.getOid() ), proxiedAuthzFactory );
 
         if ( LOG.isInfoEnabled() )
         {
@@ -165,7 +188,7 @@ public class DefaultLdapCodecService implements LdapApiService
         }
 
         ControlFactory<SortRequest> sortRequestFactory = new SortRequestFactory( this );
-        requestControlFactories.put( sortRequestFactory.getOid(), sortRequestFactory );
+        requestControlFactories.put( canonicalOid( sortRequestFactory.getOid() ), sortRequestFactory );
 
         if ( LOG.isInfoEnabled() )
         {
@@ -173,7 +196,7 @@ public class DefaultLdapCodecService implements LdapApiService
         }
 
         ControlFactory<SortResponse> sortResponseFactory = new SortResponseFactory( this );
-        responseControlFactories.put( sortResponseFactory.getOid(), sortResponseFactory );
+        responseControlFactories.put( canonicalOid( sortResponseFactory.getOid() ), sortResponseFactory );
 
         if ( LOG.isInfoEnabled() )
         {
@@ -181,7 +204,7 @@ public class DefaultLdapCodecService implements LdapApiService
         }
 
         ControlFactory<Subentries> subentriesFactory = new SubentriesFactory( this );
-        requestControlFactories.put( subentriesFactory.getOid(), subentriesFactory );
+        requestControlFactories.put( canonicalOid( subentriesFactory.getOid() ), subentriesFactory );
 
         if ( LOG.isInfoEnabled() )
         {
@@ -200,7 +223,7 @@ public class DefaultLdapCodecService implements LdapApiService
     @Override
     public ControlFactory<?> registerRequestControl( ControlFactory<?> factory )
     {
-        return requestControlFactories.put( factory.getOid(), factory );
+        return requestControlFactories.put( canonicalOid( factory.getOid() ), factory );
     }
 
     /**
@@ -209,7 +232,7 @@ public class DefaultLdapCodecService implements LdapApiService
     @Override
     public ControlFactory<?> registerResponseControl( ControlFactory<?> factory )
     {
-        return responseControlFactories.put( factory.getOid(), factory );
+        return responseControlFactories.put( canonicalOid( factory.getOid() ), factory );
     }
 
 
@@ -289,7 +312,7 @@ public class DefaultLdapCodecService implements LdapApiService
     @Override
     public ExtendedOperationFactory registerExtendedRequest( ExtendedOperationFactory factory )
     {
-        return extendedRequestFactories.put( factory.getOid(), factory );
+        return extendedRequestFactories.put( canonicalOid( factory.getOid() ), factory );
     }
 
 
@@ -299,7 +322,7 @@ public class DefaultLdapCodecService implements LdapApiService
     @Override
     public ExtendedOperationFactory registerExtendedResponse( ExtendedOperationFactory factory )
     {
-        return extendedResponseFactories.put( factory.getOid(), factory );
+        return extendedResponseFactories.put( canonicalOid( factory.getOid() ), factory );
     }
 
 
@@ -319,7 +342,7 @@ public class DefaultLdapCodecService implements LdapApiService
     @Override
     public IntermediateOperationFactory registerIntermediateResponse( IntermediateOperationFactory factory )
     {
-        return intermediateResponseFactories.put( factory.getOid(), factory );
+        return intermediateResponseFactories.put( canonicalOid( factory.getOid() ), factory );
     }
 
 
@@ -38,13 +38,22 @@ import org.apache.directory.api.asn1.util.Asn1Buffer;
 import org.apache.directory.api.ldap.codec.api.LdapApiService;
 import org.apache.directory.api.ldap.codec.api.LdapDecoder;
 import org.apache.directory.api.ldap.codec.api.LdapEncoder;
+import org.apache.directory.api.ldap.codec.api.LdapMessageBatch;
 import org.apache.directory.api.ldap.codec.api.LdapMessageContainer;
+import org.apache.directory.api.ldap.codec.api.LdapMessageSink;
 import org.apache.directory.api.ldap.codec.api.ResponseCarryingException;
 import org.apache.directory.api.ldap.codec.osgi.AbstractCodecServiceTest;
 import org.apache.directory.api.ldap.codec.osgi.DefaultLdapCodecService;
 import org.apache.directory.api.ldap.model.exception.ResponseCarryingMessageException;
+import org.apache.directory.api.ldap.model.entry.DefaultEntry;
 import org.apache.directory.api.ldap.model.message.BindRequest;
 import org.apache.directory.api.ldap.model.message.Message;
+import org.apache.directory.api.ldap.model.message.ResultCodeEnum;
+import org.apache.directory.api.ldap.model.message.SearchResultDone;
+import org.apache.directory.api.ldap.model.message.SearchResultDoneImpl;
+import org.apache.directory.api.ldap.model.message.SearchResultEntry;
+import org.apache.directory.api.ldap.model.message.SearchResultEntryImpl;
+import org.apache.directory.api.ldap.model.name.Dn;
 import org.apache.directory.api.util.Strings;
 import org.apache.mina.core.session.DummySession;
 import org.apache.mina.core.session.IoSession;
@@ -825,4 +834,145 @@ public class LdapDecoderTest extends AbstractCodecServiceTest
 
         assertThrows( DecoderException.class, () -> { Asn1Decoder.decode(stream, container); } );
     }
+
+    /**
+     * Encode some SearchResultEntry and a SearchResultDone into a single buffer
+     */
+    private ByteBuffer encodeSearchResults( int nbEntries ) throws Exception
+    {
+        ByteBuffer stream = ByteBuffer.allocate( 64 * 1024 );
+        Asn1Buffer buffer = new Asn1Buffer();
+
+        for ( int i = 0; i < nbEntries; i++ )
+        {
+            SearchResultEntry entry = new SearchResultEntryImpl( i + 1 );
+            Dn dn = new Dn( "cn=test" + i + ",ou=system" );
+            entry.setObjectName( dn );
+            entry.setEntry( new DefaultEntry( dn, "objectClass: top", "cn: test" + i ) );
+
+            stream.put( LdapEncoder.encodeMessage( buffer, codec, entry ) );
+            buffer.clear();
+        }
+
+        SearchResultDone done = new SearchResultDoneImpl( nbEntries + 1 );
+        done.getLdapResult().setResultCode( ResultCodeEnum.SUCCESS );
+        stream.put( LdapEncoder.encodeMessage( buffer, codec, done ) );
+        stream.flip();
+
+        return stream;
+    }
+
+
+    /**
+     * Test the decoding of many PDUs into a reused batch
+     * 
+     * @throws Exception If the test failed
+     */
+    @Test
+    public void testDecodeBatch() throws Exception
+    {
+        ByteBuffer stream = encodeSearchResults( 20 );
+        LdapMessageContainer<Message> container = new LdapMessageContainer<>( codec );
+        LdapMessageBatch batch = new LdapMessageBatch( 8 );
+        List<Message> result = new ArrayList<>();
+
+        while ( stream.hasRemaining() )
+        {
+            int nbMessages = LdapDecoder.decode( stream, container, batch );
+
+            assertEquals( batch.size(), nbMessages );
+            assertTrue( nbMessages <= 8 );
+
+            for ( int i = 0; i < batch.size(); i++ )
+            {
+                result.add( batch.get( i ) );
+            }
+
+            batch.clear();
+        }
+
+        assertEquals( 21, result.size() );
+
+        for ( int i = 0; i < 20; i++ )
+        {
+            SearchResultEntry entry = ( SearchResultEntry ) result.get( i );
+
+            assertEquals( i + 1, entry.getMessageId() );
+            assertEquals( "cn=test" + i + ",ou=system", entry.getObjectName().toString() );
+        }
+
+        assertEquals( 21, ( ( SearchResultDone ) result.get( 20 ) ).getMessageId() );
+
+        // A full batch does not decode anything
+        LdapMessageBatch fullBatch = new LdapMessageBatch( 1 );
+        fullBatch.messageDecoded( result.get( 0 ) );
+        stream.rewind();
+
+        assertEquals( 0, LdapDecoder.decode( stream, container, fullBatch ) );
+        assertEquals( 0, stream.position() );
+        assertThrows( IllegalStateException.class, () -> fullBatch.messageDecoded( result.get( 1 ) ) );
+    }
+
+
+    /**
+     * Test the decoding of PDUs split over many buffers, using a callback
+     * 
+     * @throws Exception If the test failed
+     */
+    @Test
+    public void testDecodeSinkSplitBuffers() throws Exception
+    {
+        ByteBuffer stream = encodeSearchResults( 10 );
+        LdapMessageContainer<Message> container = new LdapMessageContainer<>( codec );
+        List<Message> result = new ArrayList<>();
+        LdapMessageSink sink = result::add;
+        ByteBuffer chunk = ByteBuffer.allocate( 50 );
+
+        while ( stream.hasRemaining() )
+        {
+            chunk.clear();
+
+            while ( chunk.hasRemaining() && stream.hasRemaining() )
+            {
+                chunk.put( stream.get() );
+            }
+
+            chunk.flip();
+
+            LdapDecoder.decode( chunk, container, sink, 0 );
+
+            assertEquals( 0, chunk.remaining() );
+        }
+
+        assertEquals( 11, result.size() );
+
+        for ( int i = 0; i < 11; i++ )
+        {
+            assertEquals( i + 1, result.get( i ).getMessageId() );
+        }
+    }
+
+
+    /**
+     * Test that a decoding error cleans the container
+     * 
+     * @throws Exception If the test failed
+     */
+    @Test
+    public void testDecodeSinkError() throws Exception
+    {
+        ByteBuffer stream = ByteBuffer.wrap( new byte[]
+            {
+                0x30, 0x05,                 // LDAPMessage ::=SEQUENCE {
+                  0x02, 0x01, 0x01,         // messageID MessageID
+                  0x01, 0x00,               // Bad tag
+            } );
+
+        LdapMessageContainer<Message> container = new LdapMessageContainer<>( codec );
+        List<Message> result = new ArrayList<>();
+
+        assertThrows( DecoderException.class, () -> LdapDecoder.decode( stream, container, result::add, 0 ) );
+        assertEquals( TLVStateEnum.TAG_STATE_START, container.getState() );
+        assertTrue( result.isEmpty() );
+    }
 }
@@ -36,6 +36,7 @@ import org.apache.directory.api.asn1.DecoderException;
 import org.apache.directory.api.asn1.EncoderException;
 import org.apache.directory.api.asn1.ber.Asn1Decoder;
 import org.apache.directory.api.asn1.util.Asn1Buffer;
+import org.apache.directory.api.asn1.util.Asn1Buffer2;
 import org.apache.directory.api.ldap.codec.api.LdapEncoder;
 import org.apache.directory.api.ldap.codec.api.LdapMessageContainer;
 import org.apache.directory.api.ldap.codec.api.ResponseCarryingException;
@@ -744,4 +745,56 @@ public class AddRequestTest extends AbstractCodecServiceTest
         assertEquals( originalAddRequest, decodedAddRequest );
     }
 
+
+    /**
+     * Test that the segmented encoding of a large add request produces the same PDU
+     * as the contiguous encoding.
+     * 
+     * @throws DecoderException If the ASN1 decoding failed
+     * @throws EncoderException If the ASN1 encoding failed
+     * @throws LdapException If the test failed
+     */
+    @Test
+    public void testEncodeLargeSegmented() throws DecoderException, EncoderException, LdapException
+    {
+        AddRequest addRequest = new AddRequestImpl();
+        addRequest.setMessageId( 3 );
+        Dn dn = new Dn( "cn=test,ou=users,ou=system" );
+        addRequest.setEntryDn( dn );
+        Entry entry = new DefaultEntry( dn );
+        byte[] photo = new byte[100000];
+
+        for ( int i = 0; i < photo.length; i++ )
+        {
+            photo[i] = ( byte ) i;
+        }
+
+        entry.add( "jpegPhoto", photo );
+        entry.add( "objectclass", "top", "person" );
+        addRequest.setEntry( entry );
+
+        Asn1Buffer buffer = new Asn1Buffer();
+        LdapEncoder.encodeMessage( buffer, codec, addRequest );
+        ByteBuffer expected = buffer.getBytes();
+
+        Asn1Buffer2 segmentedBuffer = new Asn1Buffer2( 4096 );
+        ByteBuffer[] segments = LdapEncoder.encodeMessageSegments( segmentedBuffer, codec, addRequest );
+
+        assertTrue( segments.length > 1 );
+
+        ByteBuffer gathered = ByteBuffer.allocate( segmentedBuffer.getPos() );
+
+        for ( ByteBuffer segment : segments )
+        {
+            gathered.put( segment );
+        }
+
+        assertArrayEquals( expected.array(), gathered.array() );
+
+        LdapMessageContainer<AddRequest> ldapMessageContainer = new LdapMessageContainer<>( codec );
+        gathered.flip();
+        Asn1Decoder.decode( gathered, ldapMessageContainer );
+
+        assertEquals( addRequest, ldapMessageContainer.getMessage() );
+    }
 }
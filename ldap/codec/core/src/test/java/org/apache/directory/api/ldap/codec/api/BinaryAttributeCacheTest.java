@@ -0,0 +1,128 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *    https://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ *
+ */
+package org.apache.directory.api.ldap.codec.api;
+
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.directory.api.util.Strings;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.parallel.Execution;
+import org.junit.jupiter.api.parallel.ExecutionMode;
+
+
+/**
+ * Test for the BinaryAttributeCache class
+ *
+ * @author <a href="mailto:dev@directory.apache.org">Apache Directory Project</a>
+ */
+@Execution(ExecutionMode.CONCURRENT)
+public class BinaryAttributeCacheTest
+{
+    /** A detector counting the decisions it's asked for */
+    private static class CountingDetector extends DefaultConfigurableBinaryAttributeDetector
+    {
+        private final AtomicInteger count = new AtomicInteger();
+
+
+        @Override
+        public boolean isBinary( String attributeId )
+        {
+            count.incrementAndGet();
+
+            return super.isBinary( attributeId );
+        }
+    }
+
+
+    private static ByteBuffer bytes( String attributeDescription )
+    {
+        return ByteBuffer.wrap( Strings.getBytesUtf8( attributeDescription ) );
+    }
+
+
+    @Test
+    public void testIsBinary()
+    {
+        CountingDetector detector = new CountingDetector();
+        BinaryAttributeCache cache = new BinaryAttributeCache( detector );
+
+        assertTrue( cache.isBinary( bytes( "jpegPhoto" ) ) );
+        assertFalse( cache.isBinary( bytes( "cn" ) ) );
+        assertTrue( cache.isBinary( bytes( "cn;binary" ) ) );
+        assertEquals( 3, detector.count.get() );
+
+        // The decisions are cached, ignoring the case
+        assertTrue( cache.isBinary( bytes( "JPEGPHOTO" ) ) );
+        assertFalse( cache.isBinary( bytes( "CN" ) ) );
+        assertTrue( cache.isBinary( bytes( "cn;Binary" ) ) );
+        assertEquals( 3, detector.count.get() );
+
+        // The buffer is read between its position and its limit, and is not modified
+        ByteBuffer buffer = bytes( "xxjpegphotoyy" );
+        buffer.position( 2 );
+        buffer.limit( buffer.limit() - 2 );
+
+        assertTrue( cache.isBinary( buffer ) );
+        assertEquals( 2, buffer.position() );
+        assertEquals( 3, detector.count.get() );
+    }
+
+
+    @Test
+    public void testInvalidation()
+    {
+        CountingDetector detector = new CountingDetector();
+        BinaryAttributeCache cache = new BinaryAttributeCache( detector );
+
+        assertFalse( cache.isBinary( bytes( "myPhoto" ) ) );
+
+        // The detector change is only seen once the cache is cleared
+        detector.addBinaryAttribute( "myPhoto" );
+        assertFalse( cache.isBinary( bytes( "myPhoto" ) ) );
+        cache.clear();
+        assertTrue( cache.isBinary( bytes( "myPhoto" ) ) );
+
+        // Setting a new detector clears the cache
+        cache.setBinaryAttributeDetector( new DefaultConfigurableBinaryAttributeDetector() );
+        assertFalse( cache.isBinary( bytes( "myPhoto" ) ) );
+    }
+
+
+    @Test
+    public void testEviction()
+    {
+        // A single slot : every attribute evicts the previous one
+        CountingDetector detector = new CountingDetector();
+        BinaryAttributeCache cache = new BinaryAttributeCache( detector, 1 );
+
+        assertEquals( 1, cache.getSize() );
+        assertTrue( cache.isBinary( bytes( "jpegPhoto" ) ) );
+        assertFalse( cache.isBinary( bytes( "cn" ) ) );
+        assertTrue( cache.isBinary( bytes( "jpegPhoto" ) ) );
+        assertEquals( 3, detector.count.get() );
+        assertEquals( 256, new BinaryAttributeCache( detector, 200 ).getSize() );
+    }
+}
@@ -0,0 +1,106 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *    https://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ *
+ */
+package org.apache.directory.api.ldap.codec.search;
+
+
+import java.lang.management.ManagementFactory;
+import java.nio.ByteBuffer;
+
+import org.apache.directory.api.asn1.ber.Asn1Decoder;
+import org.apache.directory.api.asn1.util.Asn1Buffer;
+import org.apache.directory.api.ldap.codec.api.LdapEncoder;
+import org.apache.directory.api.ldap.codec.api.LdapMessageContainer;
+import org.apache.directory.api.ldap.codec.osgi.AbstractCodecServiceTest;
+import org.apache.directory.api.ldap.model.entry.DefaultEntry;
+import org.apache.directory.api.ldap.model.entry.Entry;
+import org.apache.directory.api.ldap.model.message.SearchResultEntry;
+import org.apache.directory.api.ldap.model.message.SearchResultEntryImpl;
+import org.apache.directory.api.ldap.model.name.Dn;
+import org.junit.jupiter.api.Disabled;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.parallel.Execution;
+import org.junit.jupiter.api.parallel.ExecutionMode;
+
+/**
+ * Measure the number of bytes allocated when decoding a SearchResultEntry, with
+ * and without TLV recycling and value slices. It relies on the HotSpot
+ * com.sun.management.ThreadMXBean extension.
+ *
+ * @author <a href="mailto:dev@directory.apache.org">Apache Directory Project</a>
+ */
+@Execution( ExecutionMode.CONCURRENT)
+public class SearchResultEntryPerfTest extends AbstractCodecServiceTest
+{
+    /**
+     * Decode the same SearchResultEntry many times, and print the number of bytes
+     * allocated per decoded PDU.
+     *
+     * @throws Exception If the decoding failed
+     */
+    @Test
+    @Disabled
+    public void testDecodeSearchResultEntryAllocation() throws Exception
+    {
+        int nbLoops = 1_000_000;
+
+        SearchResultEntry searchResultEntry = new SearchResultEntryImpl();
+        searchResultEntry.setMessageId( 3 );
+        Dn dn = new Dn( "cn=test,ou=users,ou=system" );
+        searchResultEntry.setObjectName( dn );
+        Entry entry = new DefaultEntry( dn );
+        entry.add( "objectClass", "top", "person", "organizationalPerson", "inetOrgPerson" );
+        entry.add( "cn", "test" );
+        entry.add( "sn", "test" );
+        entry.add( "mail", "test@example.com", "test@example.org" );
+        entry.add( "description", "A test entry, used to measure the decoder allocations" );
+        searchResultEntry.setEntry( entry );
+
+        ByteBuffer pdu = LdapEncoder.encodeMessage( new Asn1Buffer(), codec, searchResultEntry );
+
+        com.sun.management.ThreadMXBean threadMXBean =
+            ( com.sun.management.ThreadMXBean ) ManagementFactory.getThreadMXBean();
+        long threadId = Thread.currentThread().getId();
+
+        for ( boolean recycling : new boolean[] { false, true } )
+        {
+            LdapMessageContainer<SearchResultEntry> container = new LdapMessageContainer<>( codec );
+            container.setTlvRecycling( recycling );
+            container.setValueSliceAllowed( recycling );
+
+            for ( int j = 0; j < 3; j++ )
+            {
+                long a0 = threadMXBean.getThreadAllocatedBytes( threadId );
+                long t0 = System.currentTimeMillis();
+
+                for ( int i = 0; i < nbLoops; i++ )
+                {
+                    Asn1Decoder.decode( pdu.duplicate(), container );
+                    container.clean();
+                }
+
+                long delta = System.currentTimeMillis() - t0;
+                long allocated = threadMXBean.getThreadAllocatedBytes( threadId ) - a0;
+
+                System.out.println( "SearchResultEntry decoding, recycling = " + recycling + ", " + nbLoops
+                    + " loops, Delta = " + delta + ", bytes/PDU = " + ( allocated / nbLoops ) );
+            }
+        }
+    }
+}
@@ -22,9 +22,18 @@ package org.apache.directory.api.ldap.codec.search;
 
 import static org.junit.jupiter.api.Assertions.assertArrayEquals;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
 import java.nio.ByteBuffer;
 import java.util.Arrays;
 import java.util.Map;
@@ -33,7 +42,11 @@ import java.util.stream.IntStream;
 import org.apache.directory.api.asn1.DecoderException;
 import org.apache.directory.api.asn1.EncoderException;
 import org.apache.directory.api.asn1.ber.Asn1Decoder;
+import org.apache.directory.api.asn1.ber.tlv.TLV;
 import org.apache.directory.api.asn1.util.Asn1Buffer;
+import org.apache.directory.api.ldap.codec.api.AttributeFilter;
+import org.apache.directory.api.ldap.codec.api.DefaultAttributeFilter;
+import org.apache.directory.api.ldap.codec.api.LazyEntry;
 import org.apache.directory.api.ldap.codec.api.LdapEncoder;
 import org.apache.directory.api.ldap.codec.api.LdapMessageContainer;
 import org.apache.directory.api.ldap.codec.osgi.AbstractCodecServiceTest;
@@ -1046,4 +1059,549 @@ public class SearchResultEntryTest extends AbstractCodecServiceTest
         assertEquals( originalSearchResultEntry, decodedSearchResultEntry );
     }
 
+
+    /**
+     * Test the decoding of a SearchResultEntry when the decoder is allowed to
+     * store the values as slices of the decoded buffer, whether the values are
+     * fully present in the buffer or not.
+     *
+     * @throws DecoderException If the ASN1 decoding failed
+     * @throws EncoderException If the ASN1 encoding failed
+     * @throws LdapException If the test failed
+     */
+    @Test
+    public void testDecodeSearchResultEntryValueSlices() throws DecoderException, EncoderException, LdapException
+    {
+        Asn1Buffer buffer = new Asn1Buffer();
+        byte[] photo = new byte[300];
+
+        for ( int i = 0; i < photo.length; i++ )
+        {
+            photo[i] = ( byte ) i;
+        }
+
+        SearchResultEntry originalSearchResultEntry = new SearchResultEntryImpl();
+        originalSearchResultEntry.setMessageId( 3 );
+        Dn dn = new Dn( "cn=test,ou=users,ou=system" );
+        originalSearchResultEntry.setObjectName( dn );
+        Entry entry = new DefaultEntry( dn );
+        entry.add( "objectClass", "top", "person" );
+        entry.add( "cn", "test", "t\u00e9st" );
+        entry.add( "jpegPhoto", photo );
+        originalSearchResultEntry.setEntry( entry );
+
+        byte[] pdu = LdapEncoder.encodeMessage( buffer, codec, originalSearchResultEntry ).array();
+
+        // The whole PDU in one single heap buffer
+        ByteBuffer stream = ByteBuffer.wrap( pdu );
+        LdapMessageContainer<SearchResultEntry> ldapMessageContainer = new LdapMessageContainer<>( codec );
+        ldapMessageContainer.setValueSliceAllowed( true );
+
+        Asn1Decoder.decode( stream, ldapMessageContainer );
+
+        SearchResultEntry decodedSearchResultEntry = ldapMessageContainer.getMessage();
+
+        assertEquals( originalSearchResultEntry, decodedSearchResultEntry );
+        assertArrayEquals( photo, decodedSearchResultEntry.getEntry().get( "jpegPhoto" ).getBytes() );
+
+        // The PDU cut in small chunks, in a reused direct buffer
+        ldapMessageContainer = new LdapMessageContainer<>( codec );
+        ldapMessageContainer.setValueSliceAllowed( true );
+        ByteBuffer chunk = ByteBuffer.allocateDirect( 7 );
+
+        for ( int pos = 0; pos < pdu.length; pos += chunk.capacity() )
+        {
+            chunk.clear();
+            chunk.put( pdu, pos, Math.min( chunk.capacity(), pdu.length - pos ) );
+            chunk.flip();
+
+            Asn1Decoder.decode( chunk, ldapMessageContainer );
+        }
+
+        decodedSearchResultEntry = ldapMessageContainer.getMessage();
+
+        assertEquals( originalSearchResultEntry, decodedSearchResultEntry );
+        assertArrayEquals( photo, decodedSearchResultEntry.getEntry().get( "jpegPhoto" ).getBytes() );
+    }
+
+
+    /**
+     * Test the decoding of many SearchResultEntry with the same container, recycling
+     * the TLVs.
+     *
+     * @throws DecoderException If the ASN1 decoding failed
+     * @throws EncoderException If the ASN1 encoding failed
+     * @throws LdapException If the test failed
+     */
+    @Test
+    public void testDecodeSearchResultEntriesRecycledTlvs() throws DecoderException, EncoderException, LdapException
+    {
+        LdapMessageContainer<SearchResultEntry> ldapMessageContainer = new LdapMessageContainer<>( codec );
+        ldapMessageContainer.setTlvRecycling( true );
+        TLV lastTlv = null;
+
+        for ( int i = 0; i < 10; i++ )
+        {
+            SearchResultEntry originalSearchResultEntry = new SearchResultEntryImpl();
+            originalSearchResultEntry.setMessageId( i + 1 );
+            Dn dn = new Dn( "cn=test" + i + ",ou=users,ou=system" );
+            originalSearchResultEntry.setObjectName( dn );
+            Entry entry = new DefaultEntry( dn );
+            entry.add( "objectClass", "top", "person" );
+            entry.add( "cn", "test" + i );
+            originalSearchResultEntry.setEntry( entry );
+
+            ByteBuffer stream = LdapEncoder.encodeMessage( new Asn1Buffer(), codec, originalSearchResultEntry );
+
+            Asn1Decoder.decode( stream, ldapMessageContainer );
+
+            assertEquals( originalSearchResultEntry, ldapMessageContainer.getMessage() );
+
+            // The last decoded TLV is always at the same depth, it must be recycled
+            if ( lastTlv != null )
+            {
+                assertSame( lastTlv, ldapMessageContainer.getCurrentTLV() );
+            }
+
+            lastTlv = ldapMessageContainer.getCurrentTLV();
+            ldapMessageContainer.clean();
+        }
+    }
+
+
+    /**
+     * Test the lazy decoding of a SearchResultEntry : the attributes are decoded when
+     * they are accessed.
+     *
+     * @throws DecoderException If the ASN1 decoding failed
+     * @throws EncoderException If the ASN1 encoding failed
+     * @throws LdapException If the test failed
+     */
+    @Test
+    public void testDecodeSearchResultEntryLazy() throws DecoderException, EncoderException, LdapException
+    {
+        byte[] photo = new byte[200];
+
+        for ( int i = 0; i < photo.length; i++ )
+        {
+            photo[i] = ( byte ) i;
+        }
+
+        SearchResultEntry originalSearchResultEntry = new SearchResultEntryImpl();
+        originalSearchResultEntry.setMessageId( 2 );
+        Dn dn = new Dn( "cn=test,ou=users,ou=system" );
+        originalSearchResultEntry.setObjectName( dn );
+        Entry entry = new DefaultEntry( dn );
+        entry.add( "objectClass", "top", "person" );
+        entry.add( "cn", "test", "t\u00e9st" );
+        entry.add( "description", "" );
+        entry.add( "memberOf", "cn=group1,ou=groups,ou=system", "cn=group2,ou=groups,ou=system" );
+        entry.add( "jpegPhoto", photo );
+        originalSearchResultEntry.setEntry( entry );
+
+        byte[] pdu = LdapEncoder.encodeMessage( new Asn1Buffer(), codec, originalSearchResultEntry ).array();
+
+        LdapMessageContainer<SearchResultEntry> ldapMessageContainer = new LdapMessageContainer<>( codec );
+        ldapMessageContainer.setLazyEntries( true );
+        ldapMessageContainer.setValueSliceAllowed( true );
+
+        Asn1Decoder.decode( ByteBuffer.wrap( pdu ), ldapMessageContainer );
+
+        SearchResultEntry decodedSearchResultEntry = ldapMessageContainer.getMessage();
+
+        assertEquals( 2, decodedSearchResultEntry.getMessageId() );
+        assertEquals( dn, decodedSearchResultEntry.getObjectName() );
+        assertTrue( decodedSearchResultEntry.getEntry() instanceof LazyEntry );
+
+        LazyEntry lazyEntry = ( LazyEntry ) decodedSearchResultEntry.getEntry();
+
+        // Nothing has been decoded yet
+        assertEquals( 5, lazyEntry.size() );
+        assertFalse( lazyEntry.isDecoded( "memberOf" ) );
+        assertTrue( lazyEntry.containsAttribute( "MemberOf", "cn" ) );
+        assertFalse( lazyEntry.containsAttribute( "sn" ) );
+        assertFalse( lazyEntry.isDecoded( "memberOf" ) );
+
+        // Only the read attribute is decoded
+        Attribute memberOf = lazyEntry.get( "memberof" );
+
+        assertEquals( "memberOf", memberOf.getUpId() );
+        assertEquals( 2, memberOf.size() );
+        assertTrue( memberOf.contains( "cn=group1,ou=groups,ou=system", "cn=group2,ou=groups,ou=system" ) );
+        assertTrue( lazyEntry.isDecoded( "memberOf" ) );
+        assertFalse( lazyEntry.isDecoded( "cn" ) );
+        assertFalse( lazyEntry.isDecoded( "jpegPhoto" ) );
+        assertEquals( 5, lazyEntry.size() );
+
+        // The binary attributes are detected
+        Attribute jpegPhoto = lazyEntry.get( "jpegPhoto" );
+
+        assertFalse( jpegPhoto.isHumanReadable() );
+        assertArrayEquals( photo, jpegPhoto.getBytes() );
+        assertTrue( lazyEntry.contains( "description", "" ) );
+
+        // The raw attributes are the end of the PDU
+        byte[] rawAttributes = lazyEntry.getRawAttributes();
+
+        assertArrayEquals( Arrays.copyOfRange( pdu, pdu.length - rawAttributes.length, pdu.length ), rawAttributes );
+
+        // Replacing an attribute does not need to decode it
+        lazyEntry.put( "cn", "other" );
+
+        assertEquals( 1, lazyEntry.get( "cn" ).size() );
+        assertEquals( 5, lazyEntry.size() );
+        lazyEntry.put( "cn", "test", "t\u00e9st" );
+
+        // The decoded entry is equal to the original one
+        assertEquals( originalSearchResultEntry, decodedSearchResultEntry );
+        assertEquals( pdu.length, LdapEncoder.encodeMessage( new Asn1Buffer(), codec, decodedSearchResultEntry )
+            .remaining() );
+
+        // The PDU cut in small chunks, with a recycling container
+        ldapMessageContainer = new LdapMessageContainer<>( codec );
+        ldapMessageContainer.setLazyEntries( true );
+        ldapMessageContainer.setValueSliceAllowed( true );
+        ldapMessageContainer.setTlvRecycling( true );
+        ByteBuffer chunk = ByteBuffer.allocateDirect( 7 );
+
+        for ( int i = 0; i < 2; i++ )
+        {
+            for ( int pos = 0; pos < pdu.length; pos += chunk.capacity() )
+            {
+                chunk.clear();
+                chunk.put( pdu, pos, Math.min( chunk.capacity(), pdu.length - pos ) );
+                chunk.flip();
+
+                Asn1Decoder.decode( chunk, ldapMessageContainer );
+            }
+
+            assertEquals( originalSearchResultEntry, ldapMessageContainer.getMessage() );
+            ldapMessageContainer.clean();
+        }
+    }
+
+
+    /**
+     * Test that a LazyEntry behaves like a DefaultEntry : equality in both directions,
+     * serialization, and attribute names lookup
+     *
+     * @throws Exception If the test failed
+     */
+    @Test
+    public void testLazyEntryContract() throws Exception
+    {
+        Dn dn = new Dn( "cn=test,ou=users,ou=system" );
+        Entry entry = new DefaultEntry( dn );
+        entry.add( "objectClass", "top", "person" );
+        entry.add( "cn", "test" );
+        entry.add( "memberOf", "cn=group1,ou=groups,ou=system" );
+
+        SearchResultEntry originalSearchResultEntry = new SearchResultEntryImpl();
+        originalSearchResultEntry.setMessageId( 2 );
+        originalSearchResultEntry.setObjectName( dn );
+        originalSearchResultEntry.setEntry( entry );
+
+        byte[] pdu = LdapEncoder.encodeMessage( new Asn1Buffer(), codec, originalSearchResultEntry ).array();
+
+        LdapMessageContainer<SearchResultEntry> ldapMessageContainer = new LdapMessageContainer<>( codec );
+        ldapMessageContainer.setLazyEntries( true );
+        Asn1Decoder.decode( ByteBuffer.wrap( pdu ), ldapMessageContainer );
+
+        LazyEntry lazyEntry = ( LazyEntry ) ldapMessageContainer.getMessage().getEntry();
+
+        // The names are normalized as a DefaultEntry does
+        assertEquals( "memberOf", lazyEntry.get( " MEMBEROF " ).getUpId() );
+
+        // The equality is symmetric
+        assertEquals( entry, lazyEntry );
+        assertEquals( lazyEntry, entry );
+        assertEquals( entry.hashCode(), lazyEntry.hashCode() );
+
+        Entry other = entry.clone();
+        other.add( "sn", "test" );
+
+        assertNotEquals( other, lazyEntry );
+        assertNotEquals( lazyEntry, other );
+
+        // The entry can be serialized and deserialized
+        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+
+        try ( ObjectOutputStream out = new ObjectOutputStream( baos ) )
+        {
+            out.writeObject( lazyEntry );
+        }
+
+        try ( ObjectInputStream in = new ObjectInputStream( new ByteArrayInputStream( baos.toByteArray() ) ) )
+        {
+            Entry deserialized = ( Entry ) in.readObject();
+
+            assertEquals( entry, deserialized );
+            assertEquals( deserialized, entry );
+        }
+    }
+
+
+    /**
+     * Test that an attribute rejected by the wrapped entry is reported, and not dropped
+     *
+     * @throws Exception If the test failed
+     */
+    @Test
+    public void testLazyEntryRejectedAttribute() throws Exception
+    {
+        Entry entry = new DefaultEntry( "cn=test,ou=system", "cn", "test" );
+        Asn1Buffer buffer = new Asn1Buffer();
+        SearchResultEntry searchResultEntry = new SearchResultEntryImpl();
+        searchResultEntry.setMessageId( 2 );
+        searchResultEntry.setObjectName( entry.getDn() );
+        searchResultEntry.setEntry( entry );
+        byte[] pdu = LdapEncoder.encodeMessage( buffer, codec, searchResultEntry ).array();
+
+        LdapMessageContainer<SearchResultEntry> ldapMessageContainer = new LdapMessageContainer<>( codec );
+        ldapMessageContainer.setLazyEntries( true );
+        Asn1Decoder.decode( ByteBuffer.wrap( pdu ), ldapMessageContainer );
+        byte[] rawAttributes = ( ( LazyEntry ) ldapMessageContainer.getMessage().getEntry() ).getRawAttributes();
+
+        // An entry rejecting all the attributes
+        Entry delegate = new DefaultEntry( entry.getDn() );
+        Entry rejecting = ( Entry ) Proxy.newProxyInstance( Entry.class.getClassLoader(), new Class<?>[]
+            { Entry.class }, ( proxy, method, args ) ->
+            {
+                if ( "put".equals( method.getName() ) )
+                {
+                    throw new LdapException( "rejected" );
+                }
+
+                try
+                {
+                    return method.invoke( delegate, args );
+                }
+                catch ( InvocationTargetException ite )
+                {
+                    throw ite.getCause();
+                }
+            } );
+
+        LazyEntry lazyEntry = new LazyEntry( rejecting, rawAttributes, id -> false );
+
+        assertThrows( IllegalStateException.class, () -> lazyEntry.get( "cn" ) );
+    }
+
+
+    /**
+     * Test the decoding of a SearchResultEntry with an empty attributes list and
+     * controls, with and without the lazy decoding
+     *
+     * @throws DecoderException If the ASN1 decoding failed
+     * @throws EncoderException If the ASN1 encoding failed
+     */
+    @Test
+    public void testDecodeSearchResultEntryNoAttributeWithControls() throws DecoderException, EncoderException
+    {
+        byte[] pdu = new byte[]
+            {
+                0x30, 0x48,                     // LDAPMessage ::=SEQUENCE {
+                  0x02, 0x01, 0x01,             // messageID MessageID
+                  0x64, 0x1F,                   // CHOICE { ..., searchResEntry SearchResultEntry,
+                                                // ...
+                                                // SearchResultEntry ::= [APPLICATION 4] SEQUENCE {
+                                                // objectName LDAPDN,
+                    0x04, 0x1b,
+                      'o', 'u', '=', 'c', 'o', 'n', 't', 'a', 'c', 't', 's', ',',
+                      'd', 'c', '=', 'i', 'k', 't', 'e', 'k', ',', 'd', 'c', '=', 'c', 'o', 'm',
+                                                // attributes PartialAttributeList }
+                    0x30, 0x00,
+                  ( byte ) 0xA0, 0x22,          // A control
+                    0x30, 0x20,
+                      0x04, 0x17,               // EntryChange response control
+                        '2', '.', '1', '6', '.', '8', '4', '0', '.', '1', '.',
+                        '1', '1', '3', '7', '3', '0', '.', '3', '.', '4', '.', '7',
+                      0x04, 0x05,               // Control value
+                        0x30, 0x03,             // EntryChangeNotification ::= SEQUENCE {
+                          0x0A, 0x01, 0x01      //     changeType ENUMERATED {
+                                                //         add             (1),
+            };
+
+        for ( boolean lazyEntries : new boolean[] { false, true } )
+        {
+            LdapMessageContainer<SearchResultEntry> ldapMessageContainer = new LdapMessageContainer<>( codec );
+            ldapMessageContainer.setLazyEntries( lazyEntries );
+
+            Asn1Decoder.decode( ByteBuffer.wrap( pdu ), ldapMessageContainer );
+
+            SearchResultEntry searchResultEntry = ldapMessageContainer.getMessage();
+
+            assertEquals( "ou=contacts,dc=iktek,dc=com", searchResultEntry.getObjectName().toString() );
+            assertEquals( 0, searchResultEntry.getEntry().size() );
+            assertEquals( lazyEntries, searchResultEntry.getEntry() instanceof LazyEntry );
+
+            Control control = searchResultEntry.getControls().get( "2.16.840.1.113730.3.4.7" );
+            assertTrue( control instanceof EntryChange );
+
+            // Check encode reverse
+            ByteBuffer result = LdapEncoder.encodeMessage( new Asn1Buffer(), codec, searchResultEntry );
+
+            assertArrayEquals( pdu, result.array() );
+        }
+    }
+
+
+    /**
+     * Test the lazy decoding of a SearchResultEntry with an invalid attribute value :
+     * the error must be detected by the decoder.
+     */
+    @Test
+    public void testDecodeSearchResultEntryLazyBadValue()
+    {
+        byte[] pdu = new byte[]
+            {
+                0x30, 0x4e,                     // LDAPMessage ::=SEQUENCE {
+                  0x02, 0x01, 0x01,             // messageID MessageID
+                  0x64, 0x49,                   // CHOICE { ..., searchResEntry SearchResultEntry,
+                    0x04, 0x1b,
+                      'o', 'u', '=', 'c', 'o', 'n', 't', 'a', 'c', 't', 's', ',',
+                      'd', 'c', '=', 'i', 'k', 't', 'e', 'k', ',', 'd', 'c', '=', 'c', 'o', 'm',
+                    0x30, 0x2a,
+                      0x30, 0x28,
+                        0x04, 0x0b,             // type AttributeDescription,
+                          'o', 'b', 'j', 'e', 'c', 't', 'c', 'l', 'a', 's', 's',
+                        0x31, 0x19,             // vals SET OF AttributeValue }
+                          0x04, 0x03,           // AttributeValue ::= OCTET STRING
+                            't', 'o', 'p',
+                          0x02, 0x12,           // Not an OCTET STRING
+                            'o', 'r', 'g', 'a', 'n', 'i', 'z', 'a', 't', 'i', 'o', 'n', 'a', 'l', 'U', 'n', 'i', 't',
+            };
+
+        for ( boolean lazyEntries : new boolean[] { false, true } )
+        {
+            LdapMessageContainer<SearchResultEntry> ldapMessageContainer = new LdapMessageContainer<>( codec );
+            ldapMessageContainer.setLazyEntries( lazyEntries );
+
+            assertThrows( DecoderException.class, ( ) ->
+            {
+                Asn1Decoder.decode( ByteBuffer.wrap( pdu ), ldapMessageContainer );
+            } );
+        }
+    }
+
+
+    /**
+     * Test the decoding of a SearchResultEntry with an attribute filter : the values of
+     * the attributes which are filtered out are skipped.
+     *
+     * @throws DecoderException If the ASN1 decoding failed
+     * @throws EncoderException If the ASN1 encoding failed
+     * @throws LdapException If the test failed
+     */
+    @Test
+    public void testDecodeSearchResultEntryAttributeFilter() throws DecoderException, EncoderException, LdapException
+    {
+        SearchResultEntry originalSearchResultEntry = new SearchResultEntryImpl();
+        originalSearchResultEntry.setMessageId( 2 );
+        Dn dn = new Dn( "cn=group,ou=groups,ou=system" );
+        originalSearchResultEntry.setObjectName( dn );
+        Entry entry = new DefaultEntry( dn );
+        entry.add( "objectClass", "top", "groupOfNames" );
+        entry.add( "member", IntStream.range( 0, 200 ).mapToObj( i -> "uid=user" + i + ",ou=users,ou=system" )
+            .toArray( String[]::new ) );
+        entry.add( "cn", "group" );
+        entry.add( "cn;lang-fr", "groupe" );
+        entry.add( "jpegPhoto", new byte[1000] );
+        originalSearchResultEntry.setEntry( entry );
+
+        byte[] pdu = LdapEncoder.encodeMessage( new Asn1Buffer(), codec, originalSearchResultEntry ).array();
+
+        Entry expected = new DefaultEntry( dn );
+        expected.add( "objectClass", "top", "groupOfNames" );
+        expected.add( "cn", "group" );
+        expected.add( "cn;lang-fr", "groupe" );
+
+        AttributeFilter attributeFilter = new DefaultAttributeFilter( "CN", " objectclass" );
+
+        assertTrue( attributeFilter.accept( "cn;lang-fr" ) );
+        assertFalse( attributeFilter.accept( "member" ) );
+        assertFalse( attributeFilter.accept( "2.5.4.3" ) );
+
+        for ( boolean lazyEntries : new boolean[] { false, true } )
+        {
+            // The whole PDU
+            LdapMessageContainer<SearchResultEntry> ldapMessageContainer = new LdapMessageContainer<>( codec );
+            ldapMessageContainer.setAttributeFilter( attributeFilter );
+            ldapMessageContainer.setLazyEntries( lazyEntries );
+            ldapMessageContainer.setValueSliceAllowed( true );
+
+            Asn1Decoder.decode( ByteBuffer.wrap( pdu ), ldapMessageContainer );
+
+            assertEquals( expected, ldapMessageContainer.getMessage().getEntry() );
+            assertFalse( ldapMessageContainer.isSkipping() );
+
+            // The PDU cut in small chunks, so that the skipped values are split
+            ldapMessageContainer = new LdapMessageContainer<>( codec );
+            ldapMessageContainer.setAttributeFilter( attributeFilter );
+            ldapMessageContainer.setLazyEntries( lazyEntries );
+            ByteBuffer chunk = ByteBuffer.allocate( 13 );
+
+            for ( int pos = 0; pos < pdu.length; pos += chunk.capacity() )
+            {
+                chunk.clear();
+                chunk.put( pdu, pos, Math.min( chunk.capacity(), pdu.length - pos ) );
+                chunk.flip();
+
+                Asn1Decoder.decode( chunk, ldapMessageContainer );
+            }
+
+            assertEquals( expected, ldapMessageContainer.getMessage().getEntry() );
+        }
+    }
+
+
+    /**
+     * Test the decoding of a SearchResultEntry with an attribute filter, when the
+     * skipped attribute is followed by some controls
+     *
+     * @throws DecoderException If the ASN1 decoding failed
+     */
+    @Test
+    public void testDecodeSearchResultEntryAttributeFilterWithControls() throws DecoderException
+    {
+        byte[] pdu = new byte[]
+            {
+                0x30, 0x5D,                     // LDAPMessage ::=SEQUENCE {
+                  0x02, 0x01, 0x01,             // messageID MessageID
+                  0x64, 0x34,                   // CHOICE { ..., searchResEntry SearchResultEntry,
+                    0x04, 0x1b,
+                      'o', 'u', '=', 'c', 'o', 'n', 't', 'a', 'c', 't', 's', ',',
+                      'd', 'c', '=', 'i', 'k', 't', 'e', 'k', ',', 'd', 'c', '=', 'c', 'o', 'm',
+                    0x30, 0x15,
+                      0x30, 0x13,
+                        0x04, 0x0b,             // type AttributeDescription,
+                          'o', 'b', 'j', 'e', 'c', 't', 'c', 'l', 'a', 's', 's',
+                        0x31, 0x04,             // vals SET OF AttributeValue }
+                          0x04, 0x02,
+                            'o', 'u',
+                  ( byte ) 0xA0, 0x22,          // A control
+                    0x30, 0x20,
+                      0x04, 0x17,               // EntryChange response control
+                        '2', '.', '1', '6', '.', '8', '4', '0', '.', '1', '.',
+                        '1', '1', '3', '7', '3', '0', '.', '3', '.', '4', '.', '7',
+                      0x04, 0x05,               // Control value
+                        0x30, 0x03,             // EntryChangeNotification ::= SEQUENCE {
+                          0x0A, 0x01, 0x01      //     changeType ENUMERATED {
+                                                //         add             (1),
+            };
+
+        for ( boolean lazyEntries : new boolean[] { false, true } )
+        {
+            LdapMessageContainer<SearchResultEntry> ldapMessageContainer = new LdapMessageContainer<>( codec );
+            ldapMessageContainer.setAttributeFilter( new DefaultAttributeFilter( "cn" ) );
+            ldapMessageContainer.setLazyEntries( lazyEntries );
+
+            Asn1Decoder.decode( ByteBuffer.wrap( pdu ), ldapMessageContainer );
+
+            SearchResultEntry searchResultEntry = ldapMessageContainer.getMessage();
+
+            assertEquals( 0, searchResultEntry.getEntry().size() );
+            assertTrue( searchResultEntry.getControls().get( "2.16.840.1.113730.3.4.7" ) instanceof EntryChange );
+        }
+    }
 }
@@ -24,6 +24,7 @@ import java.io.Externalizable;
 import java.io.IOException;
 import java.io.ObjectInput;
 import java.io.ObjectOutput;
+import java.nio.ByteBuffer;
 import java.util.Arrays;
 
 import org.apache.directory.api.i18n.I18n;
@@ -146,6 +147,30 @@ public class Value implements Cloneable, Externalizable, Comparable<Value>
     }
 
 
+    /**
+     * Creates a Value with an initial user provided binary value, read from the
+     * remaining bytes of a ByteBuffer. The buffer position is not modified.
+     *
+     * @param value the ByteBuffer containing the binary value, which may be null
+     */
+    public Value( ByteBuffer value )
+    {
+        if ( value != null )
+        {
+            bytes = new byte[value.remaining()];
+            value.duplicate().get( bytes );
+        }
+        else
+        {
+            bytes = null;
+        }
+
+        isHR = false;
+
+        hashCode();
+    }
+
+
     /**
      * Creates a schema aware binary Value with an initial value.
      *
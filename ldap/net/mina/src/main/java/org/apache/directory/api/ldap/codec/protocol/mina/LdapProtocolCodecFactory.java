@@ -58,8 +58,22 @@ public class LdapProtocolCodecFactory implements ProtocolCodecFactory
      * @param ldapApiService The associated LdapApiService instance
      */
     public LdapProtocolCodecFactory( LdapApiService ldapApiService ) 
+    {
+        this( ldapApiService, 0 );
+    }
+
+
+    /**
+     * Creates a new instance of LdapProtocolCodecFactory.
+     *
+     * @param ldapApiService The associated LdapApiService instance
+     * @param maxMessagesPerDecode The maximum number of messages decoded for each received
+     * buffer before they are flushed, 0 or below for no limit
+     */
+    public LdapProtocolCodecFactory( LdapApiService ldapApiService, int maxMessagesPerDecode ) 
     {
         ldapDecoder = new LdapProtocolDecoder( ldapApiService );
+        ldapDecoder.setMaxMessagesPerDecode( maxMessagesPerDecode );
         ldapEncoder = new LdapProtocolEncoder( ldapApiService );
     }
     
@@ -88,4 +102,27 @@ public class LdapProtocolCodecFactory implements ProtocolCodecFactory
     {
         return ldapEncoder;
     }
+
+
+    /**
+     * @return The maximum number of messages decoded for each received buffer before
+     * they are flushed, 0 if there is no limit
+     */
+    public int getMaxMessagesPerDecode()
+    {
+        return ldapDecoder.getMaxMessagesPerDecode();
+    }
+
+
+    /**
+     * Set the maximum number of messages decoded for each received buffer before they are
+     * flushed. It applies to all the sessions using this factory which don't have their own
+     * limit.
+     *
+     * @param maxMessagesPerDecode The maximum number of messages, 0 or below for no limit
+     */
+    public void setMaxMessagesPerDecode( int maxMessagesPerDecode )
+    {
+        ldapDecoder.setMaxMessagesPerDecode( maxMessagesPerDecode );
+    }
 }
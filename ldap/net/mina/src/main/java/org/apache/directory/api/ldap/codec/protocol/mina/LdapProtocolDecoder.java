@@ -21,12 +21,8 @@ package org.apache.directory.api.ldap.codec.protocol.mina;
 
 
 import java.nio.ByteBuffer;
-import java.util.ArrayList;
-import java.util.List;
 
 import org.apache.directory.api.asn1.DecoderException;
-import org.apache.directory.api.asn1.ber.Asn1Decoder;
-import org.apache.directory.api.asn1.ber.tlv.TLVStateEnum;
 import org.apache.directory.api.i18n.I18n;
 import org.apache.directory.api.ldap.codec.api.LdapApiService;
 import org.apache.directory.api.ldap.codec.api.LdapDecoder;
@@ -35,7 +31,6 @@ import org.apache.directory.api.ldap.codec.api.ResponseCarryingException;
 import org.apache.directory.api.ldap.model.constants.Loggers;
 import org.apache.directory.api.ldap.model.exception.ResponseCarryingMessageException;
 import org.apache.directory.api.ldap.model.message.AbstractMessage;
-import org.apache.directory.api.ldap.model.message.Message;
 import org.apache.directory.api.util.Strings;
 import org.apache.mina.core.buffer.IoBuffer;
 import org.apache.mina.core.session.IoSession;
@@ -58,6 +53,9 @@ public class LdapProtocolDecoder implements ProtocolDecoder
     /** The LDAP API Service instance */
     private LdapApiService ldapApiService;
 
+    /** The maximum number of messages decoded in one call, 0 if there is no limit */
+    private int maxMessagesPerDecode;
+
     /**
      * Creates a new instance of LdapProtocolEncoder.
      * 
@@ -89,96 +87,108 @@ public class LdapProtocolDecoder implements ProtocolDecoder
         
         messageContainer.setDnFactory( ldapApiService.getDnFactory() );
 
-        List<Message> decodedMessages = new ArrayList<>();
-        ByteBuffer buf = in.buf();
+        // The decoded values are consumed before the buffer is released : no need to copy them
+        messageContainer.setValueSliceAllowed( true );
+
+        // The container is used for all the PDUs received on this session : recycle its TLVs
+        if ( !messageContainer.isTlvRecycling() )
+        {
+            messageContainer.setTlvRecycling( true );
+        }
 
-        decode( buf, messageContainer, decodedMessages );
+        // The session may have its own limit on the number of messages decoded in one call
+        int maxMessages = maxMessagesPerDecode;
 
-        for ( Message message : decodedMessages )
+        if ( session.containsAttribute( LdapDecoder.MAX_MESSAGES_PER_DECODE_ATTR ) )
         {
-            out.write( message );
+            maxMessages = ( Integer ) session.getAttribute( LdapDecoder.MAX_MESSAGES_PER_DECODE_ATTR );
         }
+
+        ByteBuffer buf = in.buf();
+
+        decode( buf, messageContainer, out, maxMessages );
     }
 
 
     /**
      * Decode an incoming buffer into LDAP messages. The result can be 0, 1 or many
-     * LDAP messages, which will be stored into the array the caller has created.
+     * LDAP messages, which are directly written into the decoder output. If a maximum
+     * number of messages per call has been set, the decoding stops when it's reached : MINA
+     * will flush the decoded messages and call the decoder again with the remaining bytes.
      * 
      * @param buffer The incoming byte buffer
      * @param messageContainer The LdapMessageContainer which will be used to store the
      * message being decoded. If the message is not fully decoded, the ucrrent state
      * is stored into this container
-     * @param decodedMessages The list of decoded messages
+     * @param out The decoder output the decoded messages are written into
+     * @param maxMessages The maximum number of messages to decode, 0 or below for no limit
      * @throws DecoderException If the decoding failed
      */
     private void decode( ByteBuffer buffer, LdapMessageContainer<AbstractMessage> messageContainer,
-        List<Message> decodedMessages ) throws DecoderException
+        ProtocolDecoderOutput out, int maxMessages ) throws DecoderException
     {
-        buffer.mark();
-
-        while ( buffer.hasRemaining() )
+        if ( CODEC_LOG.isDebugEnabled() )
         {
-            try
-            {
-                if ( CODEC_LOG.isDebugEnabled() )
-                {
-                    CODEC_LOG.debug( I18n.msg( I18n.MSG_14000_DECODING_PDU ) );
-
-                    int size = buffer.limit();
-                    int position = buffer.position();
-                    int pduLength = size - position;
+            CODEC_LOG.debug( I18n.msg( I18n.MSG_14000_DECODING_PDU ) );
 
-                    byte[] array = new byte[pduLength];
+            if ( !buffer.hasRemaining() )
+            {
+                CODEC_LOG.debug( I18n.msg( I18n.MSG_14001_NULL_BUFFER ) );
+            }
+            else
+            {
+                byte[] array = new byte[buffer.remaining()];
+                buffer.duplicate().get( array );
 
-                    System.arraycopy( buffer.array(), position, array, 0, pduLength );
+                CODEC_LOG.debug( Strings.dumpBytes( array ) );
+            }
+        }
 
-                    if ( array.length == 0 )
-                    {
-                        CODEC_LOG.debug( I18n.msg( I18n.MSG_14001_NULL_BUFFER ) );
-                    }
-                    else
-                    {
-                        CODEC_LOG.debug( Strings.dumpBytes( array ) );
-                    }
-                }
+        try
+        {
+            LdapDecoder.decode( buffer, messageContainer, out::write, maxMessages );
+        }
+        catch ( ResponseCarryingException rce )
+        {
+            buffer.clear();
+            
+            // Transform the DecoderException message to a MessageException
+            ResponseCarryingMessageException rcme = new ResponseCarryingMessageException( rce.getMessage(), rce );
+            rcme.setResponse( rce.getResponse() );
 
-                Asn1Decoder.decode( buffer, messageContainer );
+            throw rcme;
+        }
+        catch ( DecoderException de )
+        {
+            buffer.clear();
 
-                if ( messageContainer.getState() == TLVStateEnum.PDU_DECODED )
-                {
-                    if ( CODEC_LOG.isDebugEnabled() )
-                    {
-                        CODEC_LOG.debug( I18n.msg( I18n.MSG_14002_DECODED_LDAP_MESSAGE, messageContainer.getMessage() ) );
-                    }
+            // TODO : This is certainly not the way we should handle such an exception !
+            throw new ResponseCarryingException( de.getMessage(), de );
+        }
+    }
 
-                    Message message = messageContainer.getMessage();
 
-                    decodedMessages.add( message );
+    /**
+     * @return The maximum number of messages decoded for each received buffer before
+     * they are flushed, 0 if there is no limit
+     */
+    public int getMaxMessagesPerDecode()
+    {
+        return maxMessagesPerDecode;
+    }
 
-                    messageContainer.clean();
-                }
-            }
-            catch ( ResponseCarryingException rce )
-            {
-                buffer.clear();
-                messageContainer.clean();
-                
-                // Transform the DecoderException message to a MessageException
-                ResponseCarryingMessageException rcme = new ResponseCarryingMessageException( rce.getMessage(), rce );
-                rcme.setResponse( rce.getResponse() );
-
-                throw rcme;
-            }
-            catch ( DecoderException de )
-            {
-                buffer.clear();
-                messageContainer.clean();
 
-                // TODO : This is certainly not the way we should handle such an exception !
-                throw new ResponseCarryingException( de.getMessage(), de );
-            }
-        }
+    /**
+     * Set the maximum number of messages decoded for each received buffer before they are
+     * flushed to the next filter. This avoids delaying the processing of the first messages
+     * when a buffer contains thousands of small PDUs. A session can use its own limit, stored
+     * in its {@link LdapDecoder#MAX_MESSAGES_PER_DECODE_ATTR} attribute.
+     *
+     * @param maxMessagesPerDecode The maximum number of messages, 0 or below for no limit
+     */
+    public void setMaxMessagesPerDecode( int maxMessagesPerDecode )
+    {
+        this.maxMessagesPerDecode = maxMessagesPerDecode;
     }
 
 
@@ -20,10 +20,9 @@
 package org.apache.directory.api.ldap.codec.protocol.mina;
 
 
-import java.nio.ByteBuffer;
-
 import org.apache.directory.api.asn1.EncoderException;
 import org.apache.directory.api.asn1.util.Asn1Buffer;
+import org.apache.directory.api.asn1.util.Asn1BufferPool;
 import org.apache.directory.api.i18n.I18n;
 import org.apache.directory.api.ldap.codec.api.LdapApiService;
 import org.apache.directory.api.ldap.codec.api.LdapApiServiceFactory;
@@ -84,16 +83,20 @@ public class LdapProtocolEncoder implements ProtocolEncoder
         
         if ( asn1Buffer == null )
         {
-            asn1Buffer = new Asn1Buffer();
+            asn1Buffer = new Asn1Buffer( Asn1BufferPool.getDefault() );
             threadLocalStorage.set( asn1Buffer );
         }
 
-        ByteBuffer encoded;
+        IoBuffer ioBuffer;
         
         try
         { 
-            LdapEncoder.encodeMessage( asn1Buffer, codec, ( Message ) message );
-            encoded = asn1Buffer.getBytes();
+            LdapEncoder.encodeMessageReverse( asn1Buffer, codec, ( Message ) message );
+
+            // Copy the PDU once, in a buffer provided by the MINA allocator (which may be direct and/or cached)
+            ioBuffer = IoBuffer.allocate( asn1Buffer.getPos() );
+            asn1Buffer.writeTo( ioBuffer.buf() );
+            ioBuffer.flip();
         }
         catch ( EncoderException e )
         {
@@ -104,14 +107,12 @@ public class LdapProtocolEncoder implements ProtocolEncoder
         {
             asn1Buffer.clear();
         }
-        
-        IoBuffer ioBuffer = IoBuffer.wrap( encoded );
     
         if ( CODEC_LOG.isDebugEnabled() )
         {
-            byte[] dumpBuffer = new byte[encoded.limit()];
-            encoded.get( dumpBuffer );
-            encoded.flip();
+            byte[] dumpBuffer = new byte[ioBuffer.limit()];
+            ioBuffer.get( dumpBuffer );
+            ioBuffer.flip();
             CODEC_LOG.debug( I18n.msg( I18n.MSG_14003_ENCODED_LDAP_MESSAGE, message, Strings.dumpBytes( dumpBuffer ) ) );
         }
 
@@ -0,0 +1,133 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ * 
+ *    https://www.apache.org/licenses/LICENSE-2.0
+ * 
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ * 
+ */
+package org.apache.directory.api.ldap.codec.protocol.netty;
+
+
+import java.nio.ByteBuffer;
+import java.util.List;
+
+import org.apache.directory.api.asn1.DecoderException;
+import org.apache.directory.api.i18n.I18n;
+import org.apache.directory.api.ldap.codec.api.LdapApiService;
+import org.apache.directory.api.ldap.codec.api.LdapDecoder;
+import org.apache.directory.api.ldap.codec.api.LdapMessageContainer;
+import org.apache.directory.api.ldap.codec.api.ResponseCarryingException;
+import org.apache.directory.api.ldap.model.constants.Loggers;
+import org.apache.directory.api.ldap.model.exception.ResponseCarryingMessageException;
+import org.apache.directory.api.ldap.model.message.Message;
+import org.apache.directory.api.util.Strings;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.handler.codec.ByteToMessageDecoder;
+import io.netty.util.AttributeKey;
+
+
+/**
+ * A LDAP message decoder for Netty. The received bytes are decoded directly from the
+ * Netty buffer, without being copied, by the api-ldap decoder. The decoding state is
+ * stored in the {@link LdapMessageContainer} associated with the channel, which must
+ * have been set before the first bytes are received.
+ *
+ * @author <a href="mailto:dev@directory.apache.org">Apache Directory Project</a>
+ */
+public class LdapNettyDecoder extends ByteToMessageDecoder
+{
+    /** The logger */
+    private static final Logger CODEC_LOG = LoggerFactory.getLogger( Loggers.CODEC_LOG.getName() );
+
+    /** The channel attribute containing the LdapMessageContainer */
+    public static final AttributeKey<LdapMessageContainer<Message>> MESSAGE_CONTAINER_KEY =
+        AttributeKey.valueOf( LdapDecoder.MESSAGE_CONTAINER_ATTR );
+
+    /** The LDAP API Service instance */
+    private LdapApiService ldapApiService;
+
+
+    /**
+     * Creates a new instance of LdapNettyDecoder.
+     * 
+     * @param ldapApiService The LDAP API Service instance
+     */
+    public LdapNettyDecoder( LdapApiService ldapApiService )
+    {
+        this.ldapApiService = ldapApiService;
+    }
+
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    protected void decode( ChannelHandlerContext ctx, ByteBuf in, List<Object> out ) throws Exception
+    {
+        LdapMessageContainer<Message> messageContainer = ctx.channel().attr( MESSAGE_CONTAINER_KEY ).get();
+
+        messageContainer.setDnFactory( ldapApiService.getDnFactory() );
+
+        // The decoded values are consumed before the buffer is released : no need to copy them
+        messageContainer.setValueSliceAllowed( true );
+
+        // The container is used for all the PDUs received on this channel : recycle its TLVs
+        if ( !messageContainer.isTlvRecycling() )
+        {
+            messageContainer.setTlvRecycling( true );
+        }
+
+        // A view on the readable bytes, sharing the Netty buffer memory
+        ByteBuffer buffer = in.nioBuffer();
+
+        if ( CODEC_LOG.isDebugEnabled() )
+        {
+            CODEC_LOG.debug( I18n.msg( I18n.MSG_14000_DECODING_PDU ) );
+
+            byte[] array = new byte[buffer.remaining()];
+            buffer.duplicate().get( array );
+
+            CODEC_LOG.debug( Strings.dumpBytes( array ) );
+        }
+
+        try
+        {
+            LdapDecoder.decode( buffer, messageContainer, out::add, 0 );
+        }
+        catch ( ResponseCarryingException rce )
+        {
+            in.skipBytes( in.readableBytes() );
+
+            // Transform the DecoderException message to a MessageException
+            ResponseCarryingMessageException rcme = new ResponseCarryingMessageException( rce.getMessage(), rce );
+            rcme.setResponse( rce.getResponse() );
+
+            throw rcme;
+        }
+        catch ( DecoderException de )
+        {
+            in.skipBytes( in.readableBytes() );
+
+            throw new ResponseCarryingException( de.getMessage(), de );
+        }
+
+        // The bytes of an incomplete PDU are kept in the container
+        in.skipBytes( buffer.position() );
+    }
+}
@@ -0,0 +1,114 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ * 
+ *    https://www.apache.org/licenses/LICENSE-2.0
+ * 
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ * 
+ */
+package org.apache.directory.api.ldap.codec.protocol.netty;
+
+
+import java.util.List;
+
+import org.apache.directory.api.asn1.EncoderException;
+import org.apache.directory.api.asn1.util.Asn1Buffer;
+import org.apache.directory.api.asn1.util.Asn1BufferPool;
+import org.apache.directory.api.i18n.I18n;
+import org.apache.directory.api.ldap.codec.api.LdapApiService;
+import org.apache.directory.api.ldap.codec.api.LdapEncoder;
+import org.apache.directory.api.ldap.model.constants.Loggers;
+import org.apache.directory.api.ldap.model.message.Message;
+import org.apache.directory.api.util.Strings;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufUtil;
+import io.netty.channel.ChannelHandler.Sharable;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.handler.codec.MessageToMessageEncoder;
+
+
+/**
+ * A LDAP message encoder for Netty. The message is encoded in a thread local
+ * {@link Asn1Buffer}, then copied once in a buffer of the exact PDU size, allocated
+ * by the channel allocator (which is pooled and direct by default).
+ * <br>
+ * This encoder is stateless, it can be shared by all the channels.
+ *
+ * @author <a href="mailto:dev@directory.apache.org">Apache Directory Project</a>
+ */
+@Sharable
+public class LdapNettyEncoder extends MessageToMessageEncoder<Message>
+{
+    /** logger for reporting errors that might not be handled properly upstream */
+    private static final Logger CODEC_LOG = LoggerFactory.getLogger( Loggers.CODEC_LOG.getName() );
+
+    /** The LDAP API Service instance */
+    private LdapApiService codec;
+
+    /** A thread local storage used to store the Asn1Buffer instance */
+    private ThreadLocal<Asn1Buffer> threadLocalStorage = ThreadLocal.withInitial(
+        () -> new Asn1Buffer( Asn1BufferPool.getDefault() ) );
+
+
+    /**
+     * Creates a new instance of LdapNettyEncoder.
+     *
+     * @param ldapApiService The Service to use
+     */
+    public LdapNettyEncoder( LdapApiService ldapApiService )
+    {
+        codec = ldapApiService;
+    }
+
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    protected void encode( ChannelHandlerContext ctx, Message message, List<Object> out ) throws Exception
+    {
+        Asn1Buffer asn1Buffer = threadLocalStorage.get();
+        ByteBuf byteBuf;
+
+        try
+        {
+            LdapEncoder.encodeMessageReverse( asn1Buffer, codec, message );
+
+            int length = asn1Buffer.getPos();
+            byteBuf = ctx.alloc().ioBuffer( length );
+            asn1Buffer.writeTo( byteBuf.nioBuffer( 0, length ) );
+            byteBuf.writerIndex( length );
+        }
+        catch ( EncoderException e )
+        {
+            CODEC_LOG.error( I18n.err( I18n.ERR_14000_ERROR_ENCODING_MESSAGE, message, e.getMessage() ) );
+            throw e;
+        }
+        finally
+        {
+            asn1Buffer.clear();
+        }
+
+        if ( CODEC_LOG.isDebugEnabled() )
+        {
+            CODEC_LOG.debug( I18n.msg( I18n.MSG_14003_ENCODED_LDAP_MESSAGE, message,
+                Strings.dumpBytes( ByteBufUtil.getBytes( byteBuf ) ) ) );
+        }
+
+        out.add( byteBuf );
+    }
+}
@@ -0,0 +1,281 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ * 
+ *    https://www.apache.org/licenses/LICENSE-2.0
+ * 
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ * 
+ */
+package org.apache.directory.api.ldap.codec.protocol.netty;
+
+
+import java.util.concurrent.CompletableFuture;
+
+import javax.net.ssl.SSLSession;
+import javax.security.sasl.SaslClient;
+
+import org.apache.directory.api.ldap.codec.api.LdapMessageContainer;
+import org.apache.directory.api.ldap.model.exception.LdapException;
+import org.apache.directory.api.ldap.model.message.Message;
+import org.apache.directory.ldap.client.api.LdapConnectionConfig;
+import org.apache.directory.ldap.client.api.transport.LdapTransportHandler;
+import org.apache.directory.ldap.client.api.transport.LdapTransportSession;
+
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelInboundHandlerAdapter;
+import io.netty.channel.ChannelPipeline;
+import io.netty.handler.ssl.SslHandler;
+
+
+/**
+ * A LDAP session over a Netty channel. It's the last handler of the channel pipeline,
+ * and forwards the decoded messages and the channel events to the connection.
+ *
+ * @author <a href="mailto:dev@directory.apache.org">Apache Directory Project</a>
+ */
+public class NettyLdapSession extends ChannelInboundHandlerAdapter implements LdapTransportSession
+{
+    /** The channel connected to the server */
+    private final Channel channel;
+
+    /** The handler notified of the session events */
+    private final LdapTransportHandler handler;
+
+
+    /**
+     * Creates a new instance of NettyLdapSession.
+     *
+     * @param channel The channel connected to the server
+     * @param handler The handler notified of the session events
+     */
+    public NettyLdapSession( Channel channel, LdapTransportHandler handler )
+    {
+        this.channel = channel;
+        this.handler = handler;
+    }
+
+
+    /**
+     * @return The channel connected to the server
+     */
+    public Channel getChannel()
+    {
+        return channel;
+    }
+
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public CompletableFuture<Void> write( Message message )
+    {
+        CompletableFuture<Void> writeFuture = new CompletableFuture<>();
+
+        channel.writeAndFlush( message ).addListener( future -> 
+        {
+            if ( future.isSuccess() )
+            {
+                writeFuture.complete( null );
+            }
+            else
+            {
+                writeFuture.completeExceptionally( future.cause() );
+            }
+        } );
+
+        return writeFuture;
+    }
+
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean isConnected()
+    {
+        return channel.isActive();
+    }
+
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean isSecured()
+    {
+        SslHandler sslHandler = channel.pipeline().get( SslHandler.class );
+
+        return ( sslHandler != null ) && sslHandler.handshakeFuture().isSuccess();
+    }
+
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public SSLSession getSslSession()
+    {
+        if ( isSecured() )
+        {
+            return channel.pipeline().get( SslHandler.class ).engine().getSession();
+        }
+        else
+        {
+            return null;
+        }
+    }
+
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void startTls( LdapConnectionConfig config, long timeout ) throws LdapException
+    {
+        SslHandler sslHandler = addSslHandler( config );
+
+        NettyLdapTransport.awaitHandshake( sslHandler, timeout );
+    }
+
+
+    /**
+     * Adds a SslHandler at the head of the pipeline, which starts the TLS handshake
+     *
+     * @param config The connection configuration
+     * @return The added SslHandler
+     * @throws LdapException If the SSL context can't be created
+     */
+    SslHandler addSslHandler( LdapConnectionConfig config ) throws LdapException
+    {
+        SslHandler sslHandler = NettyLdapTransport.createSslHandler( config );
+        channel.pipeline().addFirst( NettyLdapTransport.SSL_HANDLER, sslHandler );
+
+        return sslHandler;
+    }
+
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void addSaslLayer( SaslClient saslClient ) throws LdapException
+    {
+        ChannelPipeline pipeline = channel.pipeline();
+
+        if ( pipeline.get( NettyLdapTransport.SASL_HANDLER ) != null )
+        {
+            pipeline.remove( NettyLdapTransport.SASL_HANDLER );
+        }
+
+        if ( NettySaslHandler.hasSecurityLayer( saslClient ) )
+        {
+            pipeline.addBefore( NettyLdapTransport.LDAP_DECODER, NettyLdapTransport.SASL_HANDLER,
+                new NettySaslHandler( saslClient ) );
+        }
+    }
+
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public LdapMessageContainer<Message> getMessageContainer()
+    {
+        return channel.attr( LdapNettyDecoder.MESSAGE_CONTAINER_KEY ).get();
+    }
+
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void setMessageContainer( LdapMessageContainer<Message> messageContainer )
+    {
+        channel.attr( LdapNettyDecoder.MESSAGE_CONTAINER_KEY ).set( messageContainer );
+    }
+
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void suspendRead()
+    {
+        channel.config().setAutoRead( false );
+    }
+
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void resumeRead()
+    {
+        channel.config().setAutoRead( true );
+    }
+
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void close()
+    {
+        channel.close();
+    }
+
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void channelRead( ChannelHandlerContext ctx, Object msg ) throws Exception
+    {
+        handler.messageReceived( this, ( Message ) msg );
+    }
+
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void exceptionCaught( ChannelHandlerContext ctx, Throwable cause )
+    {
+        handler.exceptionCaught( this, cause );
+    }
+
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void channelInactive( ChannelHandlerContext ctx ) throws Exception
+    {
+        handler.sessionClosed( this );
+
+        super.channelInactive( ctx );
+    }
+
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public String toString()
+    {
+        return "NettyLdapSession[" + channel + "]";
+    }
+}
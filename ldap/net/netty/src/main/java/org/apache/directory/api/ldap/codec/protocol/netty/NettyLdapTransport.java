@@ -0,0 +1,383 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ * 
+ *    https://www.apache.org/licenses/LICENSE-2.0
+ * 
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ * 
+ */
+package org.apache.directory.api.ldap.codec.protocol.netty;
+
+
+import java.nio.channels.UnresolvedAddressException;
+
+import javax.net.ssl.SSLContext;
+import javax.net.ssl.SSLEngine;
+
+import org.apache.directory.api.i18n.I18n;
+import org.apache.directory.api.ldap.codec.api.LdapApiService;
+import org.apache.directory.api.ldap.codec.api.LdapApiServiceFactory;
+import org.apache.directory.api.ldap.model.exception.LdapException;
+import org.apache.directory.api.ldap.model.exception.LdapTlsHandshakeException;
+import org.apache.directory.ldap.client.api.LdapConnectionConfig;
+import org.apache.directory.ldap.client.api.exception.InvalidConnectionException;
+import org.apache.directory.ldap.client.api.exception.LdapConnectionTimeOutException;
+import org.apache.directory.ldap.client.api.transport.LdapTransport;
+import org.apache.directory.ldap.client.api.transport.LdapTransportHandler;
+import org.apache.directory.ldap.client.api.transport.LdapTransportSession;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import io.netty.bootstrap.Bootstrap;
+import io.netty.buffer.PooledByteBufAllocator;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelFuture;
+import io.netty.channel.ChannelInitializer;
+import io.netty.channel.ChannelOption;
+import io.netty.channel.ChannelPipeline;
+import io.netty.channel.EventLoopGroup;
+import io.netty.channel.epoll.Epoll;
+import io.netty.channel.epoll.EpollEventLoopGroup;
+import io.netty.channel.epoll.EpollSocketChannel;
+import io.netty.channel.nio.NioEventLoopGroup;
+import io.netty.channel.socket.nio.NioSocketChannel;
+import io.netty.handler.ssl.SslHandler;
+import io.netty.util.concurrent.Future;
+
+
+/**
+ * A {@link LdapTransport} based on Netty. The native epoll transport is used when
+ * it's available, NIO otherwise. All the connections created by this transport share
+ * the same event loops, and use pooled direct buffers.
+ * <br>
+ * To use it, set it in the connection configuration :
+ * <pre>
+ * NettyLdapTransport transport = new NettyLdapTransport();
+ * LdapConnectionConfig config = new LdapConnectionConfig();
+ * config.setTransport( transport );
+ * ...
+ * LdapConnection connection = new LdapNetworkConnection( config );
+ * ...
+ * transport.dispose();
+ * </pre>
+ *
+ * @author <a href="mailto:dev@directory.apache.org">Apache Directory Project</a>
+ */
+public class NettyLdapTransport implements LdapTransport
+{
+    /** The logger */
+    private static final Logger LOG = LoggerFactory.getLogger( NettyLdapTransport.class );
+
+    /** The SslHandler name in the pipeline */
+    static final String SSL_HANDLER = "ssl";
+
+    /** The SASL handler name in the pipeline */
+    static final String SASL_HANDLER = "sasl";
+
+    /** The LDAP decoder name in the pipeline */
+    static final String LDAP_DECODER = "ldapDecoder";
+
+    /** The LDAP encoder name in the pipeline */
+    static final String LDAP_ENCODER = "ldapEncoder";
+
+    /** The LDAP session name in the pipeline */
+    static final String LDAP_SESSION = "ldapSession";
+
+    /** The LDAP API Service instance */
+    private final LdapApiService codec;
+
+    /** The encoder, shared by all the channels */
+    private final LdapNettyEncoder encoder;
+
+    /** The event loops processing the channels I/O */
+    private final EventLoopGroup eventLoopGroup;
+
+    /** The class of the channels to create */
+    private final Class<? extends Channel> channelClass;
+
+    /** A flag set when the native epoll transport is used */
+    private final boolean epoll;
+
+
+    /**
+     * Creates a new instance of NettyLdapTransport, using the default number of event loops
+     * (twice the number of processors).
+     */
+    public NettyLdapTransport()
+    {
+        this( 0 );
+    }
+
+
+    /**
+     * Creates a new instance of NettyLdapTransport.
+     *
+     * @param nbThreads The number of event loops, 0 for the default number
+     */
+    public NettyLdapTransport( int nbThreads )
+    {
+        this( nbThreads, LdapApiServiceFactory.getSingleton() );
+    }
+
+
+    /**
+     * Creates a new instance of NettyLdapTransport.
+     *
+     * @param nbThreads The number of event loops, 0 for the default number
+     * @param ldapApiService The LDAP API Service to use
+     */
+    public NettyLdapTransport( int nbThreads, LdapApiService ldapApiService )
+    {
+        codec = ldapApiService;
+        encoder = new LdapNettyEncoder( ldapApiService );
+        epoll = Epoll.isAvailable();
+
+        if ( epoll )
+        {
+            eventLoopGroup = new EpollEventLoopGroup( nbThreads );
+            channelClass = EpollSocketChannel.class;
+        }
+        else
+        {
+            eventLoopGroup = new NioEventLoopGroup( nbThreads );
+            channelClass = NioSocketChannel.class;
+        }
+
+        if ( LOG.isDebugEnabled() )
+        {
+            LOG.debug( "Netty LDAP transport created, using {}", channelClass.getSimpleName() );
+        }
+    }
+
+
+    /**
+     * @return <tt>true</tt> if the native epoll transport is used
+     */
+    public boolean isEpoll()
+    {
+        return epoll;
+    }
+
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public LdapTransportSession connect( LdapConnectionConfig config, LdapTransportHandler handler, long timeout )
+        throws LdapException
+    {
+        SslHandler sslHandler = null;
+
+        if ( config.isUseSsl() )
+        {
+            sslHandler = createSslHandler( config );
+        }
+
+        Bootstrap bootstrap = new Bootstrap()
+            .group( eventLoopGroup )
+            .channel( channelClass )
+            .option( ChannelOption.TCP_NODELAY, true )
+            .option( ChannelOption.SO_REUSEADDR, true )
+            .option( ChannelOption.ALLOCATOR, PooledByteBufAllocator.DEFAULT )
+            .option( ChannelOption.CONNECT_TIMEOUT_MILLIS, ( int ) Math.min( timeout, Integer.MAX_VALUE ) )
+            .handler( new LdapChannelInitializer( handler, sslHandler ) );
+
+        ChannelFuture connectFuture = bootstrap.connect( config.getLdapHost(), config.getLdapPort() );
+
+        if ( !connectFuture.awaitUninterruptibly( timeout ) )
+        {
+            connectFuture.cancel( true );
+            connectFuture.channel().close();
+
+            throw new LdapConnectionTimeOutException( I18n.msg( I18n.MSG_04177_CONNECTION_TIMEOUT, timeout ) );
+        }
+
+        if ( !connectFuture.isSuccess() )
+        {
+            Throwable cause = connectFuture.cause();
+
+            // Special case for UnresolvedAddressException
+            // (most of the time no message is associated with this exception)
+            if ( ( cause instanceof UnresolvedAddressException ) && ( cause.getMessage() == null ) )
+            {
+                throw new InvalidConnectionException( I18n.err( I18n.ERR_04121_CANNOT_RESOLVE_HOSTNAME,
+                    config.getLdapHost() ), cause );
+            }
+
+            throw new InvalidConnectionException( I18n.err( I18n.ERR_04110_CANNOT_CONNECT_TO_SERVER,
+                cause.getMessage() ), cause );
+        }
+
+        Channel channel = connectFuture.channel();
+
+        if ( sslHandler != null )
+        {
+            try
+            {
+                awaitHandshake( sslHandler, timeout );
+            }
+            catch ( LdapException le )
+            {
+                channel.close();
+
+                throw le;
+            }
+        }
+
+        return ( NettyLdapSession ) channel.pipeline().get( LDAP_SESSION );
+    }
+
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void dispose()
+    {
+        eventLoopGroup.shutdownGracefully();
+    }
+
+
+    /**
+     * Creates the SslHandler for a connection, using the TLS parameters of its configuration
+     *
+     * @param config The connection configuration
+     * @return The SslHandler
+     * @throws LdapException If the SSL context can't be created
+     */
+    static SslHandler createSslHandler( LdapConnectionConfig config ) throws LdapException
+    {
+        try
+        {
+            SSLContext sslContext = SSLContext.getInstance( config.getSslProtocol() );
+            sslContext.init( config.getKeyManagers(), config.getTrustManagers(), config.getSecureRandom() );
+
+            SSLEngine sslEngine = sslContext.createSSLEngine( config.getLdapHost(), config.getLdapPort() );
+            sslEngine.setUseClientMode( true );
+
+            // Configure the enabled cipher lists
+            String[] enabledCipherSuite = config.getEnabledCipherSuites();
+
+            if ( ( enabledCipherSuite != null ) && ( enabledCipherSuite.length != 0 ) )
+            {
+                sslEngine.setEnabledCipherSuites( enabledCipherSuite );
+            }
+
+            // Be sure we disable SSLV3
+            String[] enabledProtocols = config.getEnabledProtocols();
+
+            if ( ( enabledProtocols != null ) && ( enabledProtocols.length != 0 ) )
+            {
+                sslEngine.setEnabledProtocols( enabledProtocols );
+            }
+            else
+            {
+                // Default to TLS
+                sslEngine.setEnabledProtocols( new String[]
+                    { "TLSv1", "TLSv1.1", "TLSv1.2", "TLSv1.3" } );
+            }
+
+            return new SslHandler( sslEngine );
+        }
+        catch ( Exception e )
+        {
+            String msg = I18n.err( I18n.ERR_04122_SSL_CONTEXT_INIT_FAILURE );
+            LOG.error( msg, e );
+            throw new LdapException( msg, e );
+        }
+    }
+
+
+    /**
+     * Wait for the TLS handshake to be completed
+     *
+     * @param sslHandler The SslHandler doing the handshake
+     * @param timeout The maximum time to wait, in milliseconds
+     * @throws LdapException If the handshake failed or has not completed in time
+     */
+    static void awaitHandshake( SslHandler sslHandler, long timeout ) throws LdapException
+    {
+        Future<Channel> handshakeFuture = sslHandler.handshakeFuture();
+
+        if ( !handshakeFuture.awaitUninterruptibly( timeout ) )
+        {
+            throw new LdapException( I18n.err( I18n.ERR_04170_TIMEOUT_OCCURED ) );
+        }
+
+        if ( !handshakeFuture.isSuccess() )
+        {
+            throw new LdapTlsHandshakeException( I18n.err( I18n.ERR_04120_TLS_HANDSHAKE_ERROR ),
+                handshakeFuture.cause() );
+        }
+    }
+
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public String toString()
+    {
+        return "NettyLdapTransport[" + channelClass.getSimpleName() + "]";
+    }
+
+
+    /**
+     * Initialize the pipeline of a new channel, and notify the handler that a session
+     * has been created.
+     */
+    class LdapChannelInitializer extends ChannelInitializer<Channel>
+    {
+        /** The handler notified of the session events */
+        private final LdapTransportHandler handler;
+
+        /** The SslHandler, when LDAPS is used */
+        private final SslHandler sslHandler;
+
+
+        /**
+         * Creates a new instance of LdapChannelInitializer.
+         *
+         * @param handler The handler notified of the session events
+         * @param sslHandler The SslHandler, or null when LDAPS is not used
+         */
+        LdapChannelInitializer( LdapTransportHandler handler, SslHandler sslHandler )
+        {
+            this.handler = handler;
+            this.sslHandler = sslHandler;
+        }
+
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        protected void initChannel( Channel channel )
+        {
+            ChannelPipeline pipeline = channel.pipeline();
+            NettyLdapSession session = new NettyLdapSession( channel, handler );
+
+            if ( sslHandler != null )
+            {
+                pipeline.addLast( SSL_HANDLER, sslHandler );
+            }
+
+            pipeline.addLast( LDAP_DECODER, new LdapNettyDecoder( codec ) );
+            pipeline.addLast( LDAP_ENCODER, encoder );
+            pipeline.addLast( LDAP_SESSION, session );
+
+            handler.sessionCreated( session );
+        }
+    }
+}
@@ -0,0 +1,151 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ * 
+ *    https://www.apache.org/licenses/LICENSE-2.0
+ * 
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ * 
+ */
+package org.apache.directory.api.ldap.codec.protocol.netty;
+
+
+import java.util.List;
+
+import javax.security.sasl.Sasl;
+import javax.security.sasl.SaslClient;
+
+import org.apache.directory.api.ldap.model.constants.SaslQoP;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.handler.codec.ByteToMessageCodec;
+import io.netty.handler.codec.DecoderException;
+
+
+/**
+ * A Netty handler adding the integrity and confidentiality protection negotiated by
+ * a SASL bind, like the MINA {@link org.apache.directory.api.ldap.codec.api.SaslFilter}.
+ * Each SASL buffer is prefixed by its 4 bytes length.
+ *
+ * @author <a href="mailto:dev@directory.apache.org">Apache Directory Project</a>
+ */
+public class NettySaslHandler extends ByteToMessageCodec<ByteBuf>
+{
+    /** The logger */
+    private static final Logger LOG = LoggerFactory.getLogger( NettySaslHandler.class );
+
+    /** The SASL client which has completed the negotiation */
+    private final SaslClient saslClient;
+
+    /** The negotiated max buffer size */
+    private final int maxBufferSize;
+
+
+    /**
+     * Creates a new instance of NettySaslHandler.
+     *
+     * @param saslClient The SASL client which has completed the negotiation
+     */
+    public NettySaslHandler( SaslClient saslClient )
+    {
+        this.saslClient = saslClient;
+
+        String maxBuffer = ( String ) saslClient.getNegotiatedProperty( Sasl.MAX_BUFFER );
+        maxBufferSize = maxBuffer != null ? Integer.parseInt( maxBuffer ) : 65536;
+    }
+
+
+    /**
+     * Tells if a SASL client has negotiated a security layer. If not, there is no
+     * need to add this handler to the pipeline.
+     *
+     * @param saslClient The SASL client which has completed the negotiation
+     * @return <tt>true</tt> if the messages have to be wrapped and unwrapped
+     */
+    public static boolean hasSecurityLayer( SaslClient saslClient )
+    {
+        String qop = ( String ) saslClient.getNegotiatedProperty( Sasl.QOP );
+
+        return ( qop != null )
+            && ( qop.equals( SaslQoP.AUTH_INT.getValue() ) || qop.equals( SaslQoP.AUTH_CONF.getValue() ) );
+    }
+
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    protected void encode( ChannelHandlerContext ctx, ByteBuf msg, ByteBuf out ) throws Exception
+    {
+        int bufferLength = msg.readableBytes();
+        byte[] bufferBytes = new byte[bufferLength];
+        msg.readBytes( bufferBytes );
+
+        if ( LOG.isDebugEnabled() )
+        {
+            LOG.debug( "Will use SASL to wrap message of length:  {}", bufferLength );
+        }
+
+        // Ensure to not send larger SASL message than negotiated
+        int max = maxBufferSize - 200;
+
+        for ( int offset = 0; offset < bufferLength; offset += max )
+        {
+            int length = Math.min( bufferLength - offset, max );
+            byte[] saslLayer = saslClient.wrap( bufferBytes, offset, length );
+
+            out.writeInt( saslLayer.length );
+            out.writeBytes( saslLayer );
+        }
+    }
+
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    protected void decode( ChannelHandlerContext ctx, ByteBuf in, List<Object> out ) throws Exception
+    {
+        while ( in.readableBytes() >= 4 )
+        {
+            int bufferSize = in.getInt( in.readerIndex() );
+
+            if ( bufferSize > maxBufferSize )
+            {
+                throw new DecoderException(
+                    bufferSize + " exceeds the negotiated receive buffer size limit: " + maxBufferSize );
+            }
+
+            if ( in.readableBytes() < 4 + bufferSize )
+            {
+                // Wait for the rest of the SASL buffer
+                return;
+            }
+
+            in.skipBytes( 4 );
+            byte[] bytes = new byte[bufferSize];
+            in.readBytes( bytes );
+
+            if ( LOG.isDebugEnabled() )
+            {
+                LOG.debug( "Will use SASL to unwrap received message of length:  {}", bufferSize );
+            }
+
+            out.add( Unpooled.wrappedBuffer( saslClient.unwrap( bytes, 0, bytes.length ) ) );
+        }
+    }
+}
@@ -0,0 +1,568 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *    https://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ *
+ */
+package org.apache.directory.api.ldap.codec.protocol.netty;
+
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import javax.security.sasl.Sasl;
+import javax.security.sasl.SaslClient;
+
+import org.apache.directory.api.asn1.util.Asn1Buffer;
+import org.apache.directory.api.ldap.codec.api.LdapApiService;
+import org.apache.directory.api.ldap.codec.api.LdapEncoder;
+import org.apache.directory.api.ldap.codec.api.LdapMessageContainer;
+import org.apache.directory.api.ldap.codec.osgi.DefaultLdapCodecService;
+import org.apache.directory.api.ldap.model.constants.SaslQoP;
+import org.apache.directory.api.ldap.model.message.BindRequest;
+import org.apache.directory.api.ldap.model.message.BindRequestImpl;
+import org.apache.directory.api.ldap.model.message.BindResponse;
+import org.apache.directory.api.ldap.model.message.BindResponseImpl;
+import org.apache.directory.api.ldap.model.message.Message;
+import org.apache.directory.api.ldap.model.message.ResultCodeEnum;
+import org.apache.directory.ldap.client.api.LdapConnectionConfig;
+import org.apache.directory.ldap.client.api.transport.LdapTransportHandler;
+import org.apache.directory.ldap.client.api.transport.LdapTransportSession;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.embedded.EmbeddedChannel;
+import io.netty.handler.codec.DecoderException;
+import io.netty.handler.ssl.SslHandler;
+
+
+/**
+ * Test the Netty pipeline of the LDAP connections : the channels are embedded
+ * channels, the bytes written to and read from them are checked by the test.
+ *
+ * @author <a href="mailto:dev@directory.apache.org">Apache Directory Project</a>
+ */
+public class NettyLdapTransportTest
+{
+    /** The negotiated SASL buffer size */
+    private static final int SASL_MAX_BUFFER = 1024;
+
+    /** The LDAP codec */
+    private LdapApiService codec;
+
+    /** The transport creating the pipelines */
+    private NettyLdapTransport transport;
+
+    /** The handler notified of the session events */
+    private RecordingHandler handler;
+
+    /** The tested channel */
+    private EmbeddedChannel channel;
+
+
+    /**
+     * A handler recording the session events
+     */
+    private class RecordingHandler implements LdapTransportHandler
+    {
+        /** The created session */
+        private NettyLdapSession session;
+
+        /** The received messages */
+        private final List<Message> messages = new ArrayList<>();
+
+        /** The caught exceptions */
+        private final List<Throwable> exceptions = new ArrayList<>();
+
+        /** The number of times the session has been closed */
+        private int closed;
+
+        /** When set, the received messages can't be processed */
+        private boolean failing;
+
+
+        @Override
+        public void sessionCreated( LdapTransportSession session )
+        {
+            this.session = ( NettyLdapSession ) session;
+            session.setMessageContainer( new LdapMessageContainer<>( codec ) );
+        }
+
+
+        @Override
+        public void messageReceived( LdapTransportSession session, Message message ) throws Exception
+        {
+            if ( failing )
+            {
+                throw new IllegalStateException( "Cannot process " + message );
+            }
+
+            messages.add( message );
+        }
+
+
+        @Override
+        public void exceptionCaught( LdapTransportSession session, Throwable cause )
+        {
+            exceptions.add( cause );
+        }
+
+
+        @Override
+        public void sessionClosed( LdapTransportSession session )
+        {
+            closed++;
+        }
+    }
+
+
+    /**
+     * A SASL client whose security layer is a XOR of the bytes
+     */
+    private static class XorSaslClient implements SaslClient
+    {
+        @Override
+        public String getMechanismName()
+        {
+            return "XOR";
+        }
+
+
+        @Override
+        public boolean hasInitialResponse()
+        {
+            return false;
+        }
+
+
+        @Override
+        public byte[] evaluateChallenge( byte[] challenge )
+        {
+            return null;
+        }
+
+
+        @Override
+        public boolean isComplete()
+        {
+            return true;
+        }
+
+
+        @Override
+        public byte[] unwrap( byte[] incoming, int offset, int len )
+        {
+            return xor( incoming, offset, len );
+        }
+
+
+        @Override
+        public byte[] wrap( byte[] outgoing, int offset, int len )
+        {
+            return xor( outgoing, offset, len );
+        }
+
+
+        @Override
+        public Object getNegotiatedProperty( String propName )
+        {
+            if ( Sasl.QOP.equals( propName ) )
+            {
+                return SaslQoP.AUTH_INT.getValue();
+            }
+            else if ( Sasl.MAX_BUFFER.equals( propName ) )
+            {
+                return Integer.toString( SASL_MAX_BUFFER );
+            }
+
+            return null;
+        }
+
+
+        @Override
+        public void dispose()
+        {
+        }
+
+
+        private static byte[] xor( byte[] bytes, int offset, int len )
+        {
+            byte[] result = Arrays.copyOfRange( bytes, offset, offset + len );
+
+            for ( int i = 0; i < result.length; i++ )
+            {
+                result[i] ^= 0x5A;
+            }
+
+            return result;
+        }
+    }
+
+
+    @BeforeEach
+    public void createChannel()
+    {
+        codec = new DefaultLdapCodecService();
+        transport = new NettyLdapTransport( 1, codec );
+        handler = new RecordingHandler();
+        channel = new EmbeddedChannel( transport.new LdapChannelInitializer( handler, null ) );
+    }
+
+
+    @AfterEach
+    public void closeChannel()
+    {
+        channel.finishAndReleaseAll();
+        transport.dispose();
+    }
+
+
+    /**
+     * @param messageId The message ID
+     * @return The encoded BindResponse
+     */
+    private byte[] encodeBindResponse( int messageId ) throws Exception
+    {
+        BindResponse response = new BindResponseImpl( messageId );
+        response.getLdapResult().setResultCode( ResultCodeEnum.SUCCESS );
+
+        return encode( response );
+    }
+
+
+    /**
+     * @param message The message
+     * @return The encoded message
+     */
+    private byte[] encode( Message message ) throws Exception
+    {
+        ByteBuffer buffer = LdapEncoder.encodeMessage( new Asn1Buffer(), codec, message );
+        byte[] bytes = new byte[buffer.remaining()];
+        buffer.get( bytes );
+
+        return bytes;
+    }
+
+
+    /**
+     * @return The bytes of the buffers written by the channel, released
+     */
+    private byte[] readOutbound()
+    {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ByteBuf buffer;
+
+        while ( ( buffer = channel.readOutbound() ) != null )
+        {
+            byte[] bytes = new byte[buffer.readableBytes()];
+            buffer.readBytes( bytes );
+            buffer.release();
+            out.write( bytes, 0, bytes.length );
+        }
+
+        return out.toByteArray();
+    }
+
+
+    /**
+     * @param message The written message
+     * @return The bytes written by the channel for the message
+     */
+    private byte[] readOutboundAfterWrite( Message message )
+    {
+        handler.session.write( message );
+
+        return readOutbound();
+    }
+
+
+    /**
+     * @param arrays The arrays
+     * @return The given arrays, concatenated
+     */
+    private static byte[] concat( byte[]... arrays )
+    {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        for ( byte[] array : arrays )
+        {
+            out.write( array, 0, array.length );
+        }
+
+        return out.toByteArray();
+    }
+
+
+    /**
+     * @param bytes The bytes to wrap
+     * @return A SASL buffer : the length of the wrapped bytes, then the wrapped bytes
+     */
+    private static byte[] saslBuffer( byte[] bytes )
+    {
+        byte[] wrapped = new XorSaslClient().wrap( bytes, 0, bytes.length );
+
+        return concat( ByteBuffer.allocate( 4 ).putInt( wrapped.length ).array(), wrapped );
+    }
+
+
+    @Test
+    public void testPipeline()
+    {
+        assertNotNull( handler.session );
+        assertSame( channel, handler.session.getChannel() );
+        assertEquals( Arrays.asList( NettyLdapTransport.LDAP_DECODER, NettyLdapTransport.LDAP_ENCODER,
+            NettyLdapTransport.LDAP_SESSION ), channel.pipeline().names().subList( 0, 3 ) );
+        assertTrue( handler.session.isConnected() );
+        assertFalse( handler.session.isSecured() );
+    }
+
+
+    @Test
+    public void testPduSplitAcrossFrames() throws Exception
+    {
+        byte[] pdu = encodeBindResponse( 1 );
+
+        // One byte at a time
+        for ( int i = 0; i < pdu.length; i++ )
+        {
+            channel.writeInbound( Unpooled.wrappedBuffer( pdu, i, 1 ) );
+
+            assertEquals( ( i == pdu.length - 1 ) ? 1 : 0, handler.messages.size() );
+        }
+
+        assertEquals( 1, handler.messages.get( 0 ).getMessageId() );
+        assertTrue( handler.messages.get( 0 ) instanceof BindResponse );
+        assertTrue( handler.exceptions.isEmpty() );
+    }
+
+
+    @Test
+    public void testSeveralPdusInOneFrame() throws Exception
+    {
+        byte[] first = encodeBindResponse( 1 );
+        byte[] second = encodeBindResponse( 2 );
+        byte[] third = encodeBindResponse( 3 );
+        byte[] bytes = concat( first, second, third );
+
+        // The third PDU ends in the next frame
+        int split = bytes.length - 2;
+        channel.writeInbound( Unpooled.wrappedBuffer( bytes, 0, split ) );
+
+        assertEquals( 2, handler.messages.size() );
+
+        channel.writeInbound( Unpooled.wrappedBuffer( bytes, split, bytes.length - split ) );
+
+        assertEquals( 3, handler.messages.size() );
+
+        for ( int i = 0; i < 3; i++ )
+        {
+            assertEquals( i + 1, handler.messages.get( i ).getMessageId() );
+        }
+    }
+
+
+    @Test
+    public void testWrite() throws Exception
+    {
+        BindRequest request = new BindRequestImpl();
+        request.setMessageId( 1 );
+        request.setName( "cn=test" );
+        request.setCredentials( "secret" );
+
+        CompletableFuture<Void> written = handler.session.write( request );
+
+        assertTrue( written.isDone() );
+        assertFalse( written.isCompletedExceptionally() );
+        assertArrayEquals( encode( request ), readOutbound() );
+    }
+
+
+    @Test
+    public void testSaslWrap() throws Exception
+    {
+        handler.session.addSaslLayer( new XorSaslClient() );
+
+        List<String> names = channel.pipeline().names();
+
+        assertEquals( names.indexOf( NettyLdapTransport.LDAP_DECODER ) - 1,
+            names.indexOf( NettyLdapTransport.SASL_HANDLER ) );
+
+        // A request larger than the negotiated buffer size is wrapped in several SASL buffers
+        byte[] credentials = new byte[2 * SASL_MAX_BUFFER];
+        Arrays.fill( credentials, ( byte ) 'x' );
+
+        BindRequest request = new BindRequestImpl();
+        request.setMessageId( 1 );
+        request.setName( "cn=test" );
+        request.setCredentials( credentials );
+
+        ByteBuffer sasl = ByteBuffer.wrap( readOutboundAfterWrite( request ) );
+        ByteArrayOutputStream unwrapped = new ByteArrayOutputStream();
+        int buffers = 0;
+
+        while ( sasl.hasRemaining() )
+        {
+            int length = sasl.getInt();
+
+            assertTrue( length <= SASL_MAX_BUFFER );
+
+            byte[] wrapped = new byte[length];
+            sasl.get( wrapped );
+            unwrapped.write( new XorSaslClient().unwrap( wrapped, 0, length ), 0, length );
+            buffers++;
+        }
+
+        assertEquals( 3, buffers );
+        assertArrayEquals( encode( request ), unwrapped.toByteArray() );
+    }
+
+
+    @Test
+    public void testSaslUnwrap() throws Exception
+    {
+        handler.session.addSaslLayer( new XorSaslClient() );
+
+        byte[] bytes = concat( saslBuffer( encodeBindResponse( 1 ) ), saslBuffer( encodeBindResponse( 2 ) ) );
+
+        // The first SASL buffer length is split across two frames, the second buffer is in the second frame
+        channel.writeInbound( Unpooled.wrappedBuffer( bytes, 0, 2 ) );
+
+        assertTrue( handler.messages.isEmpty() );
+
+        channel.writeInbound( Unpooled.wrappedBuffer( bytes, 2, bytes.length - 2 ) );
+
+        assertEquals( 2, handler.messages.size() );
+        assertEquals( 1, handler.messages.get( 0 ).getMessageId() );
+        assertEquals( 2, handler.messages.get( 1 ).getMessageId() );
+        assertTrue( handler.exceptions.isEmpty() );
+    }
+
+
+    @Test
+    public void testSaslBufferTooLarge() throws Exception
+    {
+        handler.session.addSaslLayer( new XorSaslClient() );
+
+        channel.writeInbound( Unpooled.wrappedBuffer( ByteBuffer.allocate( 8 ).putInt( SASL_MAX_BUFFER + 1 ).array() ) );
+
+        assertTrue( handler.messages.isEmpty() );
+        assertEquals( 1, handler.exceptions.size() );
+        assertTrue( handler.exceptions.get( 0 ) instanceof DecoderException );
+    }
+
+
+    @Test
+    public void testSaslLayerReplaced() throws Exception
+    {
+        handler.session.addSaslLayer( new XorSaslClient() );
+        handler.session.addSaslLayer( new XorSaslClient() );
+
+        assertEquals( 1, Collections.frequency( channel.pipeline().names(), NettyLdapTransport.SASL_HANDLER ) );
+    }
+
+
+    @Test
+    public void testStartTls() throws Exception
+    {
+        SslHandler sslHandler = handler.session.addSslHandler( new LdapConnectionConfig() );
+
+        // The SslHandler is the first handler, and has sent the ClientHello
+        assertSame( sslHandler, channel.pipeline().first() );
+        assertEquals( NettyLdapTransport.SSL_HANDLER, channel.pipeline().names().get( 0 ) );
+
+        byte[] clientHello = readOutbound();
+
+        assertTrue( clientHello.length > 0 );
+        assertEquals( 0x16, clientHello[0] );
+
+        // Not secured until the handshake has completed
+        assertFalse( handler.session.isSecured() );
+        assertNull( handler.session.getSslSession() );
+    }
+
+
+    @Test
+    public void testLdapsPipeline() throws Exception
+    {
+        SslHandler sslHandler = NettyLdapTransport.createSslHandler( new LdapConnectionConfig() );
+        EmbeddedChannel ldapsChannel = new EmbeddedChannel( transport.new LdapChannelInitializer( handler, sslHandler ) );
+
+        try
+        {
+            assertSame( sslHandler, ldapsChannel.pipeline().first() );
+            assertEquals( NettyLdapTransport.SSL_HANDLER, ldapsChannel.pipeline().names().get( 0 ) );
+        }
+        finally
+        {
+            ldapsChannel.finishAndReleaseAll();
+        }
+    }
+
+
+    @Test
+    public void testClose() throws Exception
+    {
+        handler.session.close();
+
+        assertFalse( handler.session.isConnected() );
+        assertEquals( 1, handler.closed );
+
+        // The writes on a closed session fail
+        CompletableFuture<Void> written = handler.session.write( new BindResponseImpl( 1 ) );
+
+        assertTrue( written.isCompletedExceptionally() );
+    }
+
+
+    @Test
+    public void testDecoderException() throws Exception
+    {
+        // Not a LDAP message
+        channel.writeInbound( Unpooled.wrappedBuffer( new byte[]
+            { 0x04, 0x01, 0x00 } ) );
+
+        assertTrue( handler.messages.isEmpty() );
+        assertEquals( 1, handler.exceptions.size() );
+        assertTrue( handler.exceptions.get( 0 ) instanceof DecoderException );
+    }
+
+
+    @Test
+    public void testHandlerException() throws Exception
+    {
+        handler.failing = true;
+        channel.writeInbound( Unpooled.wrappedBuffer( encodeBindResponse( 1 ) ) );
+
+        assertEquals( 1, handler.exceptions.size() );
+        assertTrue( handler.exceptions.get( 0 ) instanceof IllegalStateException );
+    }
+}
@@ -25,6 +25,7 @@ import static org.apache.directory.api.util.Hex.encodeHex;
 import static org.apache.directory.api.util.Hex.getHexValue;
 
 import java.io.UnsupportedEncodingException;
+import java.nio.ByteBuffer;
 import java.nio.charset.Charset;
 import java.nio.charset.StandardCharsets;
 import java.util.List;
@@ -782,6 +783,49 @@ public final class Strings
     }
 
 
+    /**
+     * Return an UTF-8 encoded String, reading the remaining bytes of a ByteBuffer. The
+     * buffer position is not modified.
+     *
+     * @param buffer The ByteBuffer to be transformed to a String
+     * @return A String.
+     */
+    public static String utf8ToString( ByteBuffer buffer )
+    {
+        if ( buffer == null )
+        {
+            return "";
+        }
+
+        if ( !buffer.hasArray() )
+        {
+            byte[] bytes = new byte[buffer.remaining()];
+            buffer.duplicate().get( bytes );
+
+            return utf8ToString( bytes );
+        }
+
+        byte[] bytes = buffer.array();
+        int start = buffer.arrayOffset() + buffer.position();
+        int length = buffer.remaining();
+        char[] chars = new char[length];
+
+        try
+        {
+            for ( int i = 0; i < length; i++ )
+            {
+                chars[i] = ( char ) UTF8[bytes[start + i]];
+            }
+        }
+        catch ( ArrayIndexOutOfBoundsException aioobe )
+        {
+            return new String( bytes, start, length, StandardCharsets.UTF_8 );
+        }
+
+        return new String( chars );
+    }
+
+
     /**
      * Return an UTF-8 encoded String
      *